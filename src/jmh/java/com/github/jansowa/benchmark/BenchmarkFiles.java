@@ -0,0 +1,43 @@
+package com.github.jansowa.benchmark;
+
+import com.github.jansowa.domain.FileBasicInfo;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Date;
+
+final class BenchmarkFiles {
+    private BenchmarkFiles(){
+    }
+
+    static FileBasicInfo generateFile(String folder, long number){
+        Date creationTime = new Date();
+        return FileBasicInfo.builder()
+                .filePath(folder + "/file" + number + ".txt")
+                .creationTime(creationTime)
+                .lastUsageTime(creationTime)
+                .extension("txt")
+                .name("file" + number)
+                .url("http://example.com/" + folder + "/file" + number + ".txt")
+                .build();
+    }
+
+    static String generatePath(String folder, long number){
+        return folder + "/file" + number + ".txt";
+    }
+
+    static String createDirectory(){
+        try {
+            return Files.createTempDirectory("cache-model-benchmark").toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void removeDirectory(String directory){
+        FileUtils.deleteQuietly(new File(directory));
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.jansowa.benchmark;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.domain.FileBasicInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+//Single operations on a model filled with datasetSize files. Mutating benchmarks
+//restore the previous state in the same invocation, so the dataset size stays constant.
+//Models that rewrite their whole file on every put need a very long setup for the biggest sizes,
+//select them with -p, e.g. -p cacheModelType=HASH_MAP_JOURNALED -p datasetSize=1000000.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheModelBenchmark {
+    private static final String FOLDER = "benchmark";
+    private static final String MOVED_FOLDER = "moved";
+    private static final int RANDOM_INDEXES = 1 << 16;
+    private static final int BATCH_SIZE = 100;
+
+    @Param
+    public CacheModelType cacheModelType;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int datasetSize;
+
+    private String directory;
+    private CacheModel cacheModel;
+    //precomputed, so random number generation isn't measured
+    private int[] randomIndexes;
+    private int nextIndex;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        directory = BenchmarkFiles.createDirectory();
+        cacheModel = cacheModelType.create(datasetSize, directory);
+        for(int i=0; i<datasetSize; i++){
+            cacheModel.put(BenchmarkFiles.generateFile(FOLDER, i));
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        randomIndexes = new int[RANDOM_INDEXES];
+        for(int i=0; i<RANDOM_INDEXES; i++){
+            randomIndexes[i] = random.nextInt(datasetSize);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        cacheModelType.release(cacheModel);
+        BenchmarkFiles.removeDirectory(directory);
+    }
+
+    private int nextFileNumber(){
+        nextIndex = (nextIndex + 1) & (RANDOM_INDEXES - 1);
+        return randomIndexes[nextIndex];
+    }
+
+    @Benchmark
+    public void put(){
+        cacheModel.put(BenchmarkFiles.generateFile(FOLDER, nextFileNumber()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void putAll(){
+        List<FileBasicInfo> batch = new ArrayList<>(BATCH_SIZE);
+        for(int i=0; i<BATCH_SIZE; i++){
+            batch.add(BenchmarkFiles.generateFile(FOLDER, nextFileNumber()));
+        }
+        cacheModel.putAll(batch);
+    }
+
+    @Benchmark
+    public boolean contains(){
+        return cacheModel.contains(BenchmarkFiles.generatePath(FOLDER, nextFileNumber()));
+    }
+
+    @Benchmark
+    public boolean containsMissing(){
+        return cacheModel.contains(BenchmarkFiles.generatePath(MOVED_FOLDER, nextFileNumber()));
+    }
+
+    @Benchmark
+    public Optional<FileBasicInfo> read(){
+        return cacheModel.read(BenchmarkFiles.generatePath(FOLDER, nextFileNumber()));
+    }
+
+    @Benchmark
+    public void removeAndPut(){
+        int fileNumber = nextFileNumber();
+        cacheModel.remove(BenchmarkFiles.generatePath(FOLDER, fileNumber));
+        cacheModel.put(BenchmarkFiles.generateFile(FOLDER, fileNumber));
+    }
+
+    @Benchmark
+    public void moveSingleFileAndBack(){
+        int fileNumber = nextFileNumber();
+        String sourcePath = BenchmarkFiles.generatePath(FOLDER, fileNumber);
+        String destinationPath = BenchmarkFiles.generatePath(MOVED_FOLDER, fileNumber);
+        cacheModel.movePath(sourcePath, destinationPath);
+        cacheModel.movePath(destinationPath, sourcePath);
+    }
+}
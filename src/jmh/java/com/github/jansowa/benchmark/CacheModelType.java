@@ -0,0 +1,209 @@
+package com.github.jansowa.benchmark;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.dao.concurrent.ConcurrentCacheModel;
+import com.github.jansowa.dao.datastructure.ArrayListCacheModel;
+import com.github.jansowa.dao.decorator.BloomFilterCacheModel;
+import com.github.jansowa.dao.decorator.TieredCacheModel;
+import com.github.jansowa.dao.decorator.WriteBehindCacheModel;
+import com.github.jansowa.dao.eviction.EvictingCacheModel;
+import com.github.jansowa.dao.eviction.WTinyLfuEvictionPolicy;
+import com.github.jansowa.dao.expiry.ExpiringCacheModel;
+import com.github.jansowa.dao.datastructure.HashMapCacheModel;
+import com.github.jansowa.dao.datastructure.PrimitiveCacheModel;
+import com.github.jansowa.dao.datastructure.RadixTreeCacheModel;
+import com.github.jansowa.dao.mappedfile.MappedFileCacheModel;
+import com.github.jansowa.dao.nonrelationaldb.NitriteCacheModel1;
+import com.github.jansowa.dao.nonrelationaldb.NitriteCacheModel3;
+import com.github.jansowa.dao.packfile.PackFileCacheModel;
+import com.github.jansowa.dao.relationaldb.SQLiteCacheModel1;
+import com.github.jansowa.dao.relationaldb.SQLiteCacheModel2;
+import com.github.jansowa.dao.relationaldb.SQLiteCacheModel3;
+import com.github.jansowa.dao.stats.StatisticsCacheModel;
+import com.github.jansowa.dao.tempfiles.TempFilesCacheModel;
+
+//Every benchmarked CacheModel implementation - add new models here.
+public enum CacheModelType {
+    ARRAY_LIST {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new ArrayListCacheModel(maxNumberOfFiles, directory + "/arrayList.ser");
+        }
+    },
+    ARRAY_LIST_JOURNALED {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new ArrayListCacheModel(maxNumberOfFiles, directory + "/arrayList.ser", true);
+        }
+    },
+    HASH_MAP {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new HashMapCacheModel(maxNumberOfFiles, directory + "/hashMap.ser");
+        }
+    },
+    HASH_MAP_JOURNALED {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new HashMapCacheModel(maxNumberOfFiles, directory + "/hashMap.ser", true);
+        }
+    },
+    HASH_MAP_W_TINY_LFU {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new EvictingCacheModel(new HashMapCacheModel(maxNumberOfFiles, directory + "/hashMap.ser"),
+                    new WTinyLfuEvictionPolicy(maxNumberOfFiles));
+        }
+    },
+    HASH_MAP_STATISTICS {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new StatisticsCacheModel(new HashMapCacheModel(maxNumberOfFiles, directory + "/hashMap.ser"));
+        }
+    },
+    PRIMITIVE {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new PrimitiveCacheModel(maxNumberOfFiles);
+        }
+    },
+    RADIX_TREE_JOURNALED {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new RadixTreeCacheModel(maxNumberOfFiles, directory + "/radixTree.ser", true);
+        }
+    },
+    SQLITE_1 {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new SQLiteCacheModel1(maxNumberOfFiles, directory + "/sqlite1.db");
+        }
+
+        @Override
+        void release(CacheModel cacheModel) {
+            ((SQLiteCacheModel1) cacheModel).closeConnection();
+            cacheModel.removeFromDevice();
+        }
+    },
+    SQLITE_1_WRITE_BEHIND {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new WriteBehindCacheModel(new SQLiteCacheModel1(maxNumberOfFiles, directory + "/sqlite1.db"));
+        }
+
+        @Override
+        void release(CacheModel cacheModel) {
+            ((WriteBehindCacheModel) cacheModel).close();
+            cacheModel.removeFromDevice();
+        }
+    },
+    SQLITE_1_EXPIRING {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new ExpiringCacheModel(new SQLiteCacheModel1(maxNumberOfFiles, directory + "/sqlite1.db"),
+                    3600000, 600000, 1000);
+        }
+
+        @Override
+        void release(CacheModel cacheModel) {
+            ((ExpiringCacheModel) cacheModel).close();
+            cacheModel.removeFromDevice();
+        }
+    },
+    SQLITE_1_TIERED {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new TieredCacheModel(new SQLiteCacheModel1(maxNumberOfFiles, directory + "/sqlite1.db"));
+        }
+    },
+    SQLITE_2 {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new SQLiteCacheModel2(maxNumberOfFiles, directory + "/sqlite2.db");
+        }
+
+        @Override
+        void release(CacheModel cacheModel) {
+            ((SQLiteCacheModel2) cacheModel).closeConnection();
+            cacheModel.removeFromDevice();
+        }
+    },
+    SQLITE_3 {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new SQLiteCacheModel3(maxNumberOfFiles, directory + "/sqlite3.db");
+        }
+
+        @Override
+        void release(CacheModel cacheModel) {
+            ((SQLiteCacheModel3) cacheModel).closeConnection();
+            cacheModel.removeFromDevice();
+        }
+    },
+    TEMP_FILES {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new TempFilesCacheModel(maxNumberOfFiles, directory + "/tempFiles/");
+        }
+    },
+    TEMP_FILES_SHARDED {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new TempFilesCacheModel(maxNumberOfFiles, directory + "/tempFiles/", false, true);
+        }
+    },
+    TEMP_FILES_BLOOM_FILTER {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new BloomFilterCacheModel(new TempFilesCacheModel(maxNumberOfFiles, directory + "/tempFiles/"));
+        }
+    },
+    PACK_FILE {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new PackFileCacheModel(maxNumberOfFiles, directory + "/packFile/");
+        }
+
+        @Override
+        void release(CacheModel cacheModel) {
+            ((PackFileCacheModel) cacheModel).close();
+            cacheModel.removeFromDevice();
+        }
+    },
+    NITRITE_1 {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new NitriteCacheModel1(maxNumberOfFiles, directory + "/nitrite1.db");
+        }
+    },
+    NITRITE_3 {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new NitriteCacheModel3(maxNumberOfFiles, directory + "/nitrite3.db");
+        }
+    },
+    NITRITE_3_BUFFERED {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new NitriteCacheModel3(maxNumberOfFiles, directory + "/nitrite3.db", false, 0);
+        }
+    },
+    MAPPED_FILE {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new MappedFileCacheModel(maxNumberOfFiles, directory + "/mapped.db");
+        }
+    },
+    CONCURRENT {
+        @Override
+        CacheModel create(long maxNumberOfFiles, String directory) {
+            return new ConcurrentCacheModel(maxNumberOfFiles);
+        }
+    };
+
+    abstract CacheModel create(long maxNumberOfFiles, String directory);
+
+    void release(CacheModel cacheModel){
+        cacheModel.removeFromDevice();
+    }
+}
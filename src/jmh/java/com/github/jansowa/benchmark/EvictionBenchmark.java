@@ -0,0 +1,66 @@
+package com.github.jansowa.benchmark;
+
+import com.github.jansowa.dao.CacheModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//Full model where every put of a new path evicts the least recently used file.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvictionBenchmark {
+    private static final String FOLDER = "evicted";
+
+    @Param
+    public CacheModelType cacheModelType;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int datasetSize;
+
+    private String directory;
+    private CacheModel cacheModel;
+    private long nextFileNumber;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        directory = BenchmarkFiles.createDirectory();
+        cacheModel = cacheModelType.create(datasetSize, directory);
+        for(nextFileNumber = 0; nextFileNumber < datasetSize; nextFileNumber++){
+            cacheModel.put(BenchmarkFiles.generateFile(FOLDER, nextFileNumber));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        cacheModelType.release(cacheModel);
+        BenchmarkFiles.removeDirectory(directory);
+    }
+
+    @Benchmark
+    public void putWithEviction(){
+        cacheModel.put(BenchmarkFiles.generateFile(FOLDER, nextFileNumber++));
+    }
+
+    //a read before the put keeps half of the files hot, so eviction has to skip them
+    @Benchmark
+    public void readAndPutWithEviction(){
+        cacheModel.read(BenchmarkFiles.generatePath(FOLDER, nextFileNumber - cacheModel.getMaxNumberOfFiles() / 2));
+        cacheModel.put(BenchmarkFiles.generateFile(FOLDER, nextFileNumber++));
+    }
+}
@@ -0,0 +1,165 @@
+package com.github.jansowa.benchmark;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.model.AccessDistribution;
+import com.github.jansowa.model.WorkloadGenerator;
+import com.github.jansowa.model.WorkloadOperation;
+import com.github.jansowa.model.WorkloadRunner;
+import com.github.jansowa.model.WorkloadSettings;
+import com.github.jansowa.model.WorkloadTrace;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Generated workload replayed on a model holding a tenth of the dataset, hits and misses are reported next to the score.
+//-p tracePath=... replays a recorded trace instead of the generated operations.
+//Operations are never replayed on a model they already changed: once they run out, the generator continues
+//from the tree it left, and a trace starts again on a new, empty model. Both are prepared before each iteration,
+//twice as many operations as the iteration before applied, so the measured method only switches to them.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkloadBenchmark {
+    private static final int NUMBER_OF_OPERATIONS = 1 << 20;
+
+    @Param
+    public CacheModelType cacheModelType;
+
+    @Param({"10000", "100000", "1000000"})
+    public int datasetSize;
+
+    @Param({"ZIPFIAN", "HOTSPOT"})
+    public AccessDistribution accessDistribution;
+
+    @Param({""})
+    public String tracePath;
+
+    private String directory;
+    //null when a trace is replayed
+    private WorkloadGenerator generator;
+    private WorkloadRunner runner;
+    private List<WorkloadOperation> operations;
+    private int nextOperation;
+    //further operations of the generator, or new models for the trace
+    private final Deque<List<WorkloadOperation>> preparedOperations = new ArrayDeque<>();
+    private final Deque<WorkloadRunner> preparedRunners = new ArrayDeque<>();
+    //models the trace was replayed on during this iteration, released after it
+    private final List<WorkloadRunner> finishedRunners = new ArrayList<>();
+    private long appliedOperations;
+    private long appliedOperationsBeforeIteration;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class HitCounters {
+        public long hits;
+        public long misses;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        directory = BenchmarkFiles.createDirectory();
+        runner = new WorkloadRunner(createCacheModel());
+        if(tracePath.isEmpty()){
+            generator = new WorkloadGenerator(WorkloadSettings.builder()
+                    .numberOfFiles(datasetSize)
+                    .accessDistribution(accessDistribution)
+                    .build());
+            runner.putFiles(generator.generateFiles());
+            operations = generator.generateOperations(NUMBER_OF_OPERATIONS);
+        } else {
+            operations = WorkloadTrace.read(tracePath);
+            if(operations.isEmpty()){
+                throw new IllegalArgumentException("Trace " + tracePath + " has no operations");
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void preparePasses(){
+        long neededOperations = Math.max(NUMBER_OF_OPERATIONS, 2 * (appliedOperations - appliedOperationsBeforeIteration));
+        appliedOperationsBeforeIteration = appliedOperations;
+        long preparedNumberOfOperations = operations.size() - nextOperation;
+        if(generator != null){
+            for(List<WorkloadOperation> pass: preparedOperations){
+                preparedNumberOfOperations += pass.size();
+            }
+            while(preparedNumberOfOperations < neededOperations){
+                List<WorkloadOperation> pass = generator.generateOperations(NUMBER_OF_OPERATIONS);
+                preparedOperations.add(pass);
+                preparedNumberOfOperations += pass.size();
+            }
+        } else {
+            preparedNumberOfOperations += (long) operations.size() * preparedRunners.size();
+            while(preparedNumberOfOperations < neededOperations){
+                preparedRunners.add(new WorkloadRunner(createCacheModel()));
+                preparedNumberOfOperations += operations.size();
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void releaseFinishedRunners(){
+        finishedRunners.forEach(finishedRunner -> cacheModelType.release(finishedRunner.getCacheModel()));
+        finishedRunners.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        cacheModelType.release(runner.getCacheModel());
+        preparedRunners.forEach(preparedRunner -> cacheModelType.release(preparedRunner.getCacheModel()));
+        preparedRunners.clear();
+        BenchmarkFiles.removeDirectory(directory);
+    }
+
+    private CacheModel createCacheModel(){
+        return cacheModelType.create(Math.max(1, datasetSize / 10), directory);
+    }
+
+    @Benchmark
+    public void replay(HitCounters counters){
+        if(nextOperation == operations.size()){
+            startNextPass();
+        }
+        long hits = runner.getHits();
+        long misses = runner.getMisses();
+        runner.apply(operations.get(nextOperation++));
+        appliedOperations++;
+        counters.hits += runner.getHits() - hits;
+        counters.misses += runner.getMisses() - misses;
+    }
+
+    //prepared passes run out only when an iteration applies over twice as many operations as the one before
+    private void startNextPass(){
+        nextOperation = 0;
+        if(generator != null){
+            operations = preparedOperations.isEmpty()
+                    ? generator.generateOperations(NUMBER_OF_OPERATIONS)
+                    : preparedOperations.poll();
+        } else {
+            finishedRunners.add(runner);
+            runner = preparedRunners.isEmpty()
+                    ? new WorkloadRunner(createCacheModel())
+                    : preparedRunners.poll();
+        }
+    }
+}
@@ -2,6 +2,9 @@ package com.github.jansowa.dao;
 
 import com.github.jansowa.domain.FileBasicInfo;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CacheModel {
@@ -16,4 +19,28 @@ public interface CacheModel {
     long getMaxNumberOfFiles();
     void setMaxNumberOfFiles(long maxStorage);
     void removeFromDevice();
-}
\ No newline at end of file
+    //paths of all stored files starting with prefix
+    List<String> listPaths(String prefix);
+
+    //Batch operations - models override them when many items can be handled at the cost of one
+    default void putAll(Collection<FileBasicInfo> files){
+        files.forEach(this::put);
+    }
+
+    //only files found in the model, in order of given paths
+    default List<FileBasicInfo> readAll(Collection<String> filePaths){
+        List<FileBasicInfo> readFiles = new ArrayList<>();
+        for(String filePath: filePaths){
+            read(filePath).ifPresent(readFiles::add);
+        }
+        return readFiles;
+    }
+
+    default void removeAll(Collection<String> filePaths){
+        filePaths.forEach(this::remove);
+    }
+
+    default boolean containsAll(Collection<String> filePaths){
+        return filePaths.stream().allMatch(this::contains);
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.jansowa.dao;
+
+import java.nio.charset.StandardCharsets;
+
+//64-bit hash of a path, the same on every run, for placing paths in structures written to disk.
+//FNV-1a of its UTF-8 bytes with a final mix, so every bit of the result is usable on its own.
+public final class PathHash {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private PathHash(){
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static long hash64(String path){
+        long hash = FNV_OFFSET_BASIS;
+        for(byte pathByte: path.getBytes(StandardCharsets.UTF_8)){
+            hash ^= pathByte & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.jansowa.dao.bloom;
+
+import com.github.jansowa.dao.PathHash;
+import lombok.Getter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+//Bloom filter of paths with a 4-bit counter instead of every bit, so paths can be removed too.
+//mightContain never returns false for an added path. For other paths it's wrong with about falsePositiveRate
+//while no more than expectedNumberOfPaths are added. Removing a path that wasn't added breaks the filter.
+//A counter that reached 15 is never decremented - it may count more paths than it can hold.
+public class CountingBloomFilter {
+    private static final int MAGIC = 0x43424631;
+    private static final int MAX_COUNT = 15;
+
+    @Getter private final int expectedNumberOfPaths;
+    @Getter private final double falsePositiveRate;
+    private final int numberOfCounters;
+    private final int numberOfHashes;
+    //two counters in every byte
+    private final byte[] counters;
+    //added minus removed paths
+    @Getter private long numberOfPaths;
+
+    public CountingBloomFilter(int expectedNumberOfPaths, double falsePositiveRate){
+        this.expectedNumberOfPaths = Math.max(1, expectedNumberOfPaths);
+        this.falsePositiveRate = falsePositiveRate;
+        double log2 = Math.log(2);
+        long optimalCounters = (long) Math.ceil(-this.expectedNumberOfPaths * Math.log(falsePositiveRate) / (log2 * log2));
+        this.numberOfCounters = (int) Math.min(Integer.MAX_VALUE - 1, Math.max(64, optimalCounters));
+        this.numberOfHashes = (int) Math.max(1, Math.round((double) numberOfCounters / this.expectedNumberOfPaths * log2));
+        this.counters = new byte[(numberOfCounters + 1) / 2];
+    }
+
+    public void add(String path){
+        long hash = PathHash.hash64(path);
+        for(int i = 0; i < numberOfHashes; i++){
+            int counter = counterIndex(hash, i);
+            int count = getCount(counter);
+            if(count < MAX_COUNT){
+                setCount(counter, count + 1);
+            }
+        }
+        numberOfPaths++;
+    }
+
+    public void remove(String path){
+        long hash = PathHash.hash64(path);
+        for(int i = 0; i < numberOfHashes; i++){
+            int counter = counterIndex(hash, i);
+            int count = getCount(counter);
+            if(count > 0 && count < MAX_COUNT){
+                setCount(counter, count - 1);
+            }
+        }
+        numberOfPaths--;
+    }
+
+    public boolean mightContain(String path){
+        long hash = PathHash.hash64(path);
+        for(int i = 0; i < numberOfHashes; i++){
+            if(getCount(counterIndex(hash, i)) == 0){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void clear(){
+        Arrays.fill(counters, (byte) 0);
+        numberOfPaths = 0;
+    }
+
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(expectedNumberOfPaths);
+        output.writeDouble(falsePositiveRate);
+        output.writeLong(numberOfPaths);
+        output.write(counters);
+    }
+
+    public static CountingBloomFilter readFrom(DataInput input) throws IOException {
+        if(input.readInt() != MAGIC){
+            throw new IOException("Not a counting Bloom filter");
+        }
+        CountingBloomFilter filter = new CountingBloomFilter(input.readInt(), input.readDouble());
+        filter.numberOfPaths = input.readLong();
+        input.readFully(filter.counters);
+        return filter;
+    }
+
+    //double hashing - i-th counter from two halves of one 64-bit hash
+    private int counterIndex(long hash, int i){
+        int firstHash = (int) hash;
+        //odd, so it never maps every i to the same counter
+        int secondHash = (int) (hash >>> 32) | 1;
+        return Math.floorMod(firstHash + i * secondHash, numberOfCounters);
+    }
+
+    private int getCount(int counter){
+        int counterByte = counters[counter >>> 1];
+        return (counter & 1) == 0 ? counterByte & 0x0F : (counterByte >>> 4) & 0x0F;
+    }
+
+    private void setCount(int counter, int count){
+        int byteIndex = counter >>> 1;
+        int counterByte = counters[byteIndex];
+        if((counter & 1) == 0){
+            counterByte = (counterByte & 0xF0) | count;
+        } else {
+            counterByte = (counterByte & 0x0F) | (count << 4);
+        }
+        counters[byteIndex] = (byte) counterByte;
+    }
+}
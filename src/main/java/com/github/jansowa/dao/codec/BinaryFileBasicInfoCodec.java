@@ -0,0 +1,240 @@
+package com.github.jansowa.dao.codec;
+
+import com.github.jansowa.domain.FileBasicInfo;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+//Compact format: [magic][version][varint count] followed by records of
+//[flags][path prefix ref][path rest][url prefix ref][url rest][varint creationTime][zigzag lastUsageTime - creationTime].
+//Prefixes (everything up to the last '/') are stored once in a table shared by paths and urls.
+//Name and extension are written only when they can't be derived from the path.
+public class BinaryFileBasicInfoCodec implements FileBasicInfoCodec {
+    private static final int MAGIC = 0x46424943;
+    private static final byte VERSION = 1;
+
+    private static final int EXPLICIT_NAME = 1;
+    private static final int EXPLICIT_EXTENSION = 1 << 1;
+    private static final int NULL_PATH = 1 << 2;
+    private static final int NULL_URL = 1 << 3;
+    private static final int NULL_CREATION_TIME = 1 << 4;
+    private static final int NULL_LAST_USAGE_TIME = 1 << 5;
+
+    @Override
+    public void writeAll(Collection<FileBasicInfo> files, OutputStream output) throws IOException {
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        dataOutput.writeInt(MAGIC);
+        dataOutput.writeByte(VERSION);
+        writeVarLong(dataOutput, files.size());
+        Map<String, Integer> prefixes = new HashMap<>();
+        for(FileBasicInfo file: files){
+            writeFile(dataOutput, file, prefixes);
+        }
+        dataOutput.flush();
+    }
+
+    @Override
+    public List<FileBasicInfo> readAll(InputStream input) throws IOException {
+        DataInputStream dataInput = new DataInputStream(input);
+        if(dataInput.readInt() != MAGIC){
+            throw new IOException("Data wasn't written by BinaryFileBasicInfoCodec");
+        }
+        byte version = dataInput.readByte();
+        if(version != VERSION){
+            throw new IOException("Unsupported version of BinaryFileBasicInfoCodec: " + version);
+        }
+        int numberOfFiles = (int) readVarLong(dataInput);
+        List<FileBasicInfo> files = new ArrayList<>(numberOfFiles);
+        List<String> prefixes = new ArrayList<>();
+        for(int i=0; i<numberOfFiles; i++){
+            files.add(readFile(dataInput, prefixes));
+        }
+        return files;
+    }
+
+    private static String deriveName(String filePath){
+        int indexOfLastSlash = filePath.lastIndexOf('/');
+        int indexOfLastDot = filePath.lastIndexOf('.');
+        if(indexOfLastDot <= indexOfLastSlash){
+            return filePath.substring(indexOfLastSlash+1);
+        }
+        return filePath.substring(indexOfLastSlash+1, indexOfLastDot);
+    }
+
+    private static String deriveExtension(String filePath){
+        int indexOfLastSlash = filePath.lastIndexOf('/');
+        int indexOfLastDot = filePath.lastIndexOf('.');
+        if(indexOfLastDot <= indexOfLastSlash){
+            return null;
+        }
+        return filePath.substring(indexOfLastDot+1);
+    }
+
+    private void writeFile(DataOutputStream output, FileBasicInfo file, Map<String, Integer> prefixes) throws IOException {
+        String filePath = file.getFilePath();
+        int flags = 0;
+        if(filePath == null){
+            flags |= NULL_PATH | EXPLICIT_NAME | EXPLICIT_EXTENSION;
+        } else {
+            if(!Objects.equals(file.getName(), deriveName(filePath))){
+                flags |= EXPLICIT_NAME;
+            }
+            if(!Objects.equals(file.getExtension(), deriveExtension(filePath))){
+                flags |= EXPLICIT_EXTENSION;
+            }
+        }
+        if(file.getUrl() == null){
+            flags |= NULL_URL;
+        }
+        if(file.getCreationTime() == null){
+            flags |= NULL_CREATION_TIME;
+        }
+        if(file.getLastUsageTime() == null){
+            flags |= NULL_LAST_USAGE_TIME;
+        }
+        output.writeByte(flags);
+
+        if(filePath != null){
+            writePrefixed(output, filePath, prefixes);
+        }
+        if(file.getUrl() != null){
+            writePrefixed(output, file.getUrl(), prefixes);
+        }
+        long creationTime = 0;
+        if(file.getCreationTime() != null){
+            creationTime = file.getCreationTime().getTime();
+            writeVarLong(output, zigZag(creationTime));
+        }
+        if(file.getLastUsageTime() != null){
+            writeVarLong(output, zigZag(file.getLastUsageTime().getTime() - creationTime));
+        }
+        if((flags & EXPLICIT_NAME) != 0){
+            writeNullableString(output, file.getName());
+        }
+        if((flags & EXPLICIT_EXTENSION) != 0){
+            writeNullableString(output, file.getExtension());
+        }
+    }
+
+    private FileBasicInfo readFile(DataInputStream input, List<String> prefixes) throws IOException {
+        int flags = input.readUnsignedByte();
+        String filePath = (flags & NULL_PATH) == 0 ? readPrefixed(input, prefixes) : null;
+        String url = (flags & NULL_URL) == 0 ? readPrefixed(input, prefixes) : null;
+        Date creationTime = null;
+        long creationTimeMillis = 0;
+        if((flags & NULL_CREATION_TIME) == 0){
+            creationTimeMillis = unZigZag(readVarLong(input));
+            creationTime = new Date(creationTimeMillis);
+        }
+        Date lastUsageTime = null;
+        if((flags & NULL_LAST_USAGE_TIME) == 0){
+            lastUsageTime = new Date(creationTimeMillis + unZigZag(readVarLong(input)));
+        }
+        String name = (flags & EXPLICIT_NAME) != 0 ? readNullableString(input) : deriveName(filePath);
+        String extension = (flags & EXPLICIT_EXTENSION) != 0 ? readNullableString(input) : deriveExtension(filePath);
+        return FileBasicInfo.builder()
+                .name(name)
+                .filePath(filePath)
+                .extension(extension)
+                .url(url)
+                .creationTime(creationTime)
+                .lastUsageTime(lastUsageTime)
+                .build();
+    }
+
+    //prefix reference equal to the table size means a new prefix written inline
+    private void writePrefixed(DataOutputStream output, String value, Map<String, Integer> prefixes) throws IOException {
+        int prefixEnd = value.lastIndexOf('/') + 1;
+        String prefix = value.substring(0, prefixEnd);
+        Integer prefixIndex = prefixes.get(prefix);
+        if(prefixIndex == null){
+            writeVarLong(output, prefixes.size());
+            writeString(output, prefix);
+            prefixes.put(prefix, prefixes.size());
+        } else {
+            writeVarLong(output, prefixIndex);
+        }
+        writeString(output, value.substring(prefixEnd));
+    }
+
+    private String readPrefixed(DataInputStream input, List<String> prefixes) throws IOException {
+        int prefixIndex = (int) readVarLong(input);
+        if(prefixIndex == prefixes.size()){
+            prefixes.add(readString(input));
+        } else if(prefixIndex > prefixes.size()){
+            throw new IOException("Broken prefix reference: " + prefixIndex);
+        }
+        return prefixes.get(prefixIndex) + readString(input);
+    }
+
+    private static void writeNullableString(DataOutputStream output, String value) throws IOException {
+        if(value == null){
+            writeVarLong(output, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(output, bytes.length + 1L);
+        output.write(bytes);
+    }
+
+    private static String readNullableString(DataInputStream input) throws IOException {
+        int length = (int) readVarLong(input);
+        if(length == 0){
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(output, bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(input)];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        while((value & ~0x7FL) != 0){
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0;
+        for(int shift = 0; shift < 64; shift += 7){
+            int singleByte = input.readUnsignedByte();
+            value |= (long) (singleByte & 0x7F) << shift;
+            if((singleByte & 0x80) == 0){
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length number");
+    }
+
+    private static long zigZag(long value){
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value){
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.jansowa.dao.codec;
+
+import com.github.jansowa.domain.FileBasicInfo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+
+//Converts stored files to bytes for file-backed cache models.
+//Implementations don't close given streams and keep the order of files.
+public interface FileBasicInfoCodec {
+    void writeAll(Collection<FileBasicInfo> files, OutputStream output) throws IOException;
+    List<FileBasicInfo> readAll(InputStream input) throws IOException;
+}
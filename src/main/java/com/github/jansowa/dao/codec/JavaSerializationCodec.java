@@ -0,0 +1,50 @@
+package com.github.jansowa.dao.codec;
+
+import com.github.jansowa.domain.FileBasicInfo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class JavaSerializationCodec implements FileBasicInfoCodec {
+    @Override
+    public void writeAll(Collection<FileBasicInfo> files, OutputStream output) throws IOException {
+        ObjectOutputStream objectOutputStream = new ObjectOutputStream(output);
+        objectOutputStream.writeObject(new ArrayList<>(files));
+        objectOutputStream.flush();
+    }
+
+    @Override
+    public List<FileBasicInfo> readAll(InputStream input) throws IOException {
+        try {
+            Object storedObject = new ObjectInputStream(input).readObject();
+            if(storedObject instanceof Map){
+                return fromLegacyMap((Map<String, FileBasicInfo>) storedObject);
+            }
+            return new ArrayList<>((Collection<FileBasicInfo>) storedObject);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Unknown format of serialized files", e);
+        }
+    }
+
+    //HashMapCacheModel used to serialize its map directly, plain HashMaps carry no usage order
+    private static List<FileBasicInfo> fromLegacyMap(Map<String, FileBasicInfo> storedFiles){
+        if(storedFiles instanceof LinkedHashMap){
+            return new ArrayList<>(storedFiles.values());
+        }
+        return storedFiles
+                .values()
+                .stream()
+                .sorted(Comparator.comparing(FileBasicInfo::getLastUsageTime))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,220 @@
+package com.github.jansowa.dao.concurrent;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.domain.FileBasicInfo;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//In-memory model safe for concurrent callers. Reads never take a lock - they only set
+//the reference bit of an entry, and eviction is an approximate LRU (CLOCK) sweeping a queue of entries.
+//Slots are reserved with compare-and-set before inserting, so maxNumberOfFiles is never exceeded.
+public class ConcurrentCacheModel implements CacheModel {
+    private static final long ENTRY_OVERHEAD_IN_BYTES = 96;
+
+    private static class Entry {
+        private final String filePath;
+        private volatile FileBasicInfo file;
+        private volatile boolean referenced;
+        private volatile boolean removed;
+
+        private Entry(FileBasicInfo file){
+            this.filePath = file.getFilePath();
+            this.file = file;
+        }
+    }
+
+    private volatile long maxNumberOfFiles;
+    private final ConcurrentHashMap<String, Entry> storedFiles = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> clockQueue = new ConcurrentLinkedQueue<>();
+    //reserved slots, always >= storedFiles.size() and <= maxNumberOfFiles
+    private final AtomicInteger reservedSlots = new AtomicInteger();
+    //removed entries still waiting in clockQueue
+    private final AtomicInteger staleEntries = new AtomicInteger();
+
+    public ConcurrentCacheModel(long maxNumberOfFiles){
+        this.maxNumberOfFiles = maxNumberOfFiles;
+    }
+
+    @Override
+    public void put(FileBasicInfo file) {
+        String filePath = file.getFilePath();
+        while(true){
+            Entry updatedEntry = storedFiles.computeIfPresent(filePath, (path, entry) -> {
+                entry.file = file;
+                entry.referenced = true;
+                return entry;
+            });
+            if(updatedEntry != null){
+                return;
+            }
+            if(!reserveSlot()){
+                return;
+            }
+            Entry newEntry = new Entry(file);
+            if(storedFiles.putIfAbsent(filePath, newEntry) == null){
+                clockQueue.offer(newEntry);
+                return;
+            }
+            //another thread inserted the same path in the meantime
+            reservedSlots.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void remove(String filePath) {
+        Entry removedEntry = storedFiles.remove(filePath);
+        if(removedEntry != null){
+            release(removedEntry);
+        }
+    }
+
+    @Override
+    public boolean contains(String filePath) {
+        return storedFiles.containsKey(filePath);
+    }
+
+    @Override
+    public void movePath(String sourcePath, String destinationPath) {
+        Date moveTime = new Date();
+        List<FileBasicInfo> filesToAdd = new ArrayList<>();
+        for(Map.Entry<String, Entry> storedFile: storedFiles.entrySet()){
+            String path = storedFile.getKey();
+            if(path.startsWith(sourcePath) && storedFiles.remove(path, storedFile.getValue())){
+                release(storedFile.getValue());
+                String finalPath = destinationPath + path.substring(sourcePath.length());
+                filesToAdd.add(storedFile.getValue().file
+                        .withFilePath(finalPath)
+                        .withLastUsageTime(moveTime));
+            }
+        }
+        filesToAdd.forEach(this::put);
+    }
+
+    @Override
+    public Optional<FileBasicInfo> read(String filePath) {
+        Entry entry = storedFiles.get(filePath);
+        if(entry == null){
+            return Optional.empty();
+        }
+        //the reference bit is the only usage eviction needs, and it's written only when it changes,
+        //so hot entries don't bounce between cores
+        if(!entry.referenced){
+            entry.referenced = true;
+        }
+        return Optional.of(entry.file.withLastUsageTime(new Date()));
+    }
+
+    @Override
+    public List<String> listPaths(String prefix) {
+        List<String> paths = new ArrayList<>();
+        for(String filePath: storedFiles.keySet()){
+            if(filePath.startsWith(prefix)){
+                paths.add(filePath);
+            }
+        }
+        return paths;
+    }
+
+    @Override
+    public int getNumberOfFiles() {
+        return storedFiles.size();
+    }
+
+    @Override
+    public void removeAllData() {
+        storedFiles.keySet().forEach(this::remove);
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        long sizeInBytes = 0;
+        for(Entry entry: storedFiles.values()){
+            FileBasicInfo file = entry.file;
+            sizeInBytes += ENTRY_OVERHEAD_IN_BYTES
+                    + 2L * (length(file.getFilePath()) + length(file.getUrl())
+                    + length(file.getName()) + length(file.getExtension()));
+        }
+        return sizeInBytes;
+    }
+
+    @Override
+    public long getMaxNumberOfFiles() {
+        return maxNumberOfFiles;
+    }
+
+    @Override
+    public void setMaxNumberOfFiles(long maxNumberOfFiles) {
+        this.maxNumberOfFiles = maxNumberOfFiles;
+        while(reservedSlots.get() > this.maxNumberOfFiles){
+            if(!evictOne()){
+                Thread.yield();
+            }
+        }
+    }
+
+    @Override
+    public void removeFromDevice() {
+        removeAllData();
+    }
+
+    private boolean reserveSlot(){
+        while(true){
+            long max = maxNumberOfFiles;
+            if(max <= 0){
+                return false;
+            }
+            int reserved = reservedSlots.get();
+            if(reserved < max){
+                if(reservedSlots.compareAndSet(reserved, reserved + 1)){
+                    return true;
+                }
+            } else if(!evictOne()){
+                //all slots are reserved by puts that haven't inserted their entries yet
+                Thread.yield();
+            }
+        }
+    }
+
+    //CLOCK: referenced entries get a second chance, the first unreferenced one is evicted
+    private boolean evictOne(){
+        Entry candidate;
+        while((candidate = clockQueue.poll()) != null){
+            if(candidate.removed){
+                staleEntries.decrementAndGet();
+                continue;
+            }
+            if(candidate.referenced){
+                candidate.referenced = false;
+                clockQueue.offer(candidate);
+                continue;
+            }
+            if(storedFiles.remove(candidate.filePath, candidate)){
+                candidate.removed = true;
+                reservedSlots.decrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void release(Entry removedEntry){
+        removedEntry.removed = true;
+        reservedSlots.decrementAndGet();
+        //removed entries are normally dropped by eviction, without it the queue is cleaned here
+        if(staleEntries.incrementAndGet() > Math.max(reservedSlots.get(), 1024)){
+            staleEntries.set(0);
+            clockQueue.removeIf(entry -> entry.removed);
+        }
+    }
+
+    private static int length(String value){
+        return value == null ? 0 : value.length();
+    }
+}
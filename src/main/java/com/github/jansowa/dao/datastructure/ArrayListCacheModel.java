@@ -1,22 +1,33 @@
 package com.github.jansowa.dao.datastructure;
 
 import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.dao.codec.FileBasicInfoCodec;
+import com.github.jansowa.dao.codec.JavaSerializationCodec;
 import com.github.jansowa.domain.FileBasicInfo;
 
 import lombok.Getter;
+import lombok.Setter;
 
 import java.io.File;
-import java.io.ObjectOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
 import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
+import java.io.BufferedInputStream;
+import java.io.InputStream;
 import java.io.FileInputStream;
 import java.io.Serializable;
 import java.io.IOException;
 
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -25,26 +36,65 @@ public class ArrayListCacheModel implements CacheModel, Serializable {
     @Getter private long maxNumberOfFiles;
     private String cacheModelPath;
     private ArrayList<FileBasicInfo> storedFiles;
+    private transient FileBasicInfoCodec codec;
+    //null when every mutation rewrites the whole snapshot
+    private transient CacheJournal journal;
+    @Getter @Setter private int maxJournalRecords = 10000;
 
     public ArrayListCacheModel(long maxNumberOfFiles, String cacheModelPath){
+        this(maxNumberOfFiles, cacheModelPath, false);
+    }
+
+    public ArrayListCacheModel(long maxNumberOfFiles, String cacheModelPath, boolean journaled){
+        this(maxNumberOfFiles, cacheModelPath, journaled, new JavaSerializationCodec());
+    }
+
+    public ArrayListCacheModel(long maxNumberOfFiles, String cacheModelPath, boolean journaled, FileBasicInfoCodec codec){
         this.maxNumberOfFiles = maxNumberOfFiles;
         this.cacheModelPath = cacheModelPath;
         this.storedFiles = new ArrayList<>();
+        this.codec = codec;
+        if(journaled){
+            this.journal = new CacheJournal(cacheModelPath + ".journal", codec);
+        }
     }
 
     @Override
     public void put(FileBasicInfo file) {
         storedFiles.add(file);
+        if(journal != null){
+            journal.appendPut(file);
+        }
         if (getNumberOfFiles() > getMaxNumberOfFiles()){
-            storedFiles.remove(0);
-            saveData();
+            FileBasicInfo oldestFile = storedFiles.remove(0);
+            if(journal != null){
+                journal.appendRemove(oldestFile.getFilePath());
+            }
         }
-        saveData();
+        saveChanges();
+    }
+
+    @Override
+    public void putAll(Collection<FileBasicInfo> files) {
+        storedFiles.addAll(files);
+        if(journal != null){
+            files.forEach(journal::appendPut);
+        }
+        int numberOfExcessFiles = (int) Math.max(0, getNumberOfFiles() - getMaxNumberOfFiles());
+        List<FileBasicInfo> oldestFiles = storedFiles.subList(0, numberOfExcessFiles);
+        if(journal != null){
+            oldestFiles.forEach(oldestFile -> journal.appendRemove(oldestFile.getFilePath()));
+        }
+        oldestFiles.clear();
+        saveChanges();
     }
 
     @Override
     public long getSizeInBytes(){
         File cacheModel = new File(cacheModelPath);
+        if(journal != null){
+            return cacheModel.length() + journal.getSizeInBytes();
+        }
         return cacheModel.length();
     }
 
@@ -52,6 +102,33 @@ public class ArrayListCacheModel implements CacheModel, Serializable {
     public void remove(String filePath) {
         getByPath(filePath)
                 .ifPresent(storedFiles::remove);
+        if(journal != null){
+            journal.appendRemove(filePath);
+            compactJournalIfNeeded();
+        }
+    }
+
+    //single pass over stored files instead of one pass for each path
+    @Override
+    public void removeAll(Collection<String> filePaths) {
+        Set<String> pathsToRemove = new HashSet<>(filePaths);
+        storedFiles.removeIf(file -> {
+            boolean removed = pathsToRemove.contains(file.getFilePath());
+            if(removed && journal != null){
+                journal.appendRemove(file.getFilePath());
+            }
+            return removed;
+        });
+        saveChanges();
+    }
+
+    @Override
+    public boolean containsAll(Collection<String> filePaths) {
+        Set<String> storedPaths = storedFiles
+                .stream()
+                .map(FileBasicInfo::getFilePath)
+                .collect(Collectors.toSet());
+        return storedPaths.containsAll(filePaths);
     }
 
     @Override
@@ -63,6 +140,15 @@ public class ArrayListCacheModel implements CacheModel, Serializable {
 
     @Override
     public void movePath(String sourcePath, String destinationPath) {
+        Date moveTime = new Date();
+        moveStoredFiles(sourcePath, destinationPath, moveTime);
+        if(journal != null){
+            journal.appendMove(sourcePath, destinationPath, moveTime);
+        }
+        saveChanges();
+    }
+
+    private void moveStoredFiles(String sourcePath, String destinationPath, Date moveTime) {
         List<FileBasicInfo> filesToMove = storedFiles
                 .stream()
                 .filter(file -> file
@@ -76,25 +162,39 @@ public class ArrayListCacheModel implements CacheModel, Serializable {
                     String currentPath = file.getFilePath();
                     String finalPath = destinationPath +
                             currentPath.substring(sourcePath.length());
-                    return file.withLastUsageTime(new Date())
+                    return file.withLastUsageTime(moveTime)
                             .withFilePath(finalPath);
                 }).collect(Collectors.toList());
         storedFiles.addAll(filesToMove);
-        saveData();
     }
 
     @Override
     public Optional<FileBasicInfo> read(String filePath) {
         Optional<FileBasicInfo> downloadedFileOpt = getByPath(filePath);
         if(downloadedFileOpt.isPresent()){
-            FileBasicInfo downloadedFile = downloadedFileOpt.get();
-            storedFiles.remove(downloadedFile);
-            downloadedFile = downloadedFile.withLastUsageTime(new Date());
-            storedFiles.add(downloadedFile);
+            Date readTime = new Date();
+            touchStoredFile(downloadedFileOpt.get(), readTime);
+            if(journal != null){
+                journal.appendTouch(filePath, readTime);
+                compactJournalIfNeeded();
+            }
         }
         return downloadedFileOpt;
     }
 
+    private void touchStoredFile(FileBasicInfo storedFile, Date usageTime){
+        storedFiles.remove(storedFile);
+        storedFiles.add(storedFile.withLastUsageTime(usageTime));
+    }
+
+    @Override
+    public List<String> listPaths(String prefix) {
+        return storedFiles.stream()
+                .map(FileBasicInfo::getFilePath)
+                .filter(filePath -> filePath.startsWith(prefix))
+                .collect(Collectors.toList());
+    }
+
     @Override
     public int getNumberOfFiles() {
         return storedFiles.size();
@@ -103,7 +203,10 @@ public class ArrayListCacheModel implements CacheModel, Serializable {
     @Override
     public void removeAllData() {
         storedFiles.clear();
-        saveData();
+        if(journal != null){
+            journal.appendClear();
+        }
+        saveChanges();
     }
 
     public void removeFromDevice(){
@@ -112,13 +215,32 @@ public class ArrayListCacheModel implements CacheModel, Serializable {
             Logger logger = Logger.getLogger("removeFromDevice logger");
             logger.log(Level.INFO, "File {0} doesn't exist!", cacheModelPath);
         }
+        if(journal != null){
+            journal.removeFromDevice();
+        }
     }
 
+    //snapshot goes to a temporary file first, so a crash never leaves a half-written cache behind
     protected void saveData(){
-        try (ObjectOutputStream objectOutputStream =
-                     new ObjectOutputStream(
-                                new FileOutputStream(cacheModelPath))){
-            objectOutputStream.writeObject(storedFiles);
+        String temporaryPath = cacheModelPath + ".tmp";
+        try (OutputStream snapshotStream =
+                     new BufferedOutputStream(
+                                new FileOutputStream(temporaryPath))){
+            if(journal != null){
+                CacheJournal.writeSnapshotHeader(snapshotStream, journal.getLastSequenceNumber());
+            }
+            codec.writeAll(storedFiles, snapshotStream);
+        } catch (IOException e) {
+            Logger logger = Logger.getLogger(ArrayListCacheModel.class.getName());
+            logger.warning("ArrayList cache can't save data into device.");
+            return;
+        }
+        try {
+            Files.move(Paths.get(temporaryPath), Paths.get(cacheModelPath),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if(journal != null){
+                journal.clear();
+            }
         } catch (IOException e) {
             Logger logger = Logger.getLogger(ArrayListCacheModel.class.getName());
             logger.warning("ArrayList cache can't save data into device.");
@@ -126,27 +248,84 @@ public class ArrayListCacheModel implements CacheModel, Serializable {
     }
 
     public void loadData(){
-        try(ObjectInputStream objectInputStream =
-                    new ObjectInputStream(
-                            new FileInputStream(cacheModelPath))){
+        long snapshotSequenceNumber = 0;
+        if(journal == null || new File(cacheModelPath).exists()){
+            snapshotSequenceNumber = loadSnapshot();
+        }
+        if(journal != null){
+            journal.readOperations(snapshotSequenceNumber).forEach(this::replay);
+        }
+    }
 
-            this.storedFiles = (ArrayList<FileBasicInfo>) objectInputStream.readObject();
-        } catch (IOException | ClassNotFoundException e) {
+    //returns the last journal record the snapshot covers
+    private long loadSnapshot(){
+        try(InputStream snapshotStream =
+                    new BufferedInputStream(
+                            new FileInputStream(cacheModelPath))){
+            long snapshotSequenceNumber = CacheJournal.readSnapshotHeader(snapshotStream);
+            this.storedFiles = new ArrayList<>(codec.readAll(snapshotStream));
+            return snapshotSequenceNumber;
+        } catch (IOException e) {
             Logger logger = Logger.getLogger(ArrayListCacheModel.class.getName());
             logger.warning("ArrayList cache can't load data from device.");
+            return 0;
         }
     }
 
     public void setMaxNumberOfFiles(long maxNumberOfFiles){
         this.maxNumberOfFiles = maxNumberOfFiles;
-        saveData();
+        if(journal == null){
+            saveData();
+        }
     }
 
     public void setCacheModelPath(String cacheModelPath){
         this.cacheModelPath = cacheModelPath;
+        if(journal != null){
+            long lastSequenceNumber = journal.getLastSequenceNumber();
+            journal.close();
+            journal = new CacheJournal(cacheModelPath + ".journal", codec);
+            journal.continueAfter(lastSequenceNumber);
+        }
         saveData();
     }
 
+    private void replay(CacheJournal.Operation operation){
+        switch (operation.getType()){
+            case PUT:
+                storedFiles.add(operation.getFile());
+                break;
+            case REMOVE:
+                getByPath(operation.getFilePath())
+                        .ifPresent(storedFiles::remove);
+                break;
+            case MOVE:
+                moveStoredFiles(operation.getFilePath(), operation.getDestinationPath(), operation.getTime());
+                break;
+            case TOUCH:
+                getByPath(operation.getFilePath())
+                        .ifPresent(storedFile -> touchStoredFile(storedFile, operation.getTime()));
+                break;
+            case CLEAR:
+                storedFiles.clear();
+                break;
+        }
+    }
+
+    private void saveChanges(){
+        if(journal == null){
+            saveData();
+        } else {
+            compactJournalIfNeeded();
+        }
+    }
+
+    private void compactJournalIfNeeded(){
+        if(journal.getNumberOfRecords() >= maxJournalRecords){
+            saveData();
+        }
+    }
+
     private Optional<FileBasicInfo> getByPath(String filePath) {
         return storedFiles.stream()
                 .filter(file -> filePath.equals(file.getFilePath()))
@@ -0,0 +1,275 @@
+package com.github.jansowa.dao.datastructure;
+
+import com.github.jansowa.dao.codec.FileBasicInfoCodec;
+import com.github.jansowa.domain.FileBasicInfo;
+
+import lombok.Getter;
+import lombok.Value;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+//Append-only log of mutations, replayed on top of the last snapshot of a model.
+//Every record is [type][sequence number][payload length][payload][crc32], so a record torn by a crash
+//is detected on replay and cut off instead of corrupting the loaded data.
+//Sequence numbers keep growing across snapshots, and a snapshot starts with the last one it covers,
+//so records left behind by a crash between writing a snapshot and clearing the journal are skipped.
+class CacheJournal {
+    enum OperationType { PUT, REMOVE, MOVE, TOUCH, CLEAR }
+
+    private static final int SNAPSHOT_MAGIC = 0x434A534E;
+    private static final int RECORD_HEADER_SIZE = 1 + 8 + 4;
+    private static final int CHECKSUM_SIZE = 8;
+    private static final int SNAPSHOT_HEADER_SIZE = 4 + 8;
+
+    @Value
+    static class Operation {
+        OperationType type;
+        FileBasicInfo file;
+        String filePath;
+        String destinationPath;
+        Date time;
+    }
+
+    private final String journalPath;
+    private final FileBasicInfoCodec codec;
+    private DataOutputStream journalStream;
+    @Getter private int numberOfRecords;
+    //of the last appended or read record, numbering continues from the loaded snapshot
+    @Getter private long lastSequenceNumber;
+
+    CacheJournal(String journalPath, FileBasicInfoCodec codec){
+        this.journalPath = journalPath;
+        this.codec = codec;
+    }
+
+    void appendPut(FileBasicInfo file){
+        append(OperationType.PUT, payload -> codec.writeAll(Collections.singletonList(file), payload));
+    }
+
+    void appendRemove(String filePath){
+        append(OperationType.REMOVE, payload -> payload.writeUTF(filePath));
+    }
+
+    void appendMove(String sourcePath, String destinationPath, Date time){
+        append(OperationType.MOVE, payload -> {
+            payload.writeUTF(sourcePath);
+            payload.writeUTF(destinationPath);
+            payload.writeLong(time.getTime());
+        });
+    }
+
+    void appendTouch(String filePath, Date time){
+        append(OperationType.TOUCH, payload -> {
+            payload.writeUTF(filePath);
+            payload.writeLong(time.getTime());
+        });
+    }
+
+    void appendClear(){
+        append(OperationType.CLEAR, payload -> { });
+    }
+
+    //operations not covered yet by the snapshot - snapshotSequenceNumber is what readSnapshotHeader returned
+    List<Operation> readOperations(long snapshotSequenceNumber){
+        List<Operation> operations = new ArrayList<>();
+        lastSequenceNumber = snapshotSequenceNumber;
+        numberOfRecords = 0;
+        File journalFile = new File(journalPath);
+        if(!journalFile.exists()){
+            return operations;
+        }
+        long journalLength = journalFile.length();
+        long validLength = 0;
+        try(DataInputStream journalInput = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(journalFile)))){
+            while(validLength + RECORD_HEADER_SIZE <= journalLength){
+                int typeOrdinal = journalInput.readByte();
+                long sequenceNumber = journalInput.readLong();
+                int payloadLength = journalInput.readInt();
+                //a torn length may be anything, only a payload which fits in the file is allocated
+                if(typeOrdinal < 0 || typeOrdinal >= OperationType.values().length || payloadLength < 0
+                        || payloadLength > journalLength - validLength - RECORD_HEADER_SIZE - CHECKSUM_SIZE){
+                    break;
+                }
+                byte[] payload = new byte[payloadLength];
+                journalInput.readFully(payload);
+                if(journalInput.readLong() != checksum(sequenceNumber, payload)){
+                    break;
+                }
+                if(sequenceNumber > snapshotSequenceNumber){
+                    operations.add(readOperation(OperationType.values()[typeOrdinal],
+                            new DataInputStream(new ByteArrayInputStream(payload))));
+                }
+                lastSequenceNumber = Math.max(lastSequenceNumber, sequenceNumber);
+                numberOfRecords++;
+                validLength += RECORD_HEADER_SIZE + payloadLength + CHECKSUM_SIZE;
+            }
+        } catch (EOFException e) {
+            //torn record at the end of the journal - everything before it is valid
+        } catch (IOException e) {
+            log("Cache journal can't be read: " + e);
+        }
+        if(validLength < journalLength){
+            truncateTo(validLength);
+        }
+        return operations;
+    }
+
+    //written at the start of a snapshot, before the files
+    static void writeSnapshotHeader(OutputStream snapshotStream, long lastSequenceNumber) throws IOException {
+        DataOutputStream header = new DataOutputStream(snapshotStream);
+        header.writeInt(SNAPSHOT_MAGIC);
+        header.writeLong(lastSequenceNumber);
+        header.flush();
+    }
+
+    //numbering of a journal which replaces another one
+    void continueAfter(long sequenceNumber){
+        lastSequenceNumber = Math.max(lastSequenceNumber, sequenceNumber);
+    }
+
+    //returns the last sequence number the snapshot covers, 0 for a snapshot written without a header
+    //snapshotStream has to support mark
+    static long readSnapshotHeader(InputStream snapshotStream) throws IOException {
+        snapshotStream.mark(SNAPSHOT_HEADER_SIZE);
+        DataInputStream header = new DataInputStream(snapshotStream);
+        try {
+            if(header.readInt() == SNAPSHOT_MAGIC){
+                return header.readLong();
+            }
+        } catch (EOFException e) {
+            //shorter than a header
+        }
+        snapshotStream.reset();
+        return 0;
+    }
+
+    //called after a snapshot made the journaled operations redundant - numbering goes on
+    void clear(){
+        close();
+        truncateTo(0);
+        numberOfRecords = 0;
+    }
+
+    void close(){
+        if(journalStream == null){
+            return;
+        }
+        try {
+            journalStream.close();
+        } catch (IOException e) {
+            log("Cache journal can't be closed: " + e);
+        }
+        journalStream = null;
+    }
+
+    long getSizeInBytes(){
+        return new File(journalPath).length();
+    }
+
+    void removeFromDevice(){
+        close();
+        File journalFile = new File(journalPath);
+        if(journalFile.exists() && !journalFile.delete()){
+            log("Cache journal " + journalPath + " can't be removed.");
+        }
+        numberOfRecords = 0;
+    }
+
+    private interface PayloadWriter {
+        void write(DataOutputStream payload) throws IOException;
+    }
+
+    private void append(OperationType type, PayloadWriter payloadWriter){
+        try {
+            ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(payloadBytes);
+            payloadWriter.write(payload);
+            payload.flush();
+            byte[] payloadArray = payloadBytes.toByteArray();
+
+            long sequenceNumber = lastSequenceNumber + 1;
+            DataOutputStream output = getJournalStream();
+            output.writeByte(type.ordinal());
+            output.writeLong(sequenceNumber);
+            output.writeInt(payloadArray.length);
+            output.write(payloadArray);
+            output.writeLong(checksum(sequenceNumber, payloadArray));
+            output.flush();
+            lastSequenceNumber = sequenceNumber;
+            numberOfRecords++;
+        } catch (IOException e) {
+            log("Cache journal can't save operation " + type + ": " + e);
+        }
+    }
+
+    private DataOutputStream getJournalStream() throws IOException {
+        if(journalStream == null){
+            journalStream = new DataOutputStream(
+                    new BufferedOutputStream(
+                            new FileOutputStream(journalPath, true)));
+        }
+        return journalStream;
+    }
+
+    private void truncateTo(long length){
+        File journalFile = new File(journalPath);
+        if(!journalFile.exists()){
+            return;
+        }
+        try(RandomAccessFile journalAccess = new RandomAccessFile(journalFile, "rw")){
+            journalAccess.setLength(length);
+        } catch (IOException e) {
+            log("Cache journal can't be truncated: " + e);
+        }
+    }
+
+    private Operation readOperation(OperationType type, DataInputStream payload) throws IOException {
+        switch (type){
+            case PUT:
+                return new Operation(type, codec.readAll(payload).get(0), null, null, null);
+            case REMOVE:
+                return new Operation(type, null, payload.readUTF(), null, null);
+            case MOVE:
+                return new Operation(type, null, payload.readUTF(), payload.readUTF(), new Date(payload.readLong()));
+            case TOUCH:
+                return new Operation(type, null, payload.readUTF(), null, new Date(payload.readLong()));
+            default:
+                return new Operation(type, null, null, null, null);
+        }
+    }
+
+    private static long checksum(long sequenceNumber, byte[] payload){
+        CRC32 crc = new CRC32();
+        for(int shift = 56; shift >= 0; shift -= 8){
+            crc.update((int) (sequenceNumber >>> shift));
+        }
+        crc.update(payload);
+        return crc.getValue();
+    }
+
+    private static void log(String message){
+        Logger logger = Logger.getLogger(CacheJournal.class.getName());
+        logger.warning(message);
+    }
+}
@@ -1,45 +1,105 @@
 package com.github.jansowa.dao.datastructure;
 
 import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.dao.codec.FileBasicInfoCodec;
+import com.github.jansowa.dao.codec.JavaSerializationCodec;
 import com.github.jansowa.domain.FileBasicInfo;
 
 import lombok.Getter;
+import lombok.Setter;
 
 import java.io.File;
-import java.io.ObjectOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
 import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
+import java.io.BufferedInputStream;
+import java.io.InputStream;
 import java.io.FileInputStream;
 import java.io.Serializable;
 import java.io.IOException;
 
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.logging.Logger;
 
 public class HashMapCacheModel implements CacheModel, Serializable{
     @Getter private long maxNumberOfFiles;
     private String cacheModelPath;
-    private HashMap<String, FileBasicInfo> storedFiles;
+    //access-ordered, so the first key is always the least recently used file
+    private LinkedHashMap<String, FileBasicInfo> storedFiles;
+    private transient FileBasicInfoCodec codec;
+    //null when every mutation rewrites the whole snapshot
+    private transient CacheJournal journal;
+    @Getter @Setter private int maxJournalRecords = 10000;
 
     public HashMapCacheModel(long maxNumberOfFiles, String cacheModelPath){
+        this(maxNumberOfFiles, cacheModelPath, false);
+    }
+
+    public HashMapCacheModel(long maxNumberOfFiles, String cacheModelPath, boolean journaled){
+        this(maxNumberOfFiles, cacheModelPath, journaled, new JavaSerializationCodec());
+    }
+
+    public HashMapCacheModel(long maxNumberOfFiles, String cacheModelPath, boolean journaled, FileBasicInfoCodec codec){
         this.maxNumberOfFiles = maxNumberOfFiles;
         this.cacheModelPath = cacheModelPath;
-        this.storedFiles = new HashMap<>();
+        this.storedFiles = createAccessOrderedMap();
+        this.codec = codec;
+        if(journaled){
+            this.journal = new CacheJournal(cacheModelPath + ".journal", codec);
+        }
     }
 
     @Override
     public void put(FileBasicInfo file) {
+        putStoredFile(file);
+        removeExcessFiles();
+        saveChanges();
+    }
+
+    @Override
+    public void putAll(Collection<FileBasicInfo> files) {
+        files.forEach(this::putStoredFile);
+        removeExcessFiles();
+        saveChanges();
+    }
+
+    private void putStoredFile(FileBasicInfo file) {
         storedFiles.put(file.getFilePath(), file);
-        if(getNumberOfFiles()>getMaxNumberOfFiles()) {
-            remove(findOldestFile());
+        if(journal != null){
+            journal.appendPut(file);
+        }
+    }
+
+    private void removeExcessFiles() {
+        while(getNumberOfFiles()>getMaxNumberOfFiles()) {
+            String oldestFile = findOldestFile();
+            storedFiles.remove(oldestFile);
+            if(journal != null){
+                journal.appendRemove(oldestFile);
+            }
         }
-        saveData();
     }
 
     @Override
     public void remove(String filePath) {
+        removeStoredFile(filePath);
+        saveChanges();
+    }
+
+    @Override
+    public void removeAll(Collection<String> filePaths) {
+        filePaths.forEach(this::removeStoredFile);
+        saveChanges();
+    }
+
+    private void removeStoredFile(String filePath) {
         storedFiles.remove(filePath);
-        saveData();
+        if(journal != null){
+            journal.appendRemove(filePath);
+        }
     }
 
     @Override
@@ -49,37 +109,60 @@ public class HashMapCacheModel implements CacheModel, Serializable{
 
     @Override
     public void movePath(String sourcePath, String destinationPath) {
+        Date moveTime = new Date();
+        moveStoredFiles(sourcePath, destinationPath, moveTime);
+        if(journal != null){
+            journal.appendMove(sourcePath, destinationPath, moveTime);
+        }
+        saveChanges();
+    }
+
+    private void moveStoredFiles(String sourcePath, String destinationPath, Date moveTime) {
         ArrayList<String> pathsToRemove = new ArrayList<>();
-        HashMap<String, FileBasicInfo> entriesToAdd = new HashMap<>();
+        LinkedHashMap<String, FileBasicInfo> entriesToAdd = new LinkedHashMap<>();
         storedFiles
-                .keySet()
+                .entrySet()
                 .stream()
-                .filter(path -> path.startsWith(sourcePath))
-                .forEach(path -> {
+                .filter(entry -> entry.getKey().startsWith(sourcePath))
+                .forEach(entry -> {
+                    String path = entry.getKey();
                     pathsToRemove.add(path);
                     String finalPath = destinationPath +
                             path.substring(sourcePath.length());
-                    FileBasicInfo fileToAdd = storedFiles
-                                    .get(path)
-                                    .withLastUsageTime(new Date())
+                    FileBasicInfo fileToAdd = entry
+                                    .getValue()
+                                    .withLastUsageTime(moveTime)
                                     .withFilePath(finalPath);
                     entriesToAdd.put(finalPath, fileToAdd);
                 });
         storedFiles.putAll(entriesToAdd);
         storedFiles.keySet().removeAll(pathsToRemove);
-        saveData();
     }
 
     @Override
     public Optional<FileBasicInfo> read(String filePath) {
-        if (!storedFiles.containsKey(filePath)) {
-            return Optional.ofNullable(null);
-        }
         FileBasicInfo downloadedFile = storedFiles.get(filePath);
-        downloadedFile.withLastUsageTime(new Date());
-        storedFiles.remove(filePath);
+        if (downloadedFile == null) {
+            return Optional.empty();
+        }
+        downloadedFile = downloadedFile.withLastUsageTime(new Date());
         storedFiles.put(filePath, downloadedFile);
-        return Optional.ofNullable(storedFiles.get(filePath));
+        if(journal != null){
+            journal.appendTouch(filePath, downloadedFile.getLastUsageTime());
+            compactJournalIfNeeded();
+        }
+        return Optional.of(downloadedFile);
+    }
+
+    @Override
+    public List<String> listPaths(String prefix) {
+        List<String> paths = new ArrayList<>();
+        for(String filePath: storedFiles.keySet()){
+            if(filePath.startsWith(prefix)){
+                paths.add(filePath);
+            }
+        }
+        return paths;
     }
 
     @Override
@@ -90,18 +173,27 @@ public class HashMapCacheModel implements CacheModel, Serializable{
     @Override
     public void removeAllData() {
         storedFiles.clear();
+        if(journal != null){
+            journal.appendClear();
+            compactJournalIfNeeded();
+        }
     }
 
     @Override
     public long getSizeInBytes(){
         File cacheModel = new File(cacheModelPath);
+        if(journal != null){
+            return cacheModel.length() + journal.getSizeInBytes();
+        }
         return cacheModel.length();
     }
 
     @Override
     public void setMaxNumberOfFiles(long maxNumberOfFiles){
         this.maxNumberOfFiles = maxNumberOfFiles;
-        saveData();
+        if(journal == null){
+            saveData();
+        }
     }
 
     public void removeFromDevice(){
@@ -109,13 +201,32 @@ public class HashMapCacheModel implements CacheModel, Serializable{
         if(!cacheModel.delete()){
             System.out.println("File "+cacheModelPath+" doesn't exist!");
         }
+        if(journal != null){
+            journal.removeFromDevice();
+        }
     }
 
+    //snapshot goes to a temporary file first, so a crash never leaves a half-written cache behind
     protected void saveData(){
-        try (ObjectOutputStream objectOutputStream =
-                     new ObjectOutputStream(
-                             new FileOutputStream(cacheModelPath))){
-            objectOutputStream.writeObject(storedFiles);
+        String temporaryPath = cacheModelPath + ".tmp";
+        try (OutputStream snapshotStream =
+                     new BufferedOutputStream(
+                             new FileOutputStream(temporaryPath))){
+            if(journal != null){
+                CacheJournal.writeSnapshotHeader(snapshotStream, journal.getLastSequenceNumber());
+            }
+            codec.writeAll(storedFiles.values(), snapshotStream);
+        } catch (IOException e) {
+            Logger logger = Logger.getLogger(ArrayListCacheModel.class.getName());
+            logger.warning("HashMap cache can't save data into device.");
+            return;
+        }
+        try {
+            Files.move(Paths.get(temporaryPath), Paths.get(cacheModelPath),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if(journal != null){
+                journal.clear();
+            }
         } catch (IOException e) {
             Logger logger = Logger.getLogger(ArrayListCacheModel.class.getName());
             logger.warning("HashMap cache can't save data into device.");
@@ -123,23 +234,81 @@ public class HashMapCacheModel implements CacheModel, Serializable{
     }
 
     protected void loadData(){
-        try(ObjectInputStream objectInputStream =
-                    new ObjectInputStream(
-                            new FileInputStream(cacheModelPath))){
+        long snapshotSequenceNumber = 0;
+        if(journal == null || new File(cacheModelPath).exists()){
+            snapshotSequenceNumber = loadSnapshot();
+        }
+        if(journal != null){
+            journal.readOperations(snapshotSequenceNumber).forEach(this::replay);
+        }
+    }
 
-            this.storedFiles = (HashMap<String, FileBasicInfo>) objectInputStream.readObject();
-        } catch (IOException | ClassNotFoundException e) {
+    //returns the last journal record the snapshot covers
+    private long loadSnapshot(){
+        try(InputStream snapshotStream =
+                    new BufferedInputStream(
+                            new FileInputStream(cacheModelPath))){
+            long snapshotSequenceNumber = CacheJournal.readSnapshotHeader(snapshotStream);
+            LinkedHashMap<String, FileBasicInfo> loadedFiles = createAccessOrderedMap();
+            codec.readAll(snapshotStream)
+                    .forEach(file -> loadedFiles.put(file.getFilePath(), file));
+            this.storedFiles = loadedFiles;
+            return snapshotSequenceNumber;
+        } catch (IOException e) {
             Logger logger = Logger.getLogger(ArrayListCacheModel.class.getName());
             logger.warning("HashMap cache can't load data from device.");
+            return 0;
+        }
+    }
+
+    private void replay(CacheJournal.Operation operation){
+        switch (operation.getType()){
+            case PUT:
+                storedFiles.put(operation.getFile().getFilePath(), operation.getFile());
+                break;
+            case REMOVE:
+                storedFiles.remove(operation.getFilePath());
+                break;
+            case MOVE:
+                moveStoredFiles(operation.getFilePath(), operation.getDestinationPath(), operation.getTime());
+                break;
+            case TOUCH:
+                FileBasicInfo touchedFile = storedFiles.get(operation.getFilePath());
+                if(touchedFile != null){
+                    storedFiles.put(operation.getFilePath(), touchedFile.withLastUsageTime(operation.getTime()));
+                }
+                break;
+            case CLEAR:
+                storedFiles.clear();
+                break;
+        }
+    }
+
+    private void saveChanges(){
+        if(journal == null){
+            saveData();
+        } else {
+            compactJournalIfNeeded();
+        }
+    }
+
+    private void compactJournalIfNeeded(){
+        if(journal.getNumberOfRecords() >= maxJournalRecords){
+            saveData();
         }
     }
 
     private String findOldestFile(){
+        if(storedFiles.isEmpty()){
+            return null;
+        }
         return storedFiles
-                .values()
-                .stream()
-                .min((file1, file2) -> file1.getLastUsageTime().compareTo(file2.getLastUsageTime()))
-                .map(FileBasicInfo::getFilePath)
-                .orElse(null);
+                .keySet()
+                .iterator()
+                .next();
+    }
+
+    private static LinkedHashMap<String, FileBasicInfo> createAccessOrderedMap(){
+        return new LinkedHashMap<>(16, 0.75f, true);
     }
 }
\ No newline at end of file
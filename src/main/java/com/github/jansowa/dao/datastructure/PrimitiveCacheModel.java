@@ -0,0 +1,486 @@
+package com.github.jansowa.dao.datastructure;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.domain.FileBasicInfo;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+//In-memory model without an object per file. Every file is an id into primitive columns: times in long[],
+//lengths and links in int[], and its path, name, extension and url are UTF-8 bytes in one pooled byte[].
+//Paths are found through an open-addressing table of ids (linear probing, no tombstones),
+//and files form a doubly-linked LRU list of ids, so the least recently used file is evicted in O(1).
+//contains and touch compare the path with pooled bytes in place and never allocate.
+//Removed files leave dead bytes in the pool, which is compacted when they're the majority. Not thread safe.
+public class PrimitiveCacheModel implements CacheModel {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NO_ID = -1;
+    //length of a null string
+    private static final int NULL_LENGTH = -1;
+
+    @Getter private long maxNumberOfFiles;
+    private int numberOfFiles;
+
+    private long[] creationTimes = new long[INITIAL_CAPACITY];
+    private long[] lastUsageTimes = new long[INITIAL_CAPACITY];
+    private int[] pathHashes = new int[INITIAL_CAPACITY];
+    //offset of the record of path, name, extension and url in pool
+    private int[] recordOffsets = new int[INITIAL_CAPACITY];
+    private int[] pathLengths = new int[INITIAL_CAPACITY];
+    private int[] nameLengths = new int[INITIAL_CAPACITY];
+    private int[] extensionLengths = new int[INITIAL_CAPACITY];
+    private int[] urlLengths = new int[INITIAL_CAPACITY];
+    //LRU list, least recently used first - next also chains free ids
+    private int[] previousIds = new int[INITIAL_CAPACITY];
+    private int[] nextIds = new int[INITIAL_CAPACITY];
+    private int leastRecentlyUsedId = NO_ID;
+    private int mostRecentlyUsedId = NO_ID;
+    private int firstFreeId = NO_ID;
+    //ids never used yet start here
+    private int unusedId;
+
+    //id + 1 of the file in every slot, 0 for an empty slot - at most half of the slots are used
+    private int[] index = new int[2 * INITIAL_CAPACITY];
+
+    private byte[] pool = new byte[64 * INITIAL_CAPACITY];
+    private int poolEnd;
+    private int deadPoolBytes;
+
+    public PrimitiveCacheModel(long maxNumberOfFiles){
+        this.maxNumberOfFiles = maxNumberOfFiles;
+    }
+
+    @Override
+    public void put(FileBasicInfo file) {
+        String filePath = file.getFilePath();
+        int id = findId(filePath);
+        if(id == NO_ID){
+            if(maxNumberOfFiles <= 0){
+                return;
+            }
+            while(numberOfFiles >= maxNumberOfFiles){
+                removeId(leastRecentlyUsedId);
+            }
+            id = allocateId();
+            pathHashes[id] = filePath.hashCode();
+            insertIntoIndex(id);
+            numberOfFiles++;
+        } else {
+            deadPoolBytes += recordLength(id);
+            unlink(id);
+        }
+        writeRecord(id, file);
+        creationTimes[id] = getTime(file.getCreationTime());
+        lastUsageTimes[id] = getTime(file.getLastUsageTime());
+        linkAsMostRecentlyUsed(id);
+    }
+
+    @Override
+    public void remove(String filePath) {
+        int id = findId(filePath);
+        if(id != NO_ID){
+            removeId(id);
+        }
+    }
+
+    @Override
+    public boolean contains(String filePath) {
+        return findId(filePath) != NO_ID;
+    }
+
+    //marks the file as used now without reading it, false when it isn't stored
+    public boolean touch(String filePath) {
+        int id = findId(filePath);
+        if(id == NO_ID){
+            return false;
+        }
+        lastUsageTimes[id] = System.currentTimeMillis();
+        unlink(id);
+        linkAsMostRecentlyUsed(id);
+        return true;
+    }
+
+    //only the returned file is allocated
+    @Override
+    public Optional<FileBasicInfo> read(String filePath) {
+        int id = findId(filePath);
+        if(id == NO_ID){
+            return Optional.empty();
+        }
+        lastUsageTimes[id] = System.currentTimeMillis();
+        unlink(id);
+        linkAsMostRecentlyUsed(id);
+        return Optional.of(toFile(id));
+    }
+
+    //moved files are used at the time of the move
+    @Override
+    public void movePath(String sourcePath, String destinationPath) {
+        long moveTime = System.currentTimeMillis();
+        List<FileBasicInfo> filesToAdd = new ArrayList<>();
+        for(int id = leastRecentlyUsedId; id != NO_ID; id = nextIds[id]){
+            String path = readString(recordOffsets[id], pathLengths[id]);
+            if(path.startsWith(sourcePath)){
+                filesToAdd.add(toFile(id)
+                        .withFilePath(destinationPath + path.substring(sourcePath.length()))
+                        .withLastUsageTime(new Date(moveTime)));
+            }
+        }
+        for(FileBasicInfo fileToAdd: filesToAdd){
+            String sourceFilePath = sourcePath + fileToAdd.getFilePath().substring(destinationPath.length());
+            remove(sourceFilePath);
+        }
+        filesToAdd.forEach(this::put);
+    }
+
+    @Override
+    public List<String> listPaths(String prefix) {
+        List<String> paths = new ArrayList<>();
+        for(int id = leastRecentlyUsedId; id != NO_ID; id = nextIds[id]){
+            String path = readString(recordOffsets[id], pathLengths[id]);
+            if(path.startsWith(prefix)){
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    @Override
+    public int getNumberOfFiles() {
+        return numberOfFiles;
+    }
+
+    @Override
+    public void removeAllData() {
+        Arrays.fill(index, 0);
+        numberOfFiles = 0;
+        leastRecentlyUsedId = NO_ID;
+        mostRecentlyUsedId = NO_ID;
+        firstFreeId = NO_ID;
+        unusedId = 0;
+        poolEnd = 0;
+        deadPoolBytes = 0;
+    }
+
+    //heap taken by columns, index and pool
+    @Override
+    public long getSizeInBytes() {
+        int capacity = creationTimes.length;
+        return 2L * Long.BYTES * capacity + 8L * Integer.BYTES * capacity
+                + (long) Integer.BYTES * index.length + pool.length;
+    }
+
+    @Override
+    public void setMaxNumberOfFiles(long maxNumberOfFiles) {
+        this.maxNumberOfFiles = maxNumberOfFiles;
+        while(numberOfFiles > Math.max(0, maxNumberOfFiles)){
+            removeId(leastRecentlyUsedId);
+        }
+    }
+
+    @Override
+    public void removeFromDevice() {
+        removeAllData();
+    }
+
+    private void removeId(int id) {
+        removeFromIndex(id);
+        unlink(id);
+        deadPoolBytes += recordLength(id);
+        nextIds[id] = firstFreeId;
+        firstFreeId = id;
+        numberOfFiles--;
+    }
+
+    private int allocateId() {
+        if(firstFreeId != NO_ID){
+            int id = firstFreeId;
+            firstFreeId = nextIds[id];
+            return id;
+        }
+        if(unusedId == creationTimes.length){
+            growColumns(2 * creationTimes.length);
+        }
+        return unusedId++;
+    }
+
+    private void growColumns(int capacity) {
+        creationTimes = Arrays.copyOf(creationTimes, capacity);
+        lastUsageTimes = Arrays.copyOf(lastUsageTimes, capacity);
+        pathHashes = Arrays.copyOf(pathHashes, capacity);
+        recordOffsets = Arrays.copyOf(recordOffsets, capacity);
+        pathLengths = Arrays.copyOf(pathLengths, capacity);
+        nameLengths = Arrays.copyOf(nameLengths, capacity);
+        extensionLengths = Arrays.copyOf(extensionLengths, capacity);
+        urlLengths = Arrays.copyOf(urlLengths, capacity);
+        previousIds = Arrays.copyOf(previousIds, capacity);
+        nextIds = Arrays.copyOf(nextIds, capacity);
+    }
+
+    private void unlink(int id) {
+        int previousId = previousIds[id];
+        int nextId = nextIds[id];
+        if(previousId == NO_ID){
+            leastRecentlyUsedId = nextId;
+        } else {
+            nextIds[previousId] = nextId;
+        }
+        if(nextId == NO_ID){
+            mostRecentlyUsedId = previousId;
+        } else {
+            previousIds[nextId] = previousId;
+        }
+    }
+
+    private void linkAsMostRecentlyUsed(int id) {
+        previousIds[id] = mostRecentlyUsedId;
+        nextIds[id] = NO_ID;
+        if(mostRecentlyUsedId == NO_ID){
+            leastRecentlyUsedId = id;
+        } else {
+            nextIds[mostRecentlyUsedId] = id;
+        }
+        mostRecentlyUsedId = id;
+    }
+
+    private int findId(String filePath) {
+        int hash = filePath.hashCode();
+        int mask = index.length - 1;
+        for(int slot = spread(hash) & mask; index[slot] != 0; slot = (slot + 1) & mask){
+            int id = index[slot] - 1;
+            if(pathHashes[id] == hash && utf8Equals(filePath, recordOffsets[id], pathLengths[id])){
+                return id;
+            }
+        }
+        return NO_ID;
+    }
+
+    private void insertIntoIndex(int id) {
+        if(2 * (numberOfFiles + 1) > index.length){
+            rebuildIndex(2 * index.length);
+        }
+        int mask = index.length - 1;
+        int slot = spread(pathHashes[id]) & mask;
+        while(index[slot] != 0){
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = id + 1;
+    }
+
+    private void rebuildIndex(int numberOfSlots) {
+        index = new int[numberOfSlots];
+        int mask = numberOfSlots - 1;
+        for(int id = leastRecentlyUsedId; id != NO_ID; id = nextIds[id]){
+            int slot = spread(pathHashes[id]) & mask;
+            while(index[slot] != 0){
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = id + 1;
+        }
+    }
+
+    //later slots of the probe sequence are shifted back, so lookups never stop at a gap too early
+    private void removeFromIndex(int id) {
+        int mask = index.length - 1;
+        int slot = spread(pathHashes[id]) & mask;
+        while(index[slot] != id + 1){
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = 0;
+        for(int nextSlot = (slot + 1) & mask; index[nextSlot] != 0; nextSlot = (nextSlot + 1) & mask){
+            int homeSlot = spread(pathHashes[index[nextSlot] - 1]) & mask;
+            //moves back unless its home slot lies cyclically between the gap and nextSlot
+            if(((nextSlot - homeSlot) & mask) >= ((nextSlot - slot) & mask)){
+                index[slot] = index[nextSlot];
+                index[nextSlot] = 0;
+                slot = nextSlot;
+            }
+        }
+    }
+
+    private void writeRecord(int id, FileBasicInfo file) {
+        int pathLength = utf8Length(file.getFilePath());
+        int nameLength = utf8Length(file.getName());
+        int extensionLength = utf8Length(file.getExtension());
+        int urlLength = utf8Length(file.getUrl());
+        int recordLength = Math.max(0, pathLength) + Math.max(0, nameLength)
+                + Math.max(0, extensionLength) + Math.max(0, urlLength);
+        ensurePoolSpace(recordLength);
+        recordOffsets[id] = poolEnd;
+        pathLengths[id] = pathLength;
+        nameLengths[id] = nameLength;
+        extensionLengths[id] = extensionLength;
+        urlLengths[id] = urlLength;
+        poolEnd = writeUtf8(file.getFilePath(), poolEnd);
+        poolEnd = writeUtf8(file.getName(), poolEnd);
+        poolEnd = writeUtf8(file.getExtension(), poolEnd);
+        poolEnd = writeUtf8(file.getUrl(), poolEnd);
+    }
+
+    private int recordLength(int id) {
+        return Math.max(0, pathLengths[id]) + Math.max(0, nameLengths[id])
+                + Math.max(0, extensionLengths[id]) + Math.max(0, urlLengths[id]);
+    }
+
+    //dead bytes are compacted away before the pool grows
+    private void ensurePoolSpace(int recordLength) {
+        if(poolEnd + recordLength <= pool.length){
+            return;
+        }
+        int liveBytes = poolEnd - deadPoolBytes;
+        if(deadPoolBytes > liveBytes && liveBytes + recordLength <= pool.length){
+            compactPool(pool.length);
+        } else {
+            compactPool((int) Math.min(Integer.MAX_VALUE - 8, Math.max(2L * pool.length, 2L * (liveBytes + recordLength))));
+        }
+    }
+
+    private void compactPool(int poolLength) {
+        byte[] compactedPool = new byte[poolLength];
+        int compactedEnd = 0;
+        for(int id = leastRecentlyUsedId; id != NO_ID; id = nextIds[id]){
+            int recordLength = recordLength(id);
+            System.arraycopy(pool, recordOffsets[id], compactedPool, compactedEnd, recordLength);
+            recordOffsets[id] = compactedEnd;
+            compactedEnd += recordLength;
+        }
+        pool = compactedPool;
+        poolEnd = compactedEnd;
+        deadPoolBytes = 0;
+    }
+
+    private FileBasicInfo toFile(int id) {
+        int offset = recordOffsets[id];
+        String filePath = readString(offset, pathLengths[id]);
+        offset += Math.max(0, pathLengths[id]);
+        String name = readString(offset, nameLengths[id]);
+        offset += Math.max(0, nameLengths[id]);
+        String extension = readString(offset, extensionLengths[id]);
+        offset += Math.max(0, extensionLengths[id]);
+        String url = readString(offset, urlLengths[id]);
+        return FileBasicInfo.builder()
+                .name(name)
+                .filePath(filePath)
+                .extension(extension)
+                .url(url)
+                .creationTime(new Date(creationTimes[id]))
+                .lastUsageTime(new Date(lastUsageTimes[id]))
+                .build();
+    }
+
+    private String readString(int offset, int length) {
+        return length == NULL_LENGTH ? null : new String(pool, offset, length, StandardCharsets.UTF_8);
+    }
+
+    //same bytes as String.getBytes(UTF_8), with '?' for unpaired surrogates
+    private static int utf8Length(String value) {
+        if(value == null){
+            return NULL_LENGTH;
+        }
+        int length = 0;
+        for(int i = 0; i < value.length(); i++){
+            char character = value.charAt(i);
+            if(character < 0x80){
+                length++;
+            } else if(character < 0x800){
+                length += 2;
+            } else if(isSurrogatePair(value, i)){
+                length += 4;
+                i++;
+            } else if(Character.isSurrogate(character)){
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private int writeUtf8(String value, int offset) {
+        if(value == null){
+            return offset;
+        }
+        for(int i = 0; i < value.length(); i++){
+            char character = value.charAt(i);
+            if(character < 0x80){
+                pool[offset++] = (byte) character;
+            } else if(character < 0x800){
+                pool[offset++] = (byte) (0xC0 | character >> 6);
+                pool[offset++] = (byte) (0x80 | character & 0x3F);
+            } else if(isSurrogatePair(value, i)){
+                int codePoint = Character.toCodePoint(character, value.charAt(++i));
+                pool[offset++] = (byte) (0xF0 | codePoint >> 18);
+                pool[offset++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                pool[offset++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                pool[offset++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if(Character.isSurrogate(character)){
+                pool[offset++] = '?';
+            } else {
+                pool[offset++] = (byte) (0xE0 | character >> 12);
+                pool[offset++] = (byte) (0x80 | character >> 6 & 0x3F);
+                pool[offset++] = (byte) (0x80 | character & 0x3F);
+            }
+        }
+        return offset;
+    }
+
+    //compares value encoded like writeUtf8 with pooled bytes, without encoding it into a new array
+    private boolean utf8Equals(String value, int offset, int length) {
+        int end = offset + length;
+        for(int i = 0; i < value.length(); i++){
+            char character = value.charAt(i);
+            if(character < 0x80){
+                if(offset >= end || pool[offset++] != (byte) character){
+                    return false;
+                }
+            } else if(character < 0x800){
+                if(end - offset < 2
+                        || pool[offset++] != (byte) (0xC0 | character >> 6)
+                        || pool[offset++] != (byte) (0x80 | character & 0x3F)){
+                    return false;
+                }
+            } else if(isSurrogatePair(value, i)){
+                int codePoint = Character.toCodePoint(character, value.charAt(++i));
+                if(end - offset < 4
+                        || pool[offset++] != (byte) (0xF0 | codePoint >> 18)
+                        || pool[offset++] != (byte) (0x80 | codePoint >> 12 & 0x3F)
+                        || pool[offset++] != (byte) (0x80 | codePoint >> 6 & 0x3F)
+                        || pool[offset++] != (byte) (0x80 | codePoint & 0x3F)){
+                    return false;
+                }
+            } else if(Character.isSurrogate(character)){
+                if(offset >= end || pool[offset++] != '?'){
+                    return false;
+                }
+            } else {
+                if(end - offset < 3
+                        || pool[offset++] != (byte) (0xE0 | character >> 12)
+                        || pool[offset++] != (byte) (0x80 | character >> 6 & 0x3F)
+                        || pool[offset++] != (byte) (0x80 | character & 0x3F)){
+                    return false;
+                }
+            }
+        }
+        return offset == end;
+    }
+
+    private static boolean isSurrogatePair(String value, int i) {
+        return Character.isHighSurrogate(value.charAt(i)) && i + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(i + 1));
+    }
+
+    private static long getTime(Date date) {
+        return date == null ? System.currentTimeMillis() : date.getTime();
+    }
+
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
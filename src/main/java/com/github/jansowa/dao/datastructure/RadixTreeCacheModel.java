@@ -0,0 +1,604 @@
+package com.github.jansowa.dao.datastructure;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.dao.codec.FileBasicInfoCodec;
+import com.github.jansowa.dao.codec.JavaSerializationCodec;
+import com.github.jansowa.domain.FileBasicInfo;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.File;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.io.FileOutputStream;
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.logging.Logger;
+
+//Files are kept in a compressed radix tree over their paths, so a folder is a single node:
+//movePath re-parents that node, and file paths are built from the edges only when they're read.
+//Every node knows how many files and (estimated) bytes are stored below it.
+//Stored files are linked in least recently used order - moving doesn't change their usage time.
+public class RadixTreeCacheModel implements CacheModel {
+    @Getter @Setter private long maxNumberOfFiles;
+    private String cacheModelPath;
+    private Node root = new Node("");
+    //least and most recently used files
+    private Node oldest;
+    private Node newest;
+    private FileBasicInfoCodec codec;
+    //null when every mutation rewrites the whole snapshot
+    private CacheJournal journal;
+    @Getter @Setter private int maxJournalRecords = 10000;
+
+    private static final class Node {
+        private String edge;
+        private Node parent;
+        private TreeMap<Character, Node> children;
+        private FileBasicInfo file;
+        private int numberOfFiles;
+        private long sizeInBytes;
+        private Node older;
+        private Node newer;
+
+        private Node(String edge){
+            this.edge = edge;
+        }
+
+        private Node child(char firstCharacter){
+            return children == null ? null : children.get(firstCharacter);
+        }
+
+        private void addChild(Node child){
+            if(children == null){
+                children = new TreeMap<>();
+            }
+            children.put(child.edge.charAt(0), child);
+            child.parent = this;
+        }
+
+        private boolean hasChildren(){
+            return children != null && !children.isEmpty();
+        }
+    }
+
+    public RadixTreeCacheModel(long maxNumberOfFiles, String cacheModelPath){
+        this(maxNumberOfFiles, cacheModelPath, false);
+    }
+
+    public RadixTreeCacheModel(long maxNumberOfFiles, String cacheModelPath, boolean journaled){
+        this(maxNumberOfFiles, cacheModelPath, journaled, new JavaSerializationCodec());
+    }
+
+    public RadixTreeCacheModel(long maxNumberOfFiles, String cacheModelPath, boolean journaled, FileBasicInfoCodec codec){
+        this.maxNumberOfFiles = maxNumberOfFiles;
+        this.cacheModelPath = cacheModelPath;
+        this.codec = codec;
+        if(journaled){
+            this.journal = new CacheJournal(cacheModelPath + ".journal", codec);
+        }
+    }
+
+    @Override
+    public void put(FileBasicInfo file) {
+        putStoredFile(file);
+        removeExcessFiles();
+        saveChanges();
+    }
+
+    @Override
+    public void putAll(Collection<FileBasicInfo> files) {
+        files.forEach(this::putStoredFile);
+        removeExcessFiles();
+        saveChanges();
+    }
+
+    private void putStoredFile(FileBasicInfo file) {
+        storeFile(file);
+        if(journal != null){
+            journal.appendPut(file);
+        }
+    }
+
+    private void storeFile(FileBasicInfo file) {
+        Node node = insertNode(file.getFilePath());
+        if(node.file == null){
+            addToAncestors(node, 1, estimateSize(file));
+            linkAsNewest(node);
+        } else {
+            addToAncestors(node, 0, estimateSize(file) - estimateSize(node.file));
+            unlink(node);
+            linkAsNewest(node);
+        }
+        node.file = file;
+    }
+
+    private void removeExcessFiles() {
+        while(getNumberOfFiles()>getMaxNumberOfFiles()) {
+            String oldestFile = pathOf(oldest);
+            removeNode(oldest);
+            if(journal != null){
+                journal.appendRemove(oldestFile);
+            }
+        }
+    }
+
+    @Override
+    public void remove(String filePath) {
+        removeStoredFile(filePath);
+        saveChanges();
+    }
+
+    @Override
+    public void removeAll(Collection<String> filePaths) {
+        filePaths.forEach(this::removeStoredFile);
+        saveChanges();
+    }
+
+    private void removeStoredFile(String filePath) {
+        Node node = findNode(filePath);
+        if(node != null && node.file != null){
+            removeNode(node);
+        }
+        if(journal != null){
+            journal.appendRemove(filePath);
+        }
+    }
+
+    private void removeNode(Node node) {
+        unlink(node);
+        addToAncestors(node, -1, -estimateSize(node.file));
+        node.file = null;
+        prune(node);
+    }
+
+    @Override
+    public boolean contains(String filePath) {
+        Node node = findNode(filePath);
+        return node != null && node.file != null;
+    }
+
+    @Override
+    public void movePath(String sourcePath, String destinationPath) {
+        moveStoredFiles(sourcePath, destinationPath);
+        if(journal != null){
+            journal.appendMove(sourcePath, destinationPath, new Date());
+        }
+        saveChanges();
+    }
+
+    //O(depth) when nothing is stored under destinationPath yet, otherwise the moved files are merged one by one
+    private void moveStoredFiles(String sourcePath, String destinationPath) {
+        if(sourcePath.equals(destinationPath)){
+            return;
+        }
+        Node movedNode = findSubtree(sourcePath, true);
+        if(movedNode == null || movedNode.numberOfFiles == 0){
+            return;
+        }
+        if(movedNode == root){
+            root = new Node("");
+        } else {
+            Node parent = movedNode.parent;
+            parent.children.remove(movedNode.edge.charAt(0));
+            movedNode.parent = null;
+            addToAncestors(parent, -movedNode.numberOfFiles, -movedNode.sizeInBytes);
+            prune(parent);
+        }
+
+        Node destinationNode = insertNode(destinationPath);
+        if(destinationNode != root && destinationNode.file == null && !destinationNode.hasChildren()){
+            Node destinationParent = destinationNode.parent;
+            movedNode.edge = destinationNode.edge;
+            destinationParent.addChild(movedNode);
+            addToAncestors(destinationParent, movedNode.numberOfFiles, movedNode.sizeInBytes);
+            prune(movedNode);
+        } else {
+            mergeInto(movedNode, destinationPath);
+        }
+    }
+
+    private void mergeInto(Node movedNode, String destinationPath) {
+        Deque<Node> nodes = new ArrayDeque<>();
+        Deque<String> relativePaths = new ArrayDeque<>();
+        nodes.push(movedNode);
+        relativePaths.push("");
+        while(!nodes.isEmpty()){
+            Node node = nodes.pop();
+            String relativePath = relativePaths.pop();
+            if(node.file != null){
+                Node destinationNode = insertNode(destinationPath + relativePath);
+                if(destinationNode.file != null){
+                    unlink(destinationNode);
+                    addToAncestors(destinationNode, -1, -estimateSize(destinationNode.file));
+                }
+                destinationNode.file = node.file;
+                addToAncestors(destinationNode, 1, estimateSize(node.file));
+                takeOverLink(node, destinationNode);
+            }
+            if(node.hasChildren()){
+                for(Node child: node.children.values()){
+                    nodes.push(child);
+                    relativePaths.push(relativePath + child.edge);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Optional<FileBasicInfo> read(String filePath) {
+        Node node = findNode(filePath);
+        if(node == null || node.file == null){
+            return Optional.empty();
+        }
+        FileBasicInfo downloadedFile = node.file
+                .withFilePath(filePath)
+                .withLastUsageTime(new Date());
+        node.file = downloadedFile;
+        unlink(node);
+        linkAsNewest(node);
+        if(journal != null){
+            journal.appendTouch(filePath, downloadedFile.getLastUsageTime());
+            compactJournalIfNeeded();
+        }
+        return Optional.of(downloadedFile);
+    }
+
+    //paths of all files starting with prefix, in lexicographical order
+    @Override
+    public List<String> listPaths(String prefix) {
+        List<String> paths = new ArrayList<>();
+        Node node = findSubtree(prefix, false);
+        if(node == null){
+            return paths;
+        }
+        collectPaths(node, new StringBuilder(pathOf(node)), paths);
+        return paths;
+    }
+
+    private void collectPaths(Node node, StringBuilder path, List<String> paths) {
+        if(node.file != null){
+            paths.add(path.toString());
+        }
+        if(node.hasChildren()){
+            for(Node child: node.children.values()){
+                int pathLength = path.length();
+                path.append(child.edge);
+                collectPaths(child, path, paths);
+                path.setLength(pathLength);
+            }
+        }
+    }
+
+    public int getNumberOfFiles(String prefix) {
+        Node node = findSubtree(prefix, false);
+        return node == null ? 0 : node.numberOfFiles;
+    }
+
+    //estimated in-memory size of files starting with prefix, see estimateSize
+    public long getEstimatedSizeInBytes(String prefix) {
+        Node node = findSubtree(prefix, false);
+        return node == null ? 0 : node.sizeInBytes;
+    }
+
+    @Override
+    public int getNumberOfFiles() {
+        return root.numberOfFiles;
+    }
+
+    @Override
+    public void removeAllData() {
+        clearTree();
+        if(journal != null){
+            journal.appendClear();
+            compactJournalIfNeeded();
+        }
+    }
+
+    private void clearTree() {
+        root = new Node("");
+        oldest = null;
+        newest = null;
+    }
+
+    @Override
+    public long getSizeInBytes(){
+        File cacheModel = new File(cacheModelPath);
+        if(journal != null){
+            return cacheModel.length() + journal.getSizeInBytes();
+        }
+        return cacheModel.length();
+    }
+
+    public void removeFromDevice(){
+        File cacheModel = new File(cacheModelPath);
+        if(!cacheModel.delete()){
+            System.out.println("File "+cacheModelPath+" doesn't exist!");
+        }
+        if(journal != null){
+            journal.removeFromDevice();
+        }
+    }
+
+    //files are written from least to most recently used, so loading restores their order
+    protected void saveData(){
+        String temporaryPath = cacheModelPath + ".tmp";
+        try (OutputStream snapshotStream =
+                     new BufferedOutputStream(
+                             new FileOutputStream(temporaryPath))){
+            List<FileBasicInfo> files = new ArrayList<>(getNumberOfFiles());
+            for(Node node = oldest; node != null; node = node.newer){
+                files.add(node.file.withFilePath(pathOf(node)));
+            }
+            if(journal != null){
+                CacheJournal.writeSnapshotHeader(snapshotStream, journal.getLastSequenceNumber());
+            }
+            codec.writeAll(files, snapshotStream);
+        } catch (IOException e) {
+            log("Radix tree cache can't save data into device.");
+            return;
+        }
+        try {
+            Files.move(Paths.get(temporaryPath), Paths.get(cacheModelPath),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if(journal != null){
+                journal.clear();
+            }
+        } catch (IOException e) {
+            log("Radix tree cache can't save data into device.");
+        }
+    }
+
+    protected void loadData(){
+        long snapshotSequenceNumber = 0;
+        if(journal == null || new File(cacheModelPath).exists()){
+            snapshotSequenceNumber = loadSnapshot();
+        }
+        if(journal != null){
+            journal.readOperations(snapshotSequenceNumber).forEach(this::replay);
+        }
+    }
+
+    //returns the last journal record the snapshot covers
+    private long loadSnapshot(){
+        try(InputStream snapshotStream =
+                    new BufferedInputStream(
+                            new FileInputStream(cacheModelPath))){
+            long snapshotSequenceNumber = CacheJournal.readSnapshotHeader(snapshotStream);
+            List<FileBasicInfo> loadedFiles = codec.readAll(snapshotStream);
+            clearTree();
+            loadedFiles.forEach(this::storeFile);
+            return snapshotSequenceNumber;
+        } catch (IOException e) {
+            log("Radix tree cache can't load data from device.");
+            return 0;
+        }
+    }
+
+    private void replay(CacheJournal.Operation operation){
+        switch (operation.getType()){
+            case PUT:
+                storeFile(operation.getFile());
+                break;
+            case REMOVE:
+                Node removedNode = findNode(operation.getFilePath());
+                if(removedNode != null && removedNode.file != null){
+                    removeNode(removedNode);
+                }
+                break;
+            case MOVE:
+                moveStoredFiles(operation.getFilePath(), operation.getDestinationPath());
+                break;
+            case TOUCH:
+                Node touchedNode = findNode(operation.getFilePath());
+                if(touchedNode != null && touchedNode.file != null){
+                    touchedNode.file = touchedNode.file.withLastUsageTime(operation.getTime());
+                    unlink(touchedNode);
+                    linkAsNewest(touchedNode);
+                }
+                break;
+            case CLEAR:
+                clearTree();
+                break;
+        }
+    }
+
+    private void saveChanges(){
+        if(journal == null){
+            saveData();
+        } else {
+            compactJournalIfNeeded();
+        }
+    }
+
+    private void compactJournalIfNeeded(){
+        if(journal.getNumberOfRecords() >= maxJournalRecords){
+            saveData();
+        }
+    }
+
+    //node storing exactly given path, or null
+    private Node findNode(String path) {
+        Node node = root;
+        int index = 0;
+        while(index < path.length()){
+            Node child = node.child(path.charAt(index));
+            if(child == null || !path.startsWith(child.edge, index)){
+                return null;
+            }
+            index += child.edge.length();
+            node = child;
+        }
+        return node;
+    }
+
+    //node whose subtree holds exactly the paths starting with prefix, or null;
+    //with split set, an edge going past the end of prefix is split so the node ends at prefix
+    private Node findSubtree(String prefix, boolean split) {
+        Node node = root;
+        int index = 0;
+        while(index < prefix.length()){
+            Node child = node.child(prefix.charAt(index));
+            if(child == null){
+                return null;
+            }
+            int commonLength = commonLength(child.edge, prefix, index);
+            if(index + commonLength == prefix.length()){
+                if(split && commonLength < child.edge.length()){
+                    return split(child, commonLength);
+                }
+                return child;
+            }
+            if(commonLength < child.edge.length()){
+                return null;
+            }
+            index += commonLength;
+            node = child;
+        }
+        return node;
+    }
+
+    //node for given path, created together with missing ancestors when needed
+    private Node insertNode(String path) {
+        Node node = root;
+        int index = 0;
+        while(index < path.length()){
+            Node child = node.child(path.charAt(index));
+            if(child == null){
+                Node leaf = new Node(path.substring(index));
+                node.addChild(leaf);
+                return leaf;
+            }
+            int commonLength = commonLength(child.edge, path, index);
+            if(commonLength < child.edge.length()){
+                child = split(child, commonLength);
+            }
+            index += commonLength;
+            node = child;
+        }
+        return node;
+    }
+
+    //cuts edge of node after given length and returns the new upper part
+    private Node split(Node node, int length) {
+        Node upperNode = new Node(node.edge.substring(0, length));
+        upperNode.numberOfFiles = node.numberOfFiles;
+        upperNode.sizeInBytes = node.sizeInBytes;
+        node.parent.addChild(upperNode);
+        node.edge = node.edge.substring(length);
+        upperNode.addChild(node);
+        return upperNode;
+    }
+
+    //removes nodes left without files and merges nodes left with a single child, so the tree stays compressed
+    private void prune(Node node) {
+        while(node != root && node.file == null){
+            Node parent = node.parent;
+            if(!node.hasChildren()){
+                parent.children.remove(node.edge.charAt(0));
+                node = parent;
+            } else if(node.children.size() == 1){
+                Node onlyChild = node.children.firstEntry().getValue();
+                onlyChild.edge = node.edge + onlyChild.edge;
+                parent.addChild(onlyChild);
+                return;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void addToAncestors(Node node, int numberOfFiles, long sizeInBytes) {
+        for(Node ancestor = node; ancestor != null; ancestor = ancestor.parent){
+            ancestor.numberOfFiles += numberOfFiles;
+            ancestor.sizeInBytes += sizeInBytes;
+        }
+    }
+
+    private static String pathOf(Node node) {
+        List<String> edges = new ArrayList<>();
+        for(Node ancestor = node; ancestor != null; ancestor = ancestor.parent){
+            edges.add(ancestor.edge);
+        }
+        StringBuilder path = new StringBuilder();
+        for(int i = edges.size() - 1; i >= 0; i--){
+            path.append(edges.get(i));
+        }
+        return path.toString();
+    }
+
+    private static int commonLength(String edge, String path, int pathIndex) {
+        int maxLength = Math.min(edge.length(), path.length() - pathIndex);
+        int length = 0;
+        while(length < maxLength && edge.charAt(length) == path.charAt(pathIndex + length)){
+            length++;
+        }
+        return length;
+    }
+
+    //paths are shared by the tree, so only the remaining fields are counted
+    private static long estimateSize(FileBasicInfo file) {
+        return 2L * (length(file.getName()) + length(file.getExtension()) + length(file.getUrl())) + 2 * Long.BYTES;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private void linkAsNewest(Node node) {
+        node.older = newest;
+        node.newer = null;
+        if(newest == null){
+            oldest = node;
+        } else {
+            newest.newer = node;
+        }
+        newest = node;
+    }
+
+    private void unlink(Node node) {
+        if(node.older == null){
+            oldest = node.newer;
+        } else {
+            node.older.newer = node.newer;
+        }
+        if(node.newer == null){
+            newest = node.older;
+        } else {
+            node.newer.older = node.older;
+        }
+        node.older = null;
+        node.newer = null;
+    }
+
+    //replacement keeps the usage order position of node
+    private void takeOverLink(Node node, Node replacement) {
+        replacement.older = node.older;
+        replacement.newer = node.newer;
+        if(node.older == null){
+            oldest = replacement;
+        } else {
+            node.older.newer = replacement;
+        }
+        if(node.newer == null){
+            newest = replacement;
+        } else {
+            node.newer.older = replacement;
+        }
+        node.older = null;
+        node.newer = null;
+    }
+
+    private static void log(String message){
+        Logger logger = Logger.getLogger(RadixTreeCacheModel.class.getName());
+        logger.warning(message);
+    }
+}
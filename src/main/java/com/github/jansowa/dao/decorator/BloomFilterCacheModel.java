@@ -0,0 +1,266 @@
+package com.github.jansowa.dao.decorator;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.dao.bloom.CountingBloomFilter;
+import com.github.jansowa.domain.FileBasicInfo;
+
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Logger;
+
+//Counting Bloom filter of all paths of the wrapped model, so contains and read of a missing file
+//are answered without its disk. The filter only learns about changes made through this model.
+//Paths evicted by the wrapped model stay in the filter until it's rebuilt with listPaths.
+//With filterPath the filter is saved by close() and loaded by the next instance. The file is deleted
+//once it's loaded, so after a crash the filter is rebuilt instead of trusting an outdated one.
+public class BloomFilterCacheModel implements CacheModel {
+    private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+    private static final int MIN_FILTER_PATHS = 1024;
+    private static final int MAX_FILTER_PATHS = 1 << 24;
+
+    private final CacheModel cacheModel;
+    //null when the filter is kept only in memory
+    private final String filterPath;
+    @Getter private final double falsePositiveRate;
+    private CountingBloomFilter filter;
+
+    public BloomFilterCacheModel(CacheModel cacheModel){
+        this(cacheModel, null, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    public BloomFilterCacheModel(CacheModel cacheModel, String filterPath){
+        this(cacheModel, filterPath, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    public BloomFilterCacheModel(CacheModel cacheModel, String filterPath, double falsePositiveRate){
+        this.cacheModel = cacheModel;
+        this.filterPath = filterPath;
+        this.falsePositiveRate = falsePositiveRate;
+        if(!loadFilter()){
+            rebuildFilter();
+        }
+    }
+
+    @Override
+    public void put(FileBasicInfo file) {
+        boolean newFile = !contains(file.getFilePath());
+        cacheModel.put(file);
+        if(newFile){
+            addPath(file.getFilePath());
+        }
+    }
+
+    @Override
+    public void putAll(Collection<FileBasicInfo> files) {
+        Set<String> newPaths = new HashSet<>();
+        for(FileBasicInfo file: files){
+            if(!newPaths.contains(file.getFilePath()) && !contains(file.getFilePath())){
+                newPaths.add(file.getFilePath());
+            }
+        }
+        cacheModel.putAll(files);
+        newPaths.forEach(this::addPath);
+    }
+
+    //the filter may only forget paths it was given
+    @Override
+    public void remove(String filePath) {
+        boolean storedFile = contains(filePath);
+        cacheModel.remove(filePath);
+        if(storedFile){
+            filter.remove(filePath);
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<String> filePaths) {
+        List<String> storedPaths = new ArrayList<>();
+        for(String filePath: new HashSet<>(filePaths)){
+            if(contains(filePath)){
+                storedPaths.add(filePath);
+            }
+        }
+        cacheModel.removeAll(filePaths);
+        storedPaths.forEach(filter::remove);
+    }
+
+    @Override
+    public boolean contains(String filePath) {
+        return filter.mightContain(filePath) && cacheModel.contains(filePath);
+    }
+
+    @Override
+    public Optional<FileBasicInfo> read(String filePath) {
+        if(!filter.mightContain(filePath)){
+            return Optional.empty();
+        }
+        return cacheModel.read(filePath);
+    }
+
+    @Override
+    public List<FileBasicInfo> readAll(Collection<String> filePaths) {
+        List<String> pathsToRead = new ArrayList<>();
+        for(String filePath: filePaths){
+            if(filter.mightContain(filePath)){
+                pathsToRead.add(filePath);
+            }
+        }
+        if(pathsToRead.isEmpty()){
+            return new ArrayList<>();
+        }
+        return cacheModel.readAll(pathsToRead);
+    }
+
+    //only paths under source and destination can change, so the filter is updated exactly
+    @Override
+    public void movePath(String sourcePath, String destinationPath) {
+        Set<String> pathsBefore = getPathsOf(sourcePath, destinationPath);
+        cacheModel.movePath(sourcePath, destinationPath);
+        Set<String> pathsAfter = getPathsOf(sourcePath, destinationPath);
+        for(String pathBefore: pathsBefore){
+            if(!pathsAfter.contains(pathBefore)){
+                filter.remove(pathBefore);
+            }
+        }
+        for(String pathAfter: pathsAfter){
+            if(!pathsBefore.contains(pathAfter)){
+                addPath(pathAfter);
+            }
+        }
+    }
+
+    private Set<String> getPathsOf(String sourcePath, String destinationPath) {
+        Set<String> paths = new HashSet<>(cacheModel.listPaths(sourcePath));
+        paths.addAll(cacheModel.listPaths(destinationPath));
+        return paths;
+    }
+
+    @Override
+    public List<String> listPaths(String prefix) {
+        return cacheModel.listPaths(prefix);
+    }
+
+    @Override
+    public int getNumberOfFiles() {
+        return cacheModel.getNumberOfFiles();
+    }
+
+    @Override
+    public void removeAllData() {
+        cacheModel.removeAllData();
+        filter.clear();
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return cacheModel.getSizeInBytes();
+    }
+
+    @Override
+    public long getMaxNumberOfFiles() {
+        return cacheModel.getMaxNumberOfFiles();
+    }
+
+    @Override
+    public void setMaxNumberOfFiles(long maxNumberOfFiles) {
+        cacheModel.setMaxNumberOfFiles(maxNumberOfFiles);
+        if(maxNumberOfFiles > filter.getExpectedNumberOfPaths()){
+            rebuildFilter();
+        }
+    }
+
+    @Override
+    public void removeFromDevice() {
+        cacheModel.removeFromDevice();
+        filter.clear();
+        if(filterPath != null){
+            new File(filterPath).delete();
+        }
+    }
+
+    //saves the filter for the next instance - the wrapped model stays open
+    public void close() {
+        if(filterPath == null){
+            return;
+        }
+        String temporaryPath = filterPath + ".tmp";
+        try (DataOutputStream filterStream = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporaryPath)))){
+            filter.writeTo(filterStream);
+        } catch (IOException e) {
+            log("Bloom filter can't be saved into device: " + e);
+            return;
+        }
+        try {
+            Files.move(Paths.get(temporaryPath), Paths.get(filterPath),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log("Bloom filter can't be saved into device: " + e);
+        }
+    }
+
+    //paths of the wrapped model are read again, dropping the evicted ones
+    public void rebuildFilter() {
+        long expectedNumberOfPaths = Math.max(MIN_FILTER_PATHS,
+                Math.max(cacheModel.getMaxNumberOfFiles(), cacheModel.getNumberOfFiles()));
+        filter = new CountingBloomFilter((int) Math.min(MAX_FILTER_PATHS, expectedNumberOfPaths), falsePositiveRate);
+        cacheModel.listPaths("").forEach(filter::add);
+    }
+
+    private void addPath(String filePath) {
+        filter.add(filePath);
+        //evicted paths are never removed, so the filter gets rebuilt when it's too full
+        if(filter.getNumberOfPaths() > 2L * filter.getExpectedNumberOfPaths()){
+            rebuildFilter();
+        }
+    }
+
+    private boolean loadFilter() {
+        if(filterPath == null){
+            return false;
+        }
+        File filterFile = new File(filterPath);
+        if(!filterFile.exists()){
+            return false;
+        }
+        CountingBloomFilter loadedFilter;
+        try (DataInputStream filterStream = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(filterFile)))){
+            loadedFilter = CountingBloomFilter.readFrom(filterStream);
+        } catch (IOException e) {
+            log("Bloom filter can't be loaded from device: " + e);
+            return false;
+        } finally {
+            filterFile.delete();
+        }
+        //files were put without this filter
+        if(loadedFilter.getNumberOfPaths() < cacheModel.getNumberOfFiles()
+                || loadedFilter.getFalsePositiveRate() != falsePositiveRate){
+            return false;
+        }
+        filter = loadedFilter;
+        return true;
+    }
+
+    private void log(String message){
+        Logger logger = Logger.getLogger(BloomFilterCacheModel.class.getName());
+        logger.warning(message);
+    }
+}
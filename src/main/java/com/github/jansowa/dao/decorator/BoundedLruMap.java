@@ -0,0 +1,21 @@
+package com.github.jansowa.dao.decorator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Map in access order which drops its least recently used entry once it holds more than capacity entries.
+class BoundedLruMap<K, V> extends LinkedHashMap<K, V> {
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    BoundedLruMap(int capacity){
+        super(16, 0.75f, true);
+        this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > capacity;
+    }
+}
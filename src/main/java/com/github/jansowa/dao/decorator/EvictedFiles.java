@@ -0,0 +1,46 @@
+package com.github.jansowa.dao.decorator;
+
+import com.github.jansowa.dao.CacheModel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+//Finds files a wrapped model evicted on its own, while it keeps its own, durable eviction.
+//How many files were evicted comes from the number of files before and after a put. The model evicts
+//its least recently used files, so among files a decorator remembers, the evicted ones are those it used
+//least recently - only that many of them are looked up in the model, from the least recently used on.
+final class EvictedFiles {
+    private EvictedFiles(){
+        throw new IllegalStateException("Utility class");
+    }
+
+    //runs put of files with given paths and returns how many files the model evicted to make room for them
+    static int countEvictions(CacheModel cacheModel, Collection<String> putPaths, Runnable put){
+        int numberOfFiles = cacheModel.getNumberOfFiles();
+        if(numberOfFiles + putPaths.size() <= cacheModel.getMaxNumberOfFiles()){
+            put.run();
+            return 0;
+        }
+        int numberOfNewFiles = 0;
+        for(String putPath: putPaths){
+            if(!cacheModel.contains(putPath)){
+                numberOfNewFiles++;
+            }
+        }
+        put.run();
+        return Math.max(0, numberOfFiles + numberOfNewFiles - cacheModel.getNumberOfFiles());
+    }
+
+    //leastRecentlyUsedPaths go from the least recently used one, the first path still stored ends the search
+    static List<String> find(CacheModel cacheModel, Iterable<String> leastRecentlyUsedPaths, int numberOfEvictedFiles){
+        List<String> evictedPaths = new ArrayList<>();
+        for(String path: leastRecentlyUsedPaths){
+            if(evictedPaths.size() >= numberOfEvictedFiles || cacheModel.contains(path)){
+                break;
+            }
+            evictedPaths.add(path);
+        }
+        return evictedPaths;
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.jansowa.dao.decorator;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.domain.FileBasicInfo;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+//Bounded in-memory hot tier in front of a durable cold tier, which holds every file.
+//Puts are written through to both tiers, a file read from the cold tier is promoted to the hot one.
+//The cold tier is wrapped in a BloomFilterCacheModel, so most contains and read misses
+//are answered without asking it.
+//The cold tier evicts its files on its own. Reads served by the hot tier are passed on to it (as one readAll)
+//before it has to evict, so it doesn't evict hot files as the least recently used ones, and the hot files
+//it evicts anyway are the least recently used hot files - only as many of them as were evicted are looked up.
+public class TieredCacheModel implements CacheModel {
+    private static final int DEFAULT_HOT_CAPACITY = 1000;
+
+    private final CacheModel coldCacheModel;
+    @Getter private final int hotCapacity;
+    private final LinkedHashMap<String, FileBasicInfo> hotFiles;
+    //read in the hot tier, but not yet in the cold one
+    private final Set<String> touchedPaths = new LinkedHashSet<>();
+
+    public TieredCacheModel(CacheModel coldCacheModel){
+        this(coldCacheModel, DEFAULT_HOT_CAPACITY);
+    }
+
+    public TieredCacheModel(CacheModel coldCacheModel, int hotCapacity){
+        this.hotCapacity = hotCapacity;
+        this.hotFiles = new BoundedLruMap<>(hotCapacity);
+        this.coldCacheModel = new BloomFilterCacheModel(coldCacheModel);
+    }
+
+    @Override
+    public void put(FileBasicInfo file) {
+        if(coldCacheModel.getNumberOfFiles() >= coldCacheModel.getMaxNumberOfFiles()){
+            flushTouches();
+        }
+        hotFiles.put(file.getFilePath(), file.withLastUsageTime(new Date()));
+        forgetEvictedFiles(EvictedFiles.countEvictions(coldCacheModel,
+                Collections.singleton(file.getFilePath()), () -> coldCacheModel.put(file)));
+    }
+
+    //hot files go first - a file of the batch may be evicted by a later one
+    @Override
+    public void putAll(Collection<FileBasicInfo> files) {
+        flushTouches();
+        Date lastUsageTime = new Date();
+        Set<String> putPaths = new LinkedHashSet<>();
+        for(FileBasicInfo file: files){
+            hotFiles.put(file.getFilePath(), file.withLastUsageTime(lastUsageTime));
+            putPaths.add(file.getFilePath());
+        }
+        forgetEvictedFiles(EvictedFiles.countEvictions(coldCacheModel, putPaths, () -> coldCacheModel.putAll(files)));
+    }
+
+    @Override
+    public void remove(String filePath) {
+        hotFiles.remove(filePath);
+        touchedPaths.remove(filePath);
+        coldCacheModel.remove(filePath);
+    }
+
+    @Override
+    public boolean contains(String filePath) {
+        return hotFiles.containsKey(filePath) || coldCacheModel.contains(filePath);
+    }
+
+    @Override
+    public Optional<FileBasicInfo> read(String filePath) {
+        FileBasicInfo hotFile = hotFiles.get(filePath);
+        if(hotFile != null){
+            hotFile = hotFile.withLastUsageTime(new Date());
+            hotFiles.put(filePath, hotFile);
+            touchedPaths.add(filePath);
+            if(touchedPaths.size() >= hotCapacity){
+                flushTouches();
+            }
+            return Optional.of(hotFile);
+        }
+        Optional<FileBasicInfo> coldFile = coldCacheModel.read(filePath);
+        coldFile.ifPresent(file -> hotFiles.put(filePath, file));
+        return coldFile;
+    }
+
+    @Override
+    public void movePath(String sourcePath, String destinationPath) {
+        flushTouches();
+        coldCacheModel.movePath(sourcePath, destinationPath);
+        hotFiles.keySet().removeIf(path -> path.startsWith(sourcePath) || path.startsWith(destinationPath));
+    }
+
+    @Override
+    public List<String> listPaths(String prefix) {
+        return coldCacheModel.listPaths(prefix);
+    }
+
+    @Override
+    public int getNumberOfFiles() {
+        return coldCacheModel.getNumberOfFiles();
+    }
+
+    @Override
+    public void removeAllData() {
+        hotFiles.clear();
+        touchedPaths.clear();
+        coldCacheModel.removeAllData();
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return coldCacheModel.getSizeInBytes();
+    }
+
+    @Override
+    public long getMaxNumberOfFiles() {
+        return coldCacheModel.getMaxNumberOfFiles();
+    }
+
+    @Override
+    public void setMaxNumberOfFiles(long maxNumberOfFiles) {
+        flushTouches();
+        int numberOfFiles = coldCacheModel.getNumberOfFiles();
+        coldCacheModel.setMaxNumberOfFiles(maxNumberOfFiles);
+        forgetEvictedFiles(numberOfFiles - coldCacheModel.getNumberOfFiles());
+    }
+
+    @Override
+    public void removeFromDevice() {
+        hotFiles.clear();
+        touchedPaths.clear();
+        coldCacheModel.removeFromDevice();
+    }
+
+    public int getNumberOfHotFiles() {
+        return hotFiles.size();
+    }
+
+    //writes usage times of files read from the hot tier to the cold tier
+    public void flushTouches() {
+        if(touchedPaths.isEmpty()){
+            return;
+        }
+        List<String> paths = new ArrayList<>(touchedPaths);
+        touchedPaths.clear();
+        List<FileBasicInfo> touchedFiles = coldCacheModel.readAll(paths);
+        if(touchedFiles.size() < paths.size()){
+            touchedFiles.forEach(file -> paths.remove(file.getFilePath()));
+            paths.forEach(hotFiles::remove);
+        }
+    }
+
+    private void forgetEvictedFiles(int numberOfEvictedFiles) {
+        if(numberOfEvictedFiles <= 0){
+            return;
+        }
+        for(String evictedPath: EvictedFiles.find(coldCacheModel, hotFiles.keySet(), numberOfEvictedFiles)){
+            hotFiles.remove(evictedPath);
+            touchedPaths.remove(evictedPath);
+        }
+    }
+}
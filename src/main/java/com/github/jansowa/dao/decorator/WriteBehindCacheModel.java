@@ -0,0 +1,347 @@
+package com.github.jansowa.dao.decorator;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.domain.FileBasicInfo;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+//Puts, removes and recency touches are queued per path (a later operation replaces an earlier one)
+//and written to the wrapped model in batches by a background thread.
+//Reads are answered from the queue and from a bounded front of recently used files, so a hit doesn't wait for disk.
+//When the queue is full, the caller flushes it itself. movePath and removeAllData flush the queue
+//and run directly on the wrapped model, which is only ever used by one thread at a time.
+//The wrapped model evicts its files on its own. Touches are written before puts, so the files of front
+//it evicts are the least recently used ones in front - only as many of them as were evicted are looked up.
+public class WriteBehindCacheModel implements CacheModel {
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+    private static final int DEFAULT_MAX_PENDING_OPERATIONS = 10000;
+    private static final int DEFAULT_FRONT_CAPACITY = 1000;
+
+    private enum OperationType { PUT, REMOVE, TOUCH }
+
+    private static final class PendingOperation {
+        private final OperationType type;
+        private final FileBasicInfo file;
+
+        private PendingOperation(OperationType type, FileBasicInfo file){
+            this.type = type;
+            this.file = file;
+        }
+    }
+
+    private final CacheModel cacheModel;
+    @Getter private final long flushIntervalMillis;
+    @Getter private final int maxPendingOperations;
+    @Getter private final int frontCapacity;
+    //guards pendingOperations and front
+    private final Object stateLock = new Object();
+    //held while the wrapped model is used
+    private final Object cacheModelLock = new Object();
+    private Map<String, PendingOperation> pendingOperations = new LinkedHashMap<>();
+    private final LinkedHashMap<String, FileBasicInfo> front;
+    private final ScheduledExecutorService flushExecutor;
+
+    public WriteBehindCacheModel(CacheModel cacheModel){
+        this(cacheModel, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_MAX_PENDING_OPERATIONS, DEFAULT_FRONT_CAPACITY);
+    }
+
+    public WriteBehindCacheModel(CacheModel cacheModel, long flushIntervalMillis, int maxPendingOperations, int frontCapacity){
+        this.cacheModel = cacheModel;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxPendingOperations = maxPendingOperations;
+        this.frontCapacity = frontCapacity;
+        this.front = new BoundedLruMap<>(frontCapacity);
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread flushThread = new Thread(runnable, "write-behind-flush");
+            flushThread.setDaemon(true);
+            return flushThread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flushInBackground,
+                flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void put(FileBasicInfo file) {
+        boolean queueFull;
+        synchronized (stateLock){
+            pendingOperations.put(file.getFilePath(), new PendingOperation(OperationType.PUT, file));
+            front.put(file.getFilePath(), file);
+            queueFull = pendingOperations.size() >= maxPendingOperations;
+        }
+        if(queueFull){
+            flush();
+        }
+    }
+
+    @Override
+    public void putAll(Collection<FileBasicInfo> files) {
+        files.forEach(this::put);
+    }
+
+    @Override
+    public void remove(String filePath) {
+        boolean queueFull;
+        synchronized (stateLock){
+            pendingOperations.put(filePath, new PendingOperation(OperationType.REMOVE, null));
+            front.remove(filePath);
+            queueFull = pendingOperations.size() >= maxPendingOperations;
+        }
+        if(queueFull){
+            flush();
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<String> filePaths) {
+        filePaths.forEach(this::remove);
+    }
+
+    @Override
+    public boolean contains(String filePath) {
+        synchronized (stateLock){
+            PendingOperation pendingOperation = pendingOperations.get(filePath);
+            if(pendingOperation != null && pendingOperation.type != OperationType.TOUCH){
+                return pendingOperation.type == OperationType.PUT;
+            }
+            if(front.containsKey(filePath)){
+                return true;
+            }
+        }
+        synchronized (cacheModelLock){
+            return cacheModel.contains(filePath);
+        }
+    }
+
+    @Override
+    public Optional<FileBasicInfo> read(String filePath) {
+        boolean queueFull;
+        FileBasicInfo readFile;
+        synchronized (stateLock){
+            PendingOperation pendingOperation = pendingOperations.get(filePath);
+            if(pendingOperation != null && pendingOperation.type == OperationType.REMOVE){
+                return Optional.empty();
+            }
+            readFile = front.get(filePath);
+            //a queued file may have already fallen out of front, and the wrapped model hasn't seen it yet
+            if(readFile == null && pendingOperation != null && pendingOperation.type == OperationType.PUT){
+                readFile = pendingOperation.file;
+            }
+            if(readFile != null){
+                readFile = readFile.withLastUsageTime(new Date());
+                front.put(filePath, readFile);
+                if(pendingOperation == null){
+                    pendingOperations.put(filePath, new PendingOperation(OperationType.TOUCH, null));
+                } else if(pendingOperation.type == OperationType.PUT){
+                    pendingOperations.put(filePath, new PendingOperation(OperationType.PUT, readFile));
+                }
+            }
+            queueFull = pendingOperations.size() >= maxPendingOperations;
+        }
+        if(readFile != null){
+            if(queueFull){
+                flush();
+            }
+            return Optional.of(readFile);
+        }
+
+        //read of the wrapped model updates usage time on its own
+        //the file goes to front before the lock is released, so a flush can't change it in between
+        synchronized (cacheModelLock){
+            Optional<FileBasicInfo> storedFile = cacheModel.read(filePath);
+            storedFile.ifPresent(file -> {
+                synchronized (stateLock){
+                    if(!pendingOperations.containsKey(filePath)){
+                        front.put(filePath, file);
+                    }
+                }
+            });
+            return storedFile;
+        }
+    }
+
+    //writes all queued operations to the wrapped model before returning
+    public void flush() {
+        synchronized (cacheModelLock){
+            Map<String, PendingOperation> operations;
+            synchronized (stateLock){
+                if(pendingOperations.isEmpty()){
+                    return;
+                }
+                operations = pendingOperations;
+                pendingOperations = new LinkedHashMap<>();
+            }
+            apply(operations);
+        }
+    }
+
+    //touches go first - they happened before the puts of the same batch
+    private void apply(Map<String, PendingOperation> operations) {
+        List<String> touchedPaths = new ArrayList<>();
+        List<String> removedPaths = new ArrayList<>();
+        List<FileBasicInfo> putFiles = new ArrayList<>();
+        Set<String> putPaths = new LinkedHashSet<>();
+        for(Map.Entry<String, PendingOperation> operation: operations.entrySet()){
+            switch (operation.getValue().type){
+                case PUT:
+                    putFiles.add(operation.getValue().file);
+                    putPaths.add(operation.getKey());
+                    break;
+                case REMOVE:
+                    removedPaths.add(operation.getKey());
+                    break;
+                case TOUCH:
+                    touchedPaths.add(operation.getKey());
+                    break;
+            }
+        }
+        if(!touchedPaths.isEmpty()){
+            List<FileBasicInfo> touchedFiles = cacheModel.readAll(touchedPaths);
+            if(touchedFiles.size() < touchedPaths.size()){
+                Set<String> evictedPaths = new HashSet<>(touchedPaths);
+                touchedFiles.forEach(file -> evictedPaths.remove(file.getFilePath()));
+                evictedPaths.forEach(this::forgetEvictedFile);
+            }
+        }
+        if(!removedPaths.isEmpty()){
+            cacheModel.removeAll(removedPaths);
+        }
+        if(!putFiles.isEmpty()){
+            forgetEvictedFiles(EvictedFiles.countEvictions(cacheModel, putPaths, () -> cacheModel.putAll(putFiles)));
+        }
+    }
+
+    //called while the wrapped model is used, so cacheModelLock is already held
+    private void forgetEvictedFiles(int numberOfEvictedFiles) {
+        if(numberOfEvictedFiles <= 0){
+            return;
+        }
+        List<String> leastRecentlyUsedPaths = new ArrayList<>(numberOfEvictedFiles);
+        synchronized (stateLock){
+            Iterator<String> frontPaths = front.keySet().iterator();
+            while(frontPaths.hasNext() && leastRecentlyUsedPaths.size() < numberOfEvictedFiles){
+                leastRecentlyUsedPaths.add(frontPaths.next());
+            }
+        }
+        EvictedFiles.find(cacheModel, leastRecentlyUsedPaths, numberOfEvictedFiles).forEach(this::forgetEvictedFile);
+    }
+
+    //called while the wrapped model is used, so cacheModelLock is already held
+    private void forgetEvictedFile(String evictedPath) {
+        synchronized (stateLock){
+            if(!pendingOperations.containsKey(evictedPath)){
+                front.remove(evictedPath);
+            }
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            //an exception would cancel all later flushes of the executor
+            Logger logger = Logger.getLogger(WriteBehindCacheModel.class.getName());
+            logger.warning("Write-behind cache can't flush queued operations: " + e);
+        }
+    }
+
+    //flushes queued operations and stops the background thread - the wrapped model stays open
+    public void close() {
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(flushIntervalMillis + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    @Override
+    public void movePath(String sourcePath, String destinationPath) {
+        synchronized (cacheModelLock){
+            flush();
+            cacheModel.movePath(sourcePath, destinationPath);
+            synchronized (stateLock){
+                front.keySet().removeIf(path -> path.startsWith(sourcePath));
+            }
+        }
+    }
+
+    @Override
+    public List<String> listPaths(String prefix) {
+        synchronized (cacheModelLock){
+            flush();
+            return cacheModel.listPaths(prefix);
+        }
+    }
+
+    @Override
+    public int getNumberOfFiles() {
+        synchronized (cacheModelLock){
+            flush();
+            return cacheModel.getNumberOfFiles();
+        }
+    }
+
+    @Override
+    public void removeAllData() {
+        synchronized (cacheModelLock){
+            synchronized (stateLock){
+                pendingOperations.clear();
+                front.clear();
+            }
+            cacheModel.removeAllData();
+        }
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        synchronized (cacheModelLock){
+            flush();
+            return cacheModel.getSizeInBytes();
+        }
+    }
+
+    @Override
+    public long getMaxNumberOfFiles() {
+        synchronized (cacheModelLock){
+            return cacheModel.getMaxNumberOfFiles();
+        }
+    }
+
+    @Override
+    public void setMaxNumberOfFiles(long maxNumberOfFiles) {
+        synchronized (cacheModelLock){
+            flush();
+            int numberOfFiles = cacheModel.getNumberOfFiles();
+            cacheModel.setMaxNumberOfFiles(maxNumberOfFiles);
+            forgetEvictedFiles(numberOfFiles - cacheModel.getNumberOfFiles());
+        }
+    }
+
+    @Override
+    public void removeFromDevice() {
+        synchronized (cacheModelLock){
+            synchronized (stateLock){
+                pendingOperations.clear();
+                front.clear();
+            }
+            cacheModel.removeFromDevice();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.jansowa.dao.eviction;
+
+import java.util.LinkedHashSet;
+
+//Adaptive Replacement Cache: paths used once and paths used again are kept in two LRU lists,
+//and recently evicted paths of both are remembered as ghosts. Storing a ghost path again moves
+//the target size of the first list towards the list it was evicted from, so a scan of new paths
+//doesn't push out paths used repeatedly.
+public class ArcEvictionPolicy implements EvictionPolicy {
+    //used once, least recently used first
+    private final LinkedHashSet<String> recentPaths = new LinkedHashSet<>();
+    //used more than once
+    private final LinkedHashSet<String> frequentPaths = new LinkedHashSet<>();
+    //evicted from recentPaths and frequentPaths
+    private final LinkedHashSet<String> recentGhosts = new LinkedHashSet<>();
+    private final LinkedHashSet<String> frequentGhosts = new LinkedHashSet<>();
+    private long capacity;
+    //target size of recentPaths
+    private long recentTarget;
+
+    public ArcEvictionPolicy(long capacity){
+        this.capacity = Math.max(1, capacity);
+    }
+
+    @Override
+    public void setCapacity(long capacity) {
+        this.capacity = Math.max(1, capacity);
+        recentTarget = Math.min(recentTarget, this.capacity);
+        trimGhosts();
+    }
+
+    @Override
+    public void recordInsertion(String filePath) {
+        if(contains(filePath)){
+            recordAccess(filePath);
+        } else if(recentGhosts.contains(filePath)){
+            long step = recentGhosts.size() >= frequentGhosts.size() ? 1 : frequentGhosts.size() / recentGhosts.size();
+            recentTarget = Math.min(capacity, recentTarget + step);
+            recentGhosts.remove(filePath);
+            frequentPaths.add(filePath);
+        } else if(frequentGhosts.contains(filePath)){
+            long step = frequentGhosts.size() >= recentGhosts.size() ? 1 : recentGhosts.size() / frequentGhosts.size();
+            recentTarget = Math.max(0, recentTarget - step);
+            frequentGhosts.remove(filePath);
+            frequentPaths.add(filePath);
+        } else {
+            recentPaths.add(filePath);
+            trimGhosts();
+        }
+    }
+
+    @Override
+    public void recordAccess(String filePath) {
+        if(recentPaths.remove(filePath) || frequentPaths.remove(filePath)){
+            frequentPaths.add(filePath);
+        }
+    }
+
+    @Override
+    public void recordRemoval(String filePath) {
+        if(!recentPaths.remove(filePath)){
+            frequentPaths.remove(filePath);
+        }
+    }
+
+    @Override
+    public String evict(String incomingPath) {
+        String victim;
+        boolean recentPathsTooLong = recentPaths.size() > recentTarget
+                || (recentPaths.size() == recentTarget && frequentGhosts.contains(incomingPath));
+        if(!recentPaths.isEmpty() && (recentPathsTooLong || frequentPaths.isEmpty())){
+            victim = recentPaths.iterator().next();
+            recentPaths.remove(victim);
+            recentGhosts.add(victim);
+        } else if(!frequentPaths.isEmpty()){
+            victim = frequentPaths.iterator().next();
+            frequentPaths.remove(victim);
+            frequentGhosts.add(victim);
+        } else {
+            return null;
+        }
+        trimGhosts();
+        return victim;
+    }
+
+    @Override
+    public boolean contains(String filePath) {
+        return recentPaths.contains(filePath) || frequentPaths.contains(filePath);
+    }
+
+    @Override
+    public int size() {
+        return recentPaths.size() + frequentPaths.size();
+    }
+
+    @Override
+    public void clear() {
+        recentPaths.clear();
+        frequentPaths.clear();
+        recentGhosts.clear();
+        frequentGhosts.clear();
+        recentTarget = 0;
+    }
+
+    //recent paths with their ghosts fit in capacity, all paths with all ghosts in twice the capacity
+    private void trimGhosts() {
+        while(recentPaths.size() + recentGhosts.size() > capacity && !recentGhosts.isEmpty()){
+            recentGhosts.remove(recentGhosts.iterator().next());
+        }
+        while(size() + recentGhosts.size() + frequentGhosts.size() > 2 * capacity && !frequentGhosts.isEmpty()){
+            frequentGhosts.remove(frequentGhosts.iterator().next());
+        }
+    }
+}
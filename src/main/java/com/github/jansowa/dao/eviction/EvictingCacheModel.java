@@ -0,0 +1,284 @@
+package com.github.jansowa.dao.eviction;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.domain.FileBasicInfo;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+//Lets an EvictionPolicy choose which files any model evicts. The wrapped model's maxNumberOfFiles is the capacity,
+//and a file is evicted before a new one would exceed it, so the wrapped model never has to evict on its own.
+//Reads and puts are passed to the policy as uses. Moved files start over in the policy as new paths.
+//With maxWeight, files are also evicted until the total weight of stored files fits in it. Weights are kept
+//for every path and summed as files come and go - a file heavier than maxWeight isn't stored at all.
+//Moved files keep their weights.
+public class EvictingCacheModel implements CacheModel {
+    private final CacheModel cacheModel;
+    @Getter private final EvictionPolicy evictionPolicy;
+    //null without a byte budget
+    private final Weigher weigher;
+    @Getter private long maxWeight;
+    private final Map<String, Long> weights = new HashMap<>();
+    @Getter private long totalWeight;
+    //told about every file evicted to make room, null when nobody listens
+    @Setter private Consumer<String> evictionListener;
+
+    public EvictingCacheModel(CacheModel cacheModel, EvictionPolicy evictionPolicy){
+        this(cacheModel, evictionPolicy, Long.MAX_VALUE, null);
+    }
+
+    public EvictingCacheModel(CacheModel cacheModel, EvictionPolicy evictionPolicy, long maxWeight){
+        this(cacheModel, evictionPolicy, maxWeight, Weigher.SERIALIZED_SIZE);
+    }
+
+    //files already stored in cacheModel are tracked in no particular order, and read once to be weighed
+    public EvictingCacheModel(CacheModel cacheModel, EvictionPolicy evictionPolicy, long maxWeight, Weigher weigher){
+        this.cacheModel = cacheModel;
+        this.evictionPolicy = evictionPolicy;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        evictionPolicy.clear();
+        evictionPolicy.setCapacity(cacheModel.getMaxNumberOfFiles());
+        List<String> storedPaths = cacheModel.listPaths("");
+        storedPaths.forEach(evictionPolicy::recordInsertion);
+        if(weigher != null){
+            cacheModel.readAll(storedPaths).forEach(file -> addWeight(file.getFilePath(), weigher.weigh(file)));
+        }
+        evictFiles(cacheModel.getMaxNumberOfFiles(), 0, null);
+    }
+
+    //unlike setEvictionListener, keeps the listener set before - it's told first
+    public void addEvictionListener(Consumer<String> listener) {
+        evictionListener = evictionListener == null ? listener : evictionListener.andThen(listener);
+    }
+
+    @Override
+    public void put(FileBasicInfo file) {
+        String filePath = file.getFilePath();
+        long weight = weigher == null ? 0 : weigher.weigh(file);
+        if(weight > maxWeight){
+            remove(filePath);
+            return;
+        }
+        if(evictionPolicy.contains(filePath)){
+            cacheModel.put(file);
+            evictionPolicy.recordAccess(filePath);
+            removeWeight(filePath);
+            addWeight(filePath, weight);
+            //a heavier file pushes out others, or itself when the policy values it least
+            evictFiles(cacheModel.getMaxNumberOfFiles(), 0, filePath);
+            return;
+        }
+        long maxNumberOfFiles = cacheModel.getMaxNumberOfFiles();
+        if(maxNumberOfFiles <= 0){
+            return;
+        }
+        evictFiles(maxNumberOfFiles - 1, weight, filePath);
+        cacheModel.put(file);
+        evictionPolicy.recordInsertion(filePath);
+        addWeight(filePath, weight);
+    }
+
+    //one putAll of the wrapped model, after room is made for the new files of the batch
+    //with a byte budget, or a batch bigger than the capacity, files are put one by one
+    @Override
+    public void putAll(Collection<FileBasicInfo> files) {
+        Map<String, FileBasicInfo> filesToPut = new LinkedHashMap<>();
+        files.forEach(file -> filesToPut.put(file.getFilePath(), file));
+        long maxNumberOfFiles = cacheModel.getMaxNumberOfFiles();
+        if(weigher != null || filesToPut.size() > maxNumberOfFiles){
+            filesToPut.values().forEach(this::put);
+            return;
+        }
+        Set<String> newPaths = new HashSet<>();
+        for(String filePath: filesToPut.keySet()){
+            if(evictionPolicy.contains(filePath)){
+                evictionPolicy.recordAccess(filePath);
+            } else {
+                newPaths.add(filePath);
+            }
+        }
+        long numberOfFilesLeft = maxNumberOfFiles - newPaths.size();
+        while(evictionPolicy.size() > numberOfFilesLeft){
+            String victim = evictionPolicy.evict(null);
+            if(victim == null){
+                break;
+            }
+            cacheModel.remove(victim);
+            //a stored file of the batch chosen by the policy is put again as a new one
+            if(filesToPut.containsKey(victim)){
+                newPaths.add(victim);
+                numberOfFilesLeft--;
+            } else if(evictionListener != null){
+                evictionListener.accept(victim);
+            }
+        }
+        cacheModel.putAll(new ArrayList<>(filesToPut.values()));
+        newPaths.forEach(evictionPolicy::recordInsertion);
+    }
+
+    @Override
+    public void remove(String filePath) {
+        cacheModel.remove(filePath);
+        evictionPolicy.recordRemoval(filePath);
+        removeWeight(filePath);
+    }
+
+    @Override
+    public void removeAll(Collection<String> filePaths) {
+        cacheModel.removeAll(filePaths);
+        for(String filePath: filePaths){
+            evictionPolicy.recordRemoval(filePath);
+            removeWeight(filePath);
+        }
+    }
+
+    @Override
+    public boolean contains(String filePath) {
+        return cacheModel.contains(filePath);
+    }
+
+    @Override
+    public Optional<FileBasicInfo> read(String filePath) {
+        Optional<FileBasicInfo> readFile = cacheModel.read(filePath);
+        if(readFile.isPresent()){
+            evictionPolicy.recordAccess(filePath);
+        }
+        return readFile;
+    }
+
+    @Override
+    public List<FileBasicInfo> readAll(Collection<String> filePaths) {
+        List<FileBasicInfo> readFiles = cacheModel.readAll(filePaths);
+        readFiles.forEach(file -> evictionPolicy.recordAccess(file.getFilePath()));
+        return readFiles;
+    }
+
+    //only paths under source and destination can change
+    @Override
+    public void movePath(String sourcePath, String destinationPath) {
+        Set<String> pathsBefore = getPathsOf(sourcePath, destinationPath);
+        Map<String, Long> movedWeights = new HashMap<>();
+        for(String pathBefore: pathsBefore){
+            if(pathBefore.startsWith(sourcePath)){
+                movedWeights.put(destinationPath + pathBefore.substring(sourcePath.length()), weights.getOrDefault(pathBefore, 0L));
+            }
+        }
+        cacheModel.movePath(sourcePath, destinationPath);
+        Set<String> pathsAfter = getPathsOf(sourcePath, destinationPath);
+        for(String pathBefore: pathsBefore){
+            if(!pathsAfter.contains(pathBefore)){
+                evictionPolicy.recordRemoval(pathBefore);
+                removeWeight(pathBefore);
+            }
+        }
+        for(String pathAfter: pathsAfter){
+            if(!pathsBefore.contains(pathAfter)){
+                evictionPolicy.recordInsertion(pathAfter);
+            }
+            //a moved file may replace a file with another weight
+            if(movedWeights.containsKey(pathAfter)){
+                removeWeight(pathAfter);
+                addWeight(pathAfter, movedWeights.get(pathAfter));
+            }
+        }
+    }
+
+    private Set<String> getPathsOf(String sourcePath, String destinationPath) {
+        Set<String> paths = new HashSet<>(cacheModel.listPaths(sourcePath));
+        paths.addAll(cacheModel.listPaths(destinationPath));
+        return paths;
+    }
+
+    @Override
+    public List<String> listPaths(String prefix) {
+        return cacheModel.listPaths(prefix);
+    }
+
+    @Override
+    public int getNumberOfFiles() {
+        return cacheModel.getNumberOfFiles();
+    }
+
+    @Override
+    public void removeAllData() {
+        cacheModel.removeAllData();
+        evictionPolicy.clear();
+        clearWeights();
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return cacheModel.getSizeInBytes();
+    }
+
+    @Override
+    public long getMaxNumberOfFiles() {
+        return cacheModel.getMaxNumberOfFiles();
+    }
+
+    //files are evicted by the policy before the wrapped model gets the lower limit
+    @Override
+    public void setMaxNumberOfFiles(long maxNumberOfFiles) {
+        evictFiles(maxNumberOfFiles, 0, null);
+        evictionPolicy.setCapacity(maxNumberOfFiles);
+        cacheModel.setMaxNumberOfFiles(maxNumberOfFiles);
+    }
+
+    @Override
+    public void removeFromDevice() {
+        cacheModel.removeFromDevice();
+        evictionPolicy.clear();
+        clearWeights();
+    }
+
+    public void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+        evictFiles(cacheModel.getMaxNumberOfFiles(), 0, null);
+    }
+
+    //every file is evicted at most once, so eviction is amortized O(1) per put
+    private void evictFiles(long numberOfFilesLeft, long incomingWeight, String incomingPath) {
+        while(evictionPolicy.size() > Math.max(0, numberOfFilesLeft) || totalWeight + incomingWeight > maxWeight){
+            String victim = evictionPolicy.evict(incomingPath);
+            if(victim == null){
+                return;
+            }
+            cacheModel.remove(victim);
+            removeWeight(victim);
+            if(evictionListener != null){
+                evictionListener.accept(victim);
+            }
+        }
+    }
+
+    private void addWeight(String filePath, long weight) {
+        if(weigher != null){
+            weights.put(filePath, weight);
+            totalWeight += weight;
+        }
+    }
+
+    private void removeWeight(String filePath) {
+        Long weight = weights.remove(filePath);
+        if(weight != null){
+            totalWeight -= weight;
+        }
+    }
+
+    private void clearWeights() {
+        weights.clear();
+        totalWeight = 0;
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.jansowa.dao.eviction;
+
+//Decides which stored path leaves the cache first. Implementations only track paths, the model keeps the files.
+//Every method is O(1), and none of them is thread-safe.
+public interface EvictionPolicy {
+    //number of paths the model keeps - policies with segments or ghost entries size them from it
+    void setCapacity(long capacity);
+    //a path that wasn't tracked was stored
+    void recordInsertion(String filePath);
+    //a tracked path was read or stored again
+    void recordAccess(String filePath);
+    //a path was removed by the model's user - untracked paths are ignored
+    void recordRemoval(String filePath);
+    //picks the path to evict before incomingPath is stored and stops tracking it, null when nothing is tracked
+    String evict(String incomingPath);
+    boolean contains(String filePath);
+    int size();
+    void clear();
+}
@@ -0,0 +1,78 @@
+package com.github.jansowa.dao.eviction;
+
+//Count-min sketch of how often paths were used, with 4-bit counters (16 in every long) and 4 hash functions.
+//After 10 uses per counter long all counters are halved, so old popularity fades.
+class FrequencySketch {
+    private static final int NUMBER_OF_HASHES = 4;
+    private static final int MAX_COUNT = 15;
+    private static final long HALVING_MASK = 0x7777777777777777L;
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int numberOfIncrements;
+
+    FrequencySketch(long capacity){
+        int tableLength = Integer.highestOneBit((int) Math.max(16, Math.min(1 << 26, capacity)) - 1) << 1;
+        this.table = new long[tableLength];
+        this.tableMask = tableLength - 1;
+        this.sampleSize = 10 * tableLength;
+    }
+
+    int frequency(String filePath){
+        int hash = spread(filePath.hashCode());
+        int frequency = MAX_COUNT;
+        for(int i = 0; i < NUMBER_OF_HASHES; i++){
+            long counterHash = counterHash(hash, i);
+            frequency = Math.min(frequency, getCount(counterHash));
+        }
+        return frequency;
+    }
+
+    void increment(String filePath){
+        int hash = spread(filePath.hashCode());
+        boolean incremented = false;
+        for(int i = 0; i < NUMBER_OF_HASHES; i++){
+            long counterHash = counterHash(hash, i);
+            int count = getCount(counterHash);
+            if(count < MAX_COUNT){
+                table[tableIndex(counterHash)] += 1L << counterShift(counterHash);
+                incremented = true;
+            }
+        }
+        if(incremented && ++numberOfIncrements >= sampleSize){
+            halve();
+        }
+    }
+
+    private void halve(){
+        for(int i = 0; i < table.length; i++){
+            table[i] = (table[i] >>> 1) & HALVING_MASK;
+        }
+        numberOfIncrements /= 2;
+    }
+
+    private int getCount(long counterHash){
+        return (int) ((table[tableIndex(counterHash)] >>> counterShift(counterHash)) & MAX_COUNT);
+    }
+
+    private int tableIndex(long counterHash){
+        return (int) (counterHash >>> 32) & tableMask;
+    }
+
+    private static int counterShift(long counterHash){
+        return (int) (counterHash & 15) << 2;
+    }
+
+    private static long counterHash(int hash, int hashNumber){
+        long counterHash = (hash + SEEDS[hashNumber]) * SEEDS[hashNumber];
+        return counterHash ^ (counterHash >>> 29);
+    }
+
+    private static int spread(int hash){
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        return hash ^ (hash >>> 16);
+    }
+}
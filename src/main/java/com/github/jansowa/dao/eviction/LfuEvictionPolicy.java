@@ -0,0 +1,120 @@
+package com.github.jansowa.dao.eviction;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+//Evicts the least frequently used path, the least recently used one of them when several are used as rarely.
+//Paths with the same number of uses share a bucket, and buckets form a list ordered by that number,
+//so a use moves a path to the next bucket and eviction takes the first path of the first bucket.
+public class LfuEvictionPolicy implements EvictionPolicy {
+    private static final class FrequencyBucket {
+        private final long frequency;
+        //least recently used first
+        private final LinkedHashSet<String> paths = new LinkedHashSet<>();
+        private FrequencyBucket previous;
+        private FrequencyBucket next;
+
+        private FrequencyBucket(long frequency){
+            this.frequency = frequency;
+        }
+    }
+
+    private final Map<String, FrequencyBucket> bucketsByPath = new HashMap<>();
+    //the least frequently used paths
+    private FrequencyBucket firstBucket;
+
+    @Override
+    public void setCapacity(long capacity) {
+        //paths aren't split into segments
+    }
+
+    @Override
+    public void recordInsertion(String filePath) {
+        if(bucketsByPath.containsKey(filePath)){
+            recordAccess(filePath);
+            return;
+        }
+        if(firstBucket == null || firstBucket.frequency != 1){
+            FrequencyBucket bucket = new FrequencyBucket(1);
+            bucket.next = firstBucket;
+            if(firstBucket != null){
+                firstBucket.previous = bucket;
+            }
+            firstBucket = bucket;
+        }
+        firstBucket.paths.add(filePath);
+        bucketsByPath.put(filePath, firstBucket);
+    }
+
+    @Override
+    public void recordAccess(String filePath) {
+        FrequencyBucket bucket = bucketsByPath.get(filePath);
+        if(bucket == null){
+            return;
+        }
+        FrequencyBucket nextBucket = bucket.next;
+        if(nextBucket == null || nextBucket.frequency != bucket.frequency + 1){
+            nextBucket = new FrequencyBucket(bucket.frequency + 1);
+            nextBucket.previous = bucket;
+            nextBucket.next = bucket.next;
+            if(bucket.next != null){
+                bucket.next.previous = nextBucket;
+            }
+            bucket.next = nextBucket;
+        }
+        nextBucket.paths.add(filePath);
+        bucketsByPath.put(filePath, nextBucket);
+        removeFromBucket(bucket, filePath);
+    }
+
+    @Override
+    public void recordRemoval(String filePath) {
+        FrequencyBucket bucket = bucketsByPath.remove(filePath);
+        if(bucket != null){
+            removeFromBucket(bucket, filePath);
+        }
+    }
+
+    @Override
+    public String evict(String incomingPath) {
+        if(firstBucket == null){
+            return null;
+        }
+        String victim = firstBucket.paths.iterator().next();
+        recordRemoval(victim);
+        return victim;
+    }
+
+    @Override
+    public boolean contains(String filePath) {
+        return bucketsByPath.containsKey(filePath);
+    }
+
+    @Override
+    public int size() {
+        return bucketsByPath.size();
+    }
+
+    @Override
+    public void clear() {
+        bucketsByPath.clear();
+        firstBucket = null;
+    }
+
+    //empty buckets are unlinked
+    private void removeFromBucket(FrequencyBucket bucket, String filePath) {
+        bucket.paths.remove(filePath);
+        if(!bucket.paths.isEmpty()){
+            return;
+        }
+        if(bucket.previous != null){
+            bucket.previous.next = bucket.next;
+        } else {
+            firstBucket = bucket.next;
+        }
+        if(bucket.next != null){
+            bucket.next.previous = bucket.previous;
+        }
+    }
+}
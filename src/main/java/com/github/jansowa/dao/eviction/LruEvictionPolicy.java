@@ -0,0 +1,56 @@
+package com.github.jansowa.dao.eviction;
+
+import java.util.LinkedHashSet;
+
+//Evicts the least recently used path - what every model does on its own.
+public class LruEvictionPolicy implements EvictionPolicy {
+    //least recently used first
+    private final LinkedHashSet<String> paths = new LinkedHashSet<>();
+
+    @Override
+    public void setCapacity(long capacity) {
+        //paths aren't split into segments
+    }
+
+    @Override
+    public void recordInsertion(String filePath) {
+        paths.add(filePath);
+    }
+
+    @Override
+    public void recordAccess(String filePath) {
+        if(paths.remove(filePath)){
+            paths.add(filePath);
+        }
+    }
+
+    @Override
+    public void recordRemoval(String filePath) {
+        paths.remove(filePath);
+    }
+
+    @Override
+    public String evict(String incomingPath) {
+        if(paths.isEmpty()){
+            return null;
+        }
+        String victim = paths.iterator().next();
+        paths.remove(victim);
+        return victim;
+    }
+
+    @Override
+    public boolean contains(String filePath) {
+        return paths.contains(filePath);
+    }
+
+    @Override
+    public int size() {
+        return paths.size();
+    }
+
+    @Override
+    public void clear() {
+        paths.clear();
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.jansowa.dao.eviction;
+
+import java.util.LinkedHashSet;
+
+//Window TinyLFU: new paths enter a small LRU window (1% of capacity). When the window overflows in a full cache,
+//its oldest path is admitted to the main segment only if a frequency sketch says it's used more often than
+//the path the main segment would evict, so one-off paths of a folder scan can't flush popular ones.
+//The main segment is a segmented LRU: paths used again move from probation to protected (80% of it).
+public class WTinyLfuEvictionPolicy implements EvictionPolicy {
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    //every segment is least recently used first
+    private final LinkedHashSet<String> windowPaths = new LinkedHashSet<>();
+    private final LinkedHashSet<String> probationPaths = new LinkedHashSet<>();
+    private final LinkedHashSet<String> protectedPaths = new LinkedHashSet<>();
+    private long capacity;
+    private long windowCapacity;
+    private long protectedCapacity;
+    private FrequencySketch sketch;
+
+    public WTinyLfuEvictionPolicy(long capacity){
+        setCapacity(capacity);
+    }
+
+    //the sketch is sized for the capacity, so its counts start over
+    @Override
+    public void setCapacity(long capacity) {
+        capacity = Math.max(1, capacity);
+        if(sketch == null || capacity != this.capacity){
+            sketch = new FrequencySketch(capacity);
+        }
+        this.capacity = capacity;
+        this.windowCapacity = Math.max(1, capacity * WINDOW_PERCENT / 100);
+        this.protectedCapacity = (capacity - windowCapacity) * PROTECTED_PERCENT / 100;
+        while(windowPaths.size() > windowCapacity){
+            probationPaths.add(removeFirst(windowPaths));
+        }
+        demoteProtectedPaths();
+    }
+
+    @Override
+    public void recordInsertion(String filePath) {
+        if(contains(filePath)){
+            recordAccess(filePath);
+            return;
+        }
+        sketch.increment(filePath);
+        windowPaths.add(filePath);
+        //admitted without a duel while the cache isn't full
+        if(windowPaths.size() > windowCapacity){
+            probationPaths.add(removeFirst(windowPaths));
+        }
+    }
+
+    @Override
+    public void recordAccess(String filePath) {
+        sketch.increment(filePath);
+        if(windowPaths.remove(filePath)){
+            windowPaths.add(filePath);
+        } else if(probationPaths.remove(filePath)){
+            protectedPaths.add(filePath);
+            demoteProtectedPaths();
+        } else if(protectedPaths.remove(filePath)){
+            protectedPaths.add(filePath);
+        }
+    }
+
+    @Override
+    public void recordRemoval(String filePath) {
+        if(!windowPaths.remove(filePath) && !probationPaths.remove(filePath)){
+            protectedPaths.remove(filePath);
+        }
+    }
+
+    //the oldest window path, which has to leave the window for incomingPath, duels with the main segment's victim
+    @Override
+    public String evict(String incomingPath) {
+        String candidate = windowPaths.size() >= windowCapacity && !windowPaths.isEmpty()
+                ? windowPaths.iterator().next() : null;
+        LinkedHashSet<String> victimSegment = !probationPaths.isEmpty() ? probationPaths : protectedPaths;
+        String victim = victimSegment.isEmpty() ? null : victimSegment.iterator().next();
+        if(candidate == null && victim == null){
+            return windowPaths.isEmpty() ? null : removeFirst(windowPaths);
+        }
+        if(victim == null || (candidate != null && sketch.frequency(candidate) <= sketch.frequency(victim))){
+            windowPaths.remove(candidate);
+            return candidate;
+        }
+        victimSegment.remove(victim);
+        if(candidate != null){
+            windowPaths.remove(candidate);
+            probationPaths.add(candidate);
+        }
+        return victim;
+    }
+
+    @Override
+    public boolean contains(String filePath) {
+        return windowPaths.contains(filePath) || probationPaths.contains(filePath) || protectedPaths.contains(filePath);
+    }
+
+    @Override
+    public int size() {
+        return windowPaths.size() + probationPaths.size() + protectedPaths.size();
+    }
+
+    @Override
+    public void clear() {
+        windowPaths.clear();
+        probationPaths.clear();
+        protectedPaths.clear();
+        sketch = new FrequencySketch(capacity);
+    }
+
+    private void demoteProtectedPaths() {
+        while(protectedPaths.size() > protectedCapacity){
+            probationPaths.add(removeFirst(protectedPaths));
+        }
+    }
+
+    private static String removeFirst(LinkedHashSet<String> paths) {
+        String firstPath = paths.iterator().next();
+        paths.remove(firstPath);
+        return firstPath;
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.jansowa.dao.eviction;
+
+import com.github.jansowa.domain.FileBasicInfo;
+
+//Weight of a stored file counted against the byte budget of EvictingCacheModel - has to be positive.
+@FunctionalInterface
+public interface Weigher {
+    //UTF-8 bytes of all strings and 8 for each date - about what file-backed models store for a file
+    Weigher SERIALIZED_SIZE = file -> utf8Length(file.getName()) + utf8Length(file.getFilePath())
+            + utf8Length(file.getExtension()) + utf8Length(file.getUrl()) + 2 * Long.BYTES;
+
+    long weigh(FileBasicInfo file);
+
+    //counted without encoding the string
+    static long utf8Length(String value){
+        if(value == null){
+            return 0;
+        }
+        long length = 0;
+        for(int i = 0; i < value.length(); i++){
+            char character = value.charAt(i);
+            if(character < 0x80){
+                length += 1;
+            } else if(character < 0x800){
+                length += 2;
+            } else if(Character.isSurrogate(character)){
+                //4 bytes for a pair
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
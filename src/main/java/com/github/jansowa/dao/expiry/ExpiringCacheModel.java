@@ -0,0 +1,346 @@
+package com.github.jansowa.dao.expiry;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.domain.FileBasicInfo;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+//Removes files from any model when expireAfterWriteMillis passed since their creationTime (since they were put
+//when it's null), or expireAfterAccessMillis since they were last put or read (0 turns either off). Both can also
+//be given for every put file separately. Write expiration depends only on the stored creationTime, so it's the same
+//before and after a restart.
+//Expiration times are kept in a TimingWheel, so expiring a file is O(1) and nothing is ever scanned.
+//Reads and contains never return an expired file, other operations see files expired about a second ago at most.
+//Files already stored when it's opened are only listed, which leaves their usage time alone - they count as read
+//on opening. Their creationTime is known once they're read, until then they expire at the latest time they could
+//and contains may still report them after their write expiration time.
+//Expired files are removed from the wrapped model by the next operation, or by a background sweeper.
+//Files evicted by the wrapped model on its own are forgotten when they're read or expire.
+public class ExpiringCacheModel implements CacheModel {
+    private static final class ExpiringFile extends TimingWheel.Node {
+        private final String filePath;
+        private final long writeExpirationTime;
+        private final long expireAfterAccessMillis;
+        //true for files stored before opening until they're read, their expirationTime is the latest possible one
+        private final boolean estimated;
+
+        private ExpiringFile(String filePath, long writeExpirationTime, long expireAfterAccessMillis, boolean estimated){
+            this.filePath = filePath;
+            this.writeExpirationTime = writeExpirationTime;
+            this.expireAfterAccessMillis = expireAfterAccessMillis;
+            this.estimated = estimated;
+        }
+
+        private void access(long accessTime){
+            expirationTime = Math.min(writeExpirationTime, expirationTime(accessTime, expireAfterAccessMillis));
+        }
+    }
+
+    private final CacheModel cacheModel;
+    @Getter private final long expireAfterWriteMillis;
+    @Getter private final long expireAfterAccessMillis;
+    private final LongSupplier clock;
+    private final Map<String, ExpiringFile> expiringFiles = new HashMap<>();
+    private final TimingWheel timingWheel;
+    //null without a background sweeper
+    private final ScheduledExecutorService sweepExecutor;
+
+    public ExpiringCacheModel(CacheModel cacheModel, long expireAfterWriteMillis, long expireAfterAccessMillis){
+        this(cacheModel, expireAfterWriteMillis, expireAfterAccessMillis, 0);
+    }
+
+    //with sweepIntervalMillis > 0 a background thread removes expired files
+    public ExpiringCacheModel(CacheModel cacheModel, long expireAfterWriteMillis, long expireAfterAccessMillis,
+                              long sweepIntervalMillis){
+        this(cacheModel, expireAfterWriteMillis, expireAfterAccessMillis, sweepIntervalMillis, System::currentTimeMillis);
+    }
+
+    ExpiringCacheModel(CacheModel cacheModel, long expireAfterWriteMillis, long expireAfterAccessMillis,
+                       long sweepIntervalMillis, LongSupplier clock){
+        this.cacheModel = cacheModel;
+        this.expireAfterWriteMillis = expireAfterWriteMillis;
+        this.expireAfterAccessMillis = expireAfterAccessMillis;
+        this.clock = clock;
+        long currentTime = clock.getAsLong();
+        this.timingWheel = new TimingWheel(currentTime);
+        if(expireAfterWriteMillis > 0 || expireAfterAccessMillis > 0){
+            //stored files were created and last read before now, so they can't expire later than that
+            for(String filePath: cacheModel.listPaths("")){
+                ExpiringFile expiringFile = new ExpiringFile(filePath,
+                        expirationTime(currentTime, expireAfterWriteMillis), expireAfterAccessMillis, true);
+                expiringFile.access(currentTime);
+                schedule(expiringFile);
+            }
+        }
+        if(sweepIntervalMillis > 0){
+            this.sweepExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread sweepThread = new Thread(runnable, "expiry-sweeper");
+                sweepThread.setDaemon(true);
+                return sweepThread;
+            });
+            sweepExecutor.scheduleWithFixedDelay(this::sweepInBackground,
+                    sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.sweepExecutor = null;
+        }
+    }
+
+    @Override
+    public synchronized void put(FileBasicInfo file) {
+        put(file, expireAfterWriteMillis, expireAfterAccessMillis);
+    }
+
+    //expiration times of this file only, 0 turns either off
+    public synchronized void put(FileBasicInfo file, long expireAfterWriteMillis, long expireAfterAccessMillis) {
+        removeExpiredFiles();
+        cacheModel.put(file);
+        startExpiring(file, expireAfterWriteMillis, expireAfterAccessMillis);
+    }
+
+    @Override
+    public synchronized void putAll(Collection<FileBasicInfo> files) {
+        removeExpiredFiles();
+        cacheModel.putAll(files);
+        files.forEach(file -> startExpiring(file, expireAfterWriteMillis, expireAfterAccessMillis));
+    }
+
+    private void startExpiring(FileBasicInfo file, long expireAfterWriteMillis, long expireAfterAccessMillis) {
+        forget(file.getFilePath());
+        if(expireAfterWriteMillis <= 0 && expireAfterAccessMillis <= 0){
+            return;
+        }
+        schedule(createExpiringFile(file, expireAfterWriteMillis, expireAfterAccessMillis));
+    }
+
+    private ExpiringFile createExpiringFile(FileBasicInfo file, long expireAfterWriteMillis, long expireAfterAccessMillis) {
+        long currentTime = clock.getAsLong();
+        ExpiringFile expiringFile = new ExpiringFile(file.getFilePath(),
+                expirationTime(getTime(file.getCreationTime(), currentTime), expireAfterWriteMillis),
+                expireAfterAccessMillis, false);
+        expiringFile.access(currentTime);
+        return expiringFile;
+    }
+
+    @Override
+    public synchronized void remove(String filePath) {
+        cacheModel.remove(filePath);
+        forget(filePath);
+    }
+
+    @Override
+    public synchronized void removeAll(Collection<String> filePaths) {
+        cacheModel.removeAll(filePaths);
+        filePaths.forEach(this::forget);
+    }
+
+    @Override
+    public synchronized boolean contains(String filePath) {
+        return !removeIfExpired(filePath) && cacheModel.contains(filePath);
+    }
+
+    @Override
+    public synchronized Optional<FileBasicInfo> read(String filePath) {
+        if(removeIfExpired(filePath)){
+            return Optional.empty();
+        }
+        Optional<FileBasicInfo> readFile = cacheModel.read(filePath);
+        if(!readFile.isPresent()){
+            forget(filePath);
+            return readFile;
+        }
+        return access(readFile.get()) ? readFile : Optional.empty();
+    }
+
+    @Override
+    public synchronized List<FileBasicInfo> readAll(Collection<String> filePaths) {
+        List<String> validPaths = new ArrayList<>();
+        for(String filePath: filePaths){
+            if(!removeIfExpired(filePath)){
+                validPaths.add(filePath);
+            }
+        }
+        List<FileBasicInfo> readFiles = new ArrayList<>();
+        for(FileBasicInfo readFile: cacheModel.readAll(validPaths)){
+            if(access(readFile)){
+                readFiles.add(readFile);
+            }
+        }
+        return readFiles;
+    }
+
+    //returns false when the read file was stored before opening and its own times show it's expired already
+    private boolean access(FileBasicInfo file) {
+        ExpiringFile expiringFile = expiringFiles.get(file.getFilePath());
+        if(expiringFile == null){
+            return true;
+        }
+        if(expiringFile.estimated){
+            forget(file.getFilePath());
+            ExpiringFile knownFile = createExpiringFile(file, expireAfterWriteMillis, expiringFile.expireAfterAccessMillis);
+            if(knownFile.expirationTime <= clock.getAsLong()){
+                cacheModel.remove(file.getFilePath());
+                return false;
+            }
+            schedule(knownFile);
+        } else if(expiringFile.expireAfterAccessMillis > 0){
+            expiringFile.access(clock.getAsLong());
+            timingWheel.schedule(expiringFile);
+        }
+        return true;
+    }
+
+    //moved files keep their expiration times, files replaced at destination are forgotten
+    @Override
+    public synchronized void movePath(String sourcePath, String destinationPath) {
+        removeExpiredFiles();
+        List<String> sourcePaths = cacheModel.listPaths(sourcePath);
+        cacheModel.movePath(sourcePath, destinationPath);
+        List<ExpiringFile> movedFiles = new ArrayList<>();
+        for(String filePath: sourcePaths){
+            String movedPath = destinationPath + filePath.substring(sourcePath.length());
+            ExpiringFile expiringFile = expiringFiles.remove(filePath);
+            if(expiringFile != null){
+                timingWheel.cancel(expiringFile);
+                ExpiringFile movedFile = new ExpiringFile(movedPath, expiringFile.writeExpirationTime,
+                        expiringFile.expireAfterAccessMillis, expiringFile.estimated);
+                movedFile.expirationTime = expiringFile.expirationTime;
+                movedFiles.add(movedFile);
+            }
+        }
+        for(String filePath: sourcePaths){
+            forget(destinationPath + filePath.substring(sourcePath.length()));
+        }
+        for(ExpiringFile movedFile: movedFiles){
+            if(cacheModel.contains(movedFile.filePath)){
+                schedule(movedFile);
+            }
+        }
+    }
+
+    @Override
+    public synchronized List<String> listPaths(String prefix) {
+        removeExpiredFiles();
+        return cacheModel.listPaths(prefix);
+    }
+
+    @Override
+    public synchronized int getNumberOfFiles() {
+        removeExpiredFiles();
+        return cacheModel.getNumberOfFiles();
+    }
+
+    @Override
+    public synchronized void removeAllData() {
+        cacheModel.removeAllData();
+        forgetAll();
+    }
+
+    @Override
+    public synchronized long getSizeInBytes() {
+        removeExpiredFiles();
+        return cacheModel.getSizeInBytes();
+    }
+
+    @Override
+    public synchronized long getMaxNumberOfFiles() {
+        return cacheModel.getMaxNumberOfFiles();
+    }
+
+    @Override
+    public synchronized void setMaxNumberOfFiles(long maxNumberOfFiles) {
+        cacheModel.setMaxNumberOfFiles(maxNumberOfFiles);
+    }
+
+    @Override
+    public synchronized void removeFromDevice() {
+        cacheModel.removeFromDevice();
+        forgetAll();
+    }
+
+    //removes files expired up to now from the wrapped model
+    public synchronized void removeExpiredFiles() {
+        List<String> expiredPaths = new ArrayList<>();
+        timingWheel.advance(clock.getAsLong(), node -> {
+            ExpiringFile expiredFile = (ExpiringFile) node;
+            expiringFiles.remove(expiredFile.filePath);
+            expiredPaths.add(expiredFile.filePath);
+        });
+        if(!expiredPaths.isEmpty()){
+            cacheModel.removeAll(expiredPaths);
+        }
+    }
+
+    private void sweepInBackground() {
+        try {
+            removeExpiredFiles();
+        } catch (RuntimeException e) {
+            //an exception would cancel all later sweeps of the executor
+            Logger logger = Logger.getLogger(ExpiringCacheModel.class.getName());
+            logger.warning("Expiring cache can't remove expired files: " + e);
+        }
+    }
+
+    //stops the background sweeper - the wrapped model stays open
+    public void close() {
+        if(sweepExecutor == null){
+            return;
+        }
+        sweepExecutor.shutdown();
+        try {
+            sweepExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean removeIfExpired(String filePath) {
+        ExpiringFile expiringFile = expiringFiles.get(filePath);
+        if(expiringFile == null || expiringFile.expirationTime > clock.getAsLong()){
+            return false;
+        }
+        cacheModel.remove(filePath);
+        forget(filePath);
+        return true;
+    }
+
+    private void schedule(ExpiringFile expiringFile) {
+        expiringFiles.put(expiringFile.filePath, expiringFile);
+        timingWheel.schedule(expiringFile);
+    }
+
+    private void forget(String filePath) {
+        ExpiringFile expiringFile = expiringFiles.remove(filePath);
+        if(expiringFile != null){
+            timingWheel.cancel(expiringFile);
+        }
+    }
+
+    private void forgetAll() {
+        expiringFiles.clear();
+        timingWheel.clear(clock.getAsLong());
+    }
+
+    private static long getTime(Date date, long defaultTime) {
+        return date == null ? defaultTime : date.getTime();
+    }
+
+    private static long expirationTime(long time, long expireAfterMillis) {
+        if(expireAfterMillis <= 0 || time > Long.MAX_VALUE - expireAfterMillis){
+            return Long.MAX_VALUE;
+        }
+        return time + expireAfterMillis;
+    }
+}
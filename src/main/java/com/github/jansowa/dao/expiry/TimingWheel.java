@@ -0,0 +1,132 @@
+package com.github.jansowa.dao.expiry;
+
+import java.util.function.Consumer;
+
+//Hierarchical timing wheel: 5 levels of 64 buckets, a bucket of level 0 spans 2^10 ms (about a second)
+//and every next level's bucket spans a whole rotation of the level below. A node goes to the lowest level
+//whose rotation reaches its expiration time, so scheduling and cancelling are O(1). Advancing the time
+//empties only the buckets passed by - nodes which haven't expired yet fall down to lower levels.
+//Nodes are expired up to one level 0 bucket late. Not thread safe.
+class TimingWheel {
+    private static final int NUMBER_OF_LEVELS = 5;
+    private static final int BUCKETS_PER_LEVEL = 64;
+    private static final int BUCKET_MASK = BUCKETS_PER_LEVEL - 1;
+    private static final int FIRST_LEVEL_SHIFT = 10;
+    private static final int LEVEL_SHIFT = 6;
+
+    static class Node {
+        long expirationTime;
+        private Node previous;
+        private Node next;
+
+        boolean isScheduled(){
+            return next != null;
+        }
+    }
+
+    //every bucket is a sentinel of a circular list
+    private final Node[][] buckets = new Node[NUMBER_OF_LEVELS][BUCKETS_PER_LEVEL];
+    private long currentTime;
+
+    TimingWheel(long currentTime){
+        this.currentTime = currentTime;
+        for(Node[] levelBuckets: buckets){
+            for(int i = 0; i < BUCKETS_PER_LEVEL; i++){
+                Node sentinel = new Node();
+                sentinel.previous = sentinel;
+                sentinel.next = sentinel;
+                levelBuckets[i] = sentinel;
+            }
+        }
+    }
+
+    //a scheduled node is moved to the bucket of its new expiration time
+    void schedule(Node node){
+        cancel(node);
+        Node sentinel = findBucket(Math.max(node.expirationTime, currentTime));
+        node.previous = sentinel.previous;
+        node.next = sentinel;
+        sentinel.previous.next = node;
+        sentinel.previous = node;
+    }
+
+    void cancel(Node node){
+        if(node.isScheduled()){
+            node.previous.next = node.next;
+            node.next.previous = node.previous;
+            node.previous = null;
+            node.next = null;
+        }
+    }
+
+    //expired nodes are cancelled before they're passed to expire
+    void advance(long currentTime, Consumer<Node> expire){
+        long previousTime = this.currentTime;
+        if(currentTime <= previousTime){
+            return;
+        }
+        this.currentTime = currentTime;
+        for(int level = 0; level < NUMBER_OF_LEVELS; level++){
+            long previousTicks = previousTime >>> shift(level);
+            long currentTicks = currentTime >>> shift(level);
+            if(currentTicks == previousTicks){
+                return;
+            }
+            expireBuckets(level, previousTicks, currentTicks - previousTicks, expire);
+        }
+    }
+
+    void clear(long currentTime){
+        this.currentTime = currentTime;
+        for(Node[] levelBuckets: buckets){
+            for(Node sentinel: levelBuckets){
+                detach(sentinel);
+            }
+        }
+    }
+
+    //buckets of both the previous and the current tick, a whole rotation at most
+    private void expireBuckets(int level, long previousTicks, long ticks, Consumer<Node> expire){
+        int start = (int) (previousTicks & BUCKET_MASK);
+        int end = start + (int) Math.min(ticks + 1, BUCKETS_PER_LEVEL);
+        for(int i = start; i < end; i++){
+            Node node = detach(buckets[level][i & BUCKET_MASK]);
+            while(node != null){
+                Node next = node.next;
+                node.previous = null;
+                node.next = null;
+                if(node.expirationTime <= currentTime){
+                    expire.accept(node);
+                } else {
+                    schedule(node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    //returns the first node of the bucket's list, which ends with null instead of the sentinel
+    private static Node detach(Node sentinel){
+        if(sentinel.next == sentinel){
+            return null;
+        }
+        Node first = sentinel.next;
+        sentinel.previous.next = null;
+        sentinel.previous = sentinel;
+        sentinel.next = sentinel;
+        return first;
+    }
+
+    private Node findBucket(long time){
+        long duration = time - currentTime;
+        int level = 0;
+        while(level < NUMBER_OF_LEVELS - 1 && duration >= 1L << shift(level + 1)){
+            level++;
+        }
+        return buckets[level][(int) ((time >>> shift(level)) & BUCKET_MASK)];
+    }
+
+    private static int shift(int level){
+        return FIRST_LEVEL_SHIFT + level * LEVEL_SHIFT;
+    }
+}
@@ -0,0 +1,856 @@
+package com.github.jansowa.dao.mappedfile;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.domain.FileBasicInfo;
+import lombok.Getter;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Logger;
+
+//All data kept outside of the Java heap in two memory-mapped files:
+//cacheModelPath holds a header, open-addressing indexes of path and url hashes, fixed-size records and url entries,
+//cacheModelPath.strings holds paths, urls and names referenced by offset from the records and url entries.
+//Urls are interned - files with the same url share one url entry, which counts the records referencing it.
+//Records are also linked into a doubly-linked LRU list, so eviction never scans the file.
+public class MappedFileCacheModel implements CacheModel {
+    private static final int MAGIC = 0x4D434D31;
+    //2 - interned urls
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 80;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_SLOT_COUNT = 8;
+    private static final int H_RECORD_CAPACITY = 12;
+    private static final int H_NUMBER_OF_FILES = 16;
+    private static final int H_FREE_RECORD = 20;
+    private static final int H_LRU_HEAD = 24;
+    private static final int H_LRU_TAIL = 28;
+    private static final int H_RECORDS_USED = 32;
+    private static final int H_TOMBSTONES = 36;
+    private static final int H_STRINGS_END = 40;
+    private static final int H_DEAD_STRING_BYTES = 48;
+    private static final int H_FREE_URL = 56;
+    private static final int H_URLS_USED = 60;
+    private static final int H_URL_TOMBSTONES = 64;
+
+    private static final int RECORD_SIZE = 68;
+    private static final int R_HASH = 0;
+    private static final int R_PREVIOUS = 4;
+    private static final int R_NEXT = 8;
+    private static final int R_PATH_OFFSET = 12;
+    private static final int R_PATH_LENGTH = 20;
+    private static final int R_URL = 24;
+    private static final int R_CREATION_TIME = 28;
+    private static final int R_LAST_USAGE_TIME = 36;
+    private static final int R_NAME_OFFSET = 44;
+    private static final int R_NAME_LENGTH = 52;
+    private static final int R_EXTENSION_OFFSET = 56;
+    private static final int R_EXTENSION_LENGTH = 64;
+    //offsets of strings kept in the strings file, every length field follows its offset
+    private static final int[] STRING_FIELDS = {R_PATH_OFFSET, R_NAME_OFFSET, R_EXTENSION_OFFSET};
+
+    //free url entries are chained through U_HASH
+    private static final int URL_SIZE = 20;
+    private static final int U_HASH = 0;
+    private static final int U_REFERENCES = 4;
+    private static final int U_OFFSET = 8;
+    private static final int U_LENGTH = 16;
+
+    private static final int EMPTY_SLOT = 0;
+    private static final int TOMBSTONE = -1;
+    private static final int NO_RECORD = -1;
+    private static final int NO_URL = -1;
+    private static final int NULL_STRING = -1;
+    private static final int DERIVED_STRING = -2;
+    private static final long NULL_DATE = Long.MIN_VALUE;
+    private static final long MIN_STRINGS_SIZE = 1 << 20;
+    //the largest capacity whose slots, records and url entries fit in one mapping, with 2^26 slots in both indexes
+    private static final int MAX_RECORD_CAPACITY = (int) ((Integer.MAX_VALUE - HEADER_SIZE - 2 * (1L << 26) * 4) /
+            (RECORD_SIZE + URL_SIZE));
+
+    @Getter private long maxNumberOfFiles;
+    private final String cacheModelPath;
+    private final String stringsPath;
+    private FileChannel indexChannel;
+    private FileChannel stringsChannel;
+    private MappedByteBuffer index;
+    private MappedByteBuffer strings;
+    private int slotCount;
+    private int recordCapacity;
+    private int urlSlotsStart;
+    private int recordsStart;
+    private int urlsStart;
+
+    public MappedFileCacheModel(long maxNumberOfFiles, String cacheModelPath){
+        this.maxNumberOfFiles = maxNumberOfFiles;
+        this.cacheModelPath = cacheModelPath;
+        this.stringsPath = cacheModelPath + ".strings";
+        openFiles();
+    }
+
+    @Override
+    public void put(FileBasicInfo file) {
+        String filePath = file.getFilePath();
+        byte[] pathBytes = filePath.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(filePath);
+        int slot = findSlot(pathBytes, hash);
+        checkStringsFit((slot == NO_RECORD ? pathBytes.length : 0) + maxStringBytes(file.getUrl()) +
+                maxStringBytes(file.getName()) + maxStringBytes(file.getExtension()));
+        int record;
+        if(slot == NO_RECORD){
+            while(getNumberOfFiles() >= getFileLimit() && getNumberOfFiles() > 0){
+                removeRecord(index.getInt(H_LRU_HEAD));
+            }
+            if(maxNumberOfFiles <= 0){
+                return;
+            }
+            record = allocateRecord();
+            index.putInt(recordOffset(record) + R_HASH, hash);
+            writeString(record, R_PATH_OFFSET, R_PATH_LENGTH, pathBytes);
+            insertSlot(record, hash);
+            index.putInt(H_NUMBER_OF_FILES, getNumberOfFiles() + 1);
+        } else {
+            record = index.getInt(slotOffset(slot)) - 1;
+            unlink(record);
+            releaseString(record, R_NAME_OFFSET, R_NAME_LENGTH);
+            releaseString(record, R_EXTENSION_OFFSET, R_EXTENSION_LENGTH);
+        }
+        //the url entry is kept when the url doesn't change, so a full index never needs one more entry
+        if(slot == NO_RECORD){
+            index.putInt(recordOffset(record) + R_URL, internUrl(file.getUrl()));
+        } else if(!Objects.equals(file.getUrl(), readUrl(record))){
+            releaseUrl(record);
+            index.putInt(recordOffset(record) + R_URL, internUrl(file.getUrl()));
+        }
+        writeNullableString(record, R_NAME_OFFSET, R_NAME_LENGTH, file.getName(),
+                Objects.equals(file.getName(), FilenameUtils.getBaseName(filePath)));
+        writeNullableString(record, R_EXTENSION_OFFSET, R_EXTENSION_LENGTH, file.getExtension(),
+                Objects.equals(file.getExtension(), FilenameUtils.getExtension(filePath)));
+        writeDate(record, R_CREATION_TIME, file.getCreationTime());
+        writeDate(record, R_LAST_USAGE_TIME, file.getLastUsageTime());
+        linkAsNewest(record);
+        compactStringsIfNeeded();
+    }
+
+    @Override
+    public void remove(String filePath) {
+        int slot = findSlot(filePath.getBytes(StandardCharsets.UTF_8), hash(filePath));
+        if(slot != NO_RECORD){
+            removeRecord(index.getInt(slotOffset(slot)) - 1);
+            compactStringsIfNeeded();
+        }
+    }
+
+    @Override
+    public boolean contains(String filePath) {
+        return findSlot(filePath.getBytes(StandardCharsets.UTF_8), hash(filePath)) != NO_RECORD;
+    }
+
+    @Override
+    public void movePath(String sourcePath, String destinationPath) {
+        byte[] sourceBytes = sourcePath.getBytes(StandardCharsets.UTF_8);
+        int destinationLength = destinationPath.getBytes(StandardCharsets.UTF_8).length;
+        List<Integer> recordsToMove = new ArrayList<>();
+        long movedPathBytes = 0;
+        for(int record = index.getInt(H_LRU_HEAD); record != NO_RECORD; record = index.getInt(recordOffset(record) + R_NEXT)){
+            if(startsWith(record, sourceBytes)){
+                recordsToMove.add(record);
+                movedPathBytes += index.getInt(recordOffset(record) + R_PATH_LENGTH) - sourceBytes.length + destinationLength;
+            }
+        }
+        checkStringsFit(movedPathBytes);
+        long moveTime = new Date().getTime();
+        Set<Integer> overwrittenRecords = new HashSet<>();
+        for(int record: recordsToMove){
+            if(overwrittenRecords.contains(record)){
+                continue;
+            }
+            String currentPath = readString(record, R_PATH_OFFSET, R_PATH_LENGTH);
+            String finalPath = destinationPath + currentPath.substring(sourcePath.length());
+            if(finalPath.equals(currentPath)){
+                continue;
+            }
+            byte[] finalPathBytes = finalPath.getBytes(StandardCharsets.UTF_8);
+            int finalHash = hash(finalPath);
+            int occupiedSlot = findSlot(finalPathBytes, finalHash);
+            if(occupiedSlot != NO_RECORD){
+                int occupiedRecord = index.getInt(slotOffset(occupiedSlot)) - 1;
+                overwrittenRecords.add(occupiedRecord);
+                removeRecord(occupiedRecord);
+            }
+            index.putInt(slotOffset(findSlot(currentPath.getBytes(StandardCharsets.UTF_8), index.getInt(recordOffset(record) + R_HASH))),
+                    TOMBSTONE);
+            index.putInt(H_TOMBSTONES, index.getInt(H_TOMBSTONES) + 1);
+            releaseString(record, R_PATH_OFFSET, R_PATH_LENGTH);
+            index.putInt(recordOffset(record) + R_HASH, finalHash);
+            writeString(record, R_PATH_OFFSET, R_PATH_LENGTH, finalPathBytes);
+            insertSlot(record, finalHash);
+            index.putLong(recordOffset(record) + R_LAST_USAGE_TIME, moveTime);
+            unlink(record);
+            linkAsNewest(record);
+            rehashIfNeeded();
+        }
+        compactStringsIfNeeded();
+    }
+
+    @Override
+    public Optional<FileBasicInfo> read(String filePath) {
+        int slot = findSlot(filePath.getBytes(StandardCharsets.UTF_8), hash(filePath));
+        if(slot == NO_RECORD){
+            return Optional.empty();
+        }
+        int record = index.getInt(slotOffset(slot)) - 1;
+        index.putLong(recordOffset(record) + R_LAST_USAGE_TIME, new Date().getTime());
+        unlink(record);
+        linkAsNewest(record);
+        return Optional.of(readFile(record, filePath));
+    }
+
+    @Override
+    public List<String> listPaths(String prefix) {
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        List<String> paths = new ArrayList<>();
+        for(int record = index.getInt(H_LRU_HEAD); record != NO_RECORD; record = index.getInt(recordOffset(record) + R_NEXT)){
+            if(startsWith(record, prefixBytes)){
+                paths.add(readString(record, R_PATH_OFFSET, R_PATH_LENGTH));
+            }
+        }
+        return paths;
+    }
+
+    @Override
+    public int getNumberOfFiles() {
+        return index.getInt(H_NUMBER_OF_FILES);
+    }
+
+    @Override
+    public void removeAllData() {
+        initialiseIndex();
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return new File(cacheModelPath).length() + new File(stringsPath).length();
+    }
+
+    @Override
+    public void setMaxNumberOfFiles(long maxNumberOfFiles) {
+        this.maxNumberOfFiles = maxNumberOfFiles;
+        while(getNumberOfFiles() > maxNumberOfFiles){
+            removeRecord(index.getInt(H_LRU_HEAD));
+        }
+        if(capacityFor(maxNumberOfFiles) > recordCapacity){
+            rebuild();
+        }
+    }
+
+    @Override
+    public void removeFromDevice() {
+        close();
+        File cacheModel = new File(cacheModelPath);
+        if(!cacheModel.delete()){
+            System.out.println("File "+cacheModelPath+" doesn't exist!");
+        }
+        FileUtils.deleteQuietly(new File(stringsPath));
+    }
+
+    //writes mapped pages to the device and releases both files
+    public void close(){
+        try {
+            if(index != null){
+                index.force();
+                strings.force();
+            }
+            if(indexChannel != null){
+                indexChannel.close();
+                stringsChannel.close();
+            }
+        } catch (IOException e) {
+            log(e);
+        }
+    }
+
+    private void openFiles(){
+        try {
+            FileUtils.forceMkdirParent(new File(cacheModelPath));
+            indexChannel = new RandomAccessFile(cacheModelPath, "rw").getChannel();
+            stringsChannel = new RandomAccessFile(stringsPath, "rw").getChannel();
+            boolean existingModel = indexChannel.size() >= HEADER_SIZE;
+            if(existingModel){
+                index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+                existingModel = index.getInt(H_MAGIC) == MAGIC && index.getInt(H_VERSION) == VERSION;
+            }
+            if(existingModel){
+                setLayout(index.getInt(H_SLOT_COUNT), index.getInt(H_RECORD_CAPACITY));
+                strings = stringsChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        Math.max(MIN_STRINGS_SIZE, stringsChannel.size()));
+            } else {
+                mapIndex(capacityFor(maxNumberOfFiles));
+                strings = stringsChannel.map(FileChannel.MapMode.READ_WRITE, 0, MIN_STRINGS_SIZE);
+                initialiseIndex();
+            }
+        } catch (IOException e) {
+            log(e);
+            return;
+        }
+        if(capacityFor(maxNumberOfFiles) > recordCapacity){
+            rebuild();
+        }
+    }
+
+    private void mapIndex(int capacity) throws IOException {
+        setLayout(Integer.highestOneBit(Math.max(8, capacity) * 2 - 1) << 1, capacity);
+        long indexSize = urlsStart + (long) recordCapacity * URL_SIZE;
+        if(indexSize > Integer.MAX_VALUE){
+            throw new IllegalArgumentException("Too many files for one mapped index: " + capacity);
+        }
+        indexChannel.truncate(indexSize);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexSize);
+    }
+
+    //header, path slots, url slots, records, url entries - there's an url entry for every record at most
+    private void setLayout(int slotCount, int recordCapacity){
+        this.slotCount = slotCount;
+        this.recordCapacity = recordCapacity;
+        urlSlotsStart = HEADER_SIZE + slotCount * 4;
+        recordsStart = urlSlotsStart + slotCount * 4;
+        urlsStart = (int) Math.min(recordsStart + (long) recordCapacity * RECORD_SIZE, Integer.MAX_VALUE);
+    }
+
+    private static int capacityFor(long maxNumberOfFiles){
+        return (int) Math.min(Math.max(maxNumberOfFiles, 16), MAX_RECORD_CAPACITY);
+    }
+
+    //maxNumberOfFiles may be bigger than one mapping can hold
+    private long getFileLimit(){
+        return Math.min(maxNumberOfFiles, recordCapacity);
+    }
+
+    private void initialiseIndex(){
+        for(int offset = 0; offset < recordsStart; offset += 4){
+            index.putInt(offset, 0);
+        }
+        index.putInt(H_MAGIC, MAGIC);
+        index.putInt(H_VERSION, VERSION);
+        index.putInt(H_SLOT_COUNT, slotCount);
+        index.putInt(H_RECORD_CAPACITY, recordCapacity);
+        index.putInt(H_FREE_RECORD, NO_RECORD);
+        index.putInt(H_LRU_HEAD, NO_RECORD);
+        index.putInt(H_LRU_TAIL, NO_RECORD);
+        index.putLong(H_STRINGS_END, 0);
+        index.putLong(H_DEAD_STRING_BYTES, 0);
+        index.putInt(H_FREE_URL, NO_URL);
+    }
+
+    //copies all records into a bigger index in a new file, which replaces the old one only when it's complete,
+    //so a crash leaves the old index as it was - the strings stay where they are
+    private void rebuild(){
+        MappedByteBuffer oldIndex = index;
+        FileChannel oldIndexChannel = indexChannel;
+        int oldSlotCount = slotCount;
+        int oldRecordCapacity = recordCapacity;
+        int oldRecordsStart = recordsStart;
+        int oldUrlsStart = urlsStart;
+        File rebuiltFile = new File(cacheModelPath + ".rebuilt");
+        try {
+            indexChannel = new RandomAccessFile(rebuiltFile, "rw").getChannel();
+            mapIndex(capacityFor(maxNumberOfFiles));
+            initialiseIndex();
+            index.putLong(H_STRINGS_END, oldIndex.getLong(H_STRINGS_END));
+            index.putLong(H_DEAD_STRING_BYTES, oldIndex.getLong(H_DEAD_STRING_BYTES));
+            //url entries keep their numbers, records refer to them
+            int urlsUsed = oldIndex.getInt(H_URLS_USED);
+            copyBytes(oldIndex, oldUrlsStart, urlsStart, urlsUsed * URL_SIZE);
+            index.putInt(H_URLS_USED, urlsUsed);
+            index.putInt(H_FREE_URL, oldIndex.getInt(H_FREE_URL));
+            insertLiveUrlSlots();
+            int numberOfFiles = 0;
+            for(int oldRecord = oldIndex.getInt(H_LRU_HEAD); oldRecord != NO_RECORD;
+                oldRecord = oldIndex.getInt(oldRecordsStart + oldRecord * RECORD_SIZE + R_NEXT)){
+                int record = numberOfFiles++;
+                copyBytes(oldIndex, oldRecordsStart + oldRecord * RECORD_SIZE, recordOffset(record), RECORD_SIZE);
+                insertSlot(record, index.getInt(recordOffset(record) + R_HASH));
+                linkAsNewest(record);
+            }
+            index.putInt(H_RECORDS_USED, numberOfFiles);
+            index.putInt(H_NUMBER_OF_FILES, numberOfFiles);
+            index.force();
+            Files.move(rebuiltFile.toPath(), new File(cacheModelPath).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log(e);
+            if(indexChannel != oldIndexChannel){
+                closeQuietly(indexChannel);
+            }
+            FileUtils.deleteQuietly(rebuiltFile);
+            index = oldIndex;
+            indexChannel = oldIndexChannel;
+            setLayout(oldSlotCount, oldRecordCapacity);
+            return;
+        }
+        closeQuietly(oldIndexChannel);
+    }
+
+    private void copyBytes(ByteBuffer source, int sourceOffset, int targetOffset, int length){
+        ByteBuffer sourceView = source.duplicate();
+        sourceView.position(sourceOffset);
+        sourceView.limit(sourceOffset + length);
+        ByteBuffer targetView = index.duplicate();
+        targetView.position(targetOffset);
+        targetView.put(sourceView);
+    }
+
+    private int findSlot(byte[] pathBytes, int hash){
+        int mask = slotCount - 1;
+        for(int slot = hash & mask; ; slot = (slot + 1) & mask){
+            int slotValue = index.getInt(slotOffset(slot));
+            if(slotValue == EMPTY_SLOT){
+                return NO_RECORD;
+            }
+            if(slotValue != TOMBSTONE){
+                int record = slotValue - 1;
+                if(index.getInt(recordOffset(record) + R_HASH) == hash && pathEquals(record, pathBytes)){
+                    return slot;
+                }
+            }
+        }
+    }
+
+    private int findUrlSlot(byte[] urlBytes, int hash){
+        int mask = slotCount - 1;
+        for(int slot = hash & mask; ; slot = (slot + 1) & mask){
+            int slotValue = index.getInt(urlSlotOffset(slot));
+            if(slotValue == EMPTY_SLOT){
+                return NO_RECORD;
+            }
+            if(slotValue != TOMBSTONE){
+                int offset = urlOffset(slotValue - 1);
+                if(index.getInt(offset + U_HASH) == hash && index.getInt(offset + U_LENGTH) == urlBytes.length
+                        && stringStartsWith(index.getLong(offset + U_OFFSET), urlBytes)){
+                    return slot;
+                }
+            }
+        }
+    }
+
+    private void insertSlot(int record, int hash){
+        insertIntoSlots(HEADER_SIZE, H_TOMBSTONES, record, hash);
+    }
+
+    private void insertUrlSlot(int url, int hash){
+        insertIntoSlots(urlSlotsStart, H_URL_TOMBSTONES, url, hash);
+    }
+
+    private void insertIntoSlots(int slotsStart, int tombstonesField, int entry, int hash){
+        int mask = slotCount - 1;
+        int slot = hash & mask;
+        int slotValue = index.getInt(slotsStart + slot * 4);
+        while(slotValue != EMPTY_SLOT && slotValue != TOMBSTONE){
+            slot = (slot + 1) & mask;
+            slotValue = index.getInt(slotsStart + slot * 4);
+        }
+        if(slotValue == TOMBSTONE){
+            index.putInt(tombstonesField, index.getInt(tombstonesField) - 1);
+        }
+        index.putInt(slotsStart + slot * 4, entry + 1);
+    }
+
+    private void removeRecord(int record){
+        int offset = recordOffset(record);
+        index.putInt(slotOffset(findSlot(readBytes(index.getLong(offset + R_PATH_OFFSET), index.getInt(offset + R_PATH_LENGTH)),
+                index.getInt(offset + R_HASH))), TOMBSTONE);
+        index.putInt(H_TOMBSTONES, index.getInt(H_TOMBSTONES) + 1);
+        unlink(record);
+        releaseString(record, R_PATH_OFFSET, R_PATH_LENGTH);
+        releaseUrl(record);
+        releaseString(record, R_NAME_OFFSET, R_NAME_LENGTH);
+        releaseString(record, R_EXTENSION_OFFSET, R_EXTENSION_LENGTH);
+        index.putInt(offset + R_NEXT, index.getInt(H_FREE_RECORD));
+        index.putInt(H_FREE_RECORD, record);
+        index.putInt(H_NUMBER_OF_FILES, getNumberOfFiles() - 1);
+        rehashIfNeeded();
+    }
+
+    //tombstones make probing longer, so the slots are rebuilt once they take a quarter of the table
+    private void rehashIfNeeded(){
+        if(index.getInt(H_TOMBSTONES) < slotCount / 4){
+            return;
+        }
+        for(int slot = 0; slot < slotCount; slot++){
+            index.putInt(slotOffset(slot), EMPTY_SLOT);
+        }
+        index.putInt(H_TOMBSTONES, 0);
+        for(int record = index.getInt(H_LRU_HEAD); record != NO_RECORD; record = index.getInt(recordOffset(record) + R_NEXT)){
+            insertSlot(record, index.getInt(recordOffset(record) + R_HASH));
+        }
+    }
+
+    private void rehashUrlsIfNeeded(){
+        if(index.getInt(H_URL_TOMBSTONES) < slotCount / 4){
+            return;
+        }
+        for(int slot = 0; slot < slotCount; slot++){
+            index.putInt(urlSlotOffset(slot), EMPTY_SLOT);
+        }
+        index.putInt(H_URL_TOMBSTONES, 0);
+        insertLiveUrlSlots();
+    }
+
+    private void insertLiveUrlSlots(){
+        int urlsUsed = index.getInt(H_URLS_USED);
+        for(int url = 0; url < urlsUsed; url++){
+            if(index.getInt(urlOffset(url) + U_REFERENCES) > 0){
+                insertUrlSlot(url, index.getInt(urlOffset(url) + U_HASH));
+            }
+        }
+    }
+
+    private int internUrl(String url){
+        if(url == null){
+            return NO_URL;
+        }
+        byte[] urlBytes = url.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(url);
+        int slot = findUrlSlot(urlBytes, hash);
+        if(slot != NO_RECORD){
+            int storedUrl = index.getInt(urlSlotOffset(slot)) - 1;
+            index.putInt(urlOffset(storedUrl) + U_REFERENCES, index.getInt(urlOffset(storedUrl) + U_REFERENCES) + 1);
+            return storedUrl;
+        }
+        int newUrl = allocateUrl();
+        int offset = urlOffset(newUrl);
+        index.putInt(offset + U_HASH, hash);
+        index.putInt(offset + U_REFERENCES, 1);
+        index.putLong(offset + U_OFFSET, appendString(urlBytes));
+        index.putInt(offset + U_LENGTH, urlBytes.length);
+        insertUrlSlot(newUrl, hash);
+        return newUrl;
+    }
+
+    //the url's string is left behind once no record references it
+    private void releaseUrl(int record){
+        int url = index.getInt(recordOffset(record) + R_URL);
+        if(url == NO_URL){
+            return;
+        }
+        int offset = urlOffset(url);
+        int references = index.getInt(offset + U_REFERENCES) - 1;
+        index.putInt(offset + U_REFERENCES, references);
+        if(references > 0){
+            return;
+        }
+        int length = index.getInt(offset + U_LENGTH);
+        index.putInt(urlSlotOffset(findUrlSlot(readBytes(index.getLong(offset + U_OFFSET), length), index.getInt(offset + U_HASH))),
+                TOMBSTONE);
+        index.putInt(H_URL_TOMBSTONES, index.getInt(H_URL_TOMBSTONES) + 1);
+        index.putLong(H_DEAD_STRING_BYTES, index.getLong(H_DEAD_STRING_BYTES) + length);
+        index.putInt(offset + U_HASH, index.getInt(H_FREE_URL));
+        index.putInt(H_FREE_URL, url);
+        rehashUrlsIfNeeded();
+    }
+
+    private String readUrl(int record){
+        int url = index.getInt(recordOffset(record) + R_URL);
+        if(url == NO_URL){
+            return null;
+        }
+        int offset = urlOffset(url);
+        return new String(readBytes(index.getLong(offset + U_OFFSET), index.getInt(offset + U_LENGTH)), StandardCharsets.UTF_8);
+    }
+
+    private int allocateUrl(){
+        int freeUrl = index.getInt(H_FREE_URL);
+        if(freeUrl != NO_URL){
+            index.putInt(H_FREE_URL, index.getInt(urlOffset(freeUrl) + U_HASH));
+            return freeUrl;
+        }
+        int urlsUsed = index.getInt(H_URLS_USED);
+        index.putInt(H_URLS_USED, urlsUsed + 1);
+        return urlsUsed;
+    }
+
+    private int allocateRecord(){
+        int freeRecord = index.getInt(H_FREE_RECORD);
+        if(freeRecord != NO_RECORD){
+            index.putInt(H_FREE_RECORD, index.getInt(recordOffset(freeRecord) + R_NEXT));
+            return freeRecord;
+        }
+        int recordsUsed = index.getInt(H_RECORDS_USED);
+        index.putInt(H_RECORDS_USED, recordsUsed + 1);
+        return recordsUsed;
+    }
+
+    private void linkAsNewest(int record){
+        int tail = index.getInt(H_LRU_TAIL);
+        index.putInt(recordOffset(record) + R_PREVIOUS, tail);
+        index.putInt(recordOffset(record) + R_NEXT, NO_RECORD);
+        if(tail == NO_RECORD){
+            index.putInt(H_LRU_HEAD, record);
+        } else {
+            index.putInt(recordOffset(tail) + R_NEXT, record);
+        }
+        index.putInt(H_LRU_TAIL, record);
+    }
+
+    private void unlink(int record){
+        int previous = index.getInt(recordOffset(record) + R_PREVIOUS);
+        int next = index.getInt(recordOffset(record) + R_NEXT);
+        if(previous == NO_RECORD){
+            index.putInt(H_LRU_HEAD, next);
+        } else {
+            index.putInt(recordOffset(previous) + R_NEXT, next);
+        }
+        if(next == NO_RECORD){
+            index.putInt(H_LRU_TAIL, previous);
+        } else {
+            index.putInt(recordOffset(next) + R_PREVIOUS, previous);
+        }
+    }
+
+    private FileBasicInfo readFile(int record, String filePath){
+        int offset = recordOffset(record);
+        String name = readString(record, R_NAME_OFFSET, R_NAME_LENGTH);
+        String extension = readString(record, R_EXTENSION_OFFSET, R_EXTENSION_LENGTH);
+        return FileBasicInfo.builder()
+                .name(index.getInt(offset + R_NAME_LENGTH) == DERIVED_STRING ? FilenameUtils.getBaseName(filePath) : name)
+                .filePath(filePath)
+                .extension(index.getInt(offset + R_EXTENSION_LENGTH) == DERIVED_STRING ? FilenameUtils.getExtension(filePath) : extension)
+                .url(readUrl(record))
+                .creationTime(readDate(record, R_CREATION_TIME))
+                .lastUsageTime(readDate(record, R_LAST_USAGE_TIME))
+                .build();
+    }
+
+    private void writeDate(int record, int field, Date date){
+        index.putLong(recordOffset(record) + field, date == null ? NULL_DATE : date.getTime());
+    }
+
+    private Date readDate(int record, int field){
+        long time = index.getLong(recordOffset(record) + field);
+        return time == NULL_DATE ? null : new Date(time);
+    }
+
+    private void writeNullableString(int record, int offsetField, int lengthField, String value, boolean derived){
+        if(derived || value == null){
+            index.putLong(recordOffset(record) + offsetField, 0);
+            index.putInt(recordOffset(record) + lengthField, derived ? DERIVED_STRING : NULL_STRING);
+            return;
+        }
+        writeString(record, offsetField, lengthField, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeString(int record, int offsetField, int lengthField, byte[] value){
+        index.putLong(recordOffset(record) + offsetField, appendString(value));
+        index.putInt(recordOffset(record) + lengthField, value.length);
+    }
+
+    private long appendString(byte[] value){
+        long stringsEnd = index.getLong(H_STRINGS_END);
+        ensureStringsCapacity(stringsEnd + value.length);
+        strings.position((int) stringsEnd);
+        strings.put(value);
+        index.putLong(H_STRINGS_END, stringsEnd + value.length);
+        return stringsEnd;
+    }
+
+    private String readString(int record, int offsetField, int lengthField){
+        int length = index.getInt(recordOffset(record) + lengthField);
+        if(length < 0){
+            return null;
+        }
+        return new String(readBytes(index.getLong(recordOffset(record) + offsetField), length), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes(long stringOffset, int length){
+        byte[] value = new byte[length];
+        ByteBuffer stringView = strings.duplicate();
+        stringView.position((int) stringOffset);
+        stringView.get(value);
+        return value;
+    }
+
+    private boolean pathEquals(int record, byte[] pathBytes){
+        return index.getInt(recordOffset(record) + R_PATH_LENGTH) == pathBytes.length && startsWith(record, pathBytes);
+    }
+
+    private boolean startsWith(int record, byte[] prefix){
+        if(index.getInt(recordOffset(record) + R_PATH_LENGTH) < prefix.length){
+            return false;
+        }
+        return stringStartsWith(index.getLong(recordOffset(record) + R_PATH_OFFSET), prefix);
+    }
+
+    private boolean stringStartsWith(long stringOffset, byte[] prefix){
+        for(int i = 0; i < prefix.length; i++){
+            if(strings.get((int) stringOffset + i) != prefix[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void releaseString(int record, int offsetField, int lengthField){
+        int length = index.getInt(recordOffset(record) + lengthField);
+        if(length > 0){
+            index.putLong(H_DEAD_STRING_BYTES, index.getLong(H_DEAD_STRING_BYTES) + length);
+        }
+    }
+
+    //strings are mapped as one buffer, so a put or move that could take them past Integer.MAX_VALUE bytes
+    //is rejected before it changes anything
+    private void checkStringsFit(long numberOfBytes){
+        long stringsEnd = index.getLong(H_STRINGS_END);
+        if(stringsEnd + numberOfBytes > Integer.MAX_VALUE){
+            throw new IllegalStateException("Strings of mapped cache can't grow past " + Integer.MAX_VALUE +
+                    " bytes, " + stringsEnd + " are used and " + numberOfBytes + " more may be needed");
+        }
+    }
+
+    //every char takes 3 bytes of UTF-8 at most, so the string isn't encoded just to be measured
+    private static long maxStringBytes(String value){
+        return value == null ? 0 : 3L * value.length();
+    }
+
+    private void ensureStringsCapacity(long requiredSize){
+        if(requiredSize <= strings.capacity()){
+            return;
+        }
+        if(requiredSize > Integer.MAX_VALUE){
+            throw new IllegalStateException("Strings of mapped cache can't grow past " + Integer.MAX_VALUE +
+                    " bytes: " + requiredSize);
+        }
+        long newSize = strings.capacity();
+        while(newSize < requiredSize){
+            newSize *= 2;
+        }
+        try {
+            strings = stringsChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(newSize, Integer.MAX_VALUE));
+        } catch (IOException e) {
+            log(e);
+        }
+    }
+
+    //strings of removed and moved files are left behind, once they take half of the file all live strings are copied
+    //new offsets are written to the records only after the compacted file has replaced the old one
+    private void compactStringsIfNeeded(){
+        long stringsEnd = index.getLong(H_STRINGS_END);
+        long deadBytes = index.getLong(H_DEAD_STRING_BYTES);
+        if(stringsEnd < MIN_STRINGS_SIZE || deadBytes * 2 < stringsEnd){
+            return;
+        }
+        int[] fieldOffsets = liveStringFields();
+        long[] compactedOffsets = new long[fieldOffsets.length];
+        long compactedEnd = 0;
+        long stringsSize = strings.capacity();
+        File compactedFile = new File(stringsPath + ".compacted");
+        try (FileChannel compactedChannel = new RandomAccessFile(compactedFile, "rw").getChannel()) {
+            MappedByteBuffer compacted = compactedChannel.map(FileChannel.MapMode.READ_WRITE, 0, stringsSize);
+            for(int i = 0; i < fieldOffsets.length; i++){
+                int length = index.getInt(fieldOffsets[i] + 8);
+                compacted.position((int) compactedEnd);
+                compacted.put(readBytes(index.getLong(fieldOffsets[i]), length));
+                compactedOffsets[i] = compactedEnd;
+                compactedEnd += length;
+            }
+            compacted.force();
+        } catch (IOException e) {
+            log(e);
+            FileUtils.deleteQuietly(compactedFile);
+            return;
+        }
+        boolean compactedFileMoved = false;
+        try {
+            stringsChannel.close();
+            Files.move(compactedFile.toPath(), new File(stringsPath).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            compactedFileMoved = true;
+        } catch (IOException e) {
+            log(e);
+            FileUtils.deleteQuietly(compactedFile);
+        }
+        try {
+            stringsChannel = new RandomAccessFile(stringsPath, "rw").getChannel();
+            strings = stringsChannel.map(FileChannel.MapMode.READ_WRITE, 0, stringsSize);
+        } catch (IOException e) {
+            log(e);
+        }
+        if(compactedFileMoved){
+            for(int i = 0; i < fieldOffsets.length; i++){
+                index.putLong(fieldOffsets[i], compactedOffsets[i]);
+            }
+            index.putLong(H_STRINGS_END, compactedEnd);
+            index.putLong(H_DEAD_STRING_BYTES, 0);
+        }
+    }
+
+    //index offsets of every string offset field in use - of records and of referenced url entries
+    private int[] liveStringFields(){
+        int urlsUsed = index.getInt(H_URLS_USED);
+        int[] fieldOffsets = new int[getNumberOfFiles() * STRING_FIELDS.length + urlsUsed];
+        int numberOfFields = 0;
+        for(int record = index.getInt(H_LRU_HEAD); record != NO_RECORD; record = index.getInt(recordOffset(record) + R_NEXT)){
+            for(int field: STRING_FIELDS){
+                if(index.getInt(recordOffset(record) + field + 8) > 0){
+                    fieldOffsets[numberOfFields++] = recordOffset(record) + field;
+                }
+            }
+        }
+        for(int url = 0; url < urlsUsed; url++){
+            if(index.getInt(urlOffset(url) + U_REFERENCES) > 0 && index.getInt(urlOffset(url) + U_LENGTH) > 0){
+                fieldOffsets[numberOfFields++] = urlOffset(url) + U_OFFSET;
+            }
+        }
+        return Arrays.copyOf(fieldOffsets, numberOfFields);
+    }
+
+    private int slotOffset(int slot){
+        return HEADER_SIZE + slot * 4;
+    }
+
+    private int urlSlotOffset(int slot){
+        return urlSlotsStart + slot * 4;
+    }
+
+    private int urlOffset(int url){
+        return urlsStart + url * URL_SIZE;
+    }
+
+    private int recordOffset(int record){
+        return recordsStart + record * RECORD_SIZE;
+    }
+
+    private static int hash(String filePath){
+        int hash = filePath.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private void closeQuietly(FileChannel channel){
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log(e);
+        }
+    }
+
+    private void log(Exception e){
+        Logger logger = Logger.getLogger("MappedFileCacheModel logger");
+        logger.warning(e.toString());
+    }
+}
@@ -8,7 +8,12 @@ import org.dizitart.no2.*;
 import org.dizitart.no2.filters.Filters;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 //Cache model with Nitrite database with single document for each file
@@ -38,11 +43,46 @@ public class NitriteCacheModel1 implements CacheModel {
         }
     }
 
+    //one bulk insert, files put later in the batch replace earlier ones with the same path
+    @Override
+    public void putAll(Collection<FileBasicInfo> filesToPut) {
+        Map<String, Document> documents = new LinkedHashMap<>();
+        Date lastUsageTime = new Date();
+        for(FileBasicInfo file: filesToPut){
+            Document fileDocument = fileBasicInfoToDocument(file);
+            fileDocument.replace(LAST_USAGE_TIME, lastUsageTime);
+            documents.remove(file.getFilePath());
+            documents.put(file.getFilePath(), fileDocument);
+        }
+        List<Document> documentsToInsert = new ArrayList<>(documents.values());
+        //files put before the newest maxNumberOfFiles would be evicted right away
+        documentsToInsert = documentsToInsert.subList(
+                (int) Math.max(0, documentsToInsert.size() - Math.max(0, maxNumberOfFiles)), documentsToInsert.size());
+        if(documentsToInsert.isEmpty()){
+            return;
+        }
+        files.insert(documentsToInsert.toArray(new Document[0]));
+        long numberOfExcessFiles = getNumberOfFiles() - maxNumberOfFiles;
+        if(numberOfExcessFiles > 0){
+            Cursor oldestFiles = files.find(FindOptions
+                    .sort(LAST_USAGE_TIME, SortOrder.Ascending)
+                    .thenLimit(0, (int) numberOfExcessFiles));
+            oldestFiles.toList().forEach(files::remove);
+        }
+    }
+
     @Override
     public void remove(String filePath) {
         files.remove(Filters.eq(FILE_PATH, filePath));
     }
 
+    @Override
+    public void removeAll(Collection<String> filePaths) {
+        if(!filePaths.isEmpty()){
+            files.remove(Filters.in(FILE_PATH, filePaths.toArray()));
+        }
+    }
+
     @Override
     public boolean contains(String filePath) {
         Cursor foundFiles = files.find(Filters.eq(FILE_PATH, filePath));
@@ -72,6 +112,18 @@ public class NitriteCacheModel1 implements CacheModel {
         return Optional.ofNullable(fileInfos);
     }
 
+    @Override
+    public List<String> listPaths(String prefix) {
+        List<String> paths = new ArrayList<>();
+        for(Document fileDocument: files.find()){
+            String filePath = (String) fileDocument.get(FILE_PATH);
+            if(filePath.startsWith(prefix)){
+                paths.add(filePath);
+            }
+        }
+        return paths;
+    }
+
     @Override
     public int getNumberOfFiles() {
         return (int) files.size();
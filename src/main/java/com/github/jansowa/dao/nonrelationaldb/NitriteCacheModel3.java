@@ -0,0 +1,275 @@
+package com.github.jansowa.dao.nonrelationaldb;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.domain.FileBasicInfo;
+import lombok.Getter;
+import lombok.Setter;
+import org.dizitart.no2.*;
+import org.dizitart.no2.filters.Filters;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+//Cache model with one Nitrite document for each file, like NitriteCacheModel1, tuned for speed:
+//times are stored as millis and lastUsageTime has its own index. Nitrite sorts without indexes,
+//so the oldest files are found by growing ranges of lastUsageTime starting at the last evicted one.
+//Prefix searches are a range of the unique filePath index instead of a regex over every document.
+//Compression is optional, and autoCommitBufferSize (KB) sets how much is buffered before an automatic commit -
+//0 disables automatic commits, then changes reach the file with commit(), close() or movePath.
+public class NitriteCacheModel3 implements CacheModel {
+    private static final boolean DEFAULT_COMPRESSED = false;
+    private static final int DEFAULT_AUTO_COMMIT_BUFFER_SIZE = 1024;
+    private static final String LAST_USAGE_TIME = "lastUsageTime";
+    private static final String FILE_PATH = "filePath";
+    private static final String NAME = "name";
+    private static final String EXTENSION = "extension";
+    private static final String URL = "url";
+    private static final String CREATION_TIME = "creationTime";
+
+    private final String cacheModelPath;
+    @Getter @Setter private long maxNumberOfFiles;
+    @Getter private final boolean compressed;
+    @Getter private final int autoCommitBufferSize;
+    private Nitrite database;
+    private NitriteCollection files;
+    //no stored file was used before it
+    private long oldestUsageTime;
+
+    public NitriteCacheModel3(long maxNumberOfFiles, String cacheModelPath){
+        this(maxNumberOfFiles, cacheModelPath, DEFAULT_COMPRESSED, DEFAULT_AUTO_COMMIT_BUFFER_SIZE);
+    }
+
+    public NitriteCacheModel3(long maxNumberOfFiles, String cacheModelPath, boolean compressed, int autoCommitBufferSize){
+        this.maxNumberOfFiles = maxNumberOfFiles;
+        this.cacheModelPath = cacheModelPath;
+        this.compressed = compressed;
+        this.autoCommitBufferSize = autoCommitBufferSize;
+        initiateDatabase();
+    }
+
+    @Override
+    public void put(FileBasicInfo file) {
+        long lastUsageTime = new Date().getTime();
+        files.update(Filters.eq(FILE_PATH, file.getFilePath()), fileBasicInfoToDocument(file, file.getFilePath(), lastUsageTime),
+                UpdateOptions.updateOptions(true));
+        oldestUsageTime = Math.min(oldestUsageTime, lastUsageTime);
+        removeOldestFiles(getNumberOfFiles() - maxNumberOfFiles);
+    }
+
+    //files put later in the batch replace earlier ones with the same path
+    @Override
+    public void putAll(Collection<FileBasicInfo> filesToPut) {
+        Map<String, FileBasicInfo> filesByPath = new LinkedHashMap<>();
+        for(FileBasicInfo file: filesToPut){
+            filesByPath.remove(file.getFilePath());
+            filesByPath.put(file.getFilePath(), file);
+        }
+        List<FileBasicInfo> filesToInsert = new ArrayList<>(filesByPath.values());
+        //files put before the newest maxNumberOfFiles would be evicted right away
+        filesToInsert = filesToInsert.subList(
+                (int) Math.max(0, filesToInsert.size() - Math.max(0, maxNumberOfFiles)), filesToInsert.size());
+        if(filesToInsert.isEmpty()){
+            return;
+        }
+        long lastUsageTime = new Date().getTime();
+        Document[] documents = new Document[filesToInsert.size()];
+        for(int i = 0; i < documents.length; i++){
+            FileBasicInfo file = filesToInsert.get(i);
+            documents[i] = fileBasicInfoToDocument(file, file.getFilePath(), lastUsageTime);
+        }
+        files.remove(Filters.in(FILE_PATH, filesByPath.keySet().toArray()));
+        files.insert(documents);
+        oldestUsageTime = Math.min(oldestUsageTime, lastUsageTime);
+        removeOldestFiles(getNumberOfFiles() - maxNumberOfFiles);
+    }
+
+    @Override
+    public void remove(String filePath) {
+        files.remove(Filters.eq(FILE_PATH, filePath));
+    }
+
+    @Override
+    public void removeAll(Collection<String> filePaths) {
+        if(!filePaths.isEmpty()){
+            files.remove(Filters.in(FILE_PATH, filePaths.toArray()));
+        }
+    }
+
+    @Override
+    public boolean contains(String filePath) {
+        return files.find(Filters.eq(FILE_PATH, filePath)).size()>0;
+    }
+
+    //Nitrite has no transactions - moved files are removed and inserted again in two batches,
+    //together with files they replace, and committed at once
+    @Override
+    public void movePath(String sourcePath, String destinationPath) {
+        List<Document> movedDocuments = files.find(startsWith(sourcePath)).toList();
+        if(movedDocuments.isEmpty()){
+            return;
+        }
+        long moveTime = new Date().getTime();
+        List<Object> changedPaths = new ArrayList<>();
+        Document[] finalDocuments = new Document[movedDocuments.size()];
+        for(int i = 0; i < finalDocuments.length; i++){
+            FileBasicInfo movedFile = documentToFileBasicInfo(movedDocuments.get(i));
+            String finalFilePath = destinationPath + movedFile.getFilePath().substring(sourcePath.length());
+            changedPaths.add(movedFile.getFilePath());
+            changedPaths.add(finalFilePath);
+            finalDocuments[i] = fileBasicInfoToDocument(movedFile, finalFilePath, moveTime);
+        }
+        files.remove(Filters.in(FILE_PATH, changedPaths.toArray()));
+        files.insert(finalDocuments);
+        database.commit();
+    }
+
+    @Override
+    public Optional<FileBasicInfo> read(String filePath) {
+        Document fileDocument = files.find(Filters.eq(FILE_PATH, filePath)).firstOrDefault();
+        if(fileDocument == null){
+            return Optional.empty();
+        }
+        return Optional.of(documentToFileBasicInfo(fileDocument));
+    }
+
+    @Override
+    public List<String> listPaths(String prefix) {
+        List<String> paths = new ArrayList<>();
+        for(Document fileDocument: files.find(startsWith(prefix))){
+            paths.add((String) fileDocument.get(FILE_PATH));
+        }
+        return paths;
+    }
+
+    @Override
+    public int getNumberOfFiles() {
+        return (int) files.size();
+    }
+
+    @Override
+    public void removeAllData() {
+        removeFromDevice();
+        initiateDatabase();
+    }
+
+    //buffered changes are committed first
+    @Override
+    public long getSizeInBytes() {
+        database.commit();
+        File cacheModel = new File(cacheModelPath);
+        return cacheModel.length();
+    }
+
+    @Override
+    public void removeFromDevice() {
+        close();
+        File cacheModel = new File(cacheModelPath);
+        if(!cacheModel.delete()){
+            System.out.println("File "+cacheModelPath+" doesn't exist!");
+        }
+    }
+
+    public void commit() {
+        database.commit();
+    }
+
+    //commits buffered changes and releases the file
+    public void close() {
+        if(!database.isClosed()){
+            database.close();
+        }
+    }
+
+    private void initiateDatabase(){
+        NitriteBuilder builder = Nitrite
+                .builder()
+                .filePath(cacheModelPath);
+        if(compressed){
+            builder.compressed();
+        }
+        if(autoCommitBufferSize > 0){
+            builder.autoCommitBufferSize(autoCommitBufferSize);
+        } else {
+            builder.disableAutoCommit();
+        }
+        database = builder.openOrCreate("user", "password");
+        files = database.getCollection("files");
+        if(!files.hasIndex(FILE_PATH)){
+            files.createIndex(FILE_PATH, IndexOptions.indexOptions(IndexType.Unique));
+        }
+        if(!files.hasIndex(LAST_USAGE_TIME)){
+            files.createIndex(LAST_USAGE_TIME, IndexOptions.indexOptions(IndexType.NonUnique));
+        }
+        oldestUsageTime = 0;
+    }
+
+    private Document fileBasicInfoToDocument(FileBasicInfo fileInfos, String filePath, long lastUsageTime){
+        return Document
+                .createDocument(NAME, fileInfos.getName())
+                .put(FILE_PATH, filePath)
+                .put(EXTENSION, fileInfos.getExtension())
+                .put(URL, fileInfos.getUrl())
+                .put(CREATION_TIME, fileInfos.getCreationTime() == null ? null : fileInfos.getCreationTime().getTime())
+                .put(LAST_USAGE_TIME, lastUsageTime);
+    }
+
+    private FileBasicInfo documentToFileBasicInfo(Document fileDocument){
+        Long creationTime = (Long) fileDocument.get(CREATION_TIME);
+        return FileBasicInfo.builder()
+                .name((String) fileDocument.get(NAME))
+                .filePath((String) fileDocument.get(FILE_PATH))
+                .extension((String) fileDocument.get(EXTENSION))
+                .url((String) fileDocument.get(URL))
+                .creationTime(creationTime == null ? null : new Date(creationTime))
+                .lastUsageTime(new Date((Long) fileDocument.get(LAST_USAGE_TIME)))
+                .build();
+    }
+
+    //both bounds are looked up in the filePath index, documents outside the range aren't read
+    private static Filter startsWith(String prefix){
+        if(prefix.isEmpty()){
+            return Filters.ALL;
+        }
+        return Filters.and(Filters.gte(FILE_PATH, prefix), Filters.lt(FILE_PATH, prefixUpperBound(prefix)));
+    }
+
+    private static String prefixUpperBound(String prefix){
+        char lastCharacter = prefix.charAt(prefix.length() - 1);
+        if(lastCharacter == Character.MAX_VALUE){
+            return prefix + Character.MAX_VALUE;
+        }
+        return prefix.substring(0, prefix.length() - 1) + (char) (lastCharacter + 1);
+    }
+
+    //every lookup is one range of the lastUsageTime index, doubled until it holds a file
+    private void removeOldestFiles(long numberOfFiles) {
+        long rangeLength = 1;
+        while(numberOfFiles > 0 && files.size() > 0){
+            long rangeEnd = rangeLength > Long.MAX_VALUE - oldestUsageTime ? Long.MAX_VALUE : oldestUsageTime + rangeLength;
+            List<Document> oldestFiles = files.find(Filters.lt(LAST_USAGE_TIME, rangeEnd)).toList();
+            if(oldestFiles.isEmpty()){
+                if(rangeEnd == Long.MAX_VALUE){
+                    return;
+                }
+                rangeLength = rangeLength > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : rangeLength * 2;
+                continue;
+            }
+            oldestFiles.sort(Comparator.comparingLong(fileDocument -> (Long) fileDocument.get(LAST_USAGE_TIME)));
+            List<Object> removedPaths = new ArrayList<>();
+            for(Document oldestFile: oldestFiles.subList(0, (int) Math.min(numberOfFiles, oldestFiles.size()))){
+                removedPaths.add(oldestFile.get(FILE_PATH));
+                oldestUsageTime = (Long) oldestFile.get(LAST_USAGE_TIME);
+            }
+            files.remove(Filters.in(FILE_PATH, removedPaths.toArray()));
+            numberOfFiles -= removedPaths.size();
+            rangeLength = 1;
+        }
+    }
+}
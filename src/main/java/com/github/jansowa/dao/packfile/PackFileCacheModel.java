@@ -0,0 +1,720 @@
+package com.github.jansowa.dao.packfile;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.domain.FileBasicInfo;
+import lombok.Getter;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+//Files are appended as records to segment pack files in the cacheModelPath directory, and an in-memory index
+//keeps the segment and offset of the newest record of every stored file, so a read is one positional read.
+//Removes and moves append small records of their own. A record is [length][CRC32][type][fields] with strings
+//as UTF-8 bytes after their length, so pack files are as easy to read without Java as temp files.
+//The next instance replays segments in order, a torn record at the end of a segment is cut off.
+//When dead records take more space than live ones, a background thread copies live records into a new segment
+//and deletes the old ones. Usage times updated by reads are written to the device only by that copy.
+public class PackFileCacheModel implements CacheModel {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".pack";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final long DEFAULT_MAX_SEGMENT_BYTES = 4L << 20;
+    private static final long MIN_COMPACTION_BYTES = 64L << 10;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte MOVE = 3;
+    private static final int NULL_STRING = -1;
+    private static final long NULL_DATE = Long.MIN_VALUE;
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private long size;
+        //removed, replaced and moved records, and the remove and move records themselves
+        private long deadBytes;
+
+        private Segment(int id, Path path, FileChannel channel){
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+
+    //moves and compaction change a stored file in place, so it keeps its place in filesByLastUsage
+    private static final class StoredFile {
+        private String filePath;
+        private Segment segment;
+        private long offset;
+        private int length;
+        private long lastUsageTime;
+        //orders files used in the same millisecond
+        private long sequenceNumber;
+
+        private StoredFile(String filePath, Segment segment, long offset, int length, long lastUsageTime){
+            this.filePath = filePath;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.lastUsageTime = lastUsageTime;
+        }
+    }
+
+    private static final class PutRecord {
+        private final String filePath;
+        private final String url;
+        private final long creationTime;
+        private final long lastUsageTime;
+
+        private PutRecord(String filePath, String url, long creationTime, long lastUsageTime){
+            this.filePath = filePath;
+            this.url = url;
+            this.creationTime = creationTime;
+            this.lastUsageTime = lastUsageTime;
+        }
+    }
+
+    //state of a stored file when its compaction started
+    private static final class CopiedFile {
+        private final StoredFile storedFile;
+        private final String filePath;
+        private final Segment segment;
+        private final long offset;
+        private final int length;
+        private final long lastUsageTime;
+
+        private CopiedFile(StoredFile storedFile){
+            this.storedFile = storedFile;
+            this.filePath = storedFile.filePath;
+            this.segment = storedFile.segment;
+            this.offset = storedFile.offset;
+            this.length = storedFile.length;
+            this.lastUsageTime = storedFile.lastUsageTime;
+        }
+    }
+
+    private final Path cacheModelDirectory;
+    @Getter private long maxNumberOfFiles;
+    @Getter private final long maxSegmentBytes;
+    //guards segments and the index
+    private final Object lock = new Object();
+    //held for a whole compaction, so only one runs at a time
+    private final Object compactionLock = new Object();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    //null until the first write after all data was removed
+    private Segment activeSegment;
+    private int nextSegmentId = 1;
+    private final Map<String, StoredFile> storedFiles = new HashMap<>();
+    //least recently used file first
+    private final TreeSet<StoredFile> filesByLastUsage = new TreeSet<>(Comparator
+            .<StoredFile>comparingLong(file -> file.lastUsageTime)
+            .thenComparingLong(file -> file.sequenceNumber));
+    private long nextSequenceNumber;
+    private long sizeInBytes;
+    private long deadBytes;
+    private boolean compactionScheduled;
+    //changed when all data is removed, so a compaction started before doesn't bring old files back
+    private int generation;
+    private final ExecutorService compactionExecutor;
+
+    public PackFileCacheModel(long maxNumberOfFiles, String cacheModelPath){
+        this(maxNumberOfFiles, cacheModelPath, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+
+    public PackFileCacheModel(long maxNumberOfFiles, String cacheModelPath, long maxSegmentBytes){
+        this.maxNumberOfFiles = maxNumberOfFiles;
+        this.cacheModelDirectory = Paths.get(cacheModelPath);
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread compactionThread = new Thread(runnable, "pack-file-compaction");
+            compactionThread.setDaemon(true);
+            return compactionThread;
+        });
+        synchronized (lock){
+            loadSegments();
+            removeLeastRecentlyUsedFiles();
+        }
+    }
+
+    @Override
+    public void put(FileBasicInfo file) {
+        synchronized (lock){
+            String filePath = file.getFilePath();
+            long lastUsageTime = new Date().getTime();
+            long offset;
+            byte[] record;
+            try {
+                record = putRecord(filePath, file.getUrl(), file.getCreationTime(), lastUsageTime);
+                offset = append(record);
+            } catch (IOException e) {
+                log(e);
+                return;
+            }
+            forget(filePath);
+            store(new StoredFile(filePath, activeSegment, offset, record.length, lastUsageTime));
+            removeLeastRecentlyUsedFiles();
+            scheduleCompaction();
+        }
+    }
+
+    @Override
+    public void remove(String filePath) {
+        synchronized (lock){
+            if(!storedFiles.containsKey(filePath)){
+                return;
+            }
+            try {
+                appendDeadRecord(removeRecord(filePath));
+            } catch (IOException e) {
+                log(e);
+                return;
+            }
+            forget(filePath);
+            scheduleCompaction();
+        }
+    }
+
+    @Override
+    public boolean contains(String filePath) {
+        synchronized (lock){
+            return storedFiles.containsKey(filePath);
+        }
+    }
+
+    //one record for the whole folder - moved files keep their last usage times
+    @Override
+    public void movePath(String sourcePath, String destinationPath) {
+        synchronized (lock){
+            if(listPaths(sourcePath).isEmpty()){
+                return;
+            }
+            try {
+                appendDeadRecord(moveRecord(sourcePath, destinationPath));
+            } catch (IOException e) {
+                log(e);
+                return;
+            }
+            moveStoredFiles(sourcePath, destinationPath);
+            scheduleCompaction();
+        }
+    }
+
+    @Override
+    public Optional<FileBasicInfo> read(String filePath) {
+        synchronized (lock){
+            StoredFile storedFile = storedFiles.get(filePath);
+            if(storedFile == null){
+                return Optional.empty();
+            }
+            PutRecord putRecord;
+            try {
+                putRecord = readPutRecord(storedFile.segment, storedFile.offset, storedFile.length);
+            } catch (IOException e) {
+                log(e);
+                return Optional.empty();
+            }
+            filesByLastUsage.remove(storedFile);
+            storedFile.lastUsageTime = new Date().getTime();
+            storedFile.sequenceNumber = nextSequenceNumber++;
+            filesByLastUsage.add(storedFile);
+
+            return Optional.of(FileBasicInfo
+                    .builder()
+                    .name(FilenameUtils.getBaseName(filePath))
+                    .filePath(filePath)
+                    .extension(FilenameUtils.getExtension(filePath))
+                    .url(putRecord.url)
+                    .creationTime(putRecord.creationTime == NULL_DATE ? null : new Date(putRecord.creationTime))
+                    .lastUsageTime(new Date(storedFile.lastUsageTime))
+                    .build());
+        }
+    }
+
+    @Override
+    public List<String> listPaths(String prefix) {
+        synchronized (lock){
+            List<String> paths = new ArrayList<>();
+            for(String filePath: storedFiles.keySet()){
+                if(filePath.startsWith(prefix)){
+                    paths.add(filePath);
+                }
+            }
+            return paths;
+        }
+    }
+
+    @Override
+    public int getNumberOfFiles() {
+        synchronized (lock){
+            return storedFiles.size();
+        }
+    }
+
+    @Override
+    public void removeAllData() {
+        synchronized (lock){
+            closeSegments();
+            try {
+                if(cacheModelDirectory.toFile().exists()){
+                    FileUtils.cleanDirectory(cacheModelDirectory.toFile());
+                }
+            } catch (IOException e) {
+                log(e);
+            }
+        }
+    }
+
+    //segments and dead records of all pack files
+    @Override
+    public long getSizeInBytes() {
+        synchronized (lock){
+            return sizeInBytes;
+        }
+    }
+
+    @Override
+    public void setMaxNumberOfFiles(long maxNumberOfFiles) {
+        synchronized (lock){
+            this.maxNumberOfFiles = maxNumberOfFiles;
+            removeLeastRecentlyUsedFiles();
+            scheduleCompaction();
+        }
+    }
+
+    @Override
+    public void removeFromDevice() {
+        synchronized (lock){
+            closeSegments();
+            try {
+                FileUtils.deleteDirectory(cacheModelDirectory.toFile());
+            } catch (IOException e) {
+                log(e);
+            }
+        }
+    }
+
+    //waits for a running compaction and releases all pack files - stored files stay on the device
+    public void close() {
+        compactionExecutor.shutdown();
+        try {
+            compactionExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock){
+            for(Segment segment: segments.values()){
+                closeChannel(segment);
+            }
+            segments.clear();
+            activeSegment = null;
+        }
+    }
+
+    //Copies live records into a new segment and deletes all older ones. Files are only locked out
+    //while the index is switched to the new segment. Changes made during the copy go to a segment
+    //replayed after the new one, so after a crash in the middle the old segments are replayed as before.
+    public void compact() {
+        synchronized (compactionLock){
+            List<CopiedFile> copiedFiles = new ArrayList<>();
+            List<Segment> compactedSegments;
+            int compactedSegmentId;
+            int compactionGeneration;
+            synchronized (lock){
+                if(deadBytes == 0){
+                    return;
+                }
+                compactedSegments = new ArrayList<>(segments.values());
+                compactedSegmentId = nextSegmentId++;
+                activeSegment = null;
+                compactionGeneration = generation;
+                for(StoredFile storedFile: filesByLastUsage){
+                    copiedFiles.add(new CopiedFile(storedFile));
+                }
+            }
+
+            Path temporaryPath = cacheModelDirectory.resolve(segmentName(compactedSegmentId) + TEMPORARY_SUFFIX);
+            long[] offsets = new long[copiedFiles.size()];
+            int[] lengths = new int[copiedFiles.size()];
+            long compactedSize = 0;
+            try (BufferedOutputStream segmentStream = new BufferedOutputStream(Files.newOutputStream(temporaryPath))){
+                for(int i = 0; i < copiedFiles.size(); i++){
+                    CopiedFile copiedFile = copiedFiles.get(i);
+                    PutRecord putRecord = readPutRecord(copiedFile.segment, copiedFile.offset, copiedFile.length);
+                    byte[] record = putRecord(copiedFile.filePath, putRecord.url,
+                            putRecord.creationTime == NULL_DATE ? null : new Date(putRecord.creationTime),
+                            copiedFile.lastUsageTime);
+                    segmentStream.write(record);
+                    offsets[i] = compactedSize;
+                    lengths[i] = record.length;
+                    compactedSize += record.length;
+                }
+            } catch (IOException e) {
+                FileUtils.deleteQuietly(temporaryPath.toFile());
+                synchronized (lock){
+                    //pack files were closed by removing all data
+                    if(generation == compactionGeneration){
+                        log(e);
+                    }
+                }
+                return;
+            }
+
+            synchronized (lock){
+                if(generation != compactionGeneration){
+                    FileUtils.deleteQuietly(temporaryPath.toFile());
+                    return;
+                }
+                Segment compactedSegment;
+                try {
+                    Path segmentPath = cacheModelDirectory.resolve(segmentName(compactedSegmentId));
+                    Files.move(temporaryPath, segmentPath, StandardCopyOption.ATOMIC_MOVE);
+                    compactedSegment = openSegment(compactedSegmentId);
+                } catch (IOException e) {
+                    log(e);
+                    FileUtils.deleteQuietly(temporaryPath.toFile());
+                    return;
+                }
+                compactedSegment.size = compactedSize;
+                sizeInBytes += compactedSize;
+                //files removed or replaced during the copy are already dead in the new segment
+                compactedSegment.deadBytes = compactedSize;
+                for(int i = 0; i < copiedFiles.size(); i++){
+                    StoredFile storedFile = copiedFiles.get(i).storedFile;
+                    if(storedFiles.get(storedFile.filePath) == storedFile){
+                        storedFile.segment = compactedSegment;
+                        storedFile.offset = offsets[i];
+                        storedFile.length = lengths[i];
+                        compactedSegment.deadBytes -= lengths[i];
+                    }
+                }
+                deadBytes += compactedSegment.deadBytes;
+                for(Segment compactedAwaySegment: compactedSegments){
+                    closeChannel(compactedAwaySegment);
+                    FileUtils.deleteQuietly(compactedAwaySegment.path.toFile());
+                    segments.remove(compactedAwaySegment.id);
+                    sizeInBytes -= compactedAwaySegment.size;
+                    deadBytes -= compactedAwaySegment.deadBytes;
+                }
+            }
+        }
+    }
+
+    private void scheduleCompaction() {
+        if(compactionScheduled || compactionExecutor.isShutdown()
+                || sizeInBytes < MIN_COMPACTION_BYTES || deadBytes <= sizeInBytes - deadBytes){
+            return;
+        }
+        compactionScheduled = true;
+        compactionExecutor.execute(this::compactInBackground);
+    }
+
+    private void compactInBackground() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            log(e);
+        } finally {
+            synchronized (lock){
+                compactionScheduled = false;
+            }
+        }
+    }
+
+    private void removeLeastRecentlyUsedFiles() {
+        while(storedFiles.size() > maxNumberOfFiles && !filesByLastUsage.isEmpty()){
+            remove(filesByLastUsage.first().filePath);
+        }
+    }
+
+    private void moveStoredFiles(String sourcePath, String destinationPath) {
+        List<StoredFile> movedFiles = new ArrayList<>();
+        for(StoredFile storedFile: storedFiles.values()){
+            if(storedFile.filePath.startsWith(sourcePath)){
+                movedFiles.add(storedFile);
+            }
+        }
+        //all moved files leave their paths first, so none of them is replaced by another moved file
+        for(StoredFile movedFile: movedFiles){
+            storedFiles.remove(movedFile.filePath);
+        }
+        for(StoredFile movedFile: movedFiles){
+            movedFile.filePath = destinationPath + movedFile.filePath.substring(sourcePath.length());
+            forget(movedFile.filePath);
+            storedFiles.put(movedFile.filePath, movedFile);
+        }
+    }
+
+    private void store(StoredFile storedFile) {
+        storedFile.sequenceNumber = nextSequenceNumber++;
+        storedFiles.put(storedFile.filePath, storedFile);
+        filesByLastUsage.add(storedFile);
+    }
+
+    //the record of a forgotten file is dead
+    private void forget(String filePath) {
+        StoredFile storedFile = storedFiles.remove(filePath);
+        if(storedFile != null){
+            filesByLastUsage.remove(storedFile);
+            storedFile.segment.deadBytes += storedFile.length;
+            deadBytes += storedFile.length;
+        }
+    }
+
+    private void loadSegments() {
+        File[] directoryFiles = cacheModelDirectory.toFile().listFiles();
+        if(directoryFiles == null){
+            return;
+        }
+        List<Integer> segmentIds = new ArrayList<>();
+        for(File directoryFile: directoryFiles){
+            String fileName = directoryFile.getName();
+            if(fileName.endsWith(TEMPORARY_SUFFIX)){
+                //left by an unfinished compaction
+                FileUtils.deleteQuietly(directoryFile);
+            } else if(fileName.startsWith(SEGMENT_PREFIX) && fileName.endsWith(SEGMENT_SUFFIX)){
+                try {
+                    segmentIds.add(Integer.parseInt(fileName.substring(SEGMENT_PREFIX.length(),
+                            fileName.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    log(e);
+                }
+            }
+        }
+        segmentIds.sort(Comparator.naturalOrder());
+        for(int segmentId: segmentIds){
+            nextSegmentId = segmentId + 1;
+            try {
+                Segment segment = openSegment(segmentId);
+                replay(segment);
+                sizeInBytes += segment.size;
+                activeSegment = segment;
+            } catch (IOException e) {
+                log(e);
+            }
+        }
+    }
+
+    private void replay(Segment segment) throws IOException {
+        long channelSize = segment.channel.size();
+        long offset = 0;
+        try (DataInputStream segmentStream = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(segment.path)))){
+            while(offset + RECORD_HEADER_SIZE <= channelSize){
+                int payloadLength = segmentStream.readInt();
+                int checksum = segmentStream.readInt();
+                if(payloadLength <= 0 || offset + RECORD_HEADER_SIZE + payloadLength > channelSize){
+                    break;
+                }
+                byte[] payload = new byte[payloadLength];
+                segmentStream.readFully(payload);
+                if(checksum(payload) != checksum || !apply(segment, offset, RECORD_HEADER_SIZE + payloadLength, payload)){
+                    break;
+                }
+                offset += RECORD_HEADER_SIZE + payloadLength;
+            }
+        }
+        if(offset < channelSize){
+            log(new IOException("Torn record cut off at " + offset + " of " + segment.path));
+            segment.channel.truncate(offset);
+        }
+        segment.size = offset;
+    }
+
+    //false for a record of unknown type
+    private boolean apply(Segment segment, long offset, int length, byte[] payload) throws IOException {
+        DataInputStream payloadStream = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = payloadStream.readByte();
+        if(type == PUT){
+            PutRecord putRecord = readPutFields(payloadStream);
+            forget(putRecord.filePath);
+            store(new StoredFile(putRecord.filePath, segment, offset, length, putRecord.lastUsageTime));
+            return true;
+        }
+        if(type == REMOVE){
+            forget(readString(payloadStream));
+        } else if(type == MOVE){
+            moveStoredFiles(readString(payloadStream), readString(payloadStream));
+        } else {
+            return false;
+        }
+        segment.deadBytes += length;
+        deadBytes += length;
+        return true;
+    }
+
+    private long append(byte[] record) throws IOException {
+        if(activeSegment == null || (activeSegment.size > 0 && activeSegment.size + record.length > maxSegmentBytes)){
+            FileUtils.forceMkdir(cacheModelDirectory.toFile());
+            activeSegment = openSegment(nextSegmentId++);
+        }
+        long offset = activeSegment.size;
+        ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+        while(recordBuffer.hasRemaining()){
+            activeSegment.channel.write(recordBuffer, offset + recordBuffer.position());
+        }
+        activeSegment.size += record.length;
+        sizeInBytes += record.length;
+        return offset;
+    }
+
+    //remove and move records are only needed until the records they apply to are compacted
+    private void appendDeadRecord(byte[] record) throws IOException {
+        append(record);
+        activeSegment.deadBytes += record.length;
+        deadBytes += record.length;
+    }
+
+    private Segment openSegment(int segmentId) throws IOException {
+        Path segmentPath = cacheModelDirectory.resolve(segmentName(segmentId));
+        FileChannel channel = FileChannel.open(segmentPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(segmentId, segmentPath, channel);
+        segment.size = channel.size();
+        segments.put(segmentId, segment);
+        return segment;
+    }
+
+    private void closeSegments() {
+        generation++;
+        for(Segment segment: segments.values()){
+            closeChannel(segment);
+        }
+        segments.clear();
+        activeSegment = null;
+        storedFiles.clear();
+        filesByLastUsage.clear();
+        sizeInBytes = 0;
+        deadBytes = 0;
+    }
+
+    private void closeChannel(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            log(e);
+        }
+    }
+
+    private static String segmentName(int segmentId){
+        return String.format("%s%08d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX);
+    }
+
+    private static PutRecord readPutRecord(Segment segment, long offset, int length) throws IOException {
+        ByteBuffer recordBuffer = ByteBuffer.allocate(length);
+        while(recordBuffer.hasRemaining()){
+            if(segment.channel.read(recordBuffer, offset + recordBuffer.position()) < 0){
+                throw new EOFException("Record at " + offset + " of " + segment.path + " is cut off");
+            }
+        }
+        DataInputStream recordStream = new DataInputStream(new ByteArrayInputStream(
+                recordBuffer.array(), RECORD_HEADER_SIZE, length - RECORD_HEADER_SIZE));
+        if(recordStream.readByte() != PUT){
+            throw new IOException("No file stored at " + offset + " of " + segment.path);
+        }
+        return readPutFields(recordStream);
+    }
+
+    private static PutRecord readPutFields(DataInputStream payloadStream) throws IOException {
+        return new PutRecord(readString(payloadStream), readString(payloadStream),
+                payloadStream.readLong(), payloadStream.readLong());
+    }
+
+    private static byte[] putRecord(String filePath, String url, Date creationTime, long lastUsageTime) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream payloadStream = new DataOutputStream(payload);
+        payloadStream.writeByte(PUT);
+        writeString(payloadStream, filePath);
+        writeString(payloadStream, url);
+        payloadStream.writeLong(creationTime == null ? NULL_DATE : creationTime.getTime());
+        payloadStream.writeLong(lastUsageTime);
+        return toRecord(payload.toByteArray());
+    }
+
+    private static byte[] removeRecord(String filePath) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream payloadStream = new DataOutputStream(payload);
+        payloadStream.writeByte(REMOVE);
+        writeString(payloadStream, filePath);
+        return toRecord(payload.toByteArray());
+    }
+
+    private static byte[] moveRecord(String sourcePath, String destinationPath) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream payloadStream = new DataOutputStream(payload);
+        payloadStream.writeByte(MOVE);
+        writeString(payloadStream, sourcePath);
+        writeString(payloadStream, destinationPath);
+        return toRecord(payload.toByteArray());
+    }
+
+    private static byte[] toRecord(byte[] payload){
+        return ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length)
+                .putInt(payload.length)
+                .putInt(checksum(payload))
+                .put(payload)
+                .array();
+    }
+
+    private static int checksum(byte[] payload){
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if(value == null){
+            output.writeInt(NULL_STRING);
+            return;
+        }
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(valueBytes.length);
+        output.write(valueBytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if(length == NULL_STRING){
+            return null;
+        }
+        byte[] valueBytes = new byte[length];
+        input.readFully(valueBytes);
+        return new String(valueBytes, StandardCharsets.UTF_8);
+    }
+
+    private void log(Exception e){
+        Logger logger = Logger.getLogger(PackFileCacheModel.class.getName());
+        logger.warning(e.toString());
+    }
+}
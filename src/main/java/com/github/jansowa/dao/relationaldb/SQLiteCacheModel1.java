@@ -16,17 +16,53 @@ import java.sql.SQLException;
 import java.sql.DriverManager;
 import java.sql.Statement;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.logging.Logger;
 
-//All data in one table
+//All data in one table, indexed by filePath (unique) and lastUsageTime.
+//One connection is kept open for the lifetime of the model and every query is prepared once per connection.
 public class SQLiteCacheModel1 implements CacheModel {
+    //1 - unique index on filePath and index on lastUsageTime
+    private static final int SCHEMA_VERSION = 1;
+
+    private static final String PUT_QUERY = "INSERT OR IGNORE INTO files VALUES(?, ?, ?, ?, ?, ?, ?);";
+    private static final String REPLACE_QUERY = "UPDATE files " +
+            "SET name = ?, extension = ?, url = ?, creationTime = ?, lastUsageTime = ? " +
+            "WHERE filePath = ?";
+    private static final String REMOVE_QUERY = "DELETE FROM files WHERE filePath=?";
+    private static final String CONTAINS_QUERY = "SELECT id FROM files WHERE filePath=?";
+    private static final String READ_QUERY = "SELECT * FROM files WHERE filePath = ?";
+    private static final String UPDATE_TIME_QUERY = "UPDATE files SET lastUsageTime = ? WHERE filePath = ?";
+    //files already stored under destination paths are replaced
+    private static final String MOVE_QUERY = "UPDATE OR REPLACE files " +
+            "SET filePath = ? || substr(filePath, ?) " +
+            "WHERE filePath >= ? AND filePath < ?";
+    private static final String LIST_PATHS_QUERY = "SELECT filePath FROM files WHERE filePath >= ? AND filePath < ?";
+    private static final String COUNT_QUERY = "SELECT count(*) FROM files";
+    private static final String COUNT_RANGE_QUERY = "SELECT count(*) FROM files WHERE filePath >= ? AND filePath < ?";
+    private static final String REMOVE_OLDEST_QUERY = "DELETE FROM files " +
+            "WHERE id = " +
+            "(SELECT id FROM files ORDER BY lastUsageTime LIMIT 1)";
+    private static final String REMOVE_OLDEST_FILES_QUERY = "DELETE FROM files WHERE id IN " +
+            "(SELECT id FROM files ORDER BY lastUsageTime, id LIMIT ?)";
+    private static final String REMOVE_ALL_QUERY = "DELETE FROM files";
+    private static final long MMAP_SIZE = 256L * 1024 * 1024;
+
     @Getter @Setter private long maxNumberOfFiles;
     private String cacheModelPath;
+    //counted once when the connection is opened, then kept up to date by every operation
+    private int numberOfFiles;
     private Connection connection;
     private final Properties pooledStatements;
+    //statements of the current connection, closed together with it
+    private final Map<String, PreparedStatement> preparedStatements = new HashMap<>();
 
     public SQLiteCacheModel1(long maxNumberOfFiles, String cacheModelPath){
         this.maxNumberOfFiles = maxNumberOfFiles;
@@ -40,122 +76,257 @@ public class SQLiteCacheModel1 implements CacheModel {
     @Override
     public void put(FileBasicInfo file) {
         getConnection();
-        PreparedStatement putStatement = null;
         Date lastUsageTime = new Date();
 
         try {
-            putStatement = connection
-                    .prepareStatement(
-                            "INSERT INTO files VALUES(?, ?, ?, ?, ?, ?, ?);");
-            putStatement.setString(1, null);
-            putStatement.setString(2, file.getName());
-            putStatement.setString(3, file.getFilePath());
-            putStatement.setString(4, file.getExtension());
-            putStatement.setString(5, file.getUrl());
-            putStatement.setLong(6, file.getCreationTime().getTime());
-            putStatement.setLong(7, lastUsageTime.getTime());
-
-            putStatement.execute();
+            PreparedStatement putStatement = prepare(PUT_QUERY);
+            setPutParameters(putStatement, file, lastUsageTime.getTime());
+            if(putStatement.executeUpdate() == 0){
+                PreparedStatement replaceStatement = prepare(REPLACE_QUERY);
+                setReplaceParameters(replaceStatement, file, lastUsageTime.getTime());
+                replaceStatement.execute();
+                return;
+            }
+            numberOfFiles++;
             if(getNumberOfFiles() > getMaxNumberOfFiles()){
                 removeOldestFile();
             }
         } catch (SQLException e) {
             log(e);
+        }
+    }
+
+    //one transaction and one prepared statement for the whole batch
+    @Override
+    public void putAll(Collection<FileBasicInfo> files) {
+        getConnection();
+        long lastUsageTime = new Date().getTime();
+
+        try {
+            connection.setAutoCommit(false);
+            List<FileBasicInfo> filesToPut = SQLiteHelper.newestFiles(files, getMaxNumberOfFiles());
+            PreparedStatement putStatement = prepare(PUT_QUERY);
+            for(FileBasicInfo file: filesToPut){
+                setPutParameters(putStatement, file, lastUsageTime);
+                putStatement.addBatch();
+            }
+            int[] insertedRows = putStatement.executeBatch();
+            //files ignored by the insert are already stored and get replaced in a second batch
+            PreparedStatement replaceStatement = prepare(REPLACE_QUERY);
+            int insertedFiles = 0;
+            for(int i=0; i<insertedRows.length; i++){
+                if(insertedRows[i] > 0){
+                    insertedFiles++;
+                } else {
+                    setReplaceParameters(replaceStatement, filesToPut.get(i), lastUsageTime);
+                    replaceStatement.addBatch();
+                }
+            }
+            if(insertedFiles < insertedRows.length){
+                replaceStatement.executeBatch();
+            }
+            int removedFiles = removeOldestFiles(numberOfFiles + insertedFiles - getMaxNumberOfFiles());
+            connection.commit();
+            numberOfFiles += insertedFiles - removedFiles;
+        } catch (SQLException e) {
+            log(e);
+            SQLiteHelper.rollback(connection);
+            countFiles();
         } finally {
-            SQLiteHelper.close(putStatement);
+            SQLiteHelper.restoreAutoCommit(connection);
         }
+    }
 
+    private void setPutParameters(PreparedStatement putStatement, FileBasicInfo file, long lastUsageTime) throws SQLException {
+        putStatement.setString(1, null);
+        putStatement.setString(2, file.getName());
+        putStatement.setString(3, file.getFilePath());
+        putStatement.setString(4, file.getExtension());
+        putStatement.setString(5, file.getUrl());
+        putStatement.setLong(6, file.getCreationTime().getTime());
+        putStatement.setLong(7, lastUsageTime);
+    }
+
+    private void setReplaceParameters(PreparedStatement replaceStatement, FileBasicInfo file, long lastUsageTime) throws SQLException {
+        replaceStatement.setString(1, file.getName());
+        replaceStatement.setString(2, file.getExtension());
+        replaceStatement.setString(3, file.getUrl());
+        replaceStatement.setLong(4, file.getCreationTime().getTime());
+        replaceStatement.setLong(5, lastUsageTime);
+        replaceStatement.setString(6, file.getFilePath());
+    }
+
+    private int removeOldestFiles(long numberOfFilesToRemove) throws SQLException {
+        if(numberOfFilesToRemove <= 0){
+            return 0;
+        }
+        PreparedStatement removeStatement = prepare(REMOVE_OLDEST_FILES_QUERY);
+        removeStatement.setLong(1, numberOfFilesToRemove);
+        return removeStatement.executeUpdate();
     }
 
     protected void removeOldestFile() {
         getConnection();
-        Statement removeStatement = null;
 
         try {
-            removeStatement = connection.createStatement();
-            removeStatement.execute(
-                    "DELETE FROM files " +
-                            "WHERE lastUsageTime = " +
-                            "(SELECT min(lastUsageTime)" +
-                            "FROM files)"
-            );
+            numberOfFiles -= prepare(REMOVE_OLDEST_QUERY).executeUpdate();
         } catch (SQLException e){
             log(e);
-        } finally {
-            SQLiteHelper.close(removeStatement);
         }
     }
 
     @Override
     public void remove(String filePath) {
         getConnection();
-        PreparedStatement removeStatement = null;
 
         try{
-            removeStatement = connection
-                    .prepareStatement(
-                            "DELETE FROM files WHERE filePath=?");
+            PreparedStatement removeStatement = prepare(REMOVE_QUERY);
             removeStatement.setString(1, filePath);
-            removeStatement.execute();
+            numberOfFiles -= removeStatement.executeUpdate();
+        } catch (SQLException e) {
+            log(e);
+        }
+    }
 
+    @Override
+    public void removeAll(Collection<String> filePaths) {
+        getConnection();
+
+        try{
+            connection.setAutoCommit(false);
+            PreparedStatement removeStatement = prepare(REMOVE_QUERY);
+            for(String filePath: filePaths){
+                removeStatement.setString(1, filePath);
+                removeStatement.addBatch();
+            }
+            int removedFiles = 0;
+            for(int removedRows: removeStatement.executeBatch()){
+                removedFiles += Math.max(0, removedRows);
+            }
+            connection.commit();
+            numberOfFiles -= removedFiles;
         } catch (SQLException e) {
             log(e);
+            SQLiteHelper.rollback(connection);
+            countFiles();
         } finally{
-            SQLiteHelper.close(removeStatement);
+            SQLiteHelper.restoreAutoCommit(connection);
+        }
+    }
+
+    //updates of last usage time are committed once for the whole batch
+    @Override
+    public List<FileBasicInfo> readAll(Collection<String> filePaths) {
+        getConnection();
+        List<FileBasicInfo> readFiles = new ArrayList<>();
+
+        try {
+            connection.setAutoCommit(false);
+            for(String filePath: filePaths){
+                read(filePath).ifPresent(readFiles::add);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            log(e);
+            SQLiteHelper.rollback(connection);
+        } finally {
+            SQLiteHelper.restoreAutoCommit(connection);
         }
+        return readFiles;
     }
 
     @Override
     public boolean contains(String filePath) {
         getConnection();
-        PreparedStatement containsStatement = null;
         ResultSet filesWithGivenPath = null;
         boolean isFileInDB = false;
 
         try {
-            containsStatement = connection.prepareStatement("SELECT id FROM files WHERE filePath=?");
+            PreparedStatement containsStatement = prepare(CONTAINS_QUERY);
             containsStatement.setString(1, filePath);
             filesWithGivenPath = containsStatement.executeQuery();
             isFileInDB = filesWithGivenPath.next();
         } catch (SQLException e) {
             log(e);
         } finally {
-            SQLiteHelper.close(containsStatement);
             SQLiteHelper.close(filesWithGivenPath);
         }
         return isFileInDB;
     }
 
+    //only rows under sourcePath or destinationPath can be replaced, so counting them before and after the update
+    //tells how many files were replaced - both counts use the filePath index
     @Override
     public void movePath(String sourcePath, String destinationPath) {
         getConnection();
-        Statement moveStatement = null;
 
         try{
-            int sourcePathLength = sourcePath.length();
-            moveStatement = connection.createStatement();
-            moveStatement.execute("UPDATE files "+
-                    "SET filePath = '" +destinationPath+"' || substr(filePath, "+(sourcePathLength+1)+") "+
-                    " WHERE substr(filePath, 1, " + sourcePathLength +") = '"+sourcePath+"'");
+            connection.setAutoCommit(false);
+            int filesInRanges = countFilesInRanges(sourcePath, destinationPath);
+            PreparedStatement moveStatement = prepare(MOVE_QUERY);
+            moveStatement.setString(1, destinationPath);
+            moveStatement.setInt(2, sourcePath.length() + 1);
+            moveStatement.setString(3, sourcePath);
+            moveStatement.setString(4, prefixUpperBound(sourcePath));
+            if(moveStatement.executeUpdate() > 0){
+                numberOfFiles -= filesInRanges - countFilesInRanges(sourcePath, destinationPath);
+            }
+            connection.commit();
         } catch (SQLException e) {
             log(e);
+            SQLiteHelper.rollback(connection);
+            countFiles();
         } finally {
-            SQLiteHelper.close(moveStatement);
+            SQLiteHelper.restoreAutoCommit(connection);
         }
     }
 
+    //one range contains the other when either path starts with the other one
+    private int countFilesInRanges(String sourcePath, String destinationPath) throws SQLException {
+        if(destinationPath.startsWith(sourcePath)){
+            return countFilesInRange(sourcePath);
+        }
+        if(sourcePath.startsWith(destinationPath)){
+            return countFilesInRange(destinationPath);
+        }
+        return countFilesInRange(sourcePath) + countFilesInRange(destinationPath);
+    }
+
+    private int countFilesInRange(String prefix) throws SQLException {
+        ResultSet countResult = null;
+
+        try {
+            PreparedStatement countStatement = prepare(COUNT_RANGE_QUERY);
+            countStatement.setString(1, prefix);
+            countStatement.setString(2, prefixUpperBound(prefix));
+            countResult = countStatement.executeQuery();
+            countResult.next();
+            return countResult.getInt(1);
+        } finally {
+            SQLiteHelper.close(countResult);
+        }
+    }
+
+    //smallest string greater than every string starting with prefix, so the range can use the index
+    private static String prefixUpperBound(String prefix){
+        if(prefix.isEmpty()){
+            return String.valueOf(Character.MAX_VALUE);
+        }
+        char lastCharacter = prefix.charAt(prefix.length() - 1);
+        if(lastCharacter == Character.MAX_VALUE){
+            return prefix + Character.MAX_VALUE;
+        }
+        return prefix.substring(0, prefix.length() - 1) + (char) (lastCharacter + 1);
+    }
+
 
     @Override
     public Optional<FileBasicInfo> read(String filePath) {
         getConnection();
         ResultSet readedData = null;
-        PreparedStatement readStatement = null;
 
         try {
-            readStatement = connection
-                    .prepareStatement(
-                            "SELECT * FROM files "+
-                            "WHERE filePath = ?");
+            PreparedStatement readStatement = prepare(READ_QUERY);
             readStatement.setString(1, filePath);
             readedData = readStatement.executeQuery();
 
@@ -172,6 +343,8 @@ public class SQLiteCacheModel1 implements CacheModel {
                         .creationTime(creationTime)
                         .lastUsageTime(lastUsageTime)
                         .build();
+                SQLiteHelper.close(readedData);
+                readedData = null;
 
                 updateLastUsageTime(filePath, lastUsageTime);
 
@@ -180,62 +353,82 @@ public class SQLiteCacheModel1 implements CacheModel {
         } catch (SQLException e) {
             log(e);
         } finally{
-            SQLiteHelper.close(readStatement);
             SQLiteHelper.close(readedData);
         }
         return Optional.empty();
     }
 
+    @Override
+    public List<String> listPaths(String prefix) {
+        getConnection();
+        List<String> paths = new ArrayList<>();
+        ResultSet foundPaths = null;
+
+        try {
+            PreparedStatement listStatement = prepare(LIST_PATHS_QUERY);
+            listStatement.setString(1, prefix);
+            listStatement.setString(2, prefixUpperBound(prefix));
+            foundPaths = listStatement.executeQuery();
+            while(foundPaths.next()){
+                paths.add(foundPaths.getString(1));
+            }
+        } catch (SQLException e) {
+            log(e);
+        } finally {
+            SQLiteHelper.close(foundPaths);
+        }
+        return paths;
+    }
+
     @Override
     public int getNumberOfFiles() {
         getConnection();
-        Statement countStatement = null;
+        return numberOfFiles;
+    }
+
+    private void countFiles() {
         ResultSet countResult = null;
-        int numberOfFiles=-1;
+        numberOfFiles = -1;
 
         try {
-            countStatement = connection.createStatement();
-            countResult = countStatement.executeQuery("SELECT count(*) FROM files");
+            countResult = prepare(COUNT_QUERY).executeQuery();
             countResult.next();
             numberOfFiles = countResult.getInt(1);
         } catch (SQLException e) {
             log(e);
         } finally {
-            SQLiteHelper.close(countStatement);
             SQLiteHelper.close(countResult);
         }
-
-        return numberOfFiles;
     }
 
     @Override
     public void removeAllData() {
         getConnection();
-        Statement removeAllStatement = null;
 
         try {
-            removeAllStatement = connection.createStatement();
-            removeAllStatement.execute("DROP TABLE files");
-            initialise();
+            prepare(REMOVE_ALL_QUERY).execute();
+            numberOfFiles = 0;
         } catch (SQLException e) {
             log(e);
-        } finally{
-            SQLiteHelper.close(removeAllStatement);
         }
     }
 
+    //rows written since the last checkpoint are still in the write-ahead log
     @Override
     public long getSizeInBytes() {
         File cacheModel = new File(cacheModelPath);
-        return cacheModel.length();
+        return cacheModel.length() + new File(cacheModelPath + "-wal").length();
     }
 
     @Override
     public void removeFromDevice() {
+        closeConnection();
         File cacheModel = new File(cacheModelPath);
         if(!cacheModel.delete()){
             System.out.println("File "+cacheModelPath+" doesn't exist!");
         }
+        FileUtils.deleteQuietly(new File(cacheModelPath + "-wal"));
+        FileUtils.deleteQuietly(new File(cacheModelPath + "-shm"));
         File parentDirectory = cacheModel.getParentFile();
         while(parentDirectory!=null && parentDirectory.delete()){
             parentDirectory = parentDirectory.getParentFile();
@@ -243,7 +436,11 @@ public class SQLiteCacheModel1 implements CacheModel {
     }
 
     public void closeConnection(){
-        SQLiteHelper.close(connection);
+        preparedStatements.values().forEach(SQLiteHelper::close);
+        preparedStatements.clear();
+        if(connection != null){
+            SQLiteHelper.close(connection);
+        }
     }
 
     private void getConnection(){
@@ -257,51 +454,77 @@ public class SQLiteCacheModel1 implements CacheModel {
                     e.printStackTrace();
                 }
                 Class.forName("org.sqlite.JDBC");
+                preparedStatements.clear();
                 connection = DriverManager.getConnection("jdbc:sqlite:" + cacheModelPath, pooledStatements);
                 pragmaStatement = connection.createStatement();
                 pragmaStatement.execute("PRAGMA synchronous = OFF");
+                pragmaStatement.execute("PRAGMA journal_mode = WAL");
+                pragmaStatement.execute("PRAGMA mmap_size = " + MMAP_SIZE);
+                initialise();
             }
         } catch (ClassNotFoundException | SQLException e) {
             log(e);
         } finally {
             SQLiteHelper.close(pragmaStatement);
         }
-        initialise();
     }
 
+    private PreparedStatement prepare(String query) throws SQLException {
+        PreparedStatement statement = preparedStatements.get(query);
+        if(statement == null){
+            statement = connection.prepareStatement(query);
+            preparedStatements.put(query, statement);
+        }
+        return statement;
+    }
+
+    //creates the schema or migrates a database written by an older version of the model
     private void initialise(){
         Statement createTableStatement = null;
+        ResultSet schemaVersion = null;
 
         try {
             createTableStatement = connection.createStatement();
-            createTableStatement.executeUpdate("CREATE TABLE IF NOT EXISTS files(id INTEGER PRIMARY KEY,"+
-                                                    "name TEXT,"+
-                                                    "filePath TEXT,"+
-                                                    "extension TEXT,"+
-                                                    "url TEXT,"+
-                                                    "creationTime INTEGER,"+
-                                                    "lastUsageTime INTEGER);");
+            schemaVersion = createTableStatement.executeQuery("PRAGMA user_version");
+            boolean upToDate = schemaVersion.next() && schemaVersion.getInt(1) >= SCHEMA_VERSION;
+            SQLiteHelper.close(schemaVersion);
+            schemaVersion = null;
+            if(!upToDate){
+                connection.setAutoCommit(false);
+                createTableStatement.executeUpdate("CREATE TABLE IF NOT EXISTS files(id INTEGER PRIMARY KEY,"+
+                                                        "name TEXT,"+
+                                                        "filePath TEXT,"+
+                                                        "extension TEXT,"+
+                                                        "url TEXT,"+
+                                                        "creationTime INTEGER,"+
+                                                        "lastUsageTime INTEGER);");
+                //older versions allowed many rows with the same path, the newest one is kept
+                createTableStatement.executeUpdate("DELETE FROM files WHERE id NOT IN " +
+                        "(SELECT max(id) FROM files GROUP BY filePath)");
+                createTableStatement.executeUpdate("CREATE UNIQUE INDEX IF NOT EXISTS filesByPath ON files(filePath)");
+                createTableStatement.executeUpdate("CREATE INDEX IF NOT EXISTS filesByLastUsageTime ON files(lastUsageTime)");
+                createTableStatement.executeUpdate("PRAGMA user_version = " + SCHEMA_VERSION);
+                connection.commit();
+            }
         } catch (SQLException e) {
             log(e);
+            SQLiteHelper.rollback(connection);
         } finally {
+            SQLiteHelper.close(schemaVersion);
             SQLiteHelper.close(createTableStatement);
+            SQLiteHelper.restoreAutoCommit(connection);
         }
+        countFiles();
     }
 
     private void updateLastUsageTime(String filePath, Date readDate) {
-        PreparedStatement updateTimeStatement = null;
         try {
-            updateTimeStatement = connection.prepareStatement(
-                    "UPDATE files "+
-                            "SET lastUsageTime = ? "+
-                            "WHERE filePath = ?");
+            PreparedStatement updateTimeStatement = prepare(UPDATE_TIME_QUERY);
             updateTimeStatement.setLong(1, readDate.getTime());
             updateTimeStatement.setString(2, filePath);
             updateTimeStatement.execute();
         } catch (SQLException e) {
             log(e);
-        } finally {
-            SQLiteHelper.close(updateTimeStatement);
         }
     }
 
@@ -309,4 +532,4 @@ public class SQLiteCacheModel1 implements CacheModel {
         Logger logger = Logger.getLogger("SQLiteCacheModel1 logger");
         logger.warning(e.toString());
     }
-}
\ No newline at end of file
+}
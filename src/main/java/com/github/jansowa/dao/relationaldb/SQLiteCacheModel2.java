@@ -9,9 +9,16 @@ import org.apache.commons.io.FileUtils;
 import java.io.File;
 import java.io.IOException;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
 import java.util.logging.Logger;
 
 //one table for each folder
@@ -61,6 +68,102 @@ public class SQLiteCacheModel2 implements CacheModel {
         }
     }
 
+    //one transaction for the whole batch and one prepared statement for each folder
+    @Override
+    public void putAll(Collection<FileBasicInfo> files) {
+        List<FileBasicInfo> filesToPut = SQLiteHelper.newestFiles(files, maxNumberOfFiles);
+        //oldest files go first, one row at a time - the whole batch gets the same lastUsageTime
+        long filesToEvict = getNumberOfFiles() + filesToPut.size() - maxNumberOfFiles;
+        while(filesToEvict > 0 && removeOldestFile()){
+            filesToEvict--;
+        }
+        Map<String, List<FileBasicInfo>> filesInFolders = new LinkedHashMap<>();
+        for(FileBasicInfo file: filesToPut){
+            filesInFolders
+                    .computeIfAbsent(getFolderFromPath(file.getFilePath()), folder -> new ArrayList<>())
+                    .add(file);
+        }
+        getConnection();
+        Statement createTableStatement = null;
+        long lastUsageTime = new Date().getTime();
+
+        try{
+            connection.setAutoCommit(false);
+            createTableStatement = connection.createStatement();
+            for(Map.Entry<String, List<FileBasicInfo>> folder: filesInFolders.entrySet()){
+                createTableStatement.execute(createTableQuery(folder.getKey()));
+                putFilesIntoFolder(folder.getKey(), folder.getValue(), lastUsageTime);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            log(e);
+            SQLiteHelper.rollback(connection);
+        } finally {
+            SQLiteHelper.close(createTableStatement);
+            SQLiteHelper.restoreAutoCommit(connection);
+        }
+    }
+
+    private void putFilesIntoFolder(String folderPath, List<FileBasicInfo> files, long lastUsageTime) throws SQLException {
+        PreparedStatement putStatement = null;
+        try{
+            putStatement = connection.prepareStatement(
+                    "INSERT INTO `" + folderPath + "` VALUES(?, ?, ?, ?, ?, ?);"
+            );
+            for(FileBasicInfo file: files){
+                putStatement.setString(1, null);
+                putStatement.setString(2, file.getName());
+                putStatement.setString(3, file.getExtension());
+                putStatement.setString(4, file.getUrl());
+                putStatement.setLong(5, file.getCreationTime().getTime());
+                putStatement.setLong(6, lastUsageTime);
+                putStatement.addBatch();
+            }
+            putStatement.executeBatch();
+        } finally {
+            SQLiteHelper.close(putStatement);
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<String> filePaths) {
+        Map<String, List<String>> pathsInFolders = new LinkedHashMap<>();
+        for(String filePath: filePaths){
+            pathsInFolders
+                    .computeIfAbsent(getFolderFromPath(filePath), folder -> new ArrayList<>())
+                    .add(filePath);
+        }
+        pathsInFolders.keySet().retainAll(getTablesNames());
+        getConnection();
+        PreparedStatement removeStatement = null;
+
+        try{
+            connection.setAutoCommit(false);
+            for(Map.Entry<String, List<String>> folder: pathsInFolders.entrySet()){
+                removeStatement = connection.prepareStatement(
+                        "DELETE FROM `"+ folder.getKey() +"` "+
+                                "WHERE name = ? "+
+                                "AND extension = ?");
+                for(String filePath: folder.getValue()){
+                    removeStatement.setString(1, getNameFromPath(filePath));
+                    removeStatement.setString(2, getExtensionFromPath(filePath));
+                    removeStatement.addBatch();
+                }
+                removeStatement.executeBatch();
+                SQLiteHelper.close(removeStatement);
+                removeStatement = null;
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            log(e);
+            SQLiteHelper.rollback(connection);
+        } finally {
+            SQLiteHelper.close(removeStatement);
+            SQLiteHelper.restoreAutoCommit(connection);
+        }
+        pathsInFolders.keySet().forEach(this::removeTableIfEmpty);
+    }
+
     @Override
     public void remove(String filePath) {
         getConnection();
@@ -260,6 +363,42 @@ public class SQLiteCacheModel2 implements CacheModel {
         return Optional.empty();
     }
 
+    @Override
+    public List<String> listPaths(String prefix) {
+        getConnection();
+        List<String> paths = new ArrayList<>();
+        Statement selectFilesStatement = null;
+        ResultSet filesInTable = null;
+
+        try{
+            selectFilesStatement = connection.createStatement();
+            for(String tableName: getTablesNames()){
+                String folderPath = tableName + "/";
+                //no path in this folder can start with prefix
+                if(!folderPath.startsWith(prefix) && !prefix.startsWith(folderPath)){
+                    continue;
+                }
+                filesInTable = selectFilesStatement.executeQuery(
+                        "SELECT name, extension FROM `" + tableName + "`");
+                while(filesInTable.next()){
+                    String extension = filesInTable.getString(2);
+                    String filePath = folderPath + filesInTable.getString(1) + (extension == null ? "" : "." + extension);
+                    if(filePath.startsWith(prefix)){
+                        paths.add(filePath);
+                    }
+                }
+                SQLiteHelper.close(filesInTable);
+                filesInTable = null;
+            }
+        } catch (SQLException e) {
+            log(e);
+        } finally {
+            SQLiteHelper.close(filesInTable);
+            SQLiteHelper.close(selectFilesStatement);
+        }
+        return paths;
+    }
+
     @Override
     public int getNumberOfFiles() {
         getConnection();
@@ -286,6 +425,31 @@ public class SQLiteCacheModel2 implements CacheModel {
         return numberOfFiles;
     }
 
+    private Set<String> getTablesNames(){
+        getConnection();
+        ResultSet tablesNames = null;
+        Statement selectTablesNamesStatement = null;
+        Set<String> names = new HashSet<>();
+
+        try{
+            selectTablesNamesStatement = connection.createStatement();
+            tablesNames = selectTablesNamesStatement.executeQuery(
+                    "SELECT name "+
+                            "FROM sqlite_master " +
+                            "WHERE type = 'table' AND " +
+                            "name NOT LIKE 'sqlite_%';");
+            while(tablesNames.next()){
+                names.add(tablesNames.getString(1));
+            }
+        } catch (SQLException e) {
+            log(e);
+        } finally {
+            SQLiteHelper.close(tablesNames);
+            SQLiteHelper.close(selectTablesNamesStatement);
+        }
+        return names;
+    }
+
     private int getNumberOfRows(String tableName){
         getConnection();
         Statement countStatement = null;
@@ -354,15 +518,7 @@ public class SQLiteCacheModel2 implements CacheModel {
         Statement createTableStatement = null;
         try{
             createTableStatement = connection.createStatement();
-            String createQuery =
-                    "CREATE TABLE IF NOT EXISTS '" + folderPath + "' " +
-                            "(id INTEGER PRIMARY KEY," +
-                            "name TEXT," +
-                            "extension TEXT," +
-                            "url TEXT," +
-                            "creationTime INTEGER,"+
-                            "lastUsageTime INTEGER);";
-            createTableStatement.execute(createQuery);
+            createTableStatement.execute(createTableQuery(folderPath));
         } catch (SQLException e){
             log(e);
         } finally {
@@ -371,6 +527,16 @@ public class SQLiteCacheModel2 implements CacheModel {
         }
     }
 
+    private String createTableQuery(String folderPath){
+        return "CREATE TABLE IF NOT EXISTS '" + folderPath + "' " +
+                "(id INTEGER PRIMARY KEY," +
+                "name TEXT," +
+                "extension TEXT," +
+                "url TEXT," +
+                "creationTime INTEGER,"+
+                "lastUsageTime INTEGER);";
+    }
+
     private String getFolderFromPath(String path){
         int indexOfLastSlash = path.lastIndexOf('/');
         return path.substring(0, indexOfLastSlash);
@@ -412,44 +578,44 @@ public class SQLiteCacheModel2 implements CacheModel {
         }
     }
 
-    private void removeOldestFile(){
+    //removes exactly one row - ties on lastUsageTime are broken by id, which grows with every insert
+    private boolean removeOldestFile(){
         getConnection();
-        ResultSet tablesNames = null;
         Statement removeOldestFileStatement = null;
         ResultSet oldestInTable = null;
+        boolean isFileRemoved = false;
 
         try{
             removeOldestFileStatement = connection.createStatement();
-            tablesNames = removeOldestFileStatement.executeQuery(
-                    "SELECT name "+
-                            "FROM sqlite_master " +
-                            "WHERE type = 'table' AND " +
-                            "name NOT LIKE 'sqlite_%';");
             String tableNameWithOldestFile = "";
-            long oldestDate = new Date().getTime();
-            String tableName;
-            while(tablesNames.next()){
-                tableName = tablesNames.getString(1);
-
+            long oldestId = -1;
+            long oldestDate = Long.MAX_VALUE;
+            for(String tableName: getTablesNames()){
                 oldestInTable = removeOldestFileStatement.executeQuery(
-                        "SELECT min(lastUsageTime)" +
-                                "FROM `" + tableName + "`");
-                oldestInTable.next();
-                if(oldestDate>oldestInTable.getLong(1)){
-                    oldestDate = oldestInTable.getLong(1);
+                        "SELECT id, lastUsageTime " +
+                                "FROM `" + tableName + "` " +
+                                "ORDER BY lastUsageTime, id LIMIT 1");
+                if(oldestInTable.next() && (tableNameWithOldestFile.isEmpty() || oldestDate>oldestInTable.getLong(2))){
+                    oldestId = oldestInTable.getLong(1);
+                    oldestDate = oldestInTable.getLong(2);
                     tableNameWithOldestFile = tableName;
                 }
+                SQLiteHelper.close(oldestInTable);
+                oldestInTable = null;
+            }
+            if(tableNameWithOldestFile.isEmpty()){
+                return false;
             }
-            removeOldestFileStatement.execute(
+            isFileRemoved = removeOldestFileStatement.executeUpdate(
                     "DELETE FROM `" + tableNameWithOldestFile +"` "+
-                            "WHERE lastUsageTime = "+oldestDate);
+                            "WHERE id = "+oldestId) > 0;
         } catch(SQLException e){
             log(e);
         } finally {
-            SQLiteHelper.close(tablesNames);
-            SQLiteHelper.close(removeOldestFileStatement);
             SQLiteHelper.close(oldestInTable);
+            SQLiteHelper.close(removeOldestFileStatement);
         }
+        return isFileRemoved;
     }
 
     private void log(Exception e){
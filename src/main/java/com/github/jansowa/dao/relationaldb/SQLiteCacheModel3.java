@@ -0,0 +1,727 @@
+package com.github.jansowa.dao.relationaldb;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.domain.FileBasicInfo;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+//Folders table with parent ids and one files table keyed by (folderId, name, extension).
+//Moving a folder changes a single row of folders - paths of files below it aren't stored anywhere.
+//Folders left without files and subfolders by a remove, an eviction or a move are removed too.
+//Extension is stored with its dot ("" when there is none), so it can be part of the unique key.
+public class SQLiteCacheModel3 implements CacheModel {
+    private static final long ROOT_FOLDER_ID = 0;
+    private static final long NO_FOLDER = -1;
+
+    private static final String FIND_FOLDER_QUERY = "SELECT id FROM folders WHERE parentId = ? AND name = ?";
+    private static final String PUT_FOLDER_QUERY = "INSERT OR IGNORE INTO folders(parentId, name) VALUES(?, ?)";
+    private static final String CHILD_FOLDERS_QUERY = "SELECT id, name FROM folders WHERE parentId = ?";
+    private static final String FOLDER_NOT_EMPTY_QUERY = "SELECT EXISTS(SELECT 1 FROM files WHERE folderId = ?) " +
+            "OR EXISTS(SELECT 1 FROM folders WHERE parentId = ?)";
+    private static final String MOVE_FOLDER_QUERY = "UPDATE folders SET parentId = ?, name = ? WHERE id = ?";
+    private static final String REMOVE_FOLDER_QUERY = "DELETE FROM folders WHERE id = ?";
+    private static final String PARENT_FOLDER_QUERY = "SELECT parentId FROM folders WHERE id = ?";
+    private static final String PUT_QUERY = "INSERT OR IGNORE INTO files" +
+            "(folderId, name, extension, url, creationTime, lastUsageTime) VALUES(?, ?, ?, ?, ?, ?)";
+    private static final String REPLACE_QUERY = "UPDATE files SET url = ?, creationTime = ?, lastUsageTime = ? " +
+            "WHERE folderId = ? AND name = ? AND extension = ?";
+    private static final String REMOVE_QUERY = "DELETE FROM files WHERE folderId = ? AND name = ? AND extension = ?";
+    private static final String READ_QUERY = "SELECT url, creationTime FROM files " +
+            "WHERE folderId = ? AND name = ? AND extension = ?";
+    private static final String UPDATE_TIME_QUERY = "UPDATE files SET lastUsageTime = ? " +
+            "WHERE folderId = ? AND name = ? AND extension = ?";
+    private static final String MOVE_FILE_QUERY = "UPDATE files SET folderId = ?, name = ?, extension = ? " +
+            "WHERE folderId = ? AND name = ? AND extension = ?";
+    private static final String REMOVE_CONFLICTING_FILES_QUERY = "DELETE FROM files WHERE folderId = ? AND " +
+            "(name, extension) IN (SELECT name, extension FROM files WHERE folderId = ?)";
+    private static final String MOVE_FILES_QUERY = "UPDATE files SET folderId = ? WHERE folderId = ?";
+    //paths of folders are built from the root down, files of the root folder have no slash
+    private static final String LIST_PATHS_QUERY = "WITH RECURSIVE folderPaths(id, path) AS (" +
+            "SELECT id, name FROM folders WHERE parentId = " + ROOT_FOLDER_ID + " " +
+            "UNION ALL " +
+            "SELECT folders.id, folderPaths.path || '/' || folders.name " +
+            "FROM folders JOIN folderPaths ON folders.parentId = folderPaths.id) " +
+            "SELECT CASE WHEN files.folderId = " + ROOT_FOLDER_ID + " THEN '' ELSE folderPaths.path || '/' END " +
+            "|| files.name || files.extension " +
+            "FROM files LEFT JOIN folderPaths ON files.folderId = folderPaths.id";
+    //the same, only for the subtree of the folder with given id and path
+    private static final String LIST_FOLDER_PATHS_QUERY = "WITH RECURSIVE folderPaths(id, path) AS (" +
+            "SELECT ?, ? " +
+            "UNION ALL " +
+            "SELECT folders.id, folderPaths.path || '/' || folders.name " +
+            "FROM folders JOIN folderPaths ON folders.parentId = folderPaths.id) " +
+            "SELECT folderPaths.path || '/' || files.name || files.extension " +
+            "FROM files JOIN folderPaths ON files.folderId = folderPaths.id";
+    private static final String COUNT_QUERY = "SELECT count(*) FROM files";
+    private static final String FOLDERS_OF_OLDEST_FILES_QUERY = "SELECT DISTINCT folderId FROM files WHERE id IN " +
+            "(SELECT id FROM files ORDER BY lastUsageTime, id LIMIT ?)";
+    private static final String REMOVE_OLDEST_FILES_QUERY = "DELETE FROM files WHERE id IN " +
+            "(SELECT id FROM files ORDER BY lastUsageTime, id LIMIT ?)";
+    private static final String REMOVE_ALL_FILES_QUERY = "DELETE FROM files";
+    private static final String REMOVE_ALL_FOLDERS_QUERY = "DELETE FROM folders WHERE id <> " + ROOT_FOLDER_ID;
+    private static final long MMAP_SIZE = 256L * 1024 * 1024;
+
+    @Getter @Setter private long maxNumberOfFiles;
+    private String cacheModelPath;
+    //counted once when the connection is opened, then kept up to date by every operation
+    private int numberOfFiles;
+    private Connection connection;
+    private final Properties pooledStatements;
+    //statements of the current connection, closed together with it
+    private final Map<String, PreparedStatement> preparedStatements = new HashMap<>();
+    //ids of known folders by their paths, cleared whenever folders are moved or removed
+    private final Map<String, Long> folderIds = new HashMap<>();
+
+    public SQLiteCacheModel3(long maxNumberOfFiles, String cacheModelPath){
+        this.maxNumberOfFiles = maxNumberOfFiles;
+        this.cacheModelPath = cacheModelPath;
+        pooledStatements = new Properties();
+        pooledStatements
+                .setProperty("MaxPooledStatements", "10");
+        getConnection();
+    }
+
+    @Override
+    public void put(FileBasicInfo file) {
+        getConnection();
+
+        try {
+            if(putFile(file, new Date().getTime())){
+                numberOfFiles++;
+            }
+            if(getNumberOfFiles() > getMaxNumberOfFiles()){
+                removeOldestFile();
+            }
+        } catch (SQLException e) {
+            log(e);
+        }
+    }
+
+    @Override
+    public void putAll(Collection<FileBasicInfo> files) {
+        getConnection();
+        long lastUsageTime = new Date().getTime();
+
+        try {
+            connection.setAutoCommit(false);
+            int insertedFiles = 0;
+            for(FileBasicInfo file: SQLiteHelper.newestFiles(files, getMaxNumberOfFiles())){
+                if(putFile(file, lastUsageTime)){
+                    insertedFiles++;
+                }
+            }
+            int removedFiles = removeOldestFiles(numberOfFiles + insertedFiles - getMaxNumberOfFiles());
+            connection.commit();
+            numberOfFiles += insertedFiles - removedFiles;
+        } catch (SQLException e) {
+            log(e);
+            SQLiteHelper.rollback(connection);
+            folderIds.clear();
+            countFiles();
+        } finally {
+            SQLiteHelper.restoreAutoCommit(connection);
+        }
+    }
+
+    //true when a new row was inserted, false when an existing one was replaced
+    private boolean putFile(FileBasicInfo file, long lastUsageTime) throws SQLException {
+        String filePath = file.getFilePath();
+        long folderId = getFolderId(getFolderFromPath(filePath), true);
+        String name = getNameFromPath(filePath);
+        String extension = getExtensionFromPath(filePath);
+
+        PreparedStatement putStatement = prepare(PUT_QUERY);
+        putStatement.setLong(1, folderId);
+        putStatement.setString(2, name);
+        putStatement.setString(3, extension);
+        putStatement.setString(4, file.getUrl());
+        putStatement.setLong(5, file.getCreationTime().getTime());
+        putStatement.setLong(6, lastUsageTime);
+        if(putStatement.executeUpdate() > 0){
+            return true;
+        }
+        PreparedStatement replaceStatement = prepare(REPLACE_QUERY);
+        replaceStatement.setString(1, file.getUrl());
+        replaceStatement.setLong(2, file.getCreationTime().getTime());
+        replaceStatement.setLong(3, lastUsageTime);
+        setFileKey(replaceStatement, 4, folderId, name, extension);
+        replaceStatement.execute();
+        return false;
+    }
+
+    private int removeOldestFiles(long numberOfFilesToRemove) throws SQLException {
+        if(numberOfFilesToRemove <= 0){
+            return 0;
+        }
+        List<Long> emptiedFolderIds = new ArrayList<>();
+        PreparedStatement foldersStatement = prepare(FOLDERS_OF_OLDEST_FILES_QUERY);
+        foldersStatement.setLong(1, numberOfFilesToRemove);
+        try(ResultSet folders = foldersStatement.executeQuery()){
+            while(folders.next()){
+                emptiedFolderIds.add(folders.getLong(1));
+            }
+        }
+        PreparedStatement removeStatement = prepare(REMOVE_OLDEST_FILES_QUERY);
+        removeStatement.setLong(1, numberOfFilesToRemove);
+        int removedFiles = removeStatement.executeUpdate();
+        for(long folderId: emptiedFolderIds){
+            removeEmptyFolders(folderId);
+        }
+        return removedFiles;
+    }
+
+    protected void removeOldestFile() {
+        getConnection();
+
+        try {
+            numberOfFiles -= removeOldestFiles(1);
+        } catch (SQLException e){
+            //the file may be gone already, even if its folder couldn't be removed
+            log(e);
+            folderIds.clear();
+            countFiles();
+        }
+    }
+
+    @Override
+    public void remove(String filePath) {
+        getConnection();
+
+        try{
+            numberOfFiles -= removeFile(filePath);
+        } catch (SQLException e) {
+            log(e);
+            folderIds.clear();
+            countFiles();
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<String> filePaths) {
+        getConnection();
+
+        try{
+            connection.setAutoCommit(false);
+            int removedFiles = 0;
+            for(String filePath: filePaths){
+                removedFiles += removeFile(filePath);
+            }
+            connection.commit();
+            numberOfFiles -= removedFiles;
+        } catch (SQLException e) {
+            log(e);
+            SQLiteHelper.rollback(connection);
+            folderIds.clear();
+            countFiles();
+        } finally{
+            SQLiteHelper.restoreAutoCommit(connection);
+        }
+    }
+
+    private int removeFile(String filePath) throws SQLException {
+        long folderId = getFolderId(getFolderFromPath(filePath), false);
+        if(folderId == NO_FOLDER){
+            return 0;
+        }
+        PreparedStatement removeStatement = prepare(REMOVE_QUERY);
+        setFileKey(removeStatement, 1, folderId, getNameFromPath(filePath), getExtensionFromPath(filePath));
+        int removedFiles = removeStatement.executeUpdate();
+        if(removedFiles > 0){
+            removeEmptyFolders(folderId);
+        }
+        return removedFiles;
+    }
+
+    @Override
+    public boolean contains(String filePath) {
+        getConnection();
+        ResultSet filesWithGivenPath = null;
+        boolean isFileInDB = false;
+
+        try {
+            filesWithGivenPath = findFile(filePath);
+            isFileInDB = filesWithGivenPath != null && filesWithGivenPath.next();
+        } catch (SQLException e) {
+            log(e);
+        } finally {
+            SQLiteHelper.close(filesWithGivenPath);
+        }
+        return isFileInDB;
+    }
+
+    @Override
+    public Optional<FileBasicInfo> read(String filePath) {
+        getConnection();
+        ResultSet readedData = null;
+
+        try {
+            readedData = findFile(filePath);
+            if(readedData != null && readedData.next()){
+                Date lastUsageTime = new Date();
+                String extension = getExtensionFromPath(filePath);
+                FileBasicInfo readedFile = FileBasicInfo
+                        .builder()
+                        .name(getNameFromPath(filePath))
+                        .filePath(filePath)
+                        .extension(extension.isEmpty() ? null : extension.substring(1))
+                        .url(readedData.getString("url"))
+                        .creationTime(new Date(readedData.getLong("creationTime")))
+                        .lastUsageTime(lastUsageTime)
+                        .build();
+                SQLiteHelper.close(readedData);
+                readedData = null;
+
+                PreparedStatement updateTimeStatement = prepare(UPDATE_TIME_QUERY);
+                updateTimeStatement.setLong(1, lastUsageTime.getTime());
+                setFileKey(updateTimeStatement, 2, getFolderId(getFolderFromPath(filePath), false),
+                        readedFile.getName(), extension);
+                updateTimeStatement.execute();
+
+                return Optional.of(readedFile);
+            }
+        } catch (SQLException e) {
+            log(e);
+        } finally{
+            SQLiteHelper.close(readedData);
+        }
+        return Optional.empty();
+    }
+
+    //updates of last usage time are committed once for the whole batch
+    @Override
+    public List<FileBasicInfo> readAll(Collection<String> filePaths) {
+        getConnection();
+        List<FileBasicInfo> readFiles = new ArrayList<>();
+
+        try {
+            connection.setAutoCommit(false);
+            for(String filePath: filePaths){
+                read(filePath).ifPresent(readFiles::add);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            log(e);
+            SQLiteHelper.rollback(connection);
+        } finally {
+            SQLiteHelper.restoreAutoCommit(connection);
+        }
+        return readFiles;
+    }
+
+    private ResultSet findFile(String filePath) throws SQLException {
+        long folderId = getFolderId(getFolderFromPath(filePath), false);
+        if(folderId == NO_FOLDER){
+            return null;
+        }
+        PreparedStatement readStatement = prepare(READ_QUERY);
+        setFileKey(readStatement, 1, folderId, getNameFromPath(filePath), getExtensionFromPath(filePath));
+        return readStatement.executeQuery();
+    }
+
+    //Paths are moved as whole files or whole folders ("/a/" and "/a" both mean folder /a).
+    //Files keep their last usage time, so moving a folder to a new place updates one row.
+    @Override
+    public void movePath(String sourcePath, String destinationPath) {
+        if(sourcePath.equals(destinationPath)){
+            return;
+        }
+        getConnection();
+
+        try {
+            connection.setAutoCommit(false);
+            if(contains(sourcePath)){
+                moveFile(sourcePath, destinationPath);
+            } else {
+                moveFolder(trimSlash(sourcePath), trimSlash(destinationPath));
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            log(e);
+            SQLiteHelper.rollback(connection);
+            countFiles();
+        } finally {
+            folderIds.clear();
+            SQLiteHelper.restoreAutoCommit(connection);
+        }
+    }
+
+    private void moveFile(String sourcePath, String destinationPath) throws SQLException {
+        numberOfFiles -= removeFile(destinationPath);
+        long sourceFolderId = getFolderId(getFolderFromPath(sourcePath), false);
+        PreparedStatement moveStatement = prepare(MOVE_FILE_QUERY);
+        setFileKey(moveStatement, 1, getFolderId(getFolderFromPath(destinationPath), true),
+                getNameFromPath(destinationPath), getExtensionFromPath(destinationPath));
+        setFileKey(moveStatement, 4, sourceFolderId,
+                getNameFromPath(sourcePath), getExtensionFromPath(sourcePath));
+        moveStatement.execute();
+        removeEmptyFolders(sourceFolderId);
+    }
+
+    private void moveFolder(String sourceFolder, String destinationFolder) throws SQLException {
+        long sourceId = getFolderId(sourceFolder, false);
+        if(sourceId == NO_FOLDER || sourceFolder.equals(destinationFolder)){
+            return;
+        }
+        long sourceParentId = getParentFolderId(sourceId);
+        //detached first, so a destination inside the source folder is created as a new folder
+        setFolderPlace(sourceId, null, getLastSegment(sourceFolder));
+        folderIds.clear();
+
+        long destinationId = getFolderId(destinationFolder, true);
+        if(isFolderEmpty(destinationId)){
+            long destinationParentId = getFolderId(getFolderFromPath(destinationFolder), false);
+            PreparedStatement removeFolderStatement = prepare(REMOVE_FOLDER_QUERY);
+            removeFolderStatement.setLong(1, destinationId);
+            removeFolderStatement.execute();
+            setFolderPlace(sourceId, destinationParentId, getLastSegment(destinationFolder));
+        } else {
+            mergeFolders(sourceId, destinationId);
+        }
+        removeEmptyFolders(sourceParentId);
+    }
+
+    //files of source replace files with the same name in destination
+    private void mergeFolders(long sourceId, long destinationId) throws SQLException {
+        PreparedStatement removeConflictingStatement = prepare(REMOVE_CONFLICTING_FILES_QUERY);
+        removeConflictingStatement.setLong(1, destinationId);
+        removeConflictingStatement.setLong(2, sourceId);
+        numberOfFiles -= removeConflictingStatement.executeUpdate();
+        PreparedStatement moveFilesStatement = prepare(MOVE_FILES_QUERY);
+        moveFilesStatement.setLong(1, destinationId);
+        moveFilesStatement.setLong(2, sourceId);
+        moveFilesStatement.execute();
+
+        for(Map.Entry<String, Long> childFolder: getChildFolders(sourceId).entrySet()){
+            long existingFolderId = findChildFolder(destinationId, childFolder.getKey());
+            if(existingFolderId == NO_FOLDER){
+                setFolderPlace(childFolder.getValue(), destinationId, childFolder.getKey());
+            } else {
+                mergeFolders(childFolder.getValue(), existingFolderId);
+            }
+        }
+        PreparedStatement removeFolderStatement = prepare(REMOVE_FOLDER_QUERY);
+        removeFolderStatement.setLong(1, sourceId);
+        removeFolderStatement.execute();
+    }
+
+    private void setFolderPlace(long folderId, Long parentId, String name) throws SQLException {
+        PreparedStatement moveFolderStatement = prepare(MOVE_FOLDER_QUERY);
+        moveFolderStatement.setObject(1, parentId);
+        moveFolderStatement.setString(2, name);
+        moveFolderStatement.setLong(3, folderId);
+        moveFolderStatement.execute();
+    }
+
+    private boolean isFolderEmpty(long folderId) throws SQLException {
+        PreparedStatement notEmptyStatement = prepare(FOLDER_NOT_EMPTY_QUERY);
+        notEmptyStatement.setLong(1, folderId);
+        notEmptyStatement.setLong(2, folderId);
+        try(ResultSet notEmpty = notEmptyStatement.executeQuery()){
+            return notEmpty.next() && !notEmpty.getBoolean(1);
+        }
+    }
+
+    //the folder and then its parents, as long as they have no files and no subfolders - the root folder stays
+    private void removeEmptyFolders(long folderId) throws SQLException {
+        while(folderId != ROOT_FOLDER_ID && folderId != NO_FOLDER && isFolderEmpty(folderId)){
+            long parentId = getParentFolderId(folderId);
+            PreparedStatement removeFolderStatement = prepare(REMOVE_FOLDER_QUERY);
+            removeFolderStatement.setLong(1, folderId);
+            removeFolderStatement.execute();
+            folderIds.clear();
+            folderId = parentId;
+        }
+    }
+
+    private long getParentFolderId(long folderId) throws SQLException {
+        PreparedStatement parentStatement = prepare(PARENT_FOLDER_QUERY);
+        parentStatement.setLong(1, folderId);
+        try(ResultSet parent = parentStatement.executeQuery()){
+            return parent.next() ? parent.getLong(1) : NO_FOLDER;
+        }
+    }
+
+    private Map<String, Long> getChildFolders(long parentId) throws SQLException {
+        Map<String, Long> childFolders = new HashMap<>();
+        PreparedStatement childFoldersStatement = prepare(CHILD_FOLDERS_QUERY);
+        childFoldersStatement.setLong(1, parentId);
+        try(ResultSet folders = childFoldersStatement.executeQuery()){
+            while(folders.next()){
+                childFolders.put(folders.getString("name"), folders.getLong("id"));
+            }
+        }
+        return childFolders;
+    }
+
+    //null folderPath means the root folder, of paths without any slash
+    private long getFolderId(String folderPath, boolean create) throws SQLException {
+        if(folderPath == null){
+            return ROOT_FOLDER_ID;
+        }
+        Long knownFolderId = folderIds.get(folderPath);
+        if(knownFolderId != null){
+            return knownFolderId;
+        }
+        long parentId = getFolderId(getFolderFromPath(folderPath), create);
+        if(parentId == NO_FOLDER){
+            return NO_FOLDER;
+        }
+        String name = getLastSegment(folderPath);
+        long folderId = findChildFolder(parentId, name);
+        if(folderId == NO_FOLDER && create){
+            PreparedStatement putFolderStatement = prepare(PUT_FOLDER_QUERY);
+            putFolderStatement.setLong(1, parentId);
+            putFolderStatement.setString(2, name);
+            putFolderStatement.execute();
+            folderId = findChildFolder(parentId, name);
+        }
+        if(folderId != NO_FOLDER){
+            folderIds.put(folderPath, folderId);
+        }
+        return folderId;
+    }
+
+    private long findChildFolder(long parentId, String name) throws SQLException {
+        PreparedStatement findFolderStatement = prepare(FIND_FOLDER_QUERY);
+        findFolderStatement.setLong(1, parentId);
+        findFolderStatement.setString(2, name);
+        try(ResultSet folder = findFolderStatement.executeQuery()){
+            return folder.next() ? folder.getLong(1) : NO_FOLDER;
+        }
+    }
+
+    private static void setFileKey(PreparedStatement statement, int firstIndex, long folderId,
+                                   String name, String extension) throws SQLException {
+        statement.setLong(firstIndex, folderId);
+        statement.setString(firstIndex + 1, name);
+        statement.setString(firstIndex + 2, extension);
+    }
+
+    //only the subtree of the last folder named in full by prefix is listed
+    @Override
+    public List<String> listPaths(String prefix) {
+        getConnection();
+        List<String> paths = new ArrayList<>();
+        ResultSet foundPaths = null;
+
+        try {
+            String prefixFolder = getFolderFromPath(prefix);
+            if(prefixFolder == null){
+                foundPaths = prepare(LIST_PATHS_QUERY).executeQuery();
+            } else {
+                long prefixFolderId = getFolderId(prefixFolder, false);
+                if(prefixFolderId == NO_FOLDER){
+                    return paths;
+                }
+                PreparedStatement listStatement = prepare(LIST_FOLDER_PATHS_QUERY);
+                listStatement.setLong(1, prefixFolderId);
+                listStatement.setString(2, prefixFolder);
+                foundPaths = listStatement.executeQuery();
+            }
+            while(foundPaths.next()){
+                String filePath = foundPaths.getString(1);
+                if(filePath != null && filePath.startsWith(prefix)){
+                    paths.add(filePath);
+                }
+            }
+        } catch (SQLException e) {
+            log(e);
+        } finally {
+            SQLiteHelper.close(foundPaths);
+        }
+        return paths;
+    }
+
+    @Override
+    public int getNumberOfFiles() {
+        getConnection();
+        return numberOfFiles;
+    }
+
+    private void countFiles() {
+        ResultSet countResult = null;
+        numberOfFiles = -1;
+
+        try {
+            countResult = prepare(COUNT_QUERY).executeQuery();
+            countResult.next();
+            numberOfFiles = countResult.getInt(1);
+        } catch (SQLException e) {
+            log(e);
+        } finally {
+            SQLiteHelper.close(countResult);
+        }
+    }
+
+    @Override
+    public void removeAllData() {
+        getConnection();
+
+        try {
+            prepare(REMOVE_ALL_FILES_QUERY).execute();
+            prepare(REMOVE_ALL_FOLDERS_QUERY).execute();
+            numberOfFiles = 0;
+        } catch (SQLException e) {
+            log(e);
+        } finally {
+            folderIds.clear();
+        }
+    }
+
+    //rows written since the last checkpoint are still in the write-ahead log
+    @Override
+    public long getSizeInBytes() {
+        File cacheModel = new File(cacheModelPath);
+        return cacheModel.length() + new File(cacheModelPath + "-wal").length();
+    }
+
+    @Override
+    public void removeFromDevice() {
+        closeConnection();
+        File cacheModel = new File(cacheModelPath);
+        if(!cacheModel.delete()){
+            System.out.println("File "+cacheModelPath+" doesn't exist!");
+        }
+        FileUtils.deleteQuietly(new File(cacheModelPath + "-wal"));
+        FileUtils.deleteQuietly(new File(cacheModelPath + "-shm"));
+        File parentDirectory = cacheModel.getParentFile();
+        while(parentDirectory!=null && parentDirectory.delete()){
+            parentDirectory = parentDirectory.getParentFile();
+        }
+    }
+
+    public void closeConnection(){
+        preparedStatements.values().forEach(SQLiteHelper::close);
+        preparedStatements.clear();
+        folderIds.clear();
+        if(connection != null){
+            SQLiteHelper.close(connection);
+        }
+    }
+
+    private void getConnection(){
+        Statement pragmaStatement = null;
+
+        try{
+            if(connection == null || connection.isClosed()) {
+                try {
+                    FileUtils.forceMkdirParent(new File(cacheModelPath));
+                } catch (IOException e) {
+                    log(e);
+                }
+                Class.forName("org.sqlite.JDBC");
+                preparedStatements.clear();
+                folderIds.clear();
+                connection = DriverManager.getConnection("jdbc:sqlite:" + cacheModelPath, pooledStatements);
+                pragmaStatement = connection.createStatement();
+                pragmaStatement.execute("PRAGMA synchronous = OFF");
+                pragmaStatement.execute("PRAGMA journal_mode = WAL");
+                pragmaStatement.execute("PRAGMA mmap_size = " + MMAP_SIZE);
+                initialise();
+            }
+        } catch (ClassNotFoundException | SQLException e) {
+            log(e);
+        } finally {
+            SQLiteHelper.close(pragmaStatement);
+        }
+    }
+
+    private PreparedStatement prepare(String query) throws SQLException {
+        PreparedStatement statement = preparedStatements.get(query);
+        if(statement == null){
+            statement = connection.prepareStatement(query);
+            preparedStatements.put(query, statement);
+        }
+        return statement;
+    }
+
+    private void initialise(){
+        Statement createTableStatement = null;
+
+        try {
+            createTableStatement = connection.createStatement();
+            createTableStatement.executeUpdate("CREATE TABLE IF NOT EXISTS folders(id INTEGER PRIMARY KEY," +
+                                                    "parentId INTEGER," +
+                                                    "name TEXT NOT NULL);");
+            createTableStatement.executeUpdate("CREATE UNIQUE INDEX IF NOT EXISTS foldersByParent ON folders(parentId, name)");
+            createTableStatement.executeUpdate("INSERT OR IGNORE INTO folders VALUES(" + ROOT_FOLDER_ID + ", NULL, '')");
+            createTableStatement.executeUpdate("CREATE TABLE IF NOT EXISTS files(id INTEGER PRIMARY KEY," +
+                                                    "folderId INTEGER NOT NULL," +
+                                                    "name TEXT NOT NULL," +
+                                                    "extension TEXT NOT NULL," +
+                                                    "url TEXT," +
+                                                    "creationTime INTEGER," +
+                                                    "lastUsageTime INTEGER);");
+            createTableStatement.executeUpdate("CREATE UNIQUE INDEX IF NOT EXISTS filesByFolder ON files(folderId, name, extension)");
+            createTableStatement.executeUpdate("CREATE INDEX IF NOT EXISTS filesByLastUsageTime ON files(lastUsageTime)");
+        } catch (SQLException e) {
+            log(e);
+        } finally {
+            SQLiteHelper.close(createTableStatement);
+        }
+        countFiles();
+    }
+
+    //null for paths without any slash
+    private static String getFolderFromPath(String path){
+        int indexOfLastSlash = path.lastIndexOf('/');
+        if(indexOfLastSlash == -1){
+            return null;
+        }
+        return path.substring(0, indexOfLastSlash);
+    }
+
+    private static String getLastSegment(String path){
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static String getNameFromPath(String path){
+        String fileName = getLastSegment(path);
+        int indexOfLastDot = fileName.lastIndexOf('.');
+        if(indexOfLastDot == -1){
+            return fileName;
+        }
+        return fileName.substring(0, indexOfLastDot);
+    }
+
+    //with the leading dot, empty when there is no extension
+    private static String getExtensionFromPath(String path){
+        String fileName = getLastSegment(path);
+        int indexOfLastDot = fileName.lastIndexOf('.');
+        if(indexOfLastDot == -1){
+            return "";
+        }
+        return fileName.substring(indexOfLastDot);
+    }
+
+    private static String trimSlash(String path){
+        if(path.endsWith("/")){
+            return path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    private void log(Exception e){
+        Logger logger = Logger.getLogger("SQLiteCacheModel3 logger");
+        logger.warning(e.toString());
+    }
+}
@@ -1,6 +1,9 @@
 package com.github.jansowa.dao.relationaldb;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.logging.Logger;
 
 public final class SQLiteHelper {
@@ -46,6 +49,29 @@ public final class SQLiteHelper {
         }
     }
 
+    public static void rollback(Connection connection){
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            log(e);
+        }
+    }
+
+    public static void restoreAutoCommit(Connection connection){
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            log(e);
+        }
+    }
+
+    //files put in one batch after the newest maxNumberOfFiles would be evicted right away
+    public static <T> List<T> newestFiles(Collection<T> files, long maxNumberOfFiles){
+        List<T> filesList = new ArrayList<>(files);
+        int numberOfSkippedFiles = (int) Math.max(0, filesList.size() - Math.max(0, maxNumberOfFiles));
+        return filesList.subList(numberOfSkippedFiles, filesList.size());
+    }
+
     private static void log(Exception e){
         Logger logger = Logger.getLogger("SQLite close logger");
         logger.warning(e.toString());
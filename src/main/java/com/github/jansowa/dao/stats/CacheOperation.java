@@ -0,0 +1,6 @@
+package com.github.jansowa.dao.stats;
+
+//operations of CacheModel with their own latency histogram - batch operations are timed as one call
+public enum CacheOperation {
+    PUT, READ, CONTAINS, REMOVE, MOVE, LIST_PATHS
+}
@@ -0,0 +1,129 @@
+package com.github.jansowa.dao.stats;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+//Counters and latency histograms of a cache. Counters are LongAdders, so recording from many threads
+//doesn't contend, and reading them sums their cells.
+public class CacheStatistics implements CacheStatisticsMXBean {
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder putCount = new LongAdder();
+    private final LongAdder removeCount = new LongAdder();
+    private final LongAdder moveCount = new LongAdder();
+    private final Map<CacheOperation, LatencyHistogram> latencies = new EnumMap<>(CacheOperation.class);
+
+    public CacheStatistics(){
+        for(CacheOperation operation: CacheOperation.values()){
+            latencies.put(operation, new LatencyHistogram());
+        }
+    }
+
+    public void recordHits(long numberOfHits){
+        hitCount.add(numberOfHits);
+    }
+
+    public void recordMisses(long numberOfMisses){
+        missCount.add(numberOfMisses);
+    }
+
+    public void recordEvictions(long numberOfEvictions){
+        evictionCount.add(numberOfEvictions);
+    }
+
+    public void recordPuts(long numberOfPuts){
+        putCount.add(numberOfPuts);
+    }
+
+    public void recordRemoves(long numberOfRemoves){
+        removeCount.add(numberOfRemoves);
+    }
+
+    public void recordMove(){
+        moveCount.increment();
+    }
+
+    public void recordLatency(CacheOperation operation, long latencyNanos){
+        latencies.get(operation).record(latencyNanos);
+    }
+
+    public LatencyHistogram getLatency(CacheOperation operation){
+        return latencies.get(operation);
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    //0 before the first read
+    @Override
+    public double getHitRate() {
+        long hits = hitCount.sum();
+        long requests = hits + missCount.sum();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    @Override
+    public long getPutCount() {
+        return putCount.sum();
+    }
+
+    @Override
+    public long getRemoveCount() {
+        return removeCount.sum();
+    }
+
+    @Override
+    public long getMoveCount() {
+        return moveCount.sum();
+    }
+
+    @Override
+    public long getReadLatency50thPercentile() {
+        return latencies.get(CacheOperation.READ).getPercentile(50);
+    }
+
+    @Override
+    public long getReadLatency99thPercentile() {
+        return latencies.get(CacheOperation.READ).getPercentile(99);
+    }
+
+    @Override
+    public long getPutLatency50thPercentile() {
+        return latencies.get(CacheOperation.PUT).getPercentile(50);
+    }
+
+    @Override
+    public long getPutLatency99thPercentile() {
+        return latencies.get(CacheOperation.PUT).getPercentile(99);
+    }
+
+    @Override
+    public long getLatencyPercentile(String operationName, double percentile) {
+        return latencies.get(CacheOperation.valueOf(operationName)).getPercentile(percentile);
+    }
+
+    @Override
+    public void reset() {
+        hitCount.reset();
+        missCount.reset();
+        evictionCount.reset();
+        putCount.reset();
+        removeCount.reset();
+        moveCount.reset();
+        latencies.values().forEach(LatencyHistogram::reset);
+    }
+}
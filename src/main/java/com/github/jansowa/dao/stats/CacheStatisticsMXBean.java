@@ -0,0 +1,19 @@
+package com.github.jansowa.dao.stats;
+
+//JMX view of CacheStatistics - latencies are in nanoseconds
+public interface CacheStatisticsMXBean {
+    long getHitCount();
+    long getMissCount();
+    double getHitRate();
+    long getEvictionCount();
+    long getPutCount();
+    long getRemoveCount();
+    long getMoveCount();
+    long getReadLatency50thPercentile();
+    long getReadLatency99thPercentile();
+    long getPutLatency50thPercentile();
+    long getPutLatency99thPercentile();
+    //operationName is a CacheOperation name, percentile is between 0 and 100
+    long getLatencyPercentile(String operationName, double percentile);
+    void reset();
+}
@@ -0,0 +1,187 @@
+package com.github.jansowa.dao.stats;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.dao.eviction.EvictingCacheModel;
+import com.github.jansowa.domain.FileBasicInfo;
+
+import lombok.Getter;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+//Counts hits, misses, puts, removes and moves of any model, and times every call in a histogram of its CacheOperation.
+//Models evict on their own without telling anybody, so evictions are only counted when the wrapped model is an
+//EvictingCacheModel - its eviction listener set before is still told about them.
+//Statistics can be watched through JMX after registerMBean.
+public class StatisticsCacheModel implements CacheModel {
+    private static final String MBEAN_DOMAIN = "com.github.jansowa";
+
+    private final CacheModel cacheModel;
+    @Getter private final CacheStatistics statistics = new CacheStatistics();
+    //null while not registered
+    private ObjectName mBeanName;
+
+    public StatisticsCacheModel(CacheModel cacheModel){
+        this.cacheModel = cacheModel;
+        if(cacheModel instanceof EvictingCacheModel){
+            ((EvictingCacheModel) cacheModel).addEvictionListener(evictedPath -> statistics.recordEvictions(1));
+        }
+    }
+
+    @Override
+    public void put(FileBasicInfo file) {
+        long startTime = System.nanoTime();
+        cacheModel.put(file);
+        statistics.recordLatency(CacheOperation.PUT, System.nanoTime() - startTime);
+        statistics.recordPuts(1);
+    }
+
+    @Override
+    public void putAll(Collection<FileBasicInfo> files) {
+        long startTime = System.nanoTime();
+        cacheModel.putAll(files);
+        statistics.recordLatency(CacheOperation.PUT, System.nanoTime() - startTime);
+        statistics.recordPuts(files.size());
+    }
+
+    @Override
+    public void remove(String filePath) {
+        long startTime = System.nanoTime();
+        cacheModel.remove(filePath);
+        statistics.recordLatency(CacheOperation.REMOVE, System.nanoTime() - startTime);
+        statistics.recordRemoves(1);
+    }
+
+    @Override
+    public void removeAll(Collection<String> filePaths) {
+        long startTime = System.nanoTime();
+        cacheModel.removeAll(filePaths);
+        statistics.recordLatency(CacheOperation.REMOVE, System.nanoTime() - startTime);
+        statistics.recordRemoves(filePaths.size());
+    }
+
+    @Override
+    public boolean contains(String filePath) {
+        long startTime = System.nanoTime();
+        boolean contains = cacheModel.contains(filePath);
+        statistics.recordLatency(CacheOperation.CONTAINS, System.nanoTime() - startTime);
+        return contains;
+    }
+
+    @Override
+    public boolean containsAll(Collection<String> filePaths) {
+        long startTime = System.nanoTime();
+        boolean containsAll = cacheModel.containsAll(filePaths);
+        statistics.recordLatency(CacheOperation.CONTAINS, System.nanoTime() - startTime);
+        return containsAll;
+    }
+
+    @Override
+    public Optional<FileBasicInfo> read(String filePath) {
+        long startTime = System.nanoTime();
+        Optional<FileBasicInfo> readFile = cacheModel.read(filePath);
+        statistics.recordLatency(CacheOperation.READ, System.nanoTime() - startTime);
+        if(readFile.isPresent()){
+            statistics.recordHits(1);
+        } else {
+            statistics.recordMisses(1);
+        }
+        return readFile;
+    }
+
+    @Override
+    public List<FileBasicInfo> readAll(Collection<String> filePaths) {
+        long startTime = System.nanoTime();
+        List<FileBasicInfo> readFiles = cacheModel.readAll(filePaths);
+        statistics.recordLatency(CacheOperation.READ, System.nanoTime() - startTime);
+        statistics.recordHits(readFiles.size());
+        statistics.recordMisses(filePaths.size() - readFiles.size());
+        return readFiles;
+    }
+
+    @Override
+    public void movePath(String sourcePath, String destinationPath) {
+        long startTime = System.nanoTime();
+        cacheModel.movePath(sourcePath, destinationPath);
+        statistics.recordLatency(CacheOperation.MOVE, System.nanoTime() - startTime);
+        statistics.recordMove();
+    }
+
+    @Override
+    public List<String> listPaths(String prefix) {
+        long startTime = System.nanoTime();
+        List<String> paths = cacheModel.listPaths(prefix);
+        statistics.recordLatency(CacheOperation.LIST_PATHS, System.nanoTime() - startTime);
+        return paths;
+    }
+
+    @Override
+    public int getNumberOfFiles() {
+        return cacheModel.getNumberOfFiles();
+    }
+
+    @Override
+    public void removeAllData() {
+        cacheModel.removeAllData();
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return cacheModel.getSizeInBytes();
+    }
+
+    @Override
+    public long getMaxNumberOfFiles() {
+        return cacheModel.getMaxNumberOfFiles();
+    }
+
+    @Override
+    public void setMaxNumberOfFiles(long maxNumberOfFiles) {
+        cacheModel.setMaxNumberOfFiles(maxNumberOfFiles);
+    }
+
+    @Override
+    public void removeFromDevice() {
+        unregisterMBean();
+        cacheModel.removeFromDevice();
+    }
+
+    //registers statistics in the platform MBean server as com.github.jansowa:type=CacheStatistics,name=<name>
+    public synchronized void registerMBean(String name) {
+        unregisterMBean();
+        try {
+            ObjectName objectName = new ObjectName(MBEAN_DOMAIN + ":type=CacheStatistics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, objectName);
+            mBeanName = objectName;
+        } catch (JMException e) {
+            Logger logger = Logger.getLogger(StatisticsCacheModel.class.getName());
+            logger.warning("Can't register cache statistics MBean " + name + ": " + e);
+        }
+    }
+
+    public synchronized void unregisterMBean() {
+        if(mBeanName == null){
+            return;
+        }
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if(mBeanServer.isRegistered(mBeanName)){
+                mBeanServer.unregisterMBean(mBeanName);
+            }
+        } catch (JMException e) {
+            Logger logger = Logger.getLogger(StatisticsCacheModel.class.getName());
+            logger.warning("Can't unregister cache statistics MBean " + mBeanName + ": " + e);
+        }
+        mBeanName = null;
+    }
+
+    public synchronized Optional<ObjectName> getMBeanName() {
+        return Optional.ofNullable(mBeanName);
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.jansowa.dao.tempfiles;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Logger;
+
+//Lists all regular files below a directory, with size and last modified time read by one stat per entry.
+//Every subdirectory is scanned by its own fork-join task, so a tree of many folders is listed in parallel.
+//A directory that can't be listed is logged and skipped.
+class DirectoryScanner extends RecursiveTask<List<DirectoryScanner.ScannedFile>> {
+    static final class ScannedFile {
+        final Path path;
+        final long lastModified;
+        final long sizeInBytes;
+
+        private ScannedFile(Path path, long lastModified, long sizeInBytes){
+            this.path = path;
+            this.lastModified = lastModified;
+            this.sizeInBytes = sizeInBytes;
+        }
+    }
+
+    //fork-join tasks are serializable, but scanners are never serialized - Path isn't
+    private static final long serialVersionUID = 1L;
+
+    private final transient Path directory;
+
+    private DirectoryScanner(Path directory){
+        this.directory = directory;
+    }
+
+    static List<ScannedFile> scan(Path directory){
+        if(!Files.isDirectory(directory)){
+            return new ArrayList<>();
+        }
+        return ForkJoinPool.commonPool().invoke(new DirectoryScanner(directory));
+    }
+
+    @Override
+    protected List<ScannedFile> compute() {
+        List<ScannedFile> scannedFiles = new ArrayList<>();
+        List<DirectoryScanner> subdirectoryScanners = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)){
+            for(Path entry: entries){
+                BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if(attributes.isDirectory()){
+                    DirectoryScanner subdirectoryScanner = new DirectoryScanner(entry);
+                    subdirectoryScanner.fork();
+                    subdirectoryScanners.add(subdirectoryScanner);
+                } else if(attributes.isRegularFile()){
+                    scannedFiles.add(new ScannedFile(entry, attributes.lastModifiedTime().toMillis(), attributes.size()));
+                }
+            }
+        } catch (IOException e) {
+            Logger logger = Logger.getLogger(DirectoryScanner.class.getName());
+            logger.warning("Can't scan directory " + directory + ": " + e);
+        }
+        for(DirectoryScanner subdirectoryScanner: subdirectoryScanners){
+            scannedFiles.addAll(subdirectoryScanner.join());
+        }
+        return scannedFiles;
+    }
+}
@@ -1,44 +1,119 @@
 package com.github.jansowa.dao.tempfiles;
 
 import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.dao.PathHash;
 import com.github.jansowa.domain.FileBasicInfo;
 import lombok.Getter;
 import lombok.Setter;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.filefilter.TrueFileFilter;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeSet;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
+//Every file is stored under cacheModelPath + filePath, with its url and creation time as content
+//and its last usage time as the last modified time.
+//Count, size and last modified times of stored files are kept in an index built once by scanning the directory,
+//so only put, read and remove of a file touch the disk.
+//With useManifest, checkpoint() saves the index next to the directory and the next instance loads it
+//instead of scanning. The first change after a checkpoint deletes the manifest, so a crash never leaves an outdated one.
+//With sharded, a file is stored under two levels of 256 folders picked by a 64-bit hash of its path,
+//so no folder grows with the number of files. Its path is kept as the third line of content, for the startup scan.
+//Moving a folder then moves every file below it one by one.
 public class TempFilesCacheModel implements CacheModel {
+    private static final int MANIFEST_MAGIC = 0x54464D32;
+
+    private static final class IndexedFile {
+        private final String filePath;
+        private final long lastModified;
+        private final long sizeInBytes;
+        //orders files modified in the same millisecond
+        private final long sequenceNumber;
+
+        private IndexedFile(String filePath, long lastModified, long sizeInBytes, long sequenceNumber){
+            this.filePath = filePath;
+            this.lastModified = lastModified;
+            this.sizeInBytes = sizeInBytes;
+            this.sequenceNumber = sequenceNumber;
+        }
+    }
+
     private String cacheModelPath;
+    private final Path cacheModelDirectory;
+    private final boolean useManifest;
+    private final boolean sharded;
+    private final String manifestPath;
+    //the manifest describes the current index
+    private boolean manifestSaved;
     @Getter @Setter private long maxNumberOfFiles;
+    private final Map<String, IndexedFile> indexedFiles = new HashMap<>();
+    //oldest file first
+    private final TreeSet<IndexedFile> filesByLastModified = new TreeSet<>(Comparator
+            .<IndexedFile>comparingLong(file -> file.lastModified)
+            .thenComparingLong(file -> file.sequenceNumber));
+    private long sizeInBytes;
+    private long nextSequenceNumber;
 
     public TempFilesCacheModel(long maxNumberOfFiles, String cacheModelPath){
+        this(maxNumberOfFiles, cacheModelPath, false);
+    }
+
+    public TempFilesCacheModel(long maxNumberOfFiles, String cacheModelPath, boolean useManifest){
+        this(maxNumberOfFiles, cacheModelPath, useManifest, false);
+    }
+
+    //sharded has to be the same every time the directory is opened
+    public TempFilesCacheModel(long maxNumberOfFiles, String cacheModelPath, boolean useManifest, boolean sharded){
         this.cacheModelPath = cacheModelPath;
+        this.cacheModelDirectory = Paths.get(cacheModelPath).normalize();
         this.maxNumberOfFiles = maxNumberOfFiles;
+        this.useManifest = useManifest;
+        this.sharded = sharded;
+        this.manifestPath = cacheModelDirectory + ".manifest";
         try {
             FileUtils.forceMkdir(new File(cacheModelPath));
         } catch (IOException e) {
             log(e);
         }
+        if(!useManifest || !loadManifest()){
+            //an outdated manifest, or one this instance wouldn't keep up to date
+            FileUtils.deleteQuietly(new File(manifestPath));
+            buildIndex();
+        }
     }
 
     @Override
     public void put(FileBasicInfo file) {
-        File fileToSave = new File(cacheModelPath+file.getFilePath());
-        String fileData = file.getUrl() + "\n"
-                        + file.getCreationTime().getTime() + "\n";
+        invalidateManifest();
+        String indexedPath = toIndexedPath(file.getFilePath());
+        File fileToSave = storedFile(indexedPath);
         try {
-            FileUtils.writeStringToFile(fileToSave, fileData, "UTF-8", false);
+            writeContent(fileToSave, file.getUrl(), file.getCreationTime().getTime(), indexedPath);
         } catch (IOException e) {
             log(e);
+            return;
         }
+        unindex(indexedPath);
+        index(indexedPath, fileToSave.lastModified(), fileToSave.length());
         if(getNumberOfFiles()>maxNumberOfFiles){
             removeOldestFile();
         }
@@ -46,8 +121,15 @@ public class TempFilesCacheModel implements CacheModel {
 
     @Override
     public void remove(String filePath) {
-        File fileToRemove = new File(cacheModelPath+filePath);
+        invalidateManifest();
+        String indexedPath = toIndexedPath(filePath);
+        File fileToRemove = storedFile(indexedPath);
         FileUtils.deleteQuietly(fileToRemove);
+        unindex(indexedPath);
+        //shard folders are kept
+        if(sharded){
+            return;
+        }
         File parentDirectory = fileToRemove.getParentFile();
         while(cacheModelPath.equals(parentDirectory.getPath()) &&
                 FileUtils.sizeOfDirectory(parentDirectory)==0){
@@ -60,52 +142,121 @@ public class TempFilesCacheModel implements CacheModel {
 
     @Override
     public boolean contains(String filePath) {
-        File fullPath = new File(cacheModelPath+filePath);
-        return fullPath.exists();
+        return indexedFiles.containsKey(toIndexedPath(filePath));
     }
 
     @Override
     public void movePath(String sourcePath, String destinationPath) {
+        if(sharded){
+            moveShardedFiles(toIndexedPath(sourcePath), toIndexedPath(destinationPath));
+            return;
+        }
         File source = new File(cacheModelPath+sourcePath);
         File destination = new File(cacheModelPath+destinationPath);
         if(!source.exists()){
             return;
         }
+        invalidateManifest();
+        boolean sourceIsFile = source.isFile();
         try {
-            if (source.isFile()) {
+            if (sourceIsFile) {
                 FileUtils.moveFile(source, destination);
             } else {
                 FileUtils.moveDirectory(source, destination);
             }
         } catch (IOException e) {
             log(e);
+            return;
+        }
+        moveIndexedFiles(toIndexedPath(sourcePath), toIndexedPath(destinationPath), sourceIsFile);
+    }
+
+    //all moved files are read before any is written, so a file moved onto the place of another moved file can't overwrite it
+    private void moveShardedFiles(String sourcePath, String destinationPath){
+        boolean sourceIsFile = indexedFiles.containsKey(sourcePath);
+        List<IndexedFile> movedFiles = findFilesToMove(sourcePath, sourceIsFile);
+        if(movedFiles.isEmpty()){
+            return;
+        }
+        invalidateManifest();
+        List<String[]> contents = new ArrayList<>();
+        try {
+            for(IndexedFile movedFile: movedFiles){
+                contents.add(readContent(storedFile(movedFile.filePath)));
+            }
+        } catch (IOException e) {
+            log(e);
+            return;
+        }
+        for(IndexedFile movedFile: movedFiles){
+            FileUtils.deleteQuietly(storedFile(movedFile.filePath));
+        }
+        for(int i = 0; i < movedFiles.size(); i++){
+            String finalPath = destinationPath + movedFiles.get(i).filePath.substring(sourcePath.length());
+            File finalFile = storedFile(finalPath);
+            try {
+                writeContent(finalFile, contents.get(i)[0], Long.parseLong(contents.get(i)[1]), finalPath);
+            } catch (IOException e) {
+                log(e);
+            }
+            if(!finalFile.setLastModified(movedFiles.get(i).lastModified)){
+                log(new IOException("Can't keep last modified time of " + finalFile));
+            }
+        }
+        moveIndexedFiles(sourcePath, destinationPath, sourceIsFile);
+    }
+
+    private List<IndexedFile> findFilesToMove(String sourcePath, boolean sourceIsFile){
+        List<IndexedFile> movedFiles = new ArrayList<>();
+        for(IndexedFile indexedFile: indexedFiles.values()){
+            if(sourceIsFile ? indexedFile.filePath.equals(sourcePath) : indexedFile.filePath.startsWith(sourcePath + "/")){
+                movedFiles.add(indexedFile);
+            }
+        }
+        return movedFiles;
+    }
+
+    //moved files keep their last modified times
+    private void moveIndexedFiles(String sourcePath, String destinationPath, boolean sourceIsFile){
+        List<IndexedFile> movedFiles = findFilesToMove(sourcePath, sourceIsFile);
+        for(IndexedFile movedFile: movedFiles){
+            unindex(movedFile.filePath);
+        }
+        for(IndexedFile movedFile: movedFiles){
+            String finalPath = destinationPath + movedFile.filePath.substring(sourcePath.length());
+            unindex(finalPath);
+            IndexedFile indexedFile = new IndexedFile(finalPath, movedFile.lastModified,
+                    movedFile.sizeInBytes, movedFile.sequenceNumber);
+            indexedFiles.put(finalPath, indexedFile);
+            filesByLastModified.add(indexedFile);
+            sizeInBytes += movedFile.sizeInBytes;
         }
     }
 
     @Override
     public Optional<FileBasicInfo> read(String filePath) {
-        File downloadedFile = new File(cacheModelPath+filePath);
-        if(!downloadedFile.exists()) {
+        IndexedFile indexedFile = indexedFiles.get(toIndexedPath(filePath));
+        if(indexedFile == null) {
             return Optional.empty();
         }
-
-        List<String> downloadedStrings = null;
+        String[] downloadedStrings;
         try {
-            downloadedStrings = FileUtils.readLines(downloadedFile, "UTF-8");
+            downloadedStrings = readContent(storedFile(indexedFile.filePath));
         } catch (IOException e) {
             log(e);
+            return Optional.empty();
         }
 
         Date creationTime = new Date(Long.parseLong(
-                downloadedStrings.get(1)));
-        Date lastUsageTime = new Date(downloadedFile.lastModified());
+                downloadedStrings[1]));
+        Date lastUsageTime = new Date(indexedFile.lastModified);
 
         FileBasicInfo downloadedFileInfo = FileBasicInfo
                 .builder()
                 .name(FilenameUtils.getBaseName(filePath))
                 .filePath(filePath)
                 .extension(FilenameUtils.getExtension(filePath))
-                .url(downloadedStrings.get(0))
+                .url(downloadedStrings[0])
                 .creationTime(creationTime)
                 .lastUsageTime(lastUsageTime)
                 .build();
@@ -113,61 +264,191 @@ public class TempFilesCacheModel implements CacheModel {
         return Optional.ofNullable(downloadedFileInfo);
     }
 
+    @Override
+    public List<String> listPaths(String prefix) {
+        List<String> paths = new ArrayList<>();
+        for(String filePath: indexedFiles.keySet()){
+            if(filePath.startsWith(prefix)){
+                paths.add(filePath);
+            }
+        }
+        return paths;
+    }
+
     @Override
     public int getNumberOfFiles() {
-        File cacheModelDirectory = new File(cacheModelPath);
-        return countFilesInDirectory(cacheModelDirectory);
+        return indexedFiles.size();
     }
 
     @Override
     public void removeAllData() {
+        invalidateManifest();
         try {
             FileUtils.cleanDirectory(new File(cacheModelPath));
         } catch (IOException e) {
             log(e);
         }
+        clearIndex();
     }
 
     @Override
     public long getSizeInBytes() {
-        return FileUtils.sizeOfDirectory(new File(cacheModelPath));
+        return sizeInBytes;
     }
 
     @Override
     public void removeFromDevice() {
+        invalidateManifest();
         try {
             FileUtils.deleteDirectory(new File(cacheModelPath));
         } catch (IOException e) {
             log(e);
         }
+        clearIndex();
     }
 
     private void removeOldestFile() {
-        File cacheModel = new File(cacheModelPath);
-        String oldestFilePath = FileUtils.listFiles(cacheModel, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE)
-                .stream()
-                .min((file1, file2) -> (int) (file1.lastModified() - file2.lastModified()))
-                .map(file -> file.getPath().substring(cacheModelPath.length()))
-                .orElse(null);
+        if(filesByLastModified.isEmpty()){
+            return;
+        }
+        remove(filesByLastModified.first().filePath);
+    }
 
-        remove(oldestFilePath);
+    private void buildIndex(){
+        List<DirectoryScanner.ScannedFile> scannedFiles = DirectoryScanner.scan(cacheModelDirectory);
+        scannedFiles.sort(Comparator.comparingLong(scannedFile -> scannedFile.lastModified));
+        List<String> indexedPaths = scannedFiles.parallelStream()
+                .map(this::getIndexedPath)
+                .collect(Collectors.toList());
+        for(int i = 0; i < scannedFiles.size(); i++){
+            if(indexedPaths.get(i) != null){
+                index(indexedPaths.get(i), scannedFiles.get(i).lastModified, scannedFiles.get(i).sizeInBytes);
+            }
+        }
     }
 
-    private int countFilesInDirectory(File directory){
-        File[] filesInDirectory = directory.listFiles();
-        if(filesInDirectory==null){
-            return 0;
+    //in sharded layout only content knows the path
+    private String getIndexedPath(DirectoryScanner.ScannedFile scannedFile){
+        if(!sharded){
+            return toIndexedPath(scannedFile.path);
         }
-        int numberOfFiles = 0;
-        for (File fileInDirectory : filesInDirectory) {
-            if (fileInDirectory.isDirectory()) {
-                numberOfFiles += countFilesInDirectory(fileInDirectory);
-            } else {
-                numberOfFiles++;
+        try {
+            String[] content = readContent(scannedFile.path.toFile());
+            if(content.length > 2){
+                return content[2];
+            }
+            log(new IOException("No path stored in " + scannedFile.path));
+        } catch (IOException e) {
+            log(e);
+        }
+        return null;
+    }
+
+    //saves the index, so the next instance with useManifest doesn't scan the directory
+    public void checkpoint(){
+        if(!useManifest || manifestSaved){
+            return;
+        }
+        String temporaryPath = manifestPath + ".tmp";
+        try (DataOutputStream manifestStream = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(Paths.get(temporaryPath))))){
+            manifestStream.writeInt(MANIFEST_MAGIC);
+            manifestStream.writeBoolean(sharded);
+            manifestStream.writeInt(indexedFiles.size());
+            for(IndexedFile indexedFile: filesByLastModified){
+                manifestStream.writeUTF(indexedFile.filePath);
+                manifestStream.writeLong(indexedFile.lastModified);
+                manifestStream.writeLong(indexedFile.sizeInBytes);
             }
+        } catch (IOException e) {
+            log(e);
+            return;
+        }
+        try {
+            Files.move(Paths.get(temporaryPath), Paths.get(manifestPath),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            manifestSaved = true;
+        } catch (IOException e) {
+            log(e);
+        }
+    }
+
+    private boolean loadManifest(){
+        if(!new File(manifestPath).exists()){
+            return false;
         }
+        try (DataInputStream manifestStream = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(Paths.get(manifestPath))))){
+            if(manifestStream.readInt() != MANIFEST_MAGIC || manifestStream.readBoolean() != sharded){
+                return false;
+            }
+            int numberOfFiles = manifestStream.readInt();
+            for(int i = 0; i < numberOfFiles; i++){
+                index(manifestStream.readUTF(), manifestStream.readLong(), manifestStream.readLong());
+            }
+        } catch (IOException e) {
+            log(e);
+            clearIndex();
+            return false;
+        }
+        manifestSaved = true;
+        return true;
+    }
+
+    private void invalidateManifest(){
+        if(manifestSaved){
+            FileUtils.deleteQuietly(new File(manifestPath));
+            manifestSaved = false;
+        }
+    }
+
+    private void index(String indexedPath, long lastModified, long fileSize){
+        IndexedFile indexedFile = new IndexedFile(indexedPath, lastModified, fileSize, nextSequenceNumber++);
+        indexedFiles.put(indexedPath, indexedFile);
+        filesByLastModified.add(indexedFile);
+        sizeInBytes += fileSize;
+    }
+
+    private void unindex(String indexedPath){
+        IndexedFile indexedFile = indexedFiles.remove(indexedPath);
+        if(indexedFile != null){
+            filesByLastModified.remove(indexedFile);
+            sizeInBytes -= indexedFile.sizeInBytes;
+        }
+    }
+
+    private void clearIndex(){
+        indexedFiles.clear();
+        filesByLastModified.clear();
+        sizeInBytes = 0;
+    }
+
+    private File storedFile(String indexedPath){
+        if(!sharded){
+            return new File(cacheModelPath + indexedPath);
+        }
+        String hash = String.format("%016x", PathHash.hash64(indexedPath));
+        return cacheModelDirectory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash).toFile();
+    }
+
+    private void writeContent(File storedFile, String url, long creationTime, String indexedPath) throws IOException {
+        String fileData = url + "\n"
+                + creationTime + "\n"
+                + (sharded ? indexedPath + "\n" : "");
+        FileUtils.writeStringToFile(storedFile, fileData, "UTF-8", false);
+    }
+
+    private static String[] readContent(File storedFile) throws IOException {
+        return new String(Files.readAllBytes(storedFile.toPath()), StandardCharsets.UTF_8).split("\n");
+    }
+
+    //the same file can be given as "/a//b.txt" or "/a/b.txt" - the index keeps its path relative to cacheModelPath
+    private String toIndexedPath(String filePath){
+        return toIndexedPath(Paths.get(cacheModelPath + filePath));
+    }
 
-        return numberOfFiles;
+    private String toIndexedPath(Path storedFile){
+        return "/" + FilenameUtils.separatorsToUnix(cacheModelDirectory.relativize(storedFile.normalize()).toString());
     }
 
     private void log(Exception e){
@@ -0,0 +1,9 @@
+package com.github.jansowa.model;
+
+public enum AccessDistribution {
+    UNIFORM,
+    //popularity of the n-th file is proportional to 1/n^zipfianConstant, zipfianConstant is in [0, 1)
+    ZIPFIAN,
+    //hotspotAccessFraction of accesses hit hotspotDataFraction of files
+    HOTSPOT
+}
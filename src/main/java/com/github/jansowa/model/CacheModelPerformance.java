@@ -47,6 +47,10 @@ class CacheModelPerformance {
             cacheModel.put(file);
     }
 
+    public void putFilesInBatch(FileBasicInfo[] files) {
+        cacheModel.putAll(Arrays.asList(files));
+    }
+
     public void removeFiles(String[] paths) {
         for(String path: paths)
             cacheModel.remove(path);
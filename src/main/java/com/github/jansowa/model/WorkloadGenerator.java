@@ -0,0 +1,205 @@
+package com.github.jansowa.model;
+
+import com.github.jansowa.domain.FileBasicInfo;
+import lombok.Getter;
+import org.apache.commons.io.FilenameUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+
+//Deterministic (for a given seed) generator of a directory tree and of operations on its files.
+//Directories are grown by preferential attachment, so fan-out and number of files per directory are skewed.
+//Moves rename whole subtrees and later operations use the new paths.
+public class WorkloadGenerator {
+    private static final String ROOT_DIRECTORY = "/data/";
+    private static final String[] EXTENSIONS = {"txt", "jpg", "pdf", "docx", "mp4", "json"};
+
+    @Getter private final WorkloadSettings settings;
+    private final SplittableRandom random;
+    private final List<String> directories = new ArrayList<>();
+    private final List<Integer> directoryDepths = new ArrayList<>();
+    private final String[] filePaths;
+    //popularity rank -> file, shuffled so hot files are spread over the whole tree
+    private final int[] filesByPopularity;
+    private final ZipfianSampler zipfianSampler;
+    private int remainingMovesInBurst;
+    private int numberOfMoves;
+
+    public WorkloadGenerator(WorkloadSettings settings){
+        this.settings = settings;
+        this.random = new SplittableRandom(settings.getSeed());
+        this.filePaths = new String[settings.getNumberOfFiles()];
+        this.filesByPopularity = new int[settings.getNumberOfFiles()];
+        generateTree();
+        this.zipfianSampler = settings.getAccessDistribution() == AccessDistribution.ZIPFIAN ?
+                new ZipfianSampler(settings.getNumberOfFiles(), settings.getZipfianConstant()) : null;
+    }
+
+    //files with the current paths, to fill a model before replaying operations
+    public List<FileBasicInfo> generateFiles(){
+        List<FileBasicInfo> files = new ArrayList<>(filePaths.length);
+        for(String filePath: filePaths){
+            files.add(describeFile(filePath));
+        }
+        return files;
+    }
+
+    public List<WorkloadOperation> generateOperations(int numberOfOperations){
+        List<WorkloadOperation> operations = new ArrayList<>(numberOfOperations);
+        for(int i=0; i<numberOfOperations; i++){
+            operations.add(nextOperation());
+        }
+        return operations;
+    }
+
+    public WorkloadOperation nextOperation(){
+        if(remainingMovesInBurst > 0){
+            remainingMovesInBurst--;
+            return nextMove();
+        }
+        double totalRatio = settings.getReadRatio() + settings.getWriteRatio()
+                + settings.getRemoveRatio() + settings.getMoveRatio();
+        double drawnRatio = random.nextDouble() * totalRatio;
+        if(drawnRatio < settings.getReadRatio()){
+            return WorkloadOperation.read(nextFilePath());
+        }
+        drawnRatio -= settings.getReadRatio();
+        if(drawnRatio < settings.getWriteRatio()){
+            return WorkloadOperation.put(nextFilePath());
+        }
+        drawnRatio -= settings.getWriteRatio();
+        if(drawnRatio < settings.getRemoveRatio() || directories.size() == 1){
+            return WorkloadOperation.remove(nextFilePath());
+        }
+        remainingMovesInBurst = settings.getMoveBurstSize() - 1;
+        return nextMove();
+    }
+
+    public static FileBasicInfo describeFile(String filePath){
+        Date creationTime = new Date();
+        return FileBasicInfo.builder()
+                .name(FilenameUtils.getBaseName(filePath))
+                .filePath(filePath)
+                .extension(FilenameUtils.getExtension(filePath))
+                .url("http://example.com" + filePath)
+                .creationTime(creationTime)
+                .lastUsageTime(creationTime)
+                .build();
+    }
+
+    private void generateTree(){
+        directories.add(ROOT_DIRECTORY);
+        directoryDepths.add(0);
+        for(int i=0; i<filePaths.length; i++){
+            if(random.nextDouble() < settings.getNewDirectoryProbability()){
+                int parent = skewedDirectory();
+                if(directoryDepths.get(parent) < settings.getMaxDepth()){
+                    directories.add(directories.get(parent) + "dir" + directories.size() + "/");
+                    directoryDepths.add(directoryDepths.get(parent) + 1);
+                }
+            }
+            filePaths[i] = directories.get(skewedDirectory()) + "file" + i + "."
+                    + EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+            filesByPopularity[i] = i;
+        }
+        for(int i=filesByPopularity.length-1; i>0; i--){
+            int swapped = random.nextInt(i + 1);
+            int file = filesByPopularity[i];
+            filesByPopularity[i] = filesByPopularity[swapped];
+            filesByPopularity[swapped] = file;
+        }
+    }
+
+    private int skewedDirectory(){
+        return (int) (directories.size() * Math.pow(random.nextDouble(), settings.getDirectorySkew()));
+    }
+
+    private String nextFilePath(){
+        int numberOfFiles = filePaths.length;
+        switch (settings.getAccessDistribution()){
+            case ZIPFIAN:
+                return filePaths[filesByPopularity[zipfianSampler.next(random.nextDouble())]];
+            case HOTSPOT:
+                int hotFiles = Math.max(1, Math.min(numberOfFiles, (int) (numberOfFiles * settings.getHotspotDataFraction())));
+                if(hotFiles == numberOfFiles || random.nextDouble() < settings.getHotspotAccessFraction()){
+                    return filePaths[filesByPopularity[random.nextInt(hotFiles)]];
+                }
+                return filePaths[filesByPopularity[hotFiles + random.nextInt(numberOfFiles - hotFiles)]];
+            default:
+                return filePaths[random.nextInt(numberOfFiles)];
+        }
+    }
+
+    //renames a random non-root directory together with everything below it
+    private WorkloadOperation nextMove(){
+        if(directories.size() == 1){
+            return WorkloadOperation.remove(nextFilePath());
+        }
+        String sourceDirectory = directories.get(1 + random.nextInt(directories.size() - 1));
+        String destinationDirectory = sourceDirectory.substring(0, sourceDirectory.length() - 1)
+                + "-moved" + numberOfMoves++ + "/";
+        for(int i=0; i<filePaths.length; i++){
+            if(filePaths[i].startsWith(sourceDirectory)){
+                filePaths[i] = destinationDirectory + filePaths[i].substring(sourceDirectory.length());
+            }
+        }
+        for(int i=0; i<directories.size(); i++){
+            if(directories.get(i).startsWith(sourceDirectory)){
+                directories.set(i, destinationDirectory + directories.get(i).substring(sourceDirectory.length()));
+            }
+        }
+        return WorkloadOperation.move(sourceDirectory, destinationDirectory);
+    }
+
+    String[] getFilePaths(){
+        return Arrays.copyOf(filePaths, filePaths.length);
+    }
+
+    int getNumberOfDirectories(){
+        return directories.size();
+    }
+
+    //Gray et al. "Quickly generating billion-record synthetic databases" - O(n) setup, O(1) per sample
+    private static class ZipfianSampler {
+        private final long items;
+        private final double theta;
+        private final double zetaN;
+        private final double alpha;
+        private final double eta;
+
+        //the sampler's closed form divides by 1 - theta, and doesn't describe the distribution above 1
+        private ZipfianSampler(long items, double theta){
+            if(theta < 0 || theta >= 1){
+                throw new IllegalArgumentException("Zipfian constant has to be in [0, 1): " + theta);
+            }
+            this.items = items;
+            this.theta = theta;
+            this.zetaN = zeta(items, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta(Math.min(2, items), theta) / zetaN);
+        }
+
+        private int next(double uniform){
+            double uz = uniform * zetaN;
+            if(uz < 1.0){
+                return 0;
+            }
+            if(items > 1 && uz < 1.0 + Math.pow(0.5, theta)){
+                return 1;
+            }
+            long rank = (long) (items * Math.pow(eta * uniform - eta + 1, alpha));
+            return (int) Math.min(rank, items - 1);
+        }
+
+        private static double zeta(long items, double theta){
+            double sum = 0;
+            for(long i=1; i<=items; i++){
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+    }
+}
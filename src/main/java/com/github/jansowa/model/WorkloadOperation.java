@@ -0,0 +1,29 @@
+package com.github.jansowa.model;
+
+import lombok.Value;
+
+@Value
+public class WorkloadOperation {
+    public enum OperationType { READ, PUT, REMOVE, MOVE }
+
+    OperationType type;
+    String filePath;
+    //set only for MOVE
+    String destinationPath;
+
+    public static WorkloadOperation read(String filePath){
+        return new WorkloadOperation(OperationType.READ, filePath, null);
+    }
+
+    public static WorkloadOperation put(String filePath){
+        return new WorkloadOperation(OperationType.PUT, filePath, null);
+    }
+
+    public static WorkloadOperation remove(String filePath){
+        return new WorkloadOperation(OperationType.REMOVE, filePath, null);
+    }
+
+    public static WorkloadOperation move(String sourcePath, String destinationPath){
+        return new WorkloadOperation(OperationType.MOVE, sourcePath, destinationPath);
+    }
+}
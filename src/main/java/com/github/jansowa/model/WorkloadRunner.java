@@ -0,0 +1,53 @@
+package com.github.jansowa.model;
+
+import com.github.jansowa.dao.CacheModel;
+import com.github.jansowa.domain.FileBasicInfo;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+//Replays operations against a model like a read-through cache: a missed read puts the file.
+@RequiredArgsConstructor
+public class WorkloadRunner {
+    @NonNull
+    @Getter private CacheModel cacheModel;
+    @Getter private long hits;
+    @Getter private long misses;
+
+    public void putFiles(List<FileBasicInfo> files){
+        files.forEach(cacheModel::put);
+    }
+
+    public void applyAll(List<WorkloadOperation> operations){
+        operations.forEach(this::apply);
+    }
+
+    public void apply(WorkloadOperation operation){
+        switch (operation.getType()){
+            case READ:
+                if(cacheModel.read(operation.getFilePath()).isPresent()){
+                    hits++;
+                } else {
+                    misses++;
+                    cacheModel.put(WorkloadGenerator.describeFile(operation.getFilePath()));
+                }
+                break;
+            case PUT:
+                cacheModel.put(WorkloadGenerator.describeFile(operation.getFilePath()));
+                break;
+            case REMOVE:
+                cacheModel.remove(operation.getFilePath());
+                break;
+            case MOVE:
+                cacheModel.movePath(operation.getFilePath(), operation.getDestinationPath());
+                break;
+        }
+    }
+
+    public double getHitRate(){
+        long reads = hits + misses;
+        return reads == 0 ? 0 : (double) hits / reads;
+    }
+}
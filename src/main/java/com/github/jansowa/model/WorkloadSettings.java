@@ -0,0 +1,29 @@
+package com.github.jansowa.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class WorkloadSettings {
+    @Builder.Default long seed = 42;
+    @Builder.Default int numberOfFiles = 10000;
+    @Builder.Default int maxDepth = 6;
+    //chance that a new file opens a new subdirectory
+    @Builder.Default double newDirectoryProbability = 0.1;
+    //1 spreads files evenly, higher values pile files and subdirectories into the oldest directories
+    @Builder.Default double directorySkew = 3.0;
+
+    @Builder.Default AccessDistribution accessDistribution = AccessDistribution.ZIPFIAN;
+    @Builder.Default double zipfianConstant = 0.99;
+    @Builder.Default double hotspotDataFraction = 0.2;
+    @Builder.Default double hotspotAccessFraction = 0.8;
+
+    //relative weights of operations, they don't have to sum up to 1
+    @Builder.Default double readRatio = 0.8;
+    @Builder.Default double writeRatio = 0.15;
+    @Builder.Default double removeRatio = 0.04;
+    @Builder.Default double moveRatio = 0.01;
+    //subtrees moved one after another once a move is drawn
+    @Builder.Default int moveBurstSize = 5;
+}
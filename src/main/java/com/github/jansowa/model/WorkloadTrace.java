@@ -0,0 +1,74 @@
+package com.github.jansowa.model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+//Text trace with one operation per line: TYPE<tab>path[<tab>destination path].
+//Empty lines and lines starting with # are skipped, so recorded traces can be annotated.
+public class WorkloadTrace {
+    private static final String SEPARATOR = "\t";
+
+    private WorkloadTrace(){
+    }
+
+    public static void write(List<WorkloadOperation> operations, String tracePath){
+        try(BufferedWriter writer = Files.newBufferedWriter(Paths.get(tracePath), StandardCharsets.UTF_8)){
+            for(WorkloadOperation operation: operations){
+                writer.write(operation.getType() + SEPARATOR + operation.getFilePath());
+                if(operation.getDestinationPath() != null){
+                    writer.write(SEPARATOR + operation.getDestinationPath());
+                }
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            log("Trace " + tracePath + " can't be saved: " + e);
+        }
+    }
+
+    public static List<WorkloadOperation> read(String tracePath){
+        List<WorkloadOperation> operations = new ArrayList<>();
+        try(BufferedReader reader = Files.newBufferedReader(Paths.get(tracePath), StandardCharsets.UTF_8)){
+            String line;
+            int lineNumber = 0;
+            while((line = reader.readLine()) != null){
+                lineNumber++;
+                if(line.trim().isEmpty() || line.startsWith("#")){
+                    continue;
+                }
+                WorkloadOperation operation = parse(line.split(SEPARATOR));
+                if(operation == null){
+                    log("Skipped malformed line " + lineNumber + " of trace " + tracePath);
+                } else {
+                    operations.add(operation);
+                }
+            }
+        } catch (IOException e) {
+            log("Trace " + tracePath + " can't be read: " + e);
+        }
+        return operations;
+    }
+
+    private static WorkloadOperation parse(String[] fields){
+        try {
+            WorkloadOperation.OperationType type = WorkloadOperation.OperationType.valueOf(fields[0].trim());
+            if(type == WorkloadOperation.OperationType.MOVE){
+                return fields.length == 3 ? WorkloadOperation.move(fields[1], fields[2]) : null;
+            }
+            return fields.length == 2 ? new WorkloadOperation(type, fields[1], null) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void log(String message){
+        Logger logger = Logger.getLogger(WorkloadTrace.class.getName());
+        logger.warning(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.jansowa.dao
+
+import spock.lang.Specification
+
+class PathHashSpec extends Specification {
+    //sharded TempFilesCacheModel folders and saved Bloom filters depend on these values
+    void "Should keep hashes of paths between versions"()
+    {
+        expect:
+            String.format("%016x", PathHash.hash64(path)) == expectedHash
+
+        where:
+            path                              | expectedHash
+            ""                                | "ecba3df2c3383c52"
+            "/a/b.txt"                        | "ae40c88f57afcf8d"
+            "/za\u017c\u00f3\u0142\u0107.txt" | "51d2788be8af34e8"
+    }
+}
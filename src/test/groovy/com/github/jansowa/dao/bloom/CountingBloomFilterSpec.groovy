@@ -0,0 +1,104 @@
+package com.github.jansowa.dao.bloom
+
+import spock.lang.Specification
+
+class CountingBloomFilterSpec extends Specification{
+    static final int EXPECTED_PATHS = 1000
+    static final double FALSE_POSITIVE_RATE = 0.01
+
+    void "Should contain every added path"()
+    {
+        given:
+            CountingBloomFilter filter = new CountingBloomFilter(EXPECTED_PATHS, FALSE_POSITIVE_RATE)
+
+        when:
+            (0..<EXPECTED_PATHS).each { filter.add("/test/sample" + it + ".txt") }
+
+        then:
+            (0..<EXPECTED_PATHS).every { filter.mightContain("/test/sample" + it + ".txt") }
+            filter.getNumberOfPaths()==EXPECTED_PATHS
+    }
+
+    void "Should keep false positive rate close to the expected one"()
+    {
+        given:
+            CountingBloomFilter filter = new CountingBloomFilter(EXPECTED_PATHS, FALSE_POSITIVE_RATE)
+            (0..<EXPECTED_PATHS).each { filter.add("/test/sample" + it + ".txt") }
+
+        when:
+            int falsePositives = (0..<10000).count { filter.mightContain("/other/sample" + it + ".txt") }
+
+        then:
+            falsePositives < 10000 * FALSE_POSITIVE_RATE * 3
+    }
+
+    void "Should forget removed path"()
+    {
+        given:
+            CountingBloomFilter filter = new CountingBloomFilter(EXPECTED_PATHS, FALSE_POSITIVE_RATE)
+            filter.add("/test/sample0.txt")
+            filter.add("/test/sample1.txt")
+
+        when:
+            filter.remove("/test/sample0.txt")
+
+        then:
+            !filter.mightContain("/test/sample0.txt")
+            filter.mightContain("/test/sample1.txt")
+    }
+
+    void "Should keep path added twice until it's removed twice"()
+    {
+        given:
+            CountingBloomFilter filter = new CountingBloomFilter(EXPECTED_PATHS, FALSE_POSITIVE_RATE)
+            filter.add("/test/sample0.txt")
+            filter.add("/test/sample0.txt")
+
+        when:
+            filter.remove("/test/sample0.txt")
+
+        then:
+            filter.mightContain("/test/sample0.txt")
+
+        when:
+            filter.remove("/test/sample0.txt")
+
+        then:
+            !filter.mightContain("/test/sample0.txt")
+    }
+
+    void "Should forget all paths after clear"()
+    {
+        given:
+            CountingBloomFilter filter = new CountingBloomFilter(EXPECTED_PATHS, FALSE_POSITIVE_RATE)
+            filter.add("/test/sample0.txt")
+
+        when:
+            filter.clear()
+
+        then:
+            !filter.mightContain("/test/sample0.txt")
+            filter.getNumberOfPaths()==0
+    }
+
+    void "Should read filter it has written"()
+    {
+        given:
+            CountingBloomFilter filter = new CountingBloomFilter(EXPECTED_PATHS, FALSE_POSITIVE_RATE)
+            filter.add("/test/sample0.txt")
+            filter.add("/test/sample1.txt")
+            ByteArrayOutputStream filterBytes = new ByteArrayOutputStream()
+            filter.writeTo(new DataOutputStream(filterBytes))
+
+        when:
+            CountingBloomFilter readFilter = CountingBloomFilter.readFrom(
+                    new DataInputStream(new ByteArrayInputStream(filterBytes.toByteArray())))
+
+        then:
+            readFilter.mightContain("/test/sample0.txt")
+            readFilter.mightContain("/test/sample1.txt")
+            !readFilter.mightContain("/test/sample2.txt")
+            readFilter.getNumberOfPaths()==2
+            readFilter.getExpectedNumberOfPaths()==EXPECTED_PATHS
+    }
+}
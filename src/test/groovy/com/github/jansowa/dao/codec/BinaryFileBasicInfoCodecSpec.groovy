@@ -0,0 +1,79 @@
+package com.github.jansowa.dao.codec
+
+import com.github.jansowa.domain.FileBasicInfo
+import spock.lang.Shared
+import spock.lang.Specification
+
+class BinaryFileBasicInfoCodecSpec extends Specification{
+    @Shared BinaryFileBasicInfoCodec codec = new BinaryFileBasicInfoCodec()
+    @Shared private FileBasicInfo[] sampleData
+
+    def setupSpec()
+    {
+        sampleData = new FileBasicInfo[3]
+        sampleData[0] = generateFileBasicInfo("sample0", "/test/")
+        sampleData[1] = generateFileBasicInfo("sample1", "/test/")
+        sampleData[2] = generateFileBasicInfo("sample2", "/test/folder/")
+    }
+
+    private static FileBasicInfo generateFileBasicInfo(String fileName, String folderPath){
+        Date creationDate = new Date()
+        return new FileBasicInfo(fileName, folderPath+fileName+".txt", "txt", "http://example.com/"+fileName+".txt", creationDate, creationDate)
+    }
+
+    private List<FileBasicInfo> writeAndRead(FileBasicInfoCodec usedCodec, List<FileBasicInfo> files){
+        ByteArrayOutputStream output = new ByteArrayOutputStream()
+        usedCodec.writeAll(files, output)
+        return usedCodec.readAll(new ByteArrayInputStream(output.toByteArray()))
+    }
+
+    void "Should read the same files in the same order"()
+    {
+        when:
+            List<FileBasicInfo> readFiles = writeAndRead(codec, sampleData.toList())
+
+        then:
+            readFiles == sampleData.toList()
+    }
+
+    void "Should keep name and extension which can't be derived from path"()
+    {
+        given:
+            FileBasicInfo fileWithoutExtension = new FileBasicInfo("file", "/fol/file", null, "example.com", new Date(), new Date(0))
+            FileBasicInfo fileWithOtherName = new FileBasicInfo("other", "/fol/file.txt", "pdf", null, null, null)
+
+        when:
+            List<FileBasicInfo> readFiles = writeAndRead(codec, [fileWithoutExtension, fileWithOtherName])
+
+        then:
+            readFiles == [fileWithoutExtension, fileWithOtherName]
+    }
+
+    void "Should write files in fewer bytes than Java serialization"()
+    {
+        given:
+            List<FileBasicInfo> files = (0..<100).collect { generateFileBasicInfo("file" + it, "/test/folder/") }
+            ByteArrayOutputStream binaryOutput = new ByteArrayOutputStream()
+            ByteArrayOutputStream javaOutput = new ByteArrayOutputStream()
+
+        when:
+            codec.writeAll(files, binaryOutput)
+            new JavaSerializationCodec().writeAll(files, javaOutput)
+
+        then:
+            binaryOutput.size() * 3 < javaOutput.size()
+    }
+
+    void "Should reject data written by other codec"()
+    {
+        given:
+            ByteArrayOutputStream javaOutput = new ByteArrayOutputStream()
+            new JavaSerializationCodec().writeAll(sampleData.toList(), javaOutput)
+
+        when:
+            codec.readAll(new ByteArrayInputStream(javaOutput.toByteArray()))
+
+        then:
+            thrown(IOException)
+    }
+}
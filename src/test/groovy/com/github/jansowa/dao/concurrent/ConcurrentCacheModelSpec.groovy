@@ -0,0 +1,242 @@
+package com.github.jansowa.dao.concurrent
+
+import com.github.jansowa.domain.FileBasicInfo
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class ConcurrentCacheModelSpec extends Specification{
+    @Shared ConcurrentCacheModel cacheModel
+    @Shared private FileBasicInfo[] sampleData
+    static final long MAX_FILES = 100
+    static final int THREADS = 8
+
+    def setupSpec()
+    {
+        sampleData = new FileBasicInfo[3]
+        sampleData[0] = generateFileBasicInfo("sample0", "/test/")
+        sampleData[1] = generateFileBasicInfo("sample1", "/test/")
+        sampleData[2] = generateFileBasicInfo("sample2", "/test/")
+    }
+
+    def setup()
+    {
+        cacheModel = new ConcurrentCacheModel(MAX_FILES)
+    }
+
+    def cleanup()
+    {
+        cacheModel.removeFromDevice()
+    }
+
+    private static FileBasicInfo generateFileBasicInfo(String fileName, String folderPath){
+        Date creationDate = new Date()
+        return new FileBasicInfo(fileName, folderPath+fileName+".txt", "txt", "http://example.com/"+fileName+".txt", creationDate, creationDate)
+    }
+
+    private static void runInParallel(Closure task){
+        def executor = Executors.newFixedThreadPool(THREADS)
+        def start = new CountDownLatch(1)
+        def futures = (0..<THREADS).collect { int thread ->
+            executor.submit({ start.await(); task(thread) } as Runnable)
+        }
+        start.countDown()
+        futures.each { it.get() }
+        executor.shutdown()
+        executor.awaitTermination(10, TimeUnit.SECONDS)
+    }
+
+    void "Should upload file"()
+    {
+        when:
+            cacheModel.put(sampleData[0])
+
+        then:
+            cacheModel.contains(sampleData[0].getFilePath())
+    }
+
+    void "Should delete uploaded file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.remove(sampleData[0].getFilePath())
+
+        then:
+            !cacheModel.contains(sampleData[0].getFilePath())
+            cacheModel.getNumberOfFiles()==0
+    }
+
+    void "Should read file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            FileBasicInfo downloadedInfo = cacheModel.read(sampleData[0].getFilePath()).get()
+
+        then:
+            downloadedInfo.withLastUsageTime(sampleData[0].lastUsageTime) == sampleData[0]
+    }
+
+    void "Read method should return Optional with null if there is no file in given path"()
+    {
+        when:
+            Optional<FileBasicInfo> downloadedInfo = cacheModel.read("/test/read")
+
+        then:
+            Optional.ofNullable(null) == downloadedInfo
+    }
+
+    void "Should replace file stored in the same path"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.put(sampleData[0].withLastUsageTime(new Date(0)))
+
+        then:
+            cacheModel.getNumberOfFiles()==1
+    }
+
+    void "Should move whole folder from first to second path"()
+    {
+        given:
+            String[] paths = ["move1/", "move1/", "move1/", "move1/move1-1/", "move2/"]
+            String sourceFolder = "/test/"
+            String destinationFolder = "/testDestination/"
+            for(int i=0; i<5; i++){
+                cacheModel.put(generateFileBasicInfo("file"+i, sourceFolder +paths[i]))
+            }
+
+        when:
+            cacheModel.movePath(sourceFolder, destinationFolder)
+
+        then:
+            for(int i=0; i<5; i++){
+                assert cacheModel.contains(destinationFolder+paths[i]+"file"+i+".txt")
+                assert !cacheModel.contains(sourceFolder+paths[i]+"file"+i+".txt")
+            }
+            cacheModel.read(destinationFolder+paths[0]+"file0.txt").get().filePath == destinationFolder+paths[0]+"file0.txt"
+            cacheModel.getNumberOfFiles()==5
+    }
+
+    void "Should remove all data"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.removeAllData()
+
+        then:
+            cacheModel.getNumberOfFiles()==0
+            cacheModel.getSizeInBytes()==0
+    }
+
+    void "Should get size of cache model in bytes"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            long size = cacheModel.getSizeInBytes()
+
+        then:
+            size>0
+    }
+
+    void "Should keep recently read file when cache is full"()
+    {
+        given:
+            cacheModel.setMaxNumberOfFiles(2)
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.read(sampleData[0].filePath)
+
+        when:
+            cacheModel.put(sampleData[2])
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.contains(sampleData[2].filePath)
+    }
+
+    void "Should remove files when max number of files decreases"()
+    {
+        given:
+            for(int i=0; i<MAX_FILES; i++){
+                cacheModel.put(generateFileBasicInfo("file"+i, "/test/"))
+            }
+
+        when:
+            cacheModel.setMaxNumberOfFiles(10)
+
+        then:
+            cacheModel.getNumberOfFiles()==10
+    }
+
+    void "Should never exceed max number of files under concurrent puts"()
+    {
+        given:
+            AtomicInteger maxObservedFiles = new AtomicInteger()
+
+        when:
+            runInParallel { int thread ->
+                for(int i=0; i<5000; i++){
+                    cacheModel.put(generateFileBasicInfo("file"+i, "/thread"+thread+"/"))
+                    cacheModel.read("/thread"+thread+"/file"+(i/2 as int)+".txt")
+                    maxObservedFiles.accumulateAndGet(cacheModel.getNumberOfFiles(), { a, b -> Math.max(a, b) })
+                }
+            }
+
+        then:
+            maxObservedFiles.get() <= MAX_FILES
+            cacheModel.getNumberOfFiles() == MAX_FILES
+    }
+
+    void "Should keep count exact under concurrent puts and removes of the same paths"()
+    {
+        when:
+            runInParallel { int thread ->
+                for(int i=0; i<5000; i++){
+                    String fileName = "file"+(i % 150)
+                    if(thread % 2 == 0){
+                        cacheModel.put(generateFileBasicInfo(fileName, "/shared/"))
+                    } else {
+                        cacheModel.remove("/shared/"+fileName+".txt")
+                    }
+                }
+            }
+            int storedFiles = (0..<150).count { cacheModel.contains("/shared/file"+it+".txt") } as int
+
+        then:
+            cacheModel.getNumberOfFiles() == storedFiles
+            storedFiles <= MAX_FILES
+            (0..<(MAX_FILES as int)).each { cacheModel.put(generateFileBasicInfo("refill"+it, "/refill/")) }
+            cacheModel.getNumberOfFiles() == MAX_FILES
+    }
+
+    void "Should list paths starting with prefix"()
+    {
+        given:
+            FileBasicInfo otherFile = generateFileBasicInfo("sample3", "/other/")
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.put(otherFile)
+
+        expect:
+            cacheModel.listPaths("/test/").sort() == [sampleData[0].filePath, sampleData[1].filePath]
+            cacheModel.listPaths("/oth").sort() == [otherFile.filePath]
+            cacheModel.listPaths("").sort() == [otherFile.filePath, sampleData[0].filePath, sampleData[1].filePath]
+            cacheModel.listPaths("/none/").isEmpty()
+    }
+}
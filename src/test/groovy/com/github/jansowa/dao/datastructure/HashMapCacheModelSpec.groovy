@@ -1,5 +1,6 @@
 package com.github.jansowa.dao.datastructure
 
+import com.github.jansowa.dao.codec.BinaryFileBasicInfoCodec
 import com.github.jansowa.domain.FileBasicInfo
 import spock.lang.Shared
 import spock.lang.Specification
@@ -253,4 +254,236 @@ class HashMapCacheModelSpec extends Specification{
         then:
             oldestFilePath == sampleData[1].filePath
     }
-}
\ No newline at end of file
+
+    void "Should remove least recently used file when cache is full"()
+    {
+        given:
+            HashMapCacheModel smallCacheModel = new HashMapCacheModel(2, CACHE_PATH)
+            smallCacheModel.put(sampleData[0])
+            smallCacheModel.put(sampleData[1])
+            smallCacheModel.read(sampleData[0].filePath)
+
+        when:
+            smallCacheModel.put(sampleData[2])
+
+        then:
+            smallCacheModel.contains(sampleData[0].filePath)
+            !smallCacheModel.contains(sampleData[1].filePath)
+            smallCacheModel.contains(sampleData[2].filePath)
+            smallCacheModel.getNumberOfFiles()==2
+    }
+
+    void "Read method should update last usage time"()
+    {
+        given:
+            cacheModel.put(sampleData[0].withLastUsageTime(new Date(0)))
+
+        when:
+            FileBasicInfo downloadedInfo = cacheModel.read(sampleData[0].filePath).get()
+
+        then:
+            downloadedInfo.lastUsageTime.time > 0
+            cacheModel.read(sampleData[0].filePath).get().lastUsageTime.time > 0
+    }
+
+    void "Should restore journaled changes after reload"()
+    {
+        given:
+            String destinationPath = "/moved/sample0.txt"
+            HashMapCacheModel journaledCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH, true)
+            journaledCacheModel.put(sampleData[0])
+            journaledCacheModel.put(sampleData[1])
+            journaledCacheModel.remove(sampleData[1].filePath)
+            journaledCacheModel.movePath(sampleData[0].filePath, destinationPath)
+            HashMapCacheModel loadedCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH, true)
+
+        when:
+            loadedCacheModel.loadData()
+
+        then:
+            !new File(CACHE_PATH).exists()
+            loadedCacheModel.contains(destinationPath)
+            !loadedCacheModel.contains(sampleData[0].filePath)
+            !loadedCacheModel.contains(sampleData[1].filePath)
+            loadedCacheModel.getNumberOfFiles()==1
+
+        cleanup:
+            journaledCacheModel.removeFromDevice()
+    }
+
+    void "Should compact journal into snapshot"()
+    {
+        given:
+            HashMapCacheModel journaledCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH, true)
+            journaledCacheModel.setMaxJournalRecords(2)
+            journaledCacheModel.put(sampleData[0])
+            journaledCacheModel.put(sampleData[1])
+            journaledCacheModel.put(sampleData[2])
+            HashMapCacheModel loadedCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH, true)
+
+        when:
+            loadedCacheModel.loadData()
+
+        then:
+            new File(CACHE_PATH).exists()
+            new File(CACHE_PATH + ".journal").length() < new File(CACHE_PATH).length()
+            loadedCacheModel.contains(sampleData[0].filePath)
+            loadedCacheModel.contains(sampleData[1].filePath)
+            loadedCacheModel.contains(sampleData[2].filePath)
+            loadedCacheModel.getNumberOfFiles()==3
+
+        cleanup:
+            journaledCacheModel.removeFromDevice()
+    }
+
+    void "Should ignore torn record at the end of journal"()
+    {
+        given:
+            HashMapCacheModel journaledCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH, true)
+            journaledCacheModel.put(sampleData[0])
+            journaledCacheModel.put(sampleData[1])
+            File journalFile = new File(CACHE_PATH + ".journal")
+            new RandomAccessFile(journalFile, "rw").withCloseable { it.setLength(journalFile.length() - 3) }
+            HashMapCacheModel loadedCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH, true)
+
+        when:
+            loadedCacheModel.loadData()
+
+        then:
+            loadedCacheModel.contains(sampleData[0].filePath)
+            !loadedCacheModel.contains(sampleData[1].filePath)
+            loadedCacheModel.getNumberOfFiles()==1
+
+        cleanup:
+            journaledCacheModel.removeFromDevice()
+    }
+
+    void "Should skip journal records already covered by snapshot"()
+    {
+        given:
+            HashMapCacheModel journaledCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH, true)
+            journaledCacheModel.put(sampleData[0])
+            journaledCacheModel.movePath("/test/", "/test/moved/")
+            File journalFile = new File(CACHE_PATH + ".journal")
+            byte[] journalBeforeSnapshot = journalFile.bytes
+            journaledCacheModel.saveData()
+            //crash after the snapshot was written, before the journal was cleared
+            journalFile.bytes = journalBeforeSnapshot
+            HashMapCacheModel loadedCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH, true)
+
+        when:
+            loadedCacheModel.loadData()
+
+        then:
+            loadedCacheModel.contains("/test/moved/sample0.txt")
+            !loadedCacheModel.contains("/test/moved/moved/sample0.txt")
+            !loadedCacheModel.contains(sampleData[0].filePath)
+            loadedCacheModel.getNumberOfFiles()==1
+
+        cleanup:
+            journaledCacheModel.removeFromDevice()
+    }
+
+    void "Should ignore journal record with corrupted length"()
+    {
+        given:
+            HashMapCacheModel journaledCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH, true)
+            journaledCacheModel.put(sampleData[0])
+            journaledCacheModel.put(sampleData[1])
+            File journalFile = new File(CACHE_PATH + ".journal")
+            long firstRecordLength
+            new RandomAccessFile(journalFile, "rw").withCloseable {
+                //[type][sequence number][payload length][payload][crc32]
+                it.seek(1 + 8)
+                firstRecordLength = 1 + 8 + 4 + it.readInt() + 8
+                it.seek(firstRecordLength + 1 + 8)
+                it.writeInt(Integer.MAX_VALUE)
+            }
+            HashMapCacheModel loadedCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH, true)
+
+        when:
+            loadedCacheModel.loadData()
+
+        then:
+            loadedCacheModel.contains(sampleData[0].filePath)
+            !loadedCacheModel.contains(sampleData[1].filePath)
+            loadedCacheModel.getNumberOfFiles()==1
+            journalFile.length()==firstRecordLength
+
+        cleanup:
+            journaledCacheModel.removeFromDevice()
+    }
+
+    void "Should load cache saved with binary codec"()
+    {
+        given:
+            HashMapCacheModel binaryCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH, false, new BinaryFileBasicInfoCodec())
+            binaryCacheModel.put(sampleData[0])
+            binaryCacheModel.put(sampleData[1])
+            HashMapCacheModel loadedCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH, false, new BinaryFileBasicInfoCodec())
+
+        when:
+            loadedCacheModel.loadData()
+
+        then:
+            loadedCacheModel.read(sampleData[0].filePath).get().getName() == sampleData[0].getName()
+            loadedCacheModel.read(sampleData[1].filePath).get().getCreationTime() == sampleData[1].getCreationTime()
+            loadedCacheModel.getNumberOfFiles()==2
+    }
+
+    void "Should put, read and remove files in batch"()
+    {
+        given:
+            List<FileBasicInfo> files = (0..<10).collect { generateFileBasicInfo("batch"+it, it % 2 == 0 ? "/batch/even/" : "/batch/odd/") }
+            List<String> paths = files*.filePath
+
+        when:
+            cacheModel.putAll(files)
+
+        then:
+            cacheModel.getNumberOfFiles()==10
+            cacheModel.containsAll(paths)
+            !cacheModel.containsAll(paths + "/batch/missing.txt")
+            cacheModel.readAll(paths + "/batch/missing.txt")*.filePath == paths
+
+        when:
+            cacheModel.removeAll(paths.subList(0, 5))
+
+        then:
+            cacheModel.getNumberOfFiles()==5
+            !cacheModel.contains(paths[0])
+            cacheModel.containsAll(paths.subList(5, 10))
+    }
+
+    void "Should keep newest files when batch exceeds max number of files"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.setMaxNumberOfFiles(2)
+
+        when:
+            cacheModel.putAll([sampleData[1], sampleData[2], generateFileBasicInfo("sample3", "/test/")])
+
+        then:
+            cacheModel.getNumberOfFiles()==2
+            !cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.contains(sampleData[2].filePath)
+            cacheModel.contains("/test/sample3.txt")
+    }
+
+    void "Should list paths starting with prefix"()
+    {
+        given:
+            FileBasicInfo otherFile = generateFileBasicInfo("sample3", "/other/")
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.put(otherFile)
+
+        expect:
+            cacheModel.listPaths("/test/").sort() == [sampleData[0].filePath, sampleData[1].filePath]
+            cacheModel.listPaths("/oth").sort() == [otherFile.filePath]
+            cacheModel.listPaths("").sort() == [otherFile.filePath, sampleData[0].filePath, sampleData[1].filePath]
+            cacheModel.listPaths("/none/").isEmpty()
+    }
+}
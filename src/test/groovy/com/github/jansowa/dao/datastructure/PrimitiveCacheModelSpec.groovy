@@ -0,0 +1,183 @@
+package com.github.jansowa.dao.datastructure
+
+import com.github.jansowa.domain.FileBasicInfo
+import spock.lang.Shared
+import spock.lang.Specification
+
+class PrimitiveCacheModelSpec extends Specification{
+    @Shared PrimitiveCacheModel cacheModel
+    @Shared private FileBasicInfo[] sampleData
+    static final long MAX_FILES = 2
+
+    def setupSpec()
+    {
+        sampleData = new FileBasicInfo[3]
+        sampleData[0] = generateFileBasicInfo("sample0", "/test/")
+        sampleData[1] = generateFileBasicInfo("sample1", "/test/")
+        sampleData[2] = generateFileBasicInfo("sample2", "/test/")
+    }
+
+    def setup()
+    {
+        cacheModel = new PrimitiveCacheModel(MAX_FILES)
+    }
+
+    def cleanup()
+    {
+        cacheModel.removeFromDevice()
+    }
+
+    private static FileBasicInfo generateFileBasicInfo(String fileName, String folderPath){
+        Date creationDate = new Date()
+        return new FileBasicInfo(fileName, folderPath+fileName+".txt", "txt", "http://example.com/"+fileName+".txt", creationDate, creationDate)
+    }
+
+    void "Should read stored file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            FileBasicInfo readFile = cacheModel.read(sampleData[0].filePath).get()
+
+        then:
+            readFile.name == sampleData[0].name
+            readFile.filePath == sampleData[0].filePath
+            readFile.extension == sampleData[0].extension
+            readFile.url == sampleData[0].url
+            readFile.creationTime == sampleData[0].creationTime
+            !cacheModel.read(sampleData[1].filePath).isPresent()
+    }
+
+    void "Should replace file stored in the same path"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.put(new FileBasicInfo("sample0", sampleData[0].filePath, "txt", "http://example.com/other", new Date(), new Date()))
+
+        then:
+            cacheModel.getNumberOfFiles()==1
+            cacheModel.read(sampleData[0].filePath).get().url == "http://example.com/other"
+    }
+
+    void "Should delete stored file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.remove(sampleData[0].filePath)
+
+        then:
+            !cacheModel.contains(sampleData[0].filePath)
+            cacheModel.contains(sampleData[1].filePath)
+            cacheModel.getNumberOfFiles()==1
+    }
+
+    void "Should evict least recently used file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.touch(sampleData[0].filePath)
+
+        when:
+            cacheModel.put(sampleData[2])
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.contains(sampleData[2].filePath)
+            !cacheModel.touch(sampleData[1].filePath)
+    }
+
+    void "Should move whole folder from first to second path"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(generateFileBasicInfo("other", "/other/"))
+
+        when:
+            cacheModel.movePath("/test/", "/moved/")
+
+        then:
+            !cacheModel.contains(sampleData[0].filePath)
+            cacheModel.read("/moved/sample0.txt").get().name == sampleData[0].name
+            cacheModel.contains("/other/other.txt")
+            cacheModel.listPaths("/moved/") == ["/moved/sample0.txt"]
+    }
+
+    void "Should remove files when max number of files decreases"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.setMaxNumberOfFiles(1)
+
+        then:
+            !cacheModel.contains(sampleData[0].filePath)
+            cacheModel.contains(sampleData[1].filePath)
+    }
+
+    void "Should keep null and non-ASCII fields"()
+    {
+        given:
+            FileBasicInfo file = new FileBasicInfo(null, "/zażółć/😀.txt", null, "http://example.com/\uD800", new Date(), new Date())
+
+        when:
+            cacheModel.put(file)
+
+        then:
+            cacheModel.contains("/zażółć/😀.txt")
+            !cacheModel.contains("/zażółć/😀.tx")
+            cacheModel.read("/zażółć/😀.txt").get().name == null
+            cacheModel.read("/zażółć/😀.txt").get().extension == null
+            cacheModel.read("/zażółć/😀.txt").get().url == "http://example.com/?"
+    }
+
+    void "Should keep index and pool consistent after many puts and removes"()
+    {
+        given:
+            cacheModel.setMaxNumberOfFiles(1000)
+            Random random = new Random(42)
+            Set<String> storedPaths = new HashSet<>()
+
+        when:
+            for(int i = 0; i < 20000; i++){
+                String filePath = "/random/" + random.nextInt(1500) + ".txt"
+                if(random.nextBoolean() && storedPaths.size() < 1000){
+                    cacheModel.put(generateFileBasicInfo(filePath.substring(8), "/random/").withFilePath(filePath))
+                    storedPaths.add(filePath)
+                } else {
+                    cacheModel.remove(filePath)
+                    storedPaths.remove(filePath)
+                }
+            }
+
+        then:
+            cacheModel.getNumberOfFiles() == storedPaths.size()
+            (0..<1500).every { cacheModel.contains("/random/" + it + ".txt") == storedPaths.contains("/random/" + it + ".txt") }
+            storedPaths.every { cacheModel.read(it).get().name == it.substring(8) }
+            cacheModel.listPaths("/random/").toSet() == storedPaths
+    }
+
+    void "Should remove all data"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.removeAllData()
+
+        then:
+            cacheModel.getNumberOfFiles()==0
+            !cacheModel.contains(sampleData[0].filePath)
+            cacheModel.listPaths("").isEmpty()
+    }
+}
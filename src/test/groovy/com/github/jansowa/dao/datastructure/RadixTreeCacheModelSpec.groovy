@@ -0,0 +1,466 @@
+package com.github.jansowa.dao.datastructure
+
+import com.github.jansowa.dao.codec.BinaryFileBasicInfoCodec
+import com.github.jansowa.domain.FileBasicInfo
+import spock.lang.Shared
+import spock.lang.Specification
+
+class RadixTreeCacheModelSpec extends Specification{
+    @Shared RadixTreeCacheModel cacheModel
+    @Shared private FileBasicInfo[] sampleData
+    static final long MAX_FILES = 100
+    static final String CACHE_PATH = "RadixTreeCacheModelTest.ser"
+
+    def setupSpec()
+    {
+        sampleData = new FileBasicInfo[3]
+        sampleData[0] = generateFileBasicInfo("sample0", "/test/")
+        sampleData[1] = generateFileBasicInfo("sample1", "/test/")
+        sampleData[2] = generateFileBasicInfo("sample2", "/test/")
+    }
+
+    def setup()
+    {
+        cacheModel = new RadixTreeCacheModel(MAX_FILES, CACHE_PATH)
+    }
+
+    def cleanup()
+    {
+        cacheModel.removeFromDevice()
+    }
+
+    private static FileBasicInfo generateFileBasicInfo(String fileName, String folderPath){
+        Date creationDate = new Date()
+        return new FileBasicInfo(fileName, folderPath+fileName+".txt", "txt", "http://example.com/"+fileName+".txt", creationDate, creationDate)
+    }
+
+    void "Should upload file"()
+    {
+        when:
+            cacheModel.put(sampleData[0])
+
+        then:
+            cacheModel.contains(sampleData[0].getFilePath())
+    }
+
+    void "Should delete uploaded file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.remove(sampleData[0].getFilePath())
+
+        then:
+            !cacheModel.contains(sampleData[0].getFilePath())
+    }
+
+    void "Should read file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            Optional<FileBasicInfo> downloadedInfo = cacheModel.read(sampleData[0].getFilePath())
+
+        then:
+            downloadedInfo.get().creationTime == sampleData[0].creationTime
+            downloadedInfo.get().name == sampleData[0].name
+    }
+
+    void "Read method should return Optional with null if there is no file in given path"()
+    {
+        given:
+            String readTestPath = "/test/read"
+
+        when:
+            Optional<FileBasicInfo> downloadedInfo= cacheModel.read(readTestPath)
+
+        then:
+            Optional.ofNullable(null) == downloadedInfo
+    }
+
+    void "Contain method should return true if model contains file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            boolean result = cacheModel.contains(sampleData[0].getFilePath())
+
+        then:
+            result
+    }
+
+    void "Contain method should return false if model doesn't contain file"()
+    {
+        given:
+            String containsTestPath = "/test/contains"
+
+        when:
+            boolean result = cacheModel.contains(containsTestPath)
+
+        then:
+            !result
+    }
+
+    void "Should move single file from first to second path"()
+    {
+        given:
+            String destinationPath = "/test/destination"
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.movePath(sampleData[0].getFilePath(), destinationPath)
+
+        then:
+            cacheModel.contains(destinationPath)
+            !cacheModel.contains(sampleData[0].filePath)
+    }
+
+    void "Should move whole folder from first to second path"()
+    {
+        given:
+            String[] paths = new String[5]
+            String sourceFolder = "/test/"
+            String destinationFolder = "/testDestination/"
+            for(int i=0; i<3; i++){
+                paths[i] = "move1/"
+            }
+            paths[3] = "move1/move1-1/"
+            paths[4] = "move2/"
+            FileBasicInfo generatedFile
+
+            for(int i=0; i<5; i++){
+                generatedFile = generateFileBasicInfo("file"+i, sourceFolder +paths[i])
+                cacheModel.put(generatedFile)
+            }
+
+        when:
+            cacheModel.movePath(sourceFolder, destinationFolder)
+
+        then:
+            cacheModel.contains(destinationFolder+paths[0]+"file0.txt")
+            cacheModel.contains(destinationFolder+paths[1]+"file1.txt")
+            cacheModel.contains(destinationFolder+paths[2]+"file2.txt")
+            cacheModel.contains(destinationFolder+paths[3]+"file3.txt")
+            cacheModel.contains(destinationFolder+paths[4]+"file4.txt")
+    }
+
+    void "Should get number of stored files"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.put(sampleData[2])
+
+        when:
+            int numberOfFiles = cacheModel.getNumberOfFiles()
+
+        then:
+            numberOfFiles == 3
+    }
+
+    void "Should remove all data"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.removeAllData()
+
+        then:
+            !cacheModel.contains(sampleData[0].getFilePath())
+            !cacheModel.contains(sampleData[1].getFilePath())
+            cacheModel.getNumberOfFiles()==0
+    }
+
+    void "Should save cache on device"()
+    {
+        given:
+            File cacheModelFile = new File(CACHE_PATH)
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.saveData()
+
+        then:
+            cacheModelFile.exists()
+    }
+
+    void "Should load cache from device"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.saveData()
+            RadixTreeCacheModel loadedCacheModel = new RadixTreeCacheModel(MAX_FILES, CACHE_PATH)
+
+        when:
+            loadedCacheModel.loadData()
+
+        then:
+            loadedCacheModel != null
+            loadedCacheModel
+                .read(sampleData[0]
+                .filePath)
+                .get()
+                .getName() == sampleData[0].getName()
+        loadedCacheModel
+                .read(sampleData[1]
+                .filePath)
+                .get()
+                .getCreationTime() == sampleData[1].getCreationTime()
+
+    }
+
+    void "Should remove cache from device"()
+    {
+        given:
+            cacheModel.saveData()
+
+        when:
+            cacheModel.removeFromDevice()
+            File cacheModelFile = new File(CACHE_PATH)
+
+        then:
+            !cacheModelFile.exists()
+    }
+
+    void "Should get size of cache model in bytes"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            double size = cacheModel.getSizeInBytes()
+
+        then:
+            size>0
+    }
+
+    void "Should remove least recently used file when cache is full"()
+    {
+        given:
+            RadixTreeCacheModel smallCacheModel = new RadixTreeCacheModel(2, CACHE_PATH)
+            smallCacheModel.put(sampleData[0])
+            smallCacheModel.put(sampleData[1])
+            smallCacheModel.read(sampleData[0].filePath)
+
+        when:
+            smallCacheModel.put(sampleData[2])
+
+        then:
+            smallCacheModel.contains(sampleData[0].filePath)
+            !smallCacheModel.contains(sampleData[1].filePath)
+            smallCacheModel.contains(sampleData[2].filePath)
+            smallCacheModel.getNumberOfFiles()==2
+    }
+
+    void "Read method should update last usage time"()
+    {
+        given:
+            cacheModel.put(sampleData[0].withLastUsageTime(new Date(0)))
+
+        when:
+            FileBasicInfo downloadedInfo = cacheModel.read(sampleData[0].filePath).get()
+
+        then:
+            downloadedInfo.lastUsageTime.time > 0
+            cacheModel.read(sampleData[0].filePath).get().lastUsageTime.time > 0
+    }
+
+    void "Should restore journaled changes after reload"()
+    {
+        given:
+            String destinationPath = "/moved/sample0.txt"
+            RadixTreeCacheModel journaledCacheModel = new RadixTreeCacheModel(MAX_FILES, CACHE_PATH, true)
+            journaledCacheModel.put(sampleData[0])
+            journaledCacheModel.put(sampleData[1])
+            journaledCacheModel.remove(sampleData[1].filePath)
+            journaledCacheModel.movePath(sampleData[0].filePath, destinationPath)
+            RadixTreeCacheModel loadedCacheModel = new RadixTreeCacheModel(MAX_FILES, CACHE_PATH, true)
+
+        when:
+            loadedCacheModel.loadData()
+
+        then:
+            !new File(CACHE_PATH).exists()
+            loadedCacheModel.contains(destinationPath)
+            !loadedCacheModel.contains(sampleData[0].filePath)
+            !loadedCacheModel.contains(sampleData[1].filePath)
+            loadedCacheModel.getNumberOfFiles()==1
+
+        cleanup:
+            journaledCacheModel.removeFromDevice()
+    }
+
+    void "Should put, read and remove files in batch"()
+    {
+        given:
+            List<FileBasicInfo> files = (0..<10).collect { generateFileBasicInfo("batch"+it, it % 2 == 0 ? "/batch/even/" : "/batch/odd/") }
+            List<String> paths = files*.filePath
+
+        when:
+            cacheModel.putAll(files)
+
+        then:
+            cacheModel.getNumberOfFiles()==10
+            cacheModel.containsAll(paths)
+            !cacheModel.containsAll(paths + "/batch/missing.txt")
+            cacheModel.readAll(paths + "/batch/missing.txt")*.filePath == paths
+
+        when:
+            cacheModel.removeAll(paths.subList(0, 5))
+
+        then:
+            cacheModel.getNumberOfFiles()==5
+            !cacheModel.contains(paths[0])
+            cacheModel.containsAll(paths.subList(5, 10))
+    }
+
+    void "Should keep newest files when batch exceeds max number of files"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.setMaxNumberOfFiles(2)
+
+        when:
+            cacheModel.putAll([sampleData[1], sampleData[2], generateFileBasicInfo("sample3", "/test/")])
+
+        then:
+            cacheModel.getNumberOfFiles()==2
+            !cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.contains(sampleData[2].filePath)
+            cacheModel.contains("/test/sample3.txt")
+    }
+
+    void "Should move folder into its own subfolder"()
+    {
+        given:
+            cacheModel.put(generateFileBasicInfo("file0", "/a/"))
+            cacheModel.put(generateFileBasicInfo("file1", "/a/b/"))
+
+        when:
+            cacheModel.movePath("/a/", "/a/b/")
+
+        then:
+            cacheModel.listPaths("") == ["/a/b/b/file1.txt", "/a/b/file0.txt"]
+            cacheModel.getNumberOfFiles()==2
+    }
+
+    void "Should merge moved folder with existing destination folder"()
+    {
+        given:
+            cacheModel.put(generateFileBasicInfo("file0", "/source/"))
+            cacheModel.put(generateFileBasicInfo("file1", "/source/"))
+            cacheModel.put(new FileBasicInfo("file1", "/destination/file1.txt", "txt", "old", new Date(), new Date()))
+            cacheModel.put(generateFileBasicInfo("file2", "/destination/"))
+
+        when:
+            cacheModel.movePath("/source/", "/destination/")
+
+        then:
+            cacheModel.listPaths("/") == ["/destination/file0.txt", "/destination/file1.txt", "/destination/file2.txt"]
+            cacheModel.read("/destination/file1.txt").get().url == "http://example.com/file1.txt"
+            cacheModel.getNumberOfFiles()==3
+    }
+
+    void "Should move paths sharing a prefix which isn't a folder"()
+    {
+        given:
+            cacheModel.put(generateFileBasicInfo("file0", "/source/"))
+            cacheModel.put(generateFileBasicInfo("file1", "/sourceOther/"))
+            cacheModel.put(generateFileBasicInfo("file2", "/solo/"))
+
+        when:
+            cacheModel.movePath("/source", "/target")
+
+        then:
+            cacheModel.listPaths("") == ["/solo/file2.txt", "/target/file0.txt", "/targetOther/file1.txt"]
+    }
+
+    void "Should count files and bytes below prefix"()
+    {
+        given:
+            cacheModel.put(generateFileBasicInfo("file0", "/count/a/"))
+            cacheModel.put(generateFileBasicInfo("file1", "/count/a/"))
+            cacheModel.put(generateFileBasicInfo("file2", "/count/b/"))
+            cacheModel.put(generateFileBasicInfo("file3", "/other/"))
+
+        expect:
+            cacheModel.getNumberOfFiles("/count/") == 3
+            cacheModel.getNumberOfFiles("/count/a") == 2
+            cacheModel.getNumberOfFiles("/co") == 3
+            cacheModel.getNumberOfFiles("/missing/") == 0
+            cacheModel.getNumberOfFiles("") == 4
+            cacheModel.getEstimatedSizeInBytes("/count/a/") > 0
+            cacheModel.getEstimatedSizeInBytes("/count/") ==
+                    cacheModel.getEstimatedSizeInBytes("/count/a/") + cacheModel.getEstimatedSizeInBytes("/count/b/")
+            cacheModel.getEstimatedSizeInBytes("") ==
+                    cacheModel.getEstimatedSizeInBytes("/count/") + cacheModel.getEstimatedSizeInBytes("/other/")
+    }
+
+    void "Should update counts after move and remove"()
+    {
+        given:
+            cacheModel.put(generateFileBasicInfo("file0", "/count/a/"))
+            cacheModel.put(generateFileBasicInfo("file1", "/count/a/"))
+            cacheModel.put(generateFileBasicInfo("file2", "/count/b/"))
+
+        when:
+            cacheModel.movePath("/count/a/", "/moved/")
+            cacheModel.remove("/count/b/file2.txt")
+
+        then:
+            cacheModel.getNumberOfFiles("/count/") == 0
+            cacheModel.getNumberOfFiles("/moved/") == 2
+            cacheModel.getEstimatedSizeInBytes("/count/") == 0
+            cacheModel.getEstimatedSizeInBytes("") == cacheModel.getEstimatedSizeInBytes("/moved/")
+            cacheModel.listPaths("/count/").isEmpty()
+    }
+
+    void "Should keep usage order of moved files"()
+    {
+        given:
+            RadixTreeCacheModel smallCacheModel = new RadixTreeCacheModel(3, CACHE_PATH)
+            smallCacheModel.put(generateFileBasicInfo("file0", "/a/"))
+            smallCacheModel.put(generateFileBasicInfo("file1", "/b/"))
+            smallCacheModel.put(generateFileBasicInfo("file2", "/a/"))
+            smallCacheModel.movePath("/a/", "/c/")
+
+        when:
+            smallCacheModel.put(generateFileBasicInfo("file3", "/d/"))
+
+        then:
+            !smallCacheModel.contains("/c/file0.txt")
+            smallCacheModel.contains("/b/file1.txt")
+            smallCacheModel.contains("/c/file2.txt")
+            smallCacheModel.read("/c/file2.txt").get().filePath == "/c/file2.txt"
+    }
+
+    void "Should restore journaled moves of folders after reload"()
+    {
+        given:
+            RadixTreeCacheModel journaledCacheModel = new RadixTreeCacheModel(MAX_FILES, CACHE_PATH, true, new BinaryFileBasicInfoCodec())
+            journaledCacheModel.setMaxJournalRecords(3)
+            journaledCacheModel.put(generateFileBasicInfo("file0", "/a/"))
+            journaledCacheModel.put(generateFileBasicInfo("file1", "/a/b/"))
+            journaledCacheModel.put(generateFileBasicInfo("file2", "/c/"))
+            journaledCacheModel.movePath("/a/", "/moved/")
+            journaledCacheModel.remove("/c/file2.txt")
+            RadixTreeCacheModel loadedCacheModel = new RadixTreeCacheModel(MAX_FILES, CACHE_PATH, true, new BinaryFileBasicInfoCodec())
+
+        when:
+            loadedCacheModel.loadData()
+
+        then:
+            loadedCacheModel.listPaths("") == ["/moved/b/file1.txt", "/moved/file0.txt"]
+            loadedCacheModel.read("/moved/file0.txt").get().filePath == "/moved/file0.txt"
+
+        cleanup:
+            journaledCacheModel.removeFromDevice()
+    }
+}
@@ -0,0 +1,185 @@
+package com.github.jansowa.dao.decorator
+
+import com.github.jansowa.dao.CacheModel
+import com.github.jansowa.dao.datastructure.HashMapCacheModel
+import com.github.jansowa.domain.FileBasicInfo
+import spock.lang.Shared
+import spock.lang.Specification
+
+class BloomFilterCacheModelSpec extends Specification{
+    @Shared BloomFilterCacheModel cacheModel
+    @Shared HashMapCacheModel storedCacheModel
+    @Shared private FileBasicInfo[] sampleData
+    static final long MAX_FILES = 100
+    static final String CACHE_PATH = "BloomFilterCacheModelTest.ser"
+    static final String FILTER_PATH = "BloomFilterCacheModelTest.bloom"
+
+    def setupSpec()
+    {
+        sampleData = new FileBasicInfo[3]
+        sampleData[0] = generateFileBasicInfo("sample0", "/test/")
+        sampleData[1] = generateFileBasicInfo("sample1", "/test/")
+        sampleData[2] = generateFileBasicInfo("sample2", "/test/")
+    }
+
+    def setup()
+    {
+        storedCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH)
+        cacheModel = new BloomFilterCacheModel(storedCacheModel, FILTER_PATH)
+    }
+
+    def cleanup()
+    {
+        cacheModel.removeFromDevice()
+    }
+
+    private static FileBasicInfo generateFileBasicInfo(String fileName, String folderPath){
+        Date creationDate = new Date()
+        return new FileBasicInfo(fileName, folderPath+fileName+".txt", "txt", "http://example.com/"+fileName+".txt", creationDate, creationDate)
+    }
+
+    void "Should find put file"()
+    {
+        when:
+            cacheModel.put(sampleData[0])
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+            cacheModel.read(sampleData[0].filePath).get().url == sampleData[0].url
+            !cacheModel.contains(sampleData[1].filePath)
+    }
+
+    void "Should answer misses without wrapped model"()
+    {
+        given:
+            CacheModel mockedCacheModel = Mock()
+            mockedCacheModel.listPaths("") >> []
+            BloomFilterCacheModel mockedBloomFilter = new BloomFilterCacheModel(mockedCacheModel)
+
+        when:
+            boolean containsFile = mockedBloomFilter.contains(sampleData[0].filePath)
+            Optional<FileBasicInfo> readFile = mockedBloomFilter.read(sampleData[0].filePath)
+            List<FileBasicInfo> readFiles = mockedBloomFilter.readAll([sampleData[1].filePath])
+
+        then:
+            !containsFile
+            !readFile.isPresent()
+            readFiles.isEmpty()
+            0 * mockedCacheModel.contains(_)
+            0 * mockedCacheModel.read(_)
+            0 * mockedCacheModel.readAll(_)
+    }
+
+    void "Should find files stored before it was created"()
+    {
+        given:
+            storedCacheModel.put(sampleData[0])
+
+        when:
+            BloomFilterCacheModel newCacheModel = new BloomFilterCacheModel(storedCacheModel)
+
+        then:
+            newCacheModel.contains(sampleData[0].filePath)
+    }
+
+    void "Should forget removed files"()
+    {
+        given:
+            cacheModel.putAll([sampleData[0], sampleData[1], sampleData[2]])
+
+        when:
+            cacheModel.remove(sampleData[0].filePath)
+            cacheModel.removeAll([sampleData[1].filePath, sampleData[1].filePath])
+
+        then:
+            !cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.contains(sampleData[2].filePath)
+    }
+
+    void "Should keep file put again after removal"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[0])
+            cacheModel.remove(sampleData[0].filePath)
+
+        when:
+            cacheModel.put(sampleData[0])
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+    }
+
+    void "Should follow moved folder"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.movePath("/test/", "/moved/")
+
+        then:
+            cacheModel.contains("/moved/sample0.txt")
+            cacheModel.contains("/moved/sample1.txt")
+            !cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.read(sampleData[1].filePath).isPresent()
+    }
+
+    void "Should forget all files after removing all data"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.removeAllData()
+
+        then:
+            !cacheModel.contains(sampleData[0].filePath)
+    }
+
+    void "Should load filter saved by close instead of rebuilding it"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.close()
+            CacheModel mockedCacheModel = Mock()
+            mockedCacheModel.getNumberOfFiles() >> 1
+            mockedCacheModel.contains(sampleData[0].filePath) >> true
+
+        when:
+            BloomFilterCacheModel loadedCacheModel = new BloomFilterCacheModel(mockedCacheModel, FILTER_PATH)
+
+        then:
+            0 * mockedCacheModel.listPaths(_)
+            loadedCacheModel.contains(sampleData[0].filePath)
+            !loadedCacheModel.contains(sampleData[1].filePath)
+            !new File(FILTER_PATH).exists()
+    }
+
+    void "Should rebuild filter that wasn't saved"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            BloomFilterCacheModel newCacheModel = new BloomFilterCacheModel(storedCacheModel, FILTER_PATH)
+
+        then:
+            newCacheModel.contains(sampleData[0].filePath)
+    }
+
+    void "Should rebuild saved filter missing files of wrapped model"()
+    {
+        given:
+            cacheModel.close()
+            storedCacheModel.put(sampleData[0])
+
+        when:
+            BloomFilterCacheModel newCacheModel = new BloomFilterCacheModel(storedCacheModel, FILTER_PATH)
+
+        then:
+            newCacheModel.contains(sampleData[0].filePath)
+    }
+}
@@ -0,0 +1,276 @@
+package com.github.jansowa.dao.decorator
+
+import com.github.jansowa.dao.CacheModel
+import com.github.jansowa.dao.datastructure.HashMapCacheModel
+import com.github.jansowa.dao.relationaldb.SQLiteCacheModel1
+import com.github.jansowa.domain.FileBasicInfo
+import spock.lang.Shared
+import spock.lang.Specification
+
+class TieredCacheModelSpec extends Specification{
+    @Shared TieredCacheModel cacheModel
+    @Shared HashMapCacheModel coldCacheModel
+    @Shared private FileBasicInfo[] sampleData
+    static final long MAX_FILES = 100
+    static final int HOT_CAPACITY = 2
+    static final String CACHE_PATH = "TieredCacheModelTest.ser"
+
+    def setupSpec()
+    {
+        sampleData = new FileBasicInfo[3]
+        sampleData[0] = generateFileBasicInfo("sample0", "/test/")
+        sampleData[1] = generateFileBasicInfo("sample1", "/test/")
+        sampleData[2] = generateFileBasicInfo("sample2", "/test/")
+    }
+
+    def setup()
+    {
+        coldCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH)
+        cacheModel = new TieredCacheModel(coldCacheModel, HOT_CAPACITY)
+    }
+
+    def cleanup()
+    {
+        cacheModel.removeFromDevice()
+    }
+
+    private static FileBasicInfo generateFileBasicInfo(String fileName, String folderPath){
+        Date creationDate = new Date()
+        return new FileBasicInfo(fileName, folderPath+fileName+".txt", "txt", "http://example.com/"+fileName+".txt", creationDate, creationDate)
+    }
+
+    void "Should write put file to both tiers"()
+    {
+        when:
+            cacheModel.put(sampleData[0])
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+            cacheModel.read(sampleData[0].filePath).get().url == sampleData[0].url
+            coldCacheModel.contains(sampleData[0].filePath)
+            cacheModel.getNumberOfHotFiles()==1
+    }
+
+    void "Should read hot file without cold tier"()
+    {
+        given:
+            CacheModel mockedCacheModel = Mock()
+            mockedCacheModel.getMaxNumberOfFiles() >> MAX_FILES
+            mockedCacheModel.listPaths("") >> []
+            TieredCacheModel mockedTiered = new TieredCacheModel(mockedCacheModel, HOT_CAPACITY)
+            mockedTiered.put(sampleData[0])
+
+        when:
+            Optional<FileBasicInfo> readFile = mockedTiered.read(sampleData[0].filePath)
+            boolean containsFile = mockedTiered.contains(sampleData[0].filePath)
+
+        then:
+            readFile.isPresent()
+            containsFile
+            0 * mockedCacheModel.read(_)
+            0 * mockedCacheModel.contains(_)
+    }
+
+    void "Should answer misses with filter without cold tier"()
+    {
+        given:
+            CacheModel mockedCacheModel = Mock()
+            mockedCacheModel.getMaxNumberOfFiles() >> MAX_FILES
+            mockedCacheModel.listPaths("") >> []
+            TieredCacheModel mockedTiered = new TieredCacheModel(mockedCacheModel, HOT_CAPACITY)
+
+        when:
+            boolean containsFile = mockedTiered.contains(sampleData[0].filePath)
+            Optional<FileBasicInfo> readFile = mockedTiered.read(sampleData[0].filePath)
+
+        then:
+            !containsFile
+            !readFile.isPresent()
+            0 * mockedCacheModel.contains(_)
+            0 * mockedCacheModel.read(_)
+    }
+
+    void "Should find files stored in cold tier before it was created"()
+    {
+        given:
+            coldCacheModel.put(sampleData[0])
+
+        when:
+            TieredCacheModel newCacheModel = new TieredCacheModel(coldCacheModel, HOT_CAPACITY)
+
+        then:
+            newCacheModel.contains(sampleData[0].filePath)
+            !newCacheModel.contains(sampleData[1].filePath)
+    }
+
+    void "Should promote file read from cold tier"()
+    {
+        given:
+            coldCacheModel.put(sampleData[0])
+            TieredCacheModel newCacheModel = new TieredCacheModel(coldCacheModel, HOT_CAPACITY)
+
+        when:
+            newCacheModel.read(sampleData[0].filePath)
+
+        then:
+            newCacheModel.getNumberOfHotFiles()==1
+    }
+
+    void "Should keep hot tier within its capacity"()
+    {
+        when:
+            cacheModel.putAll([sampleData[0], sampleData[1], sampleData[2]])
+
+        then:
+            cacheModel.getNumberOfHotFiles()==HOT_CAPACITY
+            cacheModel.getNumberOfFiles()==3
+            cacheModel.contains(sampleData[0].filePath)
+            cacheModel.read(sampleData[0].filePath).isPresent()
+    }
+
+    void "Should delete file from both tiers"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.remove(sampleData[0].filePath)
+
+        then:
+            !cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.read(sampleData[0].filePath).isPresent()
+            !coldCacheModel.contains(sampleData[0].filePath)
+            cacheModel.getNumberOfHotFiles()==0
+    }
+
+    void "Should find file put again after removal"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.remove(sampleData[0].filePath)
+
+        when:
+            cacheModel.put(sampleData[0])
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+    }
+
+    void "Should move folder in both tiers"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.movePath("/test/", "/moved/")
+
+        then:
+            cacheModel.contains("/moved/sample0.txt")
+            cacheModel.contains("/moved/sample1.txt")
+            !cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.read(sampleData[1].filePath).isPresent()
+    }
+
+    void "Should forget hot files evicted by cold tier"()
+    {
+        given:
+            coldCacheModel.setMaxNumberOfFiles(2)
+            TieredCacheModel smallCacheModel = new TieredCacheModel(coldCacheModel, 3)
+            smallCacheModel.put(sampleData[0])
+            smallCacheModel.put(sampleData[1])
+
+        when:
+            smallCacheModel.put(sampleData[2])
+
+        then:
+            !smallCacheModel.contains(sampleData[0].filePath)
+            !smallCacheModel.read(sampleData[0].filePath).isPresent()
+            smallCacheModel.getNumberOfHotFiles()==2
+    }
+
+    void "Should look up only as many hot files as cold tier evicted"()
+    {
+        given:
+            int storedFiles = 0
+            CacheModel mockedCacheModel = Mock()
+            mockedCacheModel.getMaxNumberOfFiles() >> 2
+            mockedCacheModel.listPaths("") >> []
+            mockedCacheModel.getNumberOfFiles() >> { storedFiles }
+            mockedCacheModel.put(_) >> { storedFiles = Math.min(2, storedFiles + 1) }
+            TieredCacheModel mockedTiered = new TieredCacheModel(mockedCacheModel, 3)
+            mockedTiered.put(sampleData[0])
+            mockedTiered.put(sampleData[1])
+
+        when:
+            mockedTiered.put(sampleData[2])
+
+        then:
+            1 * mockedCacheModel.contains(sampleData[0].filePath) >> false
+            0 * mockedCacheModel.contains({ it != sampleData[0].filePath })
+            mockedTiered.getNumberOfHotFiles()==2
+    }
+
+    void "Should leave eviction order to cold tier after reopening it"()
+    {
+        given:
+            String databasePath = "TieredCacheModelTest.db"
+            SQLiteCacheModel1 sqliteCacheModel = new SQLiteCacheModel1(3, databasePath)
+            TieredCacheModel sqliteTiered = new TieredCacheModel(sqliteCacheModel, HOT_CAPACITY)
+            ["c", "b", "a"].each {
+                sqliteTiered.put(generateFileBasicInfo(it, "/test/"))
+                Thread.sleep(10)
+            }
+            sqliteTiered.read("/test/c.txt")
+            sqliteTiered.flushTouches()
+            sqliteCacheModel.closeConnection()
+            sqliteCacheModel = new SQLiteCacheModel1(3, databasePath)
+            sqliteTiered = new TieredCacheModel(sqliteCacheModel, HOT_CAPACITY)
+
+        when:
+            sqliteTiered.put(generateFileBasicInfo("d", "/test/"))
+
+        then:
+            !sqliteTiered.contains("/test/b.txt")
+            sqliteTiered.contains("/test/a.txt")
+            sqliteTiered.contains("/test/c.txt")
+            sqliteTiered.contains("/test/d.txt")
+
+        cleanup:
+            sqliteCacheModel.closeConnection()
+            sqliteCacheModel.removeFromDevice()
+    }
+
+    void "Should pass hot reads to cold tier before it evicts"()
+    {
+        given:
+            coldCacheModel.setMaxNumberOfFiles(2)
+            TieredCacheModel smallCacheModel = new TieredCacheModel(coldCacheModel, 3)
+            smallCacheModel.put(sampleData[0])
+            smallCacheModel.put(sampleData[1])
+            smallCacheModel.read(sampleData[0].filePath)
+
+        when:
+            smallCacheModel.put(sampleData[2])
+
+        then:
+            smallCacheModel.contains(sampleData[0].filePath)
+            !smallCacheModel.contains(sampleData[1].filePath)
+            smallCacheModel.contains(sampleData[2].filePath)
+    }
+
+    void "Should remove all data from both tiers"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.removeAllData()
+
+        then:
+            !cacheModel.contains(sampleData[0].filePath)
+            cacheModel.getNumberOfHotFiles()==0
+            cacheModel.getNumberOfFiles()==0
+    }
+}
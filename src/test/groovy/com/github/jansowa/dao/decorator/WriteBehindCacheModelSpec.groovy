@@ -0,0 +1,298 @@
+package com.github.jansowa.dao.decorator
+
+import com.github.jansowa.dao.CacheModel
+import com.github.jansowa.dao.datastructure.HashMapCacheModel
+import com.github.jansowa.dao.datastructure.PrimitiveCacheModel
+import com.github.jansowa.domain.FileBasicInfo
+import spock.lang.Shared
+import spock.lang.Specification
+
+class WriteBehindCacheModelSpec extends Specification{
+    @Shared WriteBehindCacheModel cacheModel
+    @Shared HashMapCacheModel storedCacheModel
+    @Shared private FileBasicInfo[] sampleData
+    static final long MAX_FILES = 100
+    static final long FLUSH_INTERVAL_MILLIS = 60000
+    static final String CACHE_PATH = "WriteBehindCacheModelTest.ser"
+
+    def setupSpec()
+    {
+        sampleData = new FileBasicInfo[3]
+        sampleData[0] = generateFileBasicInfo("sample0", "/test/")
+        sampleData[1] = generateFileBasicInfo("sample1", "/test/")
+        sampleData[2] = generateFileBasicInfo("sample2", "/test/")
+    }
+
+    def setup()
+    {
+        storedCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH)
+        cacheModel = new WriteBehindCacheModel(storedCacheModel, FLUSH_INTERVAL_MILLIS, 100, 100)
+    }
+
+    def cleanup()
+    {
+        cacheModel.close()
+        cacheModel.removeFromDevice()
+    }
+
+    private static FileBasicInfo generateFileBasicInfo(String fileName, String folderPath){
+        Date creationDate = new Date()
+        return new FileBasicInfo(fileName, folderPath+fileName+".txt", "txt", "http://example.com/"+fileName+".txt", creationDate, creationDate)
+    }
+
+    void "Should read queued file before it is written"()
+    {
+        when:
+            cacheModel.put(sampleData[0])
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+            cacheModel.read(sampleData[0].filePath).get().name == sampleData[0].name
+            !storedCacheModel.contains(sampleData[0].filePath)
+    }
+
+    void "Should read queued file which doesn't fit in front"()
+    {
+        given:
+            WriteBehindCacheModel smallFrontCacheModel = new WriteBehindCacheModel(storedCacheModel, FLUSH_INTERVAL_MILLIS, 100, 2)
+            smallFrontCacheModel.putAll([sampleData[0], sampleData[1], sampleData[2]])
+
+        when:
+            Optional<FileBasicInfo> readFile = smallFrontCacheModel.read(sampleData[0].filePath)
+
+        then:
+            smallFrontCacheModel.contains(sampleData[0].filePath)
+            readFile.isPresent()
+            readFile.get().name == sampleData[0].name
+            readFile.get().lastUsageTime >= sampleData[0].lastUsageTime
+            !storedCacheModel.contains(sampleData[0].filePath)
+
+        when:
+            smallFrontCacheModel.flush()
+
+        then:
+            storedCacheModel.contains(sampleData[0].filePath)
+
+        cleanup:
+            smallFrontCacheModel.close()
+    }
+
+    void "Should write queued files on flush"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.flush()
+
+        then:
+            storedCacheModel.contains(sampleData[0].filePath)
+            storedCacheModel.contains(sampleData[1].filePath)
+            storedCacheModel.getNumberOfFiles()==2
+    }
+
+    void "Should hide file with queued removal"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.flush()
+
+        when:
+            cacheModel.remove(sampleData[0].filePath)
+
+        then:
+            !cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.read(sampleData[0].filePath).isPresent()
+            storedCacheModel.contains(sampleData[0].filePath)
+
+        when:
+            cacheModel.flush()
+
+        then:
+            !storedCacheModel.contains(sampleData[0].filePath)
+    }
+
+    void "Should coalesce operations on the same path into one batch"()
+    {
+        given:
+            CacheModel mockedCacheModel = Mock()
+            mockedCacheModel.getMaxNumberOfFiles() >> MAX_FILES
+            WriteBehindCacheModel mockedWriteBehind = new WriteBehindCacheModel(mockedCacheModel, FLUSH_INTERVAL_MILLIS, 100, 100)
+            mockedWriteBehind.put(sampleData[0])
+            mockedWriteBehind.remove(sampleData[0].filePath)
+            mockedWriteBehind.put(sampleData[0])
+            mockedWriteBehind.put(sampleData[1])
+            mockedWriteBehind.remove(sampleData[2].filePath)
+
+        when:
+            mockedWriteBehind.flush()
+
+        then:
+            1 * mockedCacheModel.removeAll([sampleData[2].filePath])
+        then:
+            1 * mockedCacheModel.putAll([sampleData[0], sampleData[1]])
+            0 * mockedCacheModel.put(_)
+            0 * mockedCacheModel.remove(_)
+
+        cleanup:
+            mockedWriteBehind.close()
+    }
+
+    void "Should queue recency touch of file read from front"()
+    {
+        given:
+            CacheModel mockedCacheModel = Mock()
+            mockedCacheModel.getMaxNumberOfFiles() >> MAX_FILES
+            mockedCacheModel.contains(sampleData[0].filePath) >> true
+            WriteBehindCacheModel mockedWriteBehind = new WriteBehindCacheModel(mockedCacheModel, FLUSH_INTERVAL_MILLIS, 100, 100)
+            mockedWriteBehind.put(sampleData[0])
+            mockedWriteBehind.flush()
+
+        when:
+            Optional<FileBasicInfo> readFile = mockedWriteBehind.read(sampleData[0].filePath)
+            mockedWriteBehind.flush()
+
+        then:
+            readFile.isPresent()
+            0 * mockedCacheModel.read(_)
+            1 * mockedCacheModel.readAll([sampleData[0].filePath]) >> [sampleData[0]]
+
+        cleanup:
+            mockedWriteBehind.close()
+    }
+
+    void "Should flush on its own after flush interval"()
+    {
+        given:
+            WriteBehindCacheModel quickCacheModel = new WriteBehindCacheModel(storedCacheModel, 10, 100, 100)
+
+        when:
+            quickCacheModel.put(sampleData[0])
+            long deadline = System.currentTimeMillis() + 5000
+            while(!storedCacheModel.contains(sampleData[0].filePath) && System.currentTimeMillis() < deadline){
+                Thread.sleep(10)
+            }
+
+        then:
+            storedCacheModel.contains(sampleData[0].filePath)
+
+        cleanup:
+            quickCacheModel.close()
+    }
+
+    void "Should flush in caller when queue is full"()
+    {
+        given:
+            WriteBehindCacheModel smallQueueCacheModel = new WriteBehindCacheModel(storedCacheModel, FLUSH_INTERVAL_MILLIS, 2, 100)
+
+        when:
+            smallQueueCacheModel.put(sampleData[0])
+
+        then:
+            !storedCacheModel.contains(sampleData[0].filePath)
+
+        when:
+            smallQueueCacheModel.put(sampleData[1])
+
+        then:
+            storedCacheModel.contains(sampleData[0].filePath)
+            storedCacheModel.contains(sampleData[1].filePath)
+
+        cleanup:
+            smallQueueCacheModel.close()
+    }
+
+    void "Should flush queued files before moving path"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.movePath("/test/", "/moved/")
+
+        then:
+            cacheModel.contains("/moved/sample0.txt")
+            cacheModel.contains("/moved/sample1.txt")
+            !cacheModel.contains(sampleData[0].filePath)
+            storedCacheModel.contains("/moved/sample0.txt")
+    }
+
+    void "Should forget files evicted by wrapped model"()
+    {
+        given:
+            storedCacheModel.setMaxNumberOfFiles(2)
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.put(sampleData[2])
+
+        when:
+            cacheModel.flush()
+
+        then:
+            !cacheModel.contains(sampleData[0].filePath)
+            cacheModel.contains(sampleData[1].filePath)
+            cacheModel.contains(sampleData[2].filePath)
+            cacheModel.getNumberOfFiles()==2
+    }
+
+    void "Should forget files evicted when max number of files decreases"()
+    {
+        given:
+            WriteBehindCacheModel primitiveCacheModel =
+                    new WriteBehindCacheModel(new PrimitiveCacheModel(MAX_FILES), FLUSH_INTERVAL_MILLIS, 100, 100)
+            primitiveCacheModel.putAll([sampleData[0], sampleData[1], sampleData[2]])
+            primitiveCacheModel.flush()
+
+        when:
+            primitiveCacheModel.setMaxNumberOfFiles(1)
+
+        then:
+            !primitiveCacheModel.contains(sampleData[0].filePath)
+            !primitiveCacheModel.contains(sampleData[1].filePath)
+            primitiveCacheModel.contains(sampleData[2].filePath)
+            primitiveCacheModel.getNumberOfFiles()==1
+
+        cleanup:
+            primitiveCacheModel.close()
+    }
+
+    void "Should write queued files on close"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.close()
+
+        then:
+            storedCacheModel.contains(sampleData[0].filePath)
+    }
+
+    void "Should count queued files"()
+    {
+        when:
+            cacheModel.putAll([sampleData[0], sampleData[1], sampleData[2]])
+            cacheModel.removeAll([sampleData[1].filePath])
+
+        then:
+            cacheModel.getNumberOfFiles()==2
+    }
+
+    void "Should remove all data with queued operations"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.flush()
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.removeAllData()
+
+        then:
+            !cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.getNumberOfFiles()==0
+    }
+}
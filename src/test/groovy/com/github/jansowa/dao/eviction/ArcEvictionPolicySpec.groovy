@@ -0,0 +1,59 @@
+package com.github.jansowa.dao.eviction
+
+import spock.lang.Specification
+
+class ArcEvictionPolicySpec extends Specification{
+    void "Should evict paths used once before paths used again"()
+    {
+        given:
+            EvictionPolicy policy = new ArcEvictionPolicy(3)
+            ["/a.txt", "/b.txt", "/c.txt"].each { policy.recordInsertion(it) }
+            policy.recordAccess("/a.txt")
+
+        expect:
+            policy.evict("/d.txt") == "/b.txt"
+            policy.evict("/d.txt") == "/c.txt"
+            policy.evict("/d.txt") == "/a.txt"
+            policy.evict("/d.txt") == null
+    }
+
+    void "Should keep frequently used paths during scan"()
+    {
+        given:
+            int capacity = 10
+            EvictionPolicy policy = new ArcEvictionPolicy(capacity)
+            List<String> hotPaths = (0..<5).collect { "/hot/file" + it + ".txt" }
+            hotPaths.each { policy.recordInsertion(it); policy.recordAccess(it) }
+
+        when:
+            (0..<100).each {
+                String scannedPath = "/scan/file" + it + ".txt"
+                if(policy.size() >= capacity){
+                    policy.evict(scannedPath)
+                }
+                policy.recordInsertion(scannedPath)
+            }
+
+        then:
+            hotPaths.every { policy.contains(it) }
+            policy.size()==capacity
+    }
+
+    void "Should store evicted path again as frequently used"()
+    {
+        given:
+            EvictionPolicy policy = new ArcEvictionPolicy(2)
+            policy.recordInsertion("/a.txt")
+            policy.recordInsertion("/b.txt")
+            policy.evict("/c.txt")
+            policy.recordInsertion("/c.txt")
+
+        when:
+            policy.evict("/a.txt")
+            policy.recordInsertion("/a.txt")
+
+        then:
+            policy.contains("/a.txt")
+            policy.evict("/d.txt") == "/c.txt"
+    }
+}
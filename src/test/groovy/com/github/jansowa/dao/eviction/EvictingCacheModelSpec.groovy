@@ -0,0 +1,245 @@
+package com.github.jansowa.dao.eviction
+
+import com.github.jansowa.dao.datastructure.HashMapCacheModel
+import com.github.jansowa.domain.FileBasicInfo
+import spock.lang.Shared
+import spock.lang.Specification
+
+class EvictingCacheModelSpec extends Specification{
+    @Shared EvictingCacheModel cacheModel
+    @Shared HashMapCacheModel storedCacheModel
+    @Shared private FileBasicInfo[] sampleData
+    static final long MAX_FILES = 2
+    static final String CACHE_PATH = "EvictingCacheModelTest.ser"
+
+    def setupSpec()
+    {
+        sampleData = new FileBasicInfo[3]
+        sampleData[0] = generateFileBasicInfo("sample0", "/test/")
+        sampleData[1] = generateFileBasicInfo("sample1", "/test/")
+        sampleData[2] = generateFileBasicInfo("sample2", "/test/")
+    }
+
+    def setup()
+    {
+        storedCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH)
+        cacheModel = new EvictingCacheModel(storedCacheModel, new LfuEvictionPolicy())
+    }
+
+    def cleanup()
+    {
+        cacheModel.removeFromDevice()
+    }
+
+    private static FileBasicInfo generateFileBasicInfo(String fileName, String folderPath){
+        Date creationDate = new Date()
+        return new FileBasicInfo(fileName, folderPath+fileName+".txt", "txt", "http://example.com/"+fileName+".txt", creationDate, creationDate)
+    }
+
+    void "Should evict file chosen by policy"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.read(sampleData[0].filePath)
+            cacheModel.read(sampleData[0].filePath)
+            cacheModel.read(sampleData[1].filePath)
+
+        when:
+            cacheModel.put(sampleData[2])
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.contains(sampleData[2].filePath)
+            cacheModel.getNumberOfFiles()==2
+    }
+
+    void "Should count file put again as use"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.put(sampleData[2])
+
+        then:
+            !cacheModel.contains(sampleData[0].filePath)
+            cacheModel.contains(sampleData[1].filePath)
+    }
+
+    void "Should evict with policy before putting batch"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.read(sampleData[0].filePath)
+            List<String> evictedPaths = []
+            cacheModel.setEvictionListener({ String path -> evictedPaths.add(path) })
+
+        when:
+            cacheModel.putAll([sampleData[0], sampleData[2]])
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.contains(sampleData[2].filePath)
+            cacheModel.getNumberOfFiles()==2
+            evictedPaths == [sampleData[1].filePath]
+    }
+
+    void "Should track files stored before it was created"()
+    {
+        given:
+            storedCacheModel.put(sampleData[0])
+            storedCacheModel.put(sampleData[1])
+
+        when:
+            EvictingCacheModel newCacheModel = new EvictingCacheModel(storedCacheModel, new LruEvictionPolicy())
+            newCacheModel.put(sampleData[2])
+
+        then:
+            newCacheModel.getNumberOfFiles()==2
+            newCacheModel.getEvictionPolicy().size()==2
+    }
+
+    void "Should follow moved files"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.movePath("/test/", "/moved/")
+
+        then:
+            cacheModel.getEvictionPolicy().contains("/moved/sample0.txt")
+            cacheModel.getEvictionPolicy().contains("/moved/sample1.txt")
+            !cacheModel.getEvictionPolicy().contains(sampleData[0].filePath)
+            cacheModel.getEvictionPolicy().size()==2
+    }
+
+    void "Should evict with policy before lowering limit"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.read(sampleData[0].filePath)
+
+        when:
+            cacheModel.setMaxNumberOfFiles(1)
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.getMaxNumberOfFiles()==1
+    }
+
+    void "Should forget removed files"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.remove(sampleData[0].filePath)
+            cacheModel.removeAll([sampleData[1].filePath])
+
+        then:
+            cacheModel.getNumberOfFiles()==0
+            cacheModel.getEvictionPolicy().size()==0
+    }
+
+    void "Should evict files until their weight fits in byte budget"()
+    {
+        given:
+            storedCacheModel.setMaxNumberOfFiles(MAX_FILES * 10)
+            Weigher urlLength = { file -> (long) file.url.length() } as Weigher
+            EvictingCacheModel weightedCacheModel = new EvictingCacheModel(storedCacheModel, new LruEvictionPolicy(),
+                    2 * sampleData[0].url.length(), urlLength)
+
+        when:
+            weightedCacheModel.putAll([sampleData[0], sampleData[1], sampleData[2]])
+
+        then:
+            !weightedCacheModel.contains(sampleData[0].filePath)
+            weightedCacheModel.contains(sampleData[1].filePath)
+            weightedCacheModel.contains(sampleData[2].filePath)
+            weightedCacheModel.getTotalWeight() == 2 * sampleData[0].url.length()
+    }
+
+    void "Should not store file heavier than byte budget"()
+    {
+        given:
+            EvictingCacheModel weightedCacheModel = new EvictingCacheModel(storedCacheModel, new LruEvictionPolicy(),
+                    Weigher.SERIALIZED_SIZE.weigh(sampleData[0]) - 1)
+
+        when:
+            weightedCacheModel.put(sampleData[0])
+
+        then:
+            !weightedCacheModel.contains(sampleData[0].filePath)
+            weightedCacheModel.getTotalWeight() == 0
+    }
+
+    void "Should keep total weight up to date"()
+    {
+        given:
+            EvictingCacheModel weightedCacheModel = new EvictingCacheModel(storedCacheModel, new LruEvictionPolicy(), 1000)
+            long weight = Weigher.SERIALIZED_SIZE.weigh(sampleData[0])
+
+        when:
+            weightedCacheModel.put(sampleData[0])
+            weightedCacheModel.put(sampleData[0])
+            weightedCacheModel.put(sampleData[1])
+            weightedCacheModel.movePath(sampleData[1].filePath, sampleData[0].filePath)
+
+        then:
+            weightedCacheModel.getNumberOfFiles() == 1
+            weightedCacheModel.getTotalWeight() == weight
+
+        when:
+            weightedCacheModel.remove(sampleData[0].filePath)
+
+        then:
+            weightedCacheModel.getTotalWeight() == 0
+    }
+
+    void "Should evict files when byte budget is lowered"()
+    {
+        given:
+            EvictingCacheModel weightedCacheModel = new EvictingCacheModel(storedCacheModel, new LruEvictionPolicy(), 1000)
+            weightedCacheModel.put(sampleData[0])
+            weightedCacheModel.put(sampleData[1])
+
+        when:
+            weightedCacheModel.setMaxWeight(Weigher.SERIALIZED_SIZE.weigh(sampleData[1]))
+
+        then:
+            !weightedCacheModel.contains(sampleData[0].filePath)
+            weightedCacheModel.contains(sampleData[1].filePath)
+    }
+
+    void "Should weigh files stored before it was created"()
+    {
+        given:
+            storedCacheModel.put(sampleData[0])
+
+        when:
+            EvictingCacheModel weightedCacheModel = new EvictingCacheModel(storedCacheModel, new LruEvictionPolicy(), 1000)
+
+        then:
+            weightedCacheModel.getTotalWeight() == Weigher.SERIALIZED_SIZE.weigh(sampleData[0])
+    }
+
+    void "Should count UTF-8 bytes of strings"()
+    {
+        expect:
+            Weigher.utf8Length("abc") == 3
+            Weigher.utf8Length("zażółć") == 10
+            Weigher.utf8Length("\uD83D\uDE00") == 4
+            Weigher.utf8Length(null) == 0
+    }
+}
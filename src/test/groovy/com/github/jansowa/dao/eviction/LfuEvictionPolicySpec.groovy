@@ -0,0 +1,51 @@
+package com.github.jansowa.dao.eviction
+
+import spock.lang.Specification
+
+class LfuEvictionPolicySpec extends Specification{
+    void "Should evict least frequently used path"()
+    {
+        given:
+            EvictionPolicy policy = new LfuEvictionPolicy()
+            ["/a.txt", "/b.txt", "/c.txt"].each { policy.recordInsertion(it) }
+
+        when:
+            3.times { policy.recordAccess("/a.txt") }
+            policy.recordAccess("/c.txt")
+
+        then:
+            policy.evict("/d.txt") == "/b.txt"
+            policy.evict("/d.txt") == "/c.txt"
+            policy.evict("/d.txt") == "/a.txt"
+            policy.evict("/d.txt") == null
+    }
+
+    void "Should evict least recently used of equally used paths"()
+    {
+        given:
+            EvictionPolicy policy = new LfuEvictionPolicy()
+            ["/a.txt", "/b.txt"].each { policy.recordInsertion(it) }
+            ["/a.txt", "/b.txt"].each { policy.recordAccess(it) }
+
+        expect:
+            policy.evict("/c.txt") == "/a.txt"
+    }
+
+    void "Should forget removed path"()
+    {
+        given:
+            EvictionPolicy policy = new LfuEvictionPolicy()
+            policy.recordInsertion("/a.txt")
+            policy.recordInsertion("/b.txt")
+            policy.recordAccess("/b.txt")
+
+        when:
+            policy.recordRemoval("/a.txt")
+
+        then:
+            !policy.contains("/a.txt")
+            policy.size()==1
+            policy.evict("/c.txt") == "/b.txt"
+            policy.size()==0
+    }
+}
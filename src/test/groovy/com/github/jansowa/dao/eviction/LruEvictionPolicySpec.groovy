@@ -0,0 +1,38 @@
+package com.github.jansowa.dao.eviction
+
+import spock.lang.Specification
+
+class LruEvictionPolicySpec extends Specification{
+    void "Should evict least recently used path"()
+    {
+        given:
+            EvictionPolicy policy = new LruEvictionPolicy()
+            ["/a.txt", "/b.txt", "/c.txt"].each { policy.recordInsertion(it) }
+
+        when:
+            policy.recordAccess("/a.txt")
+
+        then:
+            policy.evict("/d.txt") == "/b.txt"
+            policy.evict("/d.txt") == "/c.txt"
+            policy.evict("/d.txt") == "/a.txt"
+            policy.evict("/d.txt") == null
+    }
+
+    void "Should forget removed path"()
+    {
+        given:
+            EvictionPolicy policy = new LruEvictionPolicy()
+            policy.recordInsertion("/a.txt")
+            policy.recordInsertion("/b.txt")
+
+        when:
+            policy.recordRemoval("/a.txt")
+            policy.recordRemoval("/missing.txt")
+
+        then:
+            !policy.contains("/a.txt")
+            policy.size()==1
+            policy.evict("/c.txt") == "/b.txt"
+    }
+}
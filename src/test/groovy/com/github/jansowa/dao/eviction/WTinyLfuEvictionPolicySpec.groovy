@@ -0,0 +1,62 @@
+package com.github.jansowa.dao.eviction
+
+import spock.lang.Specification
+
+class WTinyLfuEvictionPolicySpec extends Specification{
+    void "Should keep popular paths during scan"()
+    {
+        given:
+            int capacity = 100
+            EvictionPolicy policy = new WTinyLfuEvictionPolicy(capacity)
+            List<String> hotPaths = (0..<50).collect { "/hot/file" + it + ".txt" }
+            hotPaths.each { policy.recordInsertion(it) }
+            5.times { hotPaths.each { policy.recordAccess(it) } }
+
+        when:
+            (0..<1000).each {
+                String scannedPath = "/scan/file" + it + ".txt"
+                if(policy.size() >= capacity){
+                    policy.evict(scannedPath)
+                }
+                policy.recordInsertion(scannedPath)
+            }
+
+        then:
+            hotPaths.every { policy.contains(it) }
+            policy.size()==capacity
+    }
+
+    void "Should evict every path once"()
+    {
+        given:
+            EvictionPolicy policy = new WTinyLfuEvictionPolicy(10)
+            List<String> paths = (0..<10).collect { "/test/file" + it + ".txt" }
+            paths.each { policy.recordInsertion(it) }
+
+        when:
+            List<String> victims = (0..<11).collect { policy.evict("/test/new.txt") }
+
+        then:
+            victims.subList(0, 10).toSet() == paths.toSet()
+            victims[10] == null
+            policy.size()==0
+    }
+
+    void "Should forget removed path"()
+    {
+        given:
+            EvictionPolicy policy = new WTinyLfuEvictionPolicy(10)
+            policy.recordInsertion("/a.txt")
+            policy.recordInsertion("/b.txt")
+            policy.recordAccess("/b.txt")
+
+        when:
+            policy.recordRemoval("/a.txt")
+            policy.recordRemoval("/b.txt")
+
+        then:
+            !policy.contains("/a.txt")
+            !policy.contains("/b.txt")
+            policy.size()==0
+    }
+}
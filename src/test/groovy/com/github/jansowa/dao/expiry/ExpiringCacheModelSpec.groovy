@@ -0,0 +1,225 @@
+package com.github.jansowa.dao.expiry
+
+import com.github.jansowa.dao.CacheModel
+import com.github.jansowa.dao.datastructure.HashMapCacheModel
+import com.github.jansowa.domain.FileBasicInfo
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.function.LongSupplier
+
+class ExpiringCacheModelSpec extends Specification{
+    @Shared ExpiringCacheModel cacheModel
+    @Shared HashMapCacheModel storedCacheModel
+    @Shared private FileBasicInfo[] sampleData
+    @Shared long currentTime
+    static final long MAX_FILES = 100
+    static final long EXPIRE_AFTER_WRITE_MILLIS = 60000
+    static final long EXPIRE_AFTER_ACCESS_MILLIS = 10000
+    static final String CACHE_PATH = "ExpiringCacheModelTest.ser"
+
+    def setup()
+    {
+        //write expiration goes from creationTime, so the clock starts at the creation time of sample files
+        currentTime = System.currentTimeMillis()
+        sampleData = new FileBasicInfo[3]
+        sampleData[0] = generateFileBasicInfo("sample0", "/test/", new Date(currentTime))
+        sampleData[1] = generateFileBasicInfo("sample1", "/test/", new Date(currentTime))
+        sampleData[2] = generateFileBasicInfo("sample2", "/test/", new Date(currentTime))
+        storedCacheModel = new HashMapCacheModel(MAX_FILES, CACHE_PATH)
+        cacheModel = new ExpiringCacheModel(storedCacheModel, EXPIRE_AFTER_WRITE_MILLIS, EXPIRE_AFTER_ACCESS_MILLIS,
+                0, { currentTime } as LongSupplier)
+    }
+
+    def cleanup()
+    {
+        cacheModel.close()
+        cacheModel.removeFromDevice()
+    }
+
+    private static FileBasicInfo generateFileBasicInfo(String fileName, String folderPath, Date creationDate){
+        return new FileBasicInfo(fileName, folderPath+fileName+".txt", "txt", "http://example.com/"+fileName+".txt", creationDate, creationDate)
+    }
+
+    void "Should expire file not accessed in time"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            currentTime += EXPIRE_AFTER_ACCESS_MILLIS / 2
+            cacheModel.read(sampleData[0].filePath)
+            currentTime += EXPIRE_AFTER_ACCESS_MILLIS / 2
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            !storedCacheModel.contains(sampleData[1].filePath)
+    }
+
+    void "Should expire file after write even when accessed"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            for(int i = 0; i < 12; i++){
+                currentTime += EXPIRE_AFTER_WRITE_MILLIS / 12
+                cacheModel.read(sampleData[0].filePath)
+            }
+
+        then:
+            !cacheModel.read(sampleData[0].filePath).isPresent()
+            !storedCacheModel.contains(sampleData[0].filePath)
+    }
+
+    void "Should restart expiration of file put again"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            currentTime += EXPIRE_AFTER_ACCESS_MILLIS - 1
+
+        when:
+            cacheModel.put(sampleData[0])
+            currentTime += EXPIRE_AFTER_ACCESS_MILLIS - 1
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+    }
+
+    void "Should use expiration times of put file"()
+    {
+        given:
+            cacheModel.put(sampleData[0], 1000, 0)
+            cacheModel.put(sampleData[1], 0, 0)
+
+        when:
+            currentTime += 1000
+
+        then:
+            !cacheModel.contains(sampleData[0].filePath)
+
+        when:
+            currentTime += EXPIRE_AFTER_WRITE_MILLIS * 10
+
+        then:
+            cacheModel.contains(sampleData[1].filePath)
+    }
+
+    void "Should remove expired files from wrapped model"()
+    {
+        given:
+            cacheModel.putAll([sampleData[0], sampleData[1]])
+            cacheModel.put(sampleData[2], 0, 0)
+
+        when:
+            currentTime += EXPIRE_AFTER_ACCESS_MILLIS + 2000
+            cacheModel.removeExpiredFiles()
+
+        then:
+            storedCacheModel.getNumberOfFiles() == 1
+            storedCacheModel.contains(sampleData[2].filePath)
+            cacheModel.getNumberOfFiles() == 1
+    }
+
+    void "Should keep expiration time of moved file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            currentTime += EXPIRE_AFTER_ACCESS_MILLIS / 2
+
+        when:
+            cacheModel.movePath("/test/", "/moved/")
+            currentTime += EXPIRE_AFTER_ACCESS_MILLIS / 2
+
+        then:
+            !cacheModel.contains("/moved/sample0.txt")
+            !storedCacheModel.contains("/moved/sample0.txt")
+    }
+
+    void "Should expire stored files by their creation time"()
+    {
+        given:
+            cacheModel.close()
+            Date now = new Date()
+            Date longAgo = new Date(now.time - 2 * EXPIRE_AFTER_WRITE_MILLIS)
+            storedCacheModel.put(new FileBasicInfo("old", "/test/old.txt", "txt", "http://example.com/old.txt", longAgo, now))
+            storedCacheModel.put(sampleData[1].withLastUsageTime(now))
+
+        when:
+            cacheModel = new ExpiringCacheModel(storedCacheModel, EXPIRE_AFTER_WRITE_MILLIS, EXPIRE_AFTER_ACCESS_MILLIS)
+
+        then:
+            !cacheModel.read("/test/old.txt").isPresent()
+            !storedCacheModel.contains("/test/old.txt")
+            cacheModel.read(sampleData[1].filePath).isPresent()
+    }
+
+    void "Should measure write expiration from creation time of put file"()
+    {
+        given:
+            FileBasicInfo olderFile = generateFileBasicInfo("older", "/test/", new Date(currentTime - 1000))
+            cacheModel.put(olderFile, 2000, 0)
+
+        when:
+            currentTime += 1000
+
+        then:
+            !cacheModel.contains(olderFile.filePath)
+    }
+
+    void "Should not read stored files on opening"()
+    {
+        given:
+            CacheModel mockedCacheModel = Mock()
+            mockedCacheModel.listPaths("") >> [sampleData[0].filePath]
+
+        when:
+            new ExpiringCacheModel(mockedCacheModel, EXPIRE_AFTER_WRITE_MILLIS, EXPIRE_AFTER_ACCESS_MILLIS,
+                    0, { currentTime } as LongSupplier)
+
+        then:
+            0 * mockedCacheModel.read(_)
+            0 * mockedCacheModel.readAll(_)
+    }
+
+    void "Should expire stored file not read since opening at the latest time it could"()
+    {
+        given:
+            cacheModel.close()
+            storedCacheModel.put(sampleData[0])
+            cacheModel = new ExpiringCacheModel(storedCacheModel, EXPIRE_AFTER_WRITE_MILLIS, EXPIRE_AFTER_ACCESS_MILLIS,
+                    0, { currentTime } as LongSupplier)
+
+        when:
+            currentTime += EXPIRE_AFTER_ACCESS_MILLIS - 1
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+
+        when:
+            currentTime += 1
+
+        then:
+            !cacheModel.contains(sampleData[0].filePath)
+            !storedCacheModel.contains(sampleData[0].filePath)
+    }
+
+    void "Should remove expired files in background"()
+    {
+        given:
+            cacheModel.close()
+            cacheModel = new ExpiringCacheModel(storedCacheModel, 50, 0, 20)
+            PollingConditions conditions = new PollingConditions(timeout: 10)
+
+        when:
+            cacheModel.put(sampleData[0])
+
+        then:
+            conditions.eventually {
+                assert !storedCacheModel.contains(sampleData[0].filePath)
+            }
+    }
+}
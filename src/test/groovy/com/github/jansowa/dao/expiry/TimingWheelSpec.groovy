@@ -0,0 +1,88 @@
+package com.github.jansowa.dao.expiry
+
+import spock.lang.Specification
+
+class TimingWheelSpec extends Specification{
+    private static TimingWheel.Node node(long expirationTime){
+        TimingWheel.Node node = new TimingWheel.Node()
+        node.expirationTime = expirationTime
+        return node
+    }
+
+    void "Should expire nodes only after their expiration time"()
+    {
+        given:
+            TimingWheel timingWheel = new TimingWheel(0)
+            TimingWheel.Node soon = node(2000)
+            TimingWheel.Node later = node(5000)
+            [soon, later].each { timingWheel.schedule(it) }
+            List<TimingWheel.Node> expired = []
+
+        when:
+            timingWheel.advance(1500, { expired << it })
+
+        then:
+            expired.isEmpty()
+
+        when:
+            timingWheel.advance(4000, { expired << it })
+
+        then:
+            expired == [soon]
+            !soon.isScheduled()
+            later.isScheduled()
+    }
+
+    void "Should expire nodes from higher levels"()
+    {
+        given:
+            TimingWheel timingWheel = new TimingWheel(0)
+            List<TimingWheel.Node> nodes = [node(100_000), node(10_000_000), node(1_000_000_000), node(50_000_000_000)]
+            nodes.each { timingWheel.schedule(it) }
+            List<TimingWheel.Node> expired = []
+
+        when:
+            for(long time = 0; time <= 60_000_000_000; time += 1_000_000){
+                timingWheel.advance(time, { TimingWheel.Node it -> expired << it; assert it.expirationTime <= time })
+            }
+
+        then:
+            expired == nodes
+    }
+
+    void "Should expire all nodes after long pause"()
+    {
+        given:
+            TimingWheel timingWheel = new TimingWheel(0)
+            List<TimingWheel.Node> nodes = (1..1000).collect { node(it * 7919L) }
+            nodes.each { timingWheel.schedule(it) }
+            List<TimingWheel.Node> expired = []
+
+        when:
+            timingWheel.advance(10_000_000, { expired << it })
+
+        then:
+            expired.size() == 1000
+    }
+
+    void "Should not expire cancelled or rescheduled node"()
+    {
+        given:
+            TimingWheel timingWheel = new TimingWheel(0)
+            TimingWheel.Node cancelled = node(2000)
+            TimingWheel.Node rescheduled = node(2000)
+            [cancelled, rescheduled].each { timingWheel.schedule(it) }
+            List<TimingWheel.Node> expired = []
+
+        when:
+            timingWheel.cancel(cancelled)
+            rescheduled.expirationTime = 100_000
+            timingWheel.schedule(rescheduled)
+            timingWheel.advance(10_000, { expired << it })
+
+        then:
+            expired.isEmpty()
+            !cancelled.isScheduled()
+            rescheduled.isScheduled()
+    }
+}
@@ -0,0 +1,302 @@
+package com.github.jansowa.dao.mappedfile
+
+import com.github.jansowa.domain.FileBasicInfo
+import spock.lang.Shared
+import spock.lang.Specification
+
+class MappedFileCacheModelSpec extends Specification{
+    @Shared MappedFileCacheModel cacheModel
+    @Shared private FileBasicInfo[] sampleData
+    static final long MAX_FILES = 1000
+    static final String CACHE_PATH = "MappedFileCacheModelTest.db"
+    static final FileBasicInfo fileWithoutExtension = new FileBasicInfo("file", "/fol/file", null, "example.com", new Date(), new Date())
+
+    def setupSpec()
+    {
+        sampleData = new FileBasicInfo[3]
+        sampleData[0] = generateFileBasicInfo("sample0", "/test/")
+        sampleData[1] = generateFileBasicInfo("sample1", "/test/")
+        sampleData[2] = generateFileBasicInfo("sample2", "/test/")
+    }
+
+    def setup()
+    {
+        cacheModel = new MappedFileCacheModel(MAX_FILES, CACHE_PATH)
+    }
+
+    def cleanup()
+    {
+        cacheModel.removeFromDevice()
+    }
+
+    private static FileBasicInfo generateFileBasicInfo(String fileName, String folderPath){
+        Date creationDate = new Date()
+        return new FileBasicInfo(fileName, folderPath+fileName+".txt", "txt", "http://example.com/"+fileName+".txt", creationDate, creationDate)
+    }
+
+    private static FileBasicInfo withUrl(FileBasicInfo file, String url){
+        return new FileBasicInfo(file.name, file.filePath, file.extension, url, file.creationTime, file.lastUsageTime)
+    }
+
+    void "Should upload file"()
+    {
+        when:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(fileWithoutExtension)
+
+        then:
+            cacheModel.contains(sampleData[0].getFilePath())
+            cacheModel.contains(fileWithoutExtension.getFilePath())
+            cacheModel.getNumberOfFiles()==2
+    }
+
+    void "Should delete uploaded file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.remove(sampleData[0].getFilePath())
+
+        then:
+            !cacheModel.contains(sampleData[0].getFilePath())
+            cacheModel.getNumberOfFiles()==0
+    }
+
+    void "Should read file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(fileWithoutExtension)
+
+        when:
+            FileBasicInfo downloadedInfo = cacheModel.read(sampleData[0].getFilePath()).get()
+            FileBasicInfo downloadedWithoutExtension = cacheModel.read(fileWithoutExtension.getFilePath()).get()
+
+        then:
+            downloadedInfo.withLastUsageTime(sampleData[0].lastUsageTime) == sampleData[0]
+            downloadedWithoutExtension.withLastUsageTime(fileWithoutExtension.lastUsageTime) == fileWithoutExtension
+    }
+
+    void "Read method should return Optional with null if there is no file in given path"()
+    {
+        when:
+            Optional<FileBasicInfo> downloadedInfo = cacheModel.read("/test/read")
+
+        then:
+            Optional.ofNullable(null) == downloadedInfo
+    }
+
+    void "Should move single file from first to second path"()
+    {
+        given:
+            String destinationPath = "/test/destination"
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.movePath(sampleData[0].getFilePath(), destinationPath)
+
+        then:
+            cacheModel.contains(destinationPath)
+            !cacheModel.contains(sampleData[0].getFilePath())
+            cacheModel.read(destinationPath).get().url == sampleData[0].url
+            cacheModel.getNumberOfFiles()==1
+    }
+
+    void "Should move whole folder from first to second path"()
+    {
+        given:
+            String[] paths = new String[5]
+            String sourceFolder = "/test/"
+            String destinationFolder = "/testDestination/"
+            for(int i=0; i<3; i++){
+                paths[i] = "move1/"
+            }
+            paths[3] = "move1/move1-1/"
+            paths[4] = "move2/"
+            for(int i=0; i<5; i++){
+                cacheModel.put(generateFileBasicInfo("file"+i, sourceFolder +paths[i]))
+            }
+
+        when:
+            cacheModel.movePath(sourceFolder, destinationFolder)
+
+        then:
+            cacheModel.contains(destinationFolder+paths[0]+"file0.txt")
+            cacheModel.contains(destinationFolder+paths[1]+"file1.txt")
+            cacheModel.contains(destinationFolder+paths[2]+"file2.txt")
+            cacheModel.contains(destinationFolder+paths[3]+"file3.txt")
+            cacheModel.contains(destinationFolder+paths[4]+"file4.txt")
+            !cacheModel.contains(sourceFolder+paths[0]+"file0.txt")
+            cacheModel.getNumberOfFiles()==5
+    }
+
+    void "Should remove all data"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.removeAllData()
+
+        then:
+            !cacheModel.contains(sampleData[0].getFilePath())
+            !cacheModel.contains(sampleData[1].getFilePath())
+            cacheModel.getNumberOfFiles()==0
+    }
+
+    void "Should get size of cache model in bytes"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            double size = cacheModel.getSizeInBytes()
+
+        then:
+            size>0
+    }
+
+    void "Should remove least recently used file when cache is full"()
+    {
+        given:
+            cacheModel.setMaxNumberOfFiles(2)
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.read(sampleData[0].filePath)
+
+        when:
+            cacheModel.put(sampleData[2])
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.contains(sampleData[2].filePath)
+            cacheModel.getNumberOfFiles()==2
+    }
+
+    void "Should keep files after reopening"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.close()
+
+        when:
+            cacheModel = new MappedFileCacheModel(MAX_FILES, CACHE_PATH)
+
+        then:
+            cacheModel.getNumberOfFiles()==2
+            cacheModel.read(sampleData[1].filePath).get().creationTime == sampleData[1].creationTime
+    }
+
+    void "Should keep files when max number of files outgrows the file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.setMaxNumberOfFiles(MAX_FILES * 4)
+            for(int i=0; i<MAX_FILES * 2; i++){
+                cacheModel.put(generateFileBasicInfo("file"+i, "/grow/"))
+            }
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+            cacheModel.contains(sampleData[1].filePath)
+            cacheModel.getNumberOfFiles()==MAX_FILES * 2 + 2
+    }
+
+    void "Should keep files when max number of files is bigger than one mapping"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.setMaxNumberOfFiles(Long.MAX_VALUE)
+            cacheModel.put(sampleData[1])
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+            cacheModel.contains(sampleData[1].filePath)
+            cacheModel.getNumberOfFiles()==2
+            !new File(CACHE_PATH + ".rebuilt").exists()
+    }
+
+    void "Should keep only newest files after many evictions"()
+    {
+        when:
+            for(int i=0; i<30000; i++){
+                cacheModel.put(generateFileBasicInfo("file"+i, "/evicted/folder/"))
+            }
+
+        then:
+            cacheModel.getNumberOfFiles()==MAX_FILES
+            !cacheModel.contains("/evicted/folder/file28999.txt")
+            cacheModel.read("/evicted/folder/file29000.txt").get().url == "http://example.com/file29000.txt"
+            cacheModel.read("/evicted/folder/file29999.txt").isPresent()
+            !new File(CACHE_PATH + ".strings.compacted").exists()
+    }
+
+    void "Should share url between files until the last of them is removed"()
+    {
+        given:
+            String sharedUrl = "http://example.com/shared"
+            FileBasicInfo[] sharingFiles = sampleData.collect { withUrl(it, sharedUrl) }
+            sharingFiles.each { cacheModel.put(it) }
+
+        when:
+            cacheModel.remove(sharingFiles[0].filePath)
+            cacheModel.put(withUrl(sharingFiles[1], "http://example.com/other"))
+            cacheModel.close()
+            cacheModel = new MappedFileCacheModel(MAX_FILES, CACHE_PATH)
+
+        then:
+            cacheModel.read(sharingFiles[1].filePath).get().url == "http://example.com/other"
+            cacheModel.read(sharingFiles[2].filePath).get().url == sharedUrl
+
+        when:
+            cacheModel.remove(sharingFiles[2].filePath)
+            cacheModel.put(sharingFiles[0])
+
+        then:
+            cacheModel.read(sharingFiles[0].filePath).get().url == sharedUrl
+    }
+
+    void "Should reject put which could take strings past one mapping"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            //strings end kept at offset 40 of the header, as if the strings file was nearly full
+            new RandomAccessFile(CACHE_PATH, "rw").withCloseable { indexFile ->
+                indexFile.seek(40)
+                indexFile.writeLong(Integer.MAX_VALUE - 10)
+            }
+
+        when:
+            cacheModel.put(sampleData[1])
+
+        then:
+            thrown(IllegalStateException)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.contains(sampleData[0].filePath)
+            cacheModel.getNumberOfFiles() == 1
+    }
+
+    void "Should list paths starting with prefix"()
+    {
+        given:
+            FileBasicInfo otherFile = generateFileBasicInfo("sample3", "/other/")
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.put(otherFile)
+
+        expect:
+            cacheModel.listPaths("/test/").sort() == [sampleData[0].filePath, sampleData[1].filePath]
+            cacheModel.listPaths("/oth").sort() == [otherFile.filePath]
+            cacheModel.listPaths("").sort() == [otherFile.filePath, sampleData[0].filePath, sampleData[1].filePath]
+            cacheModel.listPaths("/none/").isEmpty()
+    }
+}
@@ -243,4 +243,61 @@ class NitriteCacheModel1Spec extends Specification{
             cacheModel.contains(sampleData[2].getFilePath())
             cacheModel.getNumberOfFiles()==1
     }
-}
\ No newline at end of file
+
+    void "Should put, read and remove files in batch"()
+    {
+        given:
+            List<FileBasicInfo> files = (0..<10).collect { generateFileBasicInfo("batch"+it, it % 2 == 0 ? "/batch/even/" : "/batch/odd/") }
+            List<String> paths = files*.filePath
+
+        when:
+            cacheModel.putAll(files)
+
+        then:
+            cacheModel.getNumberOfFiles()==10
+            cacheModel.containsAll(paths)
+            !cacheModel.containsAll(paths + "/batch/missing.txt")
+            cacheModel.readAll(paths + "/batch/missing.txt")*.filePath == paths
+
+        when:
+            cacheModel.removeAll(paths.subList(0, 5))
+
+        then:
+            cacheModel.getNumberOfFiles()==5
+            !cacheModel.contains(paths[0])
+            cacheModel.containsAll(paths.subList(5, 10))
+    }
+
+    void "Should keep newest files when batch exceeds max number of files"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.setMaxNumberOfFiles(2)
+
+        when:
+            cacheModel.putAll([sampleData[1], sampleData[2], generateFileBasicInfo("sample3", "/test/")])
+
+        then:
+            cacheModel.getNumberOfFiles()==2
+            !cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.contains(sampleData[2].filePath)
+            cacheModel.contains("/test/sample3.txt")
+    }
+
+    void "Should list paths starting with prefix"()
+    {
+        given:
+            cacheModel.setMaxNumberOfFiles(MAX_NUMBER_OF_FILES)
+            FileBasicInfo otherFile = generateFileBasicInfo("sample3", "/other/")
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.put(otherFile)
+
+        expect:
+            cacheModel.listPaths("/test/").sort() == [sampleData[0].filePath, sampleData[1].filePath]
+            cacheModel.listPaths("/oth").sort() == [otherFile.filePath]
+            cacheModel.listPaths("").sort() == [otherFile.filePath, sampleData[0].filePath, sampleData[1].filePath]
+            cacheModel.listPaths("/none/").isEmpty()
+    }
+}
@@ -0,0 +1,167 @@
+package com.github.jansowa.dao.nonrelationaldb
+
+import com.github.jansowa.domain.FileBasicInfo
+import spock.lang.Shared
+import spock.lang.Specification
+
+class NitriteCacheModel3Spec extends Specification{
+    @Shared NitriteCacheModel3 cacheModel
+    @Shared private FileBasicInfo[] sampleData
+    static final long MAX_NUMBER_OF_FILES = 1000
+    static final String CACHE_PATH = "NitriteCacheModel3Test.db"
+    static final String BUFFERED_CACHE_PATH = "NitriteCacheModel3BufferedTest.db"
+
+    def setupSpec()
+    {
+        cacheModel = new NitriteCacheModel3(MAX_NUMBER_OF_FILES, CACHE_PATH)
+        sampleData = new FileBasicInfo[3]
+        sampleData[0] = generateFileBasicInfo("sample0", "/test/")
+        sampleData[1] = generateFileBasicInfo("sample1", "/test/")
+        sampleData[2] = generateFileBasicInfo("sample2", "/test/")
+    }
+
+    def setup()
+    {
+        cacheModel.setMaxNumberOfFiles(MAX_NUMBER_OF_FILES)
+        cacheModel.removeAllData()
+    }
+
+    def cleanupSpec()
+    {
+        cacheModel.removeFromDevice()
+        new File(BUFFERED_CACHE_PATH).delete()
+    }
+
+    private static FileBasicInfo generateFileBasicInfo(String fileName, String folderPath){
+        Date creationDate = new Date()
+        return new FileBasicInfo(fileName, folderPath+fileName+".txt", "txt", "http://example.com/"+fileName+".txt", creationDate, creationDate)
+    }
+
+    void "Should read put file"()
+    {
+        when:
+            cacheModel.put(sampleData[0])
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+            cacheModel.read(sampleData[0].filePath).get().withLastUsageTime(sampleData[0].lastUsageTime) == sampleData[0]
+            !cacheModel.read(sampleData[1].filePath).isPresent()
+            cacheModel.getNumberOfFiles()==1
+    }
+
+    void "Should replace file put again"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.put(sampleData[0].withLastUsageTime(null))
+            cacheModel.putAll([sampleData[0], sampleData[1]])
+
+        then:
+            cacheModel.getNumberOfFiles()==2
+    }
+
+    void "Should delete put file"()
+    {
+        given:
+            cacheModel.putAll([sampleData[0], sampleData[1]])
+
+        when:
+            cacheModel.remove(sampleData[0].filePath)
+
+        then:
+            !cacheModel.contains(sampleData[0].filePath)
+            cacheModel.contains(sampleData[1].filePath)
+    }
+
+    void "Should move whole folder and replace files in destination"()
+    {
+        given:
+            cacheModel.put(generateFileBasicInfo("file0", "/test/move1/"))
+            cacheModel.put(generateFileBasicInfo("file1", "/test/move1/move1-1/"))
+            cacheModel.put(generateFileBasicInfo("file2", "/test2/"))
+            cacheModel.put(new FileBasicInfo("file0", "/destination/move1/file0.txt", "txt", "http://example.com/old.txt", new Date(), new Date()))
+
+        when:
+            cacheModel.movePath("/test/", "/destination/")
+
+        then:
+            cacheModel.read("/destination/move1/file0.txt").get().url == "http://example.com/file0.txt"
+            cacheModel.contains("/destination/move1/move1-1/file1.txt")
+            !cacheModel.contains("/test/move1/file0.txt")
+            cacheModel.contains("/test2/file2.txt")
+            cacheModel.getNumberOfFiles()==3
+    }
+
+    void "Should list paths starting with prefix"()
+    {
+        given:
+            FileBasicInfo otherFile = generateFileBasicInfo("sample3", "/other/")
+            cacheModel.putAll([sampleData[0], sampleData[1], otherFile])
+
+        expect:
+            cacheModel.listPaths("/test/").sort() == [sampleData[0].filePath, sampleData[1].filePath]
+            cacheModel.listPaths("/oth").sort() == [otherFile.filePath]
+            cacheModel.listPaths("").sort() == [otherFile.filePath, sampleData[0].filePath, sampleData[1].filePath]
+            cacheModel.listPaths("/none/").isEmpty()
+    }
+
+    void "Should remove oldest files when limit is exceeded"()
+    {
+        given:
+            cacheModel.setMaxNumberOfFiles(2)
+            cacheModel.put(sampleData[0])
+            Thread.sleep(10)
+            cacheModel.put(sampleData[1])
+            Thread.sleep(10)
+
+        when:
+            cacheModel.put(sampleData[2])
+            Thread.sleep(10)
+            cacheModel.put(generateFileBasicInfo("sample3", "/test/"))
+
+        then:
+            cacheModel.getNumberOfFiles()==2
+            !cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.contains(sampleData[2].filePath)
+            cacheModel.contains("/test/sample3.txt")
+    }
+
+    void "Should keep newest files when batch exceeds max number of files"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.setMaxNumberOfFiles(2)
+
+        when:
+            cacheModel.putAll([sampleData[1], sampleData[2], generateFileBasicInfo("sample3", "/test/")])
+
+        then:
+            cacheModel.getNumberOfFiles()==2
+            !cacheModel.contains(sampleData[0].filePath)
+            cacheModel.contains(sampleData[2].filePath)
+            cacheModel.contains("/test/sample3.txt")
+    }
+
+    void "Should keep files committed by close without automatic commits"()
+    {
+        given:
+            NitriteCacheModel3 bufferedCacheModel = new NitriteCacheModel3(MAX_NUMBER_OF_FILES, BUFFERED_CACHE_PATH, true, 0)
+            bufferedCacheModel.putAll([sampleData[0], sampleData[1]])
+            bufferedCacheModel.remove(sampleData[1].filePath)
+
+        when:
+            bufferedCacheModel.close()
+            bufferedCacheModel = new NitriteCacheModel3(MAX_NUMBER_OF_FILES, BUFFERED_CACHE_PATH, true, 0)
+
+        then:
+            bufferedCacheModel.contains(sampleData[0].filePath)
+            !bufferedCacheModel.contains(sampleData[1].filePath)
+            bufferedCacheModel.getSizeInBytes() > 0
+
+        cleanup:
+            bufferedCacheModel.removeFromDevice()
+    }
+}
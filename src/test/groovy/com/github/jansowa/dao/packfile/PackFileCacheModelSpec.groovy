@@ -0,0 +1,258 @@
+package com.github.jansowa.dao.packfile
+
+import com.github.jansowa.domain.FileBasicInfo
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+class PackFileCacheModelSpec extends Specification{
+    @Shared PackFileCacheModel cacheModel
+    @Shared private FileBasicInfo[] sampleData
+    static final long MAX_FILES = 1000
+    static final String CACHE_PATH = "PackFileCacheModelTest/"
+
+    def setupSpec()
+    {
+        sampleData = new FileBasicInfo[3]
+        sampleData[0] = generateFileBasicInfo("sample0", "/test/")
+        sampleData[1] = generateFileBasicInfo("sample1", "/test/")
+        sampleData[2] = generateFileBasicInfo("sample2", "/test/")
+    }
+
+    def setup()
+    {
+        cacheModel = new PackFileCacheModel(MAX_FILES, CACHE_PATH)
+    }
+
+    def cleanup()
+    {
+        cacheModel.close()
+        cacheModel.removeFromDevice()
+    }
+
+    private static FileBasicInfo generateFileBasicInfo(String fileName, String folderPath){
+        Date creationDate = new Date()
+        return new FileBasicInfo(fileName, folderPath+fileName+".txt", "txt", "http://example.com/"+fileName+".txt", creationDate, creationDate)
+    }
+
+    private static int countSegments(){
+        return new File(CACHE_PATH).listFiles().count { it.name.endsWith(".pack") }
+    }
+
+    void "Should put file into pack file"()
+    {
+        when:
+            cacheModel.put(sampleData[0])
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+            cacheModel.getNumberOfFiles()==1
+            countSegments()==1
+    }
+
+    void "Should read file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            Optional<FileBasicInfo> readFile = cacheModel.read(sampleData[0].filePath)
+
+        then:
+            readFile.get().url == sampleData[0].url
+            readFile.get().creationTime == sampleData[0].creationTime
+            readFile.get().name == sampleData[0].name
+            readFile.get().extension == sampleData[0].extension
+            !cacheModel.read("/test/missing.txt").isPresent()
+    }
+
+    void "Should remove file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.remove(sampleData[0].filePath)
+
+        then:
+            !cacheModel.contains(sampleData[0].filePath)
+            cacheModel.contains(sampleData[1].filePath)
+            cacheModel.getNumberOfFiles()==1
+    }
+
+    void "Should move whole folder"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.put(generateFileBasicInfo("sample2", "/other/"))
+
+        when:
+            cacheModel.movePath("/test/", "/moved/")
+
+        then:
+            cacheModel.read("/moved/sample0.txt").get().url == sampleData[0].url
+            cacheModel.contains("/moved/sample1.txt")
+            !cacheModel.contains(sampleData[0].filePath)
+            cacheModel.contains("/other/sample2.txt")
+            cacheModel.getNumberOfFiles()==3
+    }
+
+    void "Should list paths starting with prefix"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.put(generateFileBasicInfo("sample2", "/other/"))
+
+        when:
+            List<String> paths = cacheModel.listPaths("/test/")
+
+        then:
+            paths.toSet() == [sampleData[0].filePath, sampleData[1].filePath].toSet()
+    }
+
+    void "Should remove least recently used file when limit is exceeded"()
+    {
+        given:
+            cacheModel.setMaxNumberOfFiles(2)
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.read(sampleData[0].filePath)
+
+        when:
+            cacheModel.put(sampleData[2])
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.contains(sampleData[2].filePath)
+    }
+
+    void "Should load files stored by previous instance"()
+    {
+        given:
+            cacheModel.putAll([sampleData[0], sampleData[1], sampleData[2]])
+            cacheModel.remove(sampleData[1].filePath)
+            cacheModel.movePath(sampleData[2].filePath, "/moved/sample2.txt")
+            cacheModel.close()
+
+        when:
+            cacheModel = new PackFileCacheModel(MAX_FILES, CACHE_PATH)
+
+        then:
+            cacheModel.read(sampleData[0].filePath).get().url == sampleData[0].url
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.read("/moved/sample2.txt").get().url == sampleData[2].url
+            cacheModel.getNumberOfFiles()==2
+    }
+
+    void "Should cut off torn record at end of segment"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.close()
+            long sizeInBytes = cacheModel.getSizeInBytes()
+            File segment = new File(CACHE_PATH).listFiles().find { it.name.endsWith(".pack") }
+            segment.append([0, 0, 0, 100, 1, 2, 3] as byte[])
+
+        when:
+            cacheModel = new PackFileCacheModel(MAX_FILES, CACHE_PATH)
+            cacheModel.put(sampleData[1])
+            cacheModel.close()
+            cacheModel = new PackFileCacheModel(MAX_FILES, CACHE_PATH)
+
+        then:
+            cacheModel.read(sampleData[0].filePath).isPresent()
+            cacheModel.read(sampleData[1].filePath).isPresent()
+            cacheModel.getNumberOfFiles()==2
+            cacheModel.getSizeInBytes() > sizeInBytes
+    }
+
+    void "Should start new segment when active one is full"()
+    {
+        given:
+            cacheModel.close()
+            cacheModel = new PackFileCacheModel(MAX_FILES, CACHE_PATH, 100)
+
+        when:
+            cacheModel.putAll([sampleData[0], sampleData[1], sampleData[2]])
+
+        then:
+            countSegments()==3
+            cacheModel.read(sampleData[1].filePath).get().url == sampleData[1].url
+    }
+
+    void "Should reclaim dead records by compaction"()
+    {
+        given:
+            100.times { cacheModel.put(sampleData[0]) }
+            cacheModel.put(sampleData[1])
+            cacheModel.remove(sampleData[1].filePath)
+            long sizeBeforeCompaction = cacheModel.getSizeInBytes()
+
+        when:
+            cacheModel.compact()
+
+        then:
+            cacheModel.getSizeInBytes() < sizeBeforeCompaction / 50
+            cacheModel.read(sampleData[0].filePath).get().url == sampleData[0].url
+            countSegments()==1
+
+        when:
+            cacheModel.close()
+            cacheModel = new PackFileCacheModel(MAX_FILES, CACHE_PATH)
+
+        then:
+            cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.getNumberOfFiles()==1
+    }
+
+    void "Should compact in background when most records are dead"()
+    {
+        given:
+            PollingConditions conditions = new PollingConditions(timeout: 10)
+
+        when:
+            2000.times { cacheModel.put(sampleData[it % 3]) }
+
+        then:
+            conditions.eventually {
+                assert cacheModel.getSizeInBytes() < 64 * 1024
+            }
+            cacheModel.getNumberOfFiles()==3
+            cacheModel.read(sampleData[2].filePath).get().url == sampleData[2].url
+    }
+
+    void "Should remove all data"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.removeAllData()
+            cacheModel.put(sampleData[1])
+
+        then:
+            !cacheModel.contains(sampleData[0].filePath)
+            cacheModel.contains(sampleData[1].filePath)
+            cacheModel.getNumberOfFiles()==1
+    }
+
+    void "Should remove cache from device"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.removeFromDevice()
+
+        then:
+            !new File(CACHE_PATH).exists()
+            cacheModel.getNumberOfFiles()==0
+            cacheModel.getSizeInBytes()==0
+    }
+}
@@ -4,6 +4,8 @@ import com.github.jansowa.domain.FileBasicInfo
 import spock.lang.Shared
 import spock.lang.Specification
 
+import java.sql.ResultSet
+
 class SQLiteCacheModel1Spec extends Specification{
     @Shared SQLiteCacheModel1 cacheModel
     @Shared private FileBasicInfo[] sampleData
@@ -232,4 +234,179 @@ class SQLiteCacheModel1Spec extends Specification{
             !cacheModel.contains(sampleData[0].filePath)
             cacheModel.getNumberOfFiles()==1
     }
+
+    void "Should put, read and remove files in batch"()
+    {
+        given:
+            List<FileBasicInfo> files = (0..<10).collect { generateFileBasicInfo("batch"+it, it % 2 == 0 ? "/batch/even/" : "/batch/odd/") }
+            List<String> paths = files*.filePath
+
+        when:
+            cacheModel.putAll(files)
+
+        then:
+            cacheModel.getNumberOfFiles()==10
+            cacheModel.containsAll(paths)
+            !cacheModel.containsAll(paths + "/batch/missing.txt")
+            cacheModel.readAll(paths + "/batch/missing.txt")*.filePath == paths
+
+        when:
+            cacheModel.removeAll(paths.subList(0, 5))
+
+        then:
+            cacheModel.getNumberOfFiles()==5
+            !cacheModel.contains(paths[0])
+            cacheModel.containsAll(paths.subList(5, 10))
+    }
+
+    void "Should keep newest files when batch exceeds max number of files"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.setMaxNumberOfFiles(2)
+
+        when:
+            cacheModel.putAll([sampleData[1], sampleData[2], generateFileBasicInfo("sample3", "/test/")])
+
+        then:
+            cacheModel.getNumberOfFiles()==2
+            !cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.contains(sampleData[2].filePath)
+            cacheModel.contains("/test/sample3.txt")
+    }
+
+    void "Should use write-ahead log"()
+    {
+        when:
+            ResultSet journalMode = cacheModel.connection.createStatement().executeQuery("PRAGMA journal_mode")
+
+        then:
+            journalMode.next()
+            journalMode.getString(1) == "wal"
+    }
+
+    void "Should reopen closed connection with prepared statements"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.read(sampleData[0].filePath)
+
+        when:
+            cacheModel.closeConnection()
+            cacheModel.put(sampleData[1])
+
+        then:
+            cacheModel.read(sampleData[0].filePath).isPresent()
+            cacheModel.contains(sampleData[1].filePath)
+            cacheModel.getNumberOfFiles()==2
+    }
+
+    void "Should remove write-ahead log files from device"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.removeFromDevice()
+
+        then:
+            !new File(CACHE_PATH + "-wal").exists()
+            !new File(CACHE_PATH + "-shm").exists()
+    }
+
+    void "Should keep one row when the same path is put twice"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            FileBasicInfo changedFile = new FileBasicInfo("changed", sampleData[0].filePath, "txt", "http://example.com/changed.txt", new Date(), new Date())
+
+        when:
+            cacheModel.put(changedFile)
+
+        then:
+            cacheModel.getNumberOfFiles()==1
+            cacheModel.read(sampleData[0].filePath).get().name == "changed"
+    }
+
+    void "Should replace file stored under destination path when moving"()
+    {
+        given:
+            cacheModel.put(generateFileBasicInfo("file", "/source/"))
+            cacheModel.put(generateFileBasicInfo("file", "/destination/"))
+            cacheModel.put(generateFileBasicInfo("other", "/sourceOther/"))
+
+        when:
+            cacheModel.movePath("/source/", "/destination/")
+
+        then:
+            cacheModel.getNumberOfFiles()==2
+            cacheModel.contains("/destination/file.txt")
+            !cacheModel.contains("/source/file.txt")
+            cacheModel.contains("/sourceOther/other.txt")
+    }
+
+    void "Should use indexes to find files and oldest file"()
+    {
+        when:
+            String pathPlan = explain("SELECT id FROM files WHERE filePath='/test/sample0.txt'")
+            String oldestPlan = explain("SELECT id FROM files ORDER BY lastUsageTime LIMIT 1")
+            String rangePlan = explain("SELECT count(*) FROM files WHERE filePath >= '/test/' AND filePath < '/test0'")
+
+        then:
+            pathPlan.contains("filesByPath")
+            rangePlan.contains("filesByPath")
+            oldestPlan.contains("filesByLastUsageTime")
+    }
+
+    void "Should migrate database without indexes"()
+    {
+        given:
+            cacheModel.closeConnection()
+            cacheModel.removeFromDevice()
+            new File(CACHE_PATH).getParentFile().mkdirs()
+            java.sql.Connection legacyConnection = java.sql.DriverManager.getConnection("jdbc:sqlite:" + CACHE_PATH)
+            legacyConnection.createStatement().executeUpdate("CREATE TABLE files(id INTEGER PRIMARY KEY, name TEXT, filePath TEXT, " +
+                    "extension TEXT, url TEXT, creationTime INTEGER, lastUsageTime INTEGER)")
+            legacyConnection.createStatement().executeUpdate("INSERT INTO files VALUES(null, 'old', '/legacy/a.txt', 'txt', 'url', 1, 1)")
+            legacyConnection.createStatement().executeUpdate("INSERT INTO files VALUES(null, 'new', '/legacy/a.txt', 'txt', 'url', 2, 2)")
+            legacyConnection.createStatement().executeUpdate("INSERT INTO files VALUES(null, 'b', '/legacy/b.txt', 'txt', 'url', 3, 3)")
+            legacyConnection.close()
+
+        when:
+            cacheModel = new SQLiteCacheModel1(MAX_NUMBER_OF_FILES, CACHE_PATH)
+            ResultSet schemaVersion = cacheModel.connection.createStatement().executeQuery("PRAGMA user_version")
+
+        then:
+            cacheModel.getNumberOfFiles()==2
+            cacheModel.read("/legacy/a.txt").get().name == "new"
+            schemaVersion.next()
+            schemaVersion.getInt(1) == 1
+            explain("SELECT id FROM files WHERE filePath='/legacy/a.txt'").contains("filesByPath")
+    }
+
+    private String explain(String query){
+        ResultSet plan = cacheModel.connection.createStatement().executeQuery("EXPLAIN QUERY PLAN " + query)
+        StringBuilder planText = new StringBuilder()
+        while(plan.next()){
+            planText.append(plan.getString("detail"))
+        }
+        plan.close()
+        return planText.toString()
+    }
+
+    void "Should list paths starting with prefix"()
+    {
+        given:
+            FileBasicInfo otherFile = generateFileBasicInfo("sample3", "/other/")
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.put(otherFile)
+
+        expect:
+            cacheModel.listPaths("/test/").sort() == [sampleData[0].filePath, sampleData[1].filePath]
+            cacheModel.listPaths("/oth").sort() == [otherFile.filePath]
+            cacheModel.listPaths("").sort() == [otherFile.filePath, sampleData[0].filePath, sampleData[1].filePath]
+            cacheModel.listPaths("/none/").isEmpty()
+    }
 }
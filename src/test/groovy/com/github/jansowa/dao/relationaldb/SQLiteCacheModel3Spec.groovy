@@ -0,0 +1,473 @@
+package com.github.jansowa.dao.relationaldb
+
+import com.github.jansowa.domain.FileBasicInfo
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.sql.ResultSet
+
+class SQLiteCacheModel3Spec extends Specification{
+    @Shared SQLiteCacheModel3 cacheModel
+    @Shared private FileBasicInfo[] sampleData
+    static final long MAX_NUMBER_OF_FILES = 1000
+    static final String CACHE_PATH = "sqlDir1/sqlDir4/SQLiteCacheModel3Test.db"
+    static final FileBasicInfo fileWithoutExtension = new FileBasicInfo("file", "/fol/file", null, "example.com", new Date(), new Date())
+
+    def setupSpec()
+    {
+        sampleData = new FileBasicInfo[3]
+        sampleData[0] = generateFileBasicInfo("sample0", "/test/")
+        Thread.sleep(300)
+        sampleData[1] = generateFileBasicInfo("sample1", "/test/")
+        Thread.sleep(300)
+        sampleData[2] = generateFileBasicInfo("sample2", "/test/")
+    }
+
+    def setup()
+    {
+        cacheModel = new SQLiteCacheModel3(MAX_NUMBER_OF_FILES, CACHE_PATH)
+    }
+
+    def cleanup()
+    {
+        cacheModel.closeConnection()
+        cacheModel.removeFromDevice()
+    }
+
+    private static FileBasicInfo generateFileBasicInfo(String fileName, String folderPath){
+        Date creationDate = new Date()
+        return new FileBasicInfo(fileName, folderPath+fileName+".txt", "txt", "http://example.com/"+fileName+".txt", creationDate, creationDate)
+    }
+
+
+
+    void "Should delete uploaded file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.remove(sampleData[0].getFilePath())
+
+        then:
+            !cacheModel.contains(sampleData[0].getFilePath())
+            cacheModel.getNumberOfFiles()==0
+    }
+    void "Should upload file"()
+    {
+        when:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(fileWithoutExtension)
+
+        then:
+            cacheModel.numberOfFiles==2
+            cacheModel.contains(fileWithoutExtension.getFilePath())
+            cacheModel.contains(sampleData[0].getFilePath())
+    }
+    void "Should read file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            Optional<FileBasicInfo> downloadedInfo = cacheModel.read(sampleData[0].getFilePath())
+
+        then:
+            downloadedInfo.get().name == sampleData[0].name
+            cacheModel.getNumberOfFiles()==1
+            downloadedInfo.get().creationTime == sampleData[0].creationTime
+    }
+
+    void "Read method should return Optional with null if there is no file in given path"()
+    {
+        given:
+            String readTestPath = "/test/read"
+
+        when:
+            Optional<FileBasicInfo> downloadedInfo= cacheModel.read(readTestPath)
+
+        then:
+            Optional.ofNullable(null) == downloadedInfo
+            cacheModel.getNumberOfFiles()==0
+    }
+
+    void "Contain method should return true if model contains file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            boolean result = cacheModel.contains(sampleData[0].getFilePath())
+
+        then:
+            result
+    }
+
+    void "Contain method should return false if model doesn't contain file"()
+    {
+        given:
+            String containsTestPath = "/test/contains"
+
+        when:
+            boolean result = cacheModel.contains(containsTestPath)
+
+        then:
+            !result
+            cacheModel.getNumberOfFiles()==0
+    }
+
+    void "Should move single file from first to second path"()
+    {
+        given:
+            String destinationPath = "/test/destination/file.png"
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.movePath(sampleData[0].getFilePath(), destinationPath)
+
+        then:
+            cacheModel.contains(destinationPath)
+            !cacheModel.contains(sampleData[0].getFilePath())
+            cacheModel.getNumberOfFiles()==1
+    }
+
+    void "Should move whole folder from first to second path"()
+    {
+        given:
+            String[] paths = new String[5]
+            String sourceFolder = "/test/"
+            String destinationFolder = "/testDestination/"
+            for(int i=0; i<3; i++){
+                paths[i] = "move1/"
+            }
+            paths[3] = "move1/move1-1/"
+            paths[4] = "move2/"
+            FileBasicInfo generatedFile
+
+            for(int i=0; i<5; i++){
+                generatedFile = generateFileBasicInfo("file"+i, sourceFolder +paths[i])
+                cacheModel.put(generatedFile)
+            }
+
+        when:
+            cacheModel.movePath(sourceFolder, destinationFolder)
+
+        then:
+            cacheModel.contains(destinationFolder+paths[0]+"file0.txt")
+            cacheModel.contains(destinationFolder+paths[1]+"file1.txt")
+            cacheModel.contains(destinationFolder+paths[2]+"file2.txt")
+            cacheModel.contains(destinationFolder+paths[3]+"file3.txt")
+            cacheModel.contains(destinationFolder+paths[4]+"file4.txt")
+    }
+
+    void "Should get number of stored files"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.put(generateFileBasicInfo("sample4", "/anotherFolder/"))
+
+        when:
+            int numberOfFiles = cacheModel.getNumberOfFiles()
+
+        then:
+            numberOfFiles == 3
+    }
+
+    void "Should remove all data"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.removeAllData()
+
+        then:
+            !cacheModel.contains(sampleData[0].getFilePath())
+            !cacheModel.contains(sampleData[1].getFilePath())
+            cacheModel.getNumberOfFiles()==0
+    }
+
+    void "Should remove cache from device"()
+    {
+        when:
+            cacheModel.removeFromDevice()
+            File cacheModelFile = new File(CACHE_PATH)
+        then:
+            !cacheModelFile.exists()
+    }
+
+    void "Should get size of cache model in bytes"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            double size = cacheModel.getSizeInBytes()
+        then:
+            size>0
+    }
+
+    void "Should remove oldest file"(){
+        given:
+            cacheModel.put(sampleData[0])
+            Thread.sleep(100)
+            cacheModel.put(sampleData[1])
+            Thread.sleep(100)
+            cacheModel.put(sampleData[2])
+
+        when:
+            cacheModel.removeOldestFile()
+            cacheModel.removeOldestFile()
+
+        then:
+            cacheModel.contains(sampleData[2].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            !cacheModel.contains(sampleData[0].filePath)
+            cacheModel.getNumberOfFiles()==1
+    }
+
+    void "Should put, read and remove files in batch"()
+    {
+        given:
+            List<FileBasicInfo> files = (0..<10).collect { generateFileBasicInfo("batch"+it, it % 2 == 0 ? "/batch/even/" : "/batch/odd/") }
+            List<String> paths = files*.filePath
+
+        when:
+            cacheModel.putAll(files)
+
+        then:
+            cacheModel.getNumberOfFiles()==10
+            cacheModel.containsAll(paths)
+            !cacheModel.containsAll(paths + "/batch/missing.txt")
+            cacheModel.readAll(paths + "/batch/missing.txt")*.filePath == paths
+
+        when:
+            cacheModel.removeAll(paths.subList(0, 5))
+
+        then:
+            cacheModel.getNumberOfFiles()==5
+            !cacheModel.contains(paths[0])
+            cacheModel.containsAll(paths.subList(5, 10))
+    }
+
+    void "Should keep newest files when batch exceeds max number of files"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.setMaxNumberOfFiles(2)
+
+        when:
+            cacheModel.putAll([sampleData[1], sampleData[2], generateFileBasicInfo("sample3", "/test/")])
+
+        then:
+            cacheModel.getNumberOfFiles()==2
+            !cacheModel.contains(sampleData[0].filePath)
+            !cacheModel.contains(sampleData[1].filePath)
+            cacheModel.contains(sampleData[2].filePath)
+            cacheModel.contains("/test/sample3.txt")
+    }
+
+    void "Should read file without extension"()
+    {
+        given:
+            cacheModel.put(fileWithoutExtension)
+            cacheModel.put(new FileBasicInfo("file", "/fol/file.", "", "example.com", new Date(), new Date()))
+
+        when:
+            FileBasicInfo readFile = cacheModel.read(fileWithoutExtension.filePath).get()
+
+        then:
+            readFile.name == "file"
+            readFile.extension == null
+            cacheModel.read("/fol/file.").get().extension == ""
+            cacheModel.getNumberOfFiles()==2
+    }
+
+    void "Should keep one row when the same path is put twice"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            FileBasicInfo changedFile = new FileBasicInfo("sample0", sampleData[0].filePath, "txt", "http://example.com/changed.txt", new Date(), new Date())
+
+        when:
+            cacheModel.put(changedFile)
+
+        then:
+            cacheModel.getNumberOfFiles()==1
+            cacheModel.read(sampleData[0].filePath).get().url == "http://example.com/changed.txt"
+    }
+
+    void "Should move folder by updating a single folder row"()
+    {
+        given:
+            cacheModel.put(generateFileBasicInfo("file0", "/source/"))
+            cacheModel.put(generateFileBasicInfo("file1", "/source/inner/"))
+            cacheModel.put(generateFileBasicInfo("file2", "/other/"))
+            long foldersBefore = countRows("folders")
+
+        when:
+            cacheModel.movePath("/source/", "/target/nested/")
+
+        then:
+            cacheModel.contains("/target/nested/file0.txt")
+            cacheModel.contains("/target/nested/inner/file1.txt")
+            !cacheModel.contains("/source/file0.txt")
+            !cacheModel.contains("/source/inner/file1.txt")
+            cacheModel.contains("/other/file2.txt")
+            cacheModel.getNumberOfFiles()==3
+            countRows("folders") == foldersBefore + 1
+    }
+
+    void "Should merge moved folder with existing destination folder"()
+    {
+        given:
+            cacheModel.put(generateFileBasicInfo("file0", "/source/"))
+            cacheModel.put(generateFileBasicInfo("file1", "/source/inner/"))
+            cacheModel.put(new FileBasicInfo("file1", "/destination/inner/file1.txt", "txt", "old", new Date(), new Date()))
+            cacheModel.put(generateFileBasicInfo("file2", "/destination/"))
+
+        when:
+            cacheModel.movePath("/source", "/destination")
+
+        then:
+            cacheModel.contains("/destination/file0.txt")
+            cacheModel.contains("/destination/file2.txt")
+            cacheModel.read("/destination/inner/file1.txt").get().url == "http://example.com/file1.txt"
+            !cacheModel.contains("/source/file0.txt")
+            cacheModel.getNumberOfFiles()==3
+    }
+
+    void "Should move folder into its own subfolder"()
+    {
+        given:
+            cacheModel.put(generateFileBasicInfo("file0", "/a/"))
+            cacheModel.put(generateFileBasicInfo("file1", "/a/b/"))
+
+        when:
+            cacheModel.movePath("/a/", "/a/b/")
+
+        then:
+            cacheModel.contains("/a/b/file0.txt")
+            cacheModel.contains("/a/b/b/file1.txt")
+            !cacheModel.contains("/a/file0.txt")
+            cacheModel.getNumberOfFiles()==2
+    }
+
+    void "Should replace file stored under destination path when moving single file"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+
+        when:
+            cacheModel.movePath(sampleData[0].filePath, sampleData[1].filePath)
+
+        then:
+            cacheModel.getNumberOfFiles()==1
+            cacheModel.read(sampleData[1].filePath).get().url == sampleData[0].url
+    }
+
+    void "Should remove folders left without files"()
+    {
+        given:
+            long foldersBefore = countRows("folders")
+            cacheModel.put(generateFileBasicInfo("file0", "/removed/inner/"))
+            cacheModel.put(generateFileBasicInfo("file1", "/evicted/inner/"))
+            cacheModel.put(generateFileBasicInfo("file2", "/moved/inner/"))
+            cacheModel.put(generateFileBasicInfo("file3", "/kept/"))
+
+        when:
+            cacheModel.remove("/removed/inner/file0.txt")
+            cacheModel.removeOldestFile()
+            cacheModel.movePath("/moved/inner/file2.txt", "/kept/file2.txt")
+
+        then:
+            //the folder with an empty name holds every path starting with a slash
+            countRows("folders") == foldersBefore + 2
+            cacheModel.contains("/kept/file2.txt")
+            cacheModel.contains("/kept/file3.txt")
+            cacheModel.getNumberOfFiles()==2
+
+        when:
+            cacheModel.movePath("/kept/", "/other/kept/")
+
+        then:
+            countRows("folders") == foldersBefore + 3
+            cacheModel.listPaths("").sort() == ["/other/kept/file2.txt", "/other/kept/file3.txt"]
+    }
+
+    void "Should keep files after reopening connection"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.movePath("/test/", "/moved/")
+
+        when:
+            cacheModel.closeConnection()
+            cacheModel = new SQLiteCacheModel3(MAX_NUMBER_OF_FILES, CACHE_PATH)
+
+        then:
+            cacheModel.getNumberOfFiles()==1
+            cacheModel.contains("/moved/sample0.txt")
+    }
+
+    void "Should use indexes for lookups, eviction and folder moves"()
+    {
+        expect:
+            explain("SELECT id FROM files WHERE folderId = 1 AND name = 'a' AND extension = '.txt'").contains("filesByFolder")
+            explain("SELECT id FROM files ORDER BY lastUsageTime LIMIT 1").contains("filesByLastUsageTime")
+            explain("SELECT id FROM folders WHERE parentId = 0 AND name = 'a'").contains("foldersByParent")
+            explain("UPDATE files SET folderId = 2 WHERE folderId = 1").contains("filesByFolder")
+    }
+
+    private long countRows(String table){
+        ResultSet count = cacheModel.connection.createStatement().executeQuery("SELECT count(*) FROM " + table)
+        count.next()
+        long rows = count.getLong(1)
+        count.close()
+        return rows
+    }
+
+    private String explain(String query){
+        ResultSet plan = cacheModel.connection.createStatement().executeQuery("EXPLAIN QUERY PLAN " + query)
+        StringBuilder planText = new StringBuilder()
+        while(plan.next()){
+            planText.append(plan.getString("detail"))
+        }
+        plan.close()
+        return planText.toString()
+    }
+
+    void "Should list paths starting with prefix"()
+    {
+        given:
+            FileBasicInfo otherFile = generateFileBasicInfo("sample3", "/other/")
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.put(otherFile)
+
+        expect:
+            cacheModel.listPaths("/test/").sort() == [sampleData[0].filePath, sampleData[1].filePath]
+            cacheModel.listPaths("/oth").sort() == [otherFile.filePath]
+            cacheModel.listPaths("").sort() == [otherFile.filePath, sampleData[0].filePath, sampleData[1].filePath]
+            cacheModel.listPaths("/none/").isEmpty()
+    }
+
+    void "Should list paths of nested folders only under folder of prefix"()
+    {
+        given:
+            FileBasicInfo nestedFile = generateFileBasicInfo("nested", "/test/sub/deeper/")
+            FileBasicInfo siblingFile = generateFileBasicInfo("sibling", "/testing/")
+            cacheModel.put(sampleData[0])
+            cacheModel.put(nestedFile)
+            cacheModel.put(siblingFile)
+
+        expect:
+            cacheModel.listPaths("/test/").sort() == [sampleData[0].filePath, nestedFile.filePath]
+            cacheModel.listPaths("/test/s").sort() == [sampleData[0].filePath, nestedFile.filePath]
+            cacheModel.listPaths("/test/sub/deeper/n") == [nestedFile.filePath]
+            cacheModel.listPaths("/test").sort() == [sampleData[0].filePath, nestedFile.filePath, siblingFile.filePath]
+    }
+}
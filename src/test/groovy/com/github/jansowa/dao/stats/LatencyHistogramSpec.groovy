@@ -0,0 +1,45 @@
+package com.github.jansowa.dao.stats
+
+import spock.lang.Specification
+
+class LatencyHistogramSpec extends Specification{
+    void "Should put every value in bucket which holds it"()
+    {
+        expect:
+            [0L, 1L, 31L, 32L, 33L, 64L, 65L, 1000L, 123456789L, Long.MAX_VALUE].every { long value ->
+                int bucketIndex = LatencyHistogram.bucketIndex(value)
+                LatencyHistogram.highestValue(bucketIndex) >= value &&
+                        (bucketIndex == 0 || LatencyHistogram.highestValue(bucketIndex - 1) < value)
+            }
+    }
+
+    void "Should return percentiles within bucket precision"()
+    {
+        given:
+            LatencyHistogram histogram = new LatencyHistogram()
+            (1..1000).each { histogram.record(it * 1000L) }
+
+        expect:
+            histogram.getCount() == 1000
+            Math.abs(histogram.getPercentile(50) - 500_000) <= 500_000 / 32
+            Math.abs(histogram.getPercentile(99) - 990_000) <= 990_000 / 32
+            histogram.getPercentile(100) == 1_000_000
+            histogram.getMax() == 1_000_000
+            histogram.getMean() == 500_500
+    }
+
+    void "Should forget values on reset"()
+    {
+        given:
+            LatencyHistogram histogram = new LatencyHistogram()
+            histogram.record(100)
+
+        when:
+            histogram.reset()
+
+        then:
+            histogram.getCount() == 0
+            histogram.getPercentile(99) == 0
+            histogram.getMax() == 0
+    }
+}
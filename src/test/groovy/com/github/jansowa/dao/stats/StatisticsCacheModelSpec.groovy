@@ -0,0 +1,133 @@
+package com.github.jansowa.dao.stats
+
+import com.github.jansowa.dao.CacheModel
+import com.github.jansowa.dao.datastructure.HashMapCacheModel
+import com.github.jansowa.dao.eviction.EvictingCacheModel
+import com.github.jansowa.dao.eviction.LruEvictionPolicy
+import com.github.jansowa.domain.FileBasicInfo
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.lang.management.ManagementFactory
+
+class StatisticsCacheModelSpec extends Specification{
+    @Shared StatisticsCacheModel cacheModel
+    @Shared private FileBasicInfo[] sampleData
+    static final long MAX_FILES = 2
+    static final String CACHE_PATH = "StatisticsCacheModelTest.ser"
+
+    def setupSpec()
+    {
+        sampleData = new FileBasicInfo[3]
+        sampleData[0] = generateFileBasicInfo("sample0", "/test/")
+        sampleData[1] = generateFileBasicInfo("sample1", "/test/")
+        sampleData[2] = generateFileBasicInfo("sample2", "/test/")
+    }
+
+    def setup()
+    {
+        cacheModel = new StatisticsCacheModel(new EvictingCacheModel(new HashMapCacheModel(MAX_FILES, CACHE_PATH), new LruEvictionPolicy()))
+    }
+
+    def cleanup()
+    {
+        cacheModel.removeFromDevice()
+    }
+
+    private static FileBasicInfo generateFileBasicInfo(String fileName, String folderPath){
+        Date creationDate = new Date()
+        return new FileBasicInfo(fileName, folderPath+fileName+".txt", "txt", "http://example.com/"+fileName+".txt", creationDate, creationDate)
+    }
+
+    void "Should count hits and misses"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.read(sampleData[0].filePath)
+            cacheModel.read(sampleData[1].filePath)
+            cacheModel.readAll([sampleData[0].filePath, sampleData[1].filePath, sampleData[2].filePath])
+
+        then:
+            cacheModel.statistics.hitCount == 2
+            cacheModel.statistics.missCount == 3
+            cacheModel.statistics.hitRate == 0.4d
+            cacheModel.statistics.getLatency(CacheOperation.READ).count == 3
+    }
+
+    void "Should count puts, removes, moves and evictions"()
+    {
+        when:
+            cacheModel.putAll([sampleData[0], sampleData[1]])
+            cacheModel.put(sampleData[2])
+            cacheModel.remove(sampleData[2].filePath)
+            cacheModel.movePath("/test/", "/moved/")
+
+        then:
+            cacheModel.statistics.putCount == 3
+            cacheModel.statistics.evictionCount == 1
+            cacheModel.statistics.removeCount == 1
+            cacheModel.statistics.moveCount == 1
+            cacheModel.statistics.getLatency(CacheOperation.PUT).count == 2
+            cacheModel.statistics.getLatency(CacheOperation.MOVE).count == 1
+    }
+
+    void "Should count evictions without replacing eviction listener"()
+    {
+        given:
+            EvictingCacheModel evictingCacheModel =
+                    new EvictingCacheModel(new HashMapCacheModel(MAX_FILES, CACHE_PATH), new LruEvictionPolicy())
+            List<String> evictedPaths = []
+            evictingCacheModel.setEvictionListener({ String path -> evictedPaths.add(path) })
+            CacheModel wrappedCacheModel = evictingCacheModel
+            StatisticsCacheModel listenedCacheModel = new StatisticsCacheModel(wrappedCacheModel)
+
+        when:
+            listenedCacheModel.putAll([sampleData[0], sampleData[1], sampleData[2]])
+
+        then:
+            evictedPaths == [sampleData[0].filePath]
+            listenedCacheModel.statistics.evictionCount == 1
+
+        cleanup:
+            listenedCacheModel.removeFromDevice()
+    }
+
+    void "Should forget statistics on reset"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.read(sampleData[0].filePath)
+
+        when:
+            cacheModel.statistics.reset()
+
+        then:
+            cacheModel.statistics.hitCount == 0
+            cacheModel.statistics.putCount == 0
+            cacheModel.statistics.readLatency99thPercentile == 0
+    }
+
+    void "Should expose statistics through JMX"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.read(sampleData[0].filePath)
+
+        when:
+            cacheModel.registerMBean("test")
+
+        then:
+            ManagementFactory.getPlatformMBeanServer().getAttribute(cacheModel.getMBeanName().get(), "HitCount") == 1L
+            ManagementFactory.getPlatformMBeanServer().invoke(cacheModel.getMBeanName().get(), "getLatencyPercentile",
+                    ["READ", 99d] as Object[], [String.name, double.name] as String[]) > 0
+
+        when:
+            cacheModel.unregisterMBean()
+
+        then:
+            !cacheModel.getMBeanName().isPresent()
+            ManagementFactory.getPlatformMBeanServer().queryNames(null, null).every { it.domain != "com.github.jansowa" }
+    }
+}
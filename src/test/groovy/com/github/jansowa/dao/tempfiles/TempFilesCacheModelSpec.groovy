@@ -1,5 +1,6 @@
 package com.github.jansowa.dao.tempfiles
 import com.github.jansowa.domain.FileBasicInfo
+import org.apache.commons.io.FileUtils
 
 import spock.lang.Shared
 import spock.lang.Specification
@@ -9,6 +10,7 @@ class TempFilesCacheModelSpec extends Specification{
     @Shared private FileBasicInfo[] sampleData
     static final long MAX_FILES = 1000
     static final String CACHE_PATH = "TempFilesCacheModelTest/"
+    static final String MANIFEST_PATH = "TempFilesCacheModelTest.manifest"
 
     def setupSpec()
     {
@@ -26,6 +28,7 @@ class TempFilesCacheModelSpec extends Specification{
     def cleanup()
     {
         cacheModel.removeFromDevice()
+        new File(MANIFEST_PATH).delete()
     }
 
     private static FileBasicInfo generateFileBasicInfo(String fileName, String folderPath){
@@ -230,4 +233,198 @@ class TempFilesCacheModelSpec extends Specification{
             cacheModel.contains(sampleData[2].getFilePath())
             cacheModel.getNumberOfFiles()==1
     }
-}
\ No newline at end of file
+
+    void "Should list paths starting with prefix"()
+    {
+        given:
+            FileBasicInfo otherFile = generateFileBasicInfo("sample3", "/other/")
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            cacheModel.put(otherFile)
+
+        expect:
+            cacheModel.listPaths("/test/").sort() == [sampleData[0].filePath, sampleData[1].filePath]
+            cacheModel.listPaths("/oth").sort() == [otherFile.filePath]
+            cacheModel.listPaths("").sort() == [otherFile.filePath, sampleData[0].filePath, sampleData[1].filePath]
+            cacheModel.listPaths("/none/").isEmpty()
+    }
+
+    void "Should index files stored before it was created"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            cacheModel.put(sampleData[1])
+            long sizeInBytes = cacheModel.getSizeInBytes()
+
+        when:
+            TempFilesCacheModel newCacheModel = new TempFilesCacheModel(MAX_FILES, CACHE_PATH)
+
+        then:
+            newCacheModel.getNumberOfFiles()==2
+            newCacheModel.getSizeInBytes()==sizeInBytes
+            newCacheModel.contains(sampleData[0].filePath)
+            newCacheModel.read(sampleData[1].filePath).get().url == sampleData[1].url
+    }
+
+    void "Should remove oldest file when limit is exceeded"()
+    {
+        given:
+            TempFilesCacheModel smallCacheModel = new TempFilesCacheModel(2, CACHE_PATH)
+            smallCacheModel.put(sampleData[0])
+            smallCacheModel.put(sampleData[1])
+
+        when:
+            smallCacheModel.put(sampleData[2])
+
+        then:
+            !smallCacheModel.contains(sampleData[0].filePath)
+            smallCacheModel.contains(sampleData[1].filePath)
+            smallCacheModel.contains(sampleData[2].filePath)
+            smallCacheModel.getNumberOfFiles()==2
+            !new File(CACHE_PATH + sampleData[0].filePath).exists()
+    }
+
+    void "Should keep size of stored files up to date"()
+    {
+        given:
+            cacheModel.put(sampleData[0])
+            long sizeOfOneFile = cacheModel.getSizeInBytes()
+            cacheModel.put(sampleData[1])
+            cacheModel.put(sampleData[0])
+
+        when:
+            cacheModel.remove(sampleData[1].filePath)
+
+        then:
+            cacheModel.getSizeInBytes()==sizeOfOneFile
+            cacheModel.getSizeInBytes()==FileUtils.sizeOfDirectory(new File(CACHE_PATH))
+            cacheModel.getNumberOfFiles()==1
+    }
+
+    void "Should index files in nested folders"()
+    {
+        given:
+            for(int folder=0; folder<10; folder++){
+                for(int file=0; file<5; file++){
+                    cacheModel.put(generateFileBasicInfo("file"+file, "/test/folder"+folder+"/nested/"))
+                }
+            }
+
+        when:
+            TempFilesCacheModel newCacheModel = new TempFilesCacheModel(MAX_FILES, CACHE_PATH)
+
+        then:
+            newCacheModel.getNumberOfFiles()==50
+            newCacheModel.contains("/test/folder9/nested/file4.txt")
+            newCacheModel.listPaths("/test/folder3/").size()==5
+    }
+
+    void "Should load index from manifest instead of scanning directory"()
+    {
+        given:
+            TempFilesCacheModel manifestCacheModel = new TempFilesCacheModel(MAX_FILES, CACHE_PATH, true)
+            manifestCacheModel.put(sampleData[0])
+            manifestCacheModel.put(sampleData[1])
+            manifestCacheModel.checkpoint()
+            //not put through the model, so only a scan would find it
+            FileUtils.writeStringToFile(new File(CACHE_PATH + "/test/unknown.txt"), "url\n0\n", "UTF-8")
+
+        when:
+            TempFilesCacheModel loadedCacheModel = new TempFilesCacheModel(MAX_FILES, CACHE_PATH, true)
+
+        then:
+            loadedCacheModel.getNumberOfFiles()==2
+            loadedCacheModel.contains(sampleData[0].filePath)
+            loadedCacheModel.read(sampleData[1].filePath).get().url == sampleData[1].url
+            !loadedCacheModel.contains("/test/unknown.txt")
+    }
+
+    void "Should delete manifest on first change after checkpoint"()
+    {
+        given:
+            TempFilesCacheModel manifestCacheModel = new TempFilesCacheModel(MAX_FILES, CACHE_PATH, true)
+            manifestCacheModel.put(sampleData[0])
+            manifestCacheModel.checkpoint()
+            boolean savedManifest = new File(MANIFEST_PATH).exists()
+
+        when:
+            manifestCacheModel.put(sampleData[1])
+            TempFilesCacheModel loadedCacheModel = new TempFilesCacheModel(MAX_FILES, CACHE_PATH, true)
+
+        then:
+            savedManifest
+            !new File(MANIFEST_PATH).exists()
+            loadedCacheModel.getNumberOfFiles()==2
+    }
+
+    void "Should ignore manifest when it isn't used"()
+    {
+        given:
+            TempFilesCacheModel manifestCacheModel = new TempFilesCacheModel(MAX_FILES, CACHE_PATH, true)
+            manifestCacheModel.put(sampleData[0])
+            manifestCacheModel.checkpoint()
+            TempFilesCacheModel scanningCacheModel = new TempFilesCacheModel(MAX_FILES, CACHE_PATH)
+            scanningCacheModel.put(sampleData[1])
+
+        when:
+            TempFilesCacheModel loadedCacheModel = new TempFilesCacheModel(MAX_FILES, CACHE_PATH, true)
+
+        then:
+            loadedCacheModel.getNumberOfFiles()==2
+    }
+
+    void "Should store sharded files in two levels of hashed folders"()
+    {
+        given:
+            TempFilesCacheModel shardedCacheModel = new TempFilesCacheModel(MAX_FILES, CACHE_PATH, false, true)
+
+        when:
+            shardedCacheModel.putAll([sampleData[0], sampleData[1], sampleData[2]])
+
+        then:
+            shardedCacheModel.contains(sampleData[0].filePath)
+            shardedCacheModel.read(sampleData[1].filePath).get().url == sampleData[1].url
+            shardedCacheModel.listPaths("/test/").size()==3
+            !new File(CACHE_PATH + "test").exists()
+            FileUtils.listFiles(new File(CACHE_PATH), null, true).every {
+                it.parentFile.name.length()==2 && it.parentFile.parentFile.name.length()==2
+            }
+    }
+
+    void "Should move folder in sharded layout"()
+    {
+        given:
+            TempFilesCacheModel shardedCacheModel = new TempFilesCacheModel(MAX_FILES, CACHE_PATH, false, true)
+            shardedCacheModel.put(sampleData[0])
+            shardedCacheModel.put(sampleData[1])
+            Date lastUsageTime = shardedCacheModel.read(sampleData[0].filePath).get().lastUsageTime
+
+        when:
+            shardedCacheModel.movePath("/test", "/moved")
+
+        then:
+            !shardedCacheModel.contains(sampleData[0].filePath)
+            shardedCacheModel.read("/moved/sample0.txt").get().url == sampleData[0].url
+            shardedCacheModel.read("/moved/sample0.txt").get().lastUsageTime == lastUsageTime
+            shardedCacheModel.contains("/moved/sample1.txt")
+            shardedCacheModel.getNumberOfFiles()==2
+            FileUtils.listFiles(new File(CACHE_PATH), null, true).size()==2
+    }
+
+    void "Should index sharded files stored before it was created"()
+    {
+        given:
+            TempFilesCacheModel shardedCacheModel = new TempFilesCacheModel(MAX_FILES, CACHE_PATH, false, true)
+            shardedCacheModel.put(sampleData[0])
+            shardedCacheModel.put(sampleData[1])
+            shardedCacheModel.movePath(sampleData[1].filePath, "/moved/sample1.txt")
+
+        when:
+            TempFilesCacheModel newCacheModel = new TempFilesCacheModel(MAX_FILES, CACHE_PATH, false, true)
+
+        then:
+            newCacheModel.getNumberOfFiles()==2
+            newCacheModel.contains(sampleData[0].filePath)
+            newCacheModel.read("/moved/sample1.txt").get().url == sampleData[1].url
+    }
+}
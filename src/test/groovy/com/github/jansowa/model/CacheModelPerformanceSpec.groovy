@@ -87,6 +87,16 @@ class CacheModelPerformanceSpec extends Specification {
             1 * cacheModel.put(generatedSampleFiles[4])
     }
 
+    void "Should add 5 files in one batch"()
+    {
+        when:
+            cacheModelPerformance.putFilesInBatch(generatedSampleFiles)
+
+        then:
+            1 * cacheModel.putAll(Arrays.asList(generatedSampleFiles))
+            0 * cacheModel.put(_)
+    }
+
     void "Should remove 5 files"()
     {
         given:
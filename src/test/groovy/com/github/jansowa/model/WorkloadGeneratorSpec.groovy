@@ -0,0 +1,179 @@
+package com.github.jansowa.model
+
+import com.github.jansowa.dao.concurrent.ConcurrentCacheModel
+import spock.lang.Specification
+
+class WorkloadGeneratorSpec extends Specification {
+    static final String TRACE_PATH = "WorkloadTraceTest.trace"
+
+    def cleanup()
+    {
+        new File(TRACE_PATH).delete()
+    }
+
+    private static WorkloadSettings.WorkloadSettingsBuilder settings(){
+        return WorkloadSettings.builder().numberOfFiles(10000)
+    }
+
+    void "Should generate the same workload for the same seed"()
+    {
+        given:
+            WorkloadGenerator first = new WorkloadGenerator(settings().seed(7).build())
+            WorkloadGenerator second = new WorkloadGenerator(settings().seed(7).build())
+
+        expect:
+            first.generateFiles()*.filePath == second.generateFiles()*.filePath
+            first.generateOperations(1000) == second.generateOperations(1000)
+    }
+
+    void "Should generate deep directory tree with skewed number of files"()
+    {
+        given:
+            WorkloadGenerator generator = new WorkloadGenerator(settings().maxDepth(4).build())
+
+        when:
+            Map<String, Integer> filesInDirectories = generator.getFilePaths()
+                    .collect { it.substring(0, it.lastIndexOf('/') + 1) }
+                    .countBy { it }
+            int maxDepth = filesInDirectories.keySet().collect { it.count("/") - 2 }.max()
+
+        then:
+            generator.getNumberOfDirectories() > 100
+            maxDepth == 4
+            filesInDirectories.values().max() > 10 * filesInDirectories.values().sum() / filesInDirectories.size()
+    }
+
+    void "Zipfian distribution should direct most reads to few files"()
+    {
+        given:
+            WorkloadGenerator generator = new WorkloadGenerator(settings().readRatio(1).writeRatio(0).removeRatio(0).moveRatio(0).build())
+
+        when:
+            List<Integer> readsPerFile = generator.generateOperations(100000)
+                    .countBy { it.filePath }.values().sort().reverse()
+            int readsOfTopFiles = readsPerFile.take(1000).sum() as int
+
+        then:
+            readsOfTopFiles > 0.6 * 100000
+    }
+
+    void "Should reject Zipfian constant out of sampler range"()
+    {
+        when:
+            new WorkloadGenerator(settings().zipfianConstant(zipfianConstant).build())
+
+        then:
+            thrown(IllegalArgumentException)
+
+        where:
+            zipfianConstant << [1.0d, 1.5d, -0.1d]
+    }
+
+    void "Hotspot distribution should direct given fraction of reads to hot files"()
+    {
+        given:
+            WorkloadGenerator generator = new WorkloadGenerator(settings()
+                    .accessDistribution(AccessDistribution.HOTSPOT)
+                    .hotspotDataFraction(0.1)
+                    .hotspotAccessFraction(0.9)
+                    .readRatio(1).writeRatio(0).removeRatio(0).moveRatio(0).build())
+
+        when:
+            List<Integer> readsPerFile = generator.generateOperations(100000)
+                    .countBy { it.filePath }.values().sort().reverse()
+            int readsOfHotFiles = readsPerFile.take(1000).sum() as int
+
+        then:
+            Math.abs(readsOfHotFiles - 90000) < 2000
+    }
+
+    void "Should mix operations in given ratio"()
+    {
+        given:
+            WorkloadGenerator generator = new WorkloadGenerator(settings()
+                    .readRatio(0.5).writeRatio(0.3).removeRatio(0.2).moveRatio(0).build())
+
+        when:
+            Map<WorkloadOperation.OperationType, Integer> operations = generator.generateOperations(100000).countBy { it.type }
+
+        then:
+            Math.abs(operations[WorkloadOperation.OperationType.READ] - 50000) < 1500
+            Math.abs(operations[WorkloadOperation.OperationType.PUT] - 30000) < 1500
+            Math.abs(operations[WorkloadOperation.OperationType.REMOVE] - 20000) < 1500
+            operations[WorkloadOperation.OperationType.MOVE] == null
+    }
+
+    private static List<Integer> movesInRow(List<WorkloadOperation> operations){
+        List<Integer> runs = []
+        int run = 0
+        for(WorkloadOperation operation: operations){
+            if(operation.type == WorkloadOperation.OperationType.MOVE){
+                run++
+            } else if(run > 0){
+                runs << run
+                run = 0
+            }
+        }
+        return runs
+    }
+
+    void "Should move subtrees in bursts and read moved files from new paths"()
+    {
+        given:
+            WorkloadGenerator generator = new WorkloadGenerator(settings()
+                    .readRatio(0.9).writeRatio(0).removeRatio(0).moveRatio(0.1).moveBurstSize(3).build())
+            WorkloadRunner runner = new WorkloadRunner(new ConcurrentCacheModel(10000))
+            runner.putFiles(generator.generateFiles())
+
+        when:
+            List<WorkloadOperation> operations = generator.generateOperations(3000)
+            runner.applyAll(operations)
+
+        then:
+            movesInRow(operations).every { it % 3 == 0 }
+            operations.count { it.type == WorkloadOperation.OperationType.MOVE } > 100
+            runner.getMisses() == 0
+            runner.getHits() == operations.count { it.type == WorkloadOperation.OperationType.READ }
+    }
+
+    void "Should count hits and misses of a model smaller than the dataset"()
+    {
+        given:
+            WorkloadGenerator generator = new WorkloadGenerator(settings().moveRatio(0).removeRatio(0).build())
+            WorkloadRunner runner = new WorkloadRunner(new ConcurrentCacheModel(1000))
+
+        when:
+            runner.applyAll(generator.generateOperations(20000))
+
+        then:
+            runner.getMisses() > 0
+            runner.getHitRate() > 0.3
+            runner.getHitRate() < 1
+    }
+
+    void "Should replay saved trace"()
+    {
+        given:
+            List<WorkloadOperation> operations = new WorkloadGenerator(settings().build()).generateOperations(1000)
+
+        when:
+            WorkloadTrace.write(operations, TRACE_PATH)
+
+        then:
+            WorkloadTrace.read(TRACE_PATH) == operations
+    }
+
+    void "Should skip comments and malformed lines of trace"()
+    {
+        given:
+            new File(TRACE_PATH).text = "# recorded trace\nREAD\t/a/b.txt\nUNKNOWN\t/a\n\nMOVE\t/a/\t/c/\nMOVE\t/a/\nREMOVE\t/c/b.txt\n"
+
+        when:
+            List<WorkloadOperation> operations = WorkloadTrace.read(TRACE_PATH)
+
+        then:
+            operations == [WorkloadOperation.read("/a/b.txt"),
+                           WorkloadOperation.move("/a/", "/c/"),
+                           WorkloadOperation.remove("/c/b.txt")]
+    }
+}